@@ -0,0 +1,117 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Los cálculos de {@link NucleosConsumo} con la API de vectores de Java: cada instrucción procesa tantos
+ * consumos como quepan en los registros vectoriales del procesador (4 con AVX2, 8 con AVX-512; las 24 horas
+ * de un día son 6 o 3 vectores exactos). Lo que sobra al final de un tramo se hace uno por uno.
+ *
+ * Solo se carga si la JVM arrancó con {@code --add-modules jdk.incubator.vector} (ver {@link NucleosConsumo}).
+ * Está fuera de src/ porque compilarla necesita esa misma opción; Maven la compila aparte (ver aplicacion/pom.xml).
+ */
+final class NucleosConsumoVectoriales extends NucleosConsumo {
+
+    /** El tamaño de vector más eficiente del procesador. */
+    private static final VectorSpecies<Double> ESPECIE = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    String mDescripcion() {
+        return "vectoriales (" + ESPECIE.vectorBitSize() + " bits, " + ESPECIE.length() + " consumos por instrucción)";
+    }
+
+    @Override
+    double mSuma(double[] valores, int desde, int cantidad) {
+        DoubleVector suma = DoubleVector.zero(ESPECIE);
+        int i = 0;
+        for (int limite = ESPECIE.loopBound(cantidad); i < limite; i += ESPECIE.length()) {
+            suma = suma.add(DoubleVector.fromArray(ESPECIE, valores, desde + i));
+        }
+        double total = suma.reduceLanes(VectorOperators.ADD);
+        for (; i < cantidad; i++) {
+            total += valores[desde + i];
+        }
+        return total;
+    }
+
+    @Override
+    double mMinimo(double[] valores, int desde, int cantidad) {
+        DoubleVector minimos = DoubleVector.broadcast(ESPECIE, Double.POSITIVE_INFINITY);
+        int i = 0;
+        for (int limite = ESPECIE.loopBound(cantidad); i < limite; i += ESPECIE.length()) {
+            minimos = minimos.min(DoubleVector.fromArray(ESPECIE, valores, desde + i));
+        }
+        double minimo = minimos.reduceLanes(VectorOperators.MIN);
+        for (; i < cantidad; i++) {
+            minimo = Math.min(minimo, valores[desde + i]);
+        }
+        return minimo;
+    }
+
+    @Override
+    double mMaximo(double[] valores, int desde, int cantidad) {
+        DoubleVector maximos = DoubleVector.broadcast(ESPECIE, Double.NEGATIVE_INFINITY);
+        int i = 0;
+        for (int limite = ESPECIE.loopBound(cantidad); i < limite; i += ESPECIE.length()) {
+            maximos = maximos.max(DoubleVector.fromArray(ESPECIE, valores, desde + i));
+        }
+        double maximo = maximos.reduceLanes(VectorOperators.MAX);
+        for (; i < cantidad; i++) {
+            maximo = Math.max(maximo, valores[desde + i]);
+        }
+        return maximo;
+    }
+
+    @Override
+    int mContarPositivos(double[] valores, int desde, int cantidad) {
+        int positivos = 0;
+        int i = 0;
+        for (int limite = ESPECIE.loopBound(cantidad); i < limite; i += ESPECIE.length()) {
+            positivos += DoubleVector.fromArray(ESPECIE, valores, desde + i).compare(VectorOperators.GT, 0.0).trueCount();
+        }
+        for (; i < cantidad; i++) {
+            positivos += valores[desde + i] > 0 ? 1 : 0;
+        }
+        return positivos;
+    }
+
+    @Override
+    void mSumarPorFranja(double[] valores, int desde, double[][] mascaras, double[] porFranja) {
+        for (int f = 0; f < mascaras.length; f++) {
+            double[] mascara = mascaras[f];
+            DoubleVector suma = DoubleVector.zero(ESPECIE);
+            int i = 0;
+            for (int limite = ESPECIE.loopBound(mascara.length); i < limite; i += ESPECIE.length()) {
+                DoubleVector kWh = DoubleVector.fromArray(ESPECIE, valores, desde + i);
+                suma = kWh.fma(DoubleVector.fromArray(ESPECIE, mascara, i), suma);
+            }
+            double total = suma.reduceLanes(VectorOperators.ADD);
+            for (; i < mascara.length; i++) {
+                total += valores[desde + i] * mascara[i];
+            }
+            porFranja[f] += total;
+        }
+    }
+
+    @Override
+    double mCostoPonderado(double[] valores, int desde, double[] minimos, double[] maximos, double[] precios,
+                           int cantidad) {
+        DoubleVector costo = DoubleVector.zero(ESPECIE);
+        int i = 0;
+        for (int limite = ESPECIE.loopBound(cantidad); i < limite; i += ESPECIE.length()) {
+            DoubleVector kWh = DoubleVector.fromArray(ESPECIE, valores, desde + i);
+            VectorMask<Double> dentro = kWh.compare(VectorOperators.GE, DoubleVector.fromArray(ESPECIE, minimos, i))
+                    .and(kWh.compare(VectorOperators.LE, DoubleVector.fromArray(ESPECIE, maximos, i)));
+            costo = costo.add(kWh.mul(DoubleVector.fromArray(ESPECIE, precios, i)), dentro);
+        }
+        double total = costo.reduceLanes(VectorOperators.ADD);
+        for (; i < cantidad; i++) {
+            double kWh = valores[desde + i];
+            if (kWh >= minimos[i] && kWh <= maximos[i]) total += kWh * precios[i];
+        }
+        return total;
+    }
+}
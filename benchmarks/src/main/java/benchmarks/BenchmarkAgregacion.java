@@ -0,0 +1,80 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.CatalogoTarifas;
+import model.PrecisionConsumos;
+import model.Registrador;
+import model.ResumenMensual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el recorrido completo de un mes de toda la flota: el resumen de cada medidor (mínimo, máximo,
+ * totales por día y por franja, horas con consumo y costo) calculado desde los consumos, sin usar los
+ * totales que el medidor guarda. Es lo que se hace la primera vez que se consulta un mes, o cada vez
+ * que cambian las tarifas.
+ *
+ * {@link #resumirFlotaConVectores()} mide lo mismo en una JVM con el módulo jdk.incubator.vector, en la que
+ * cada día se procesa con la API de vectores en vez de con los cálculos escalares.
+ *
+ * Con {@code precision=SIMPLE} los consumos se guardan como float (la mitad de memoria por mes) y cada día
+ * se convierte a double al recorrerlo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkAgregacion {
+
+    @Param({"1000"})
+    public int clientes;
+
+    @Param({"DOBLE"})
+    public PrecisionConsumos precision;
+
+    private Registrador[] registradores;
+    private CatalogoTarifas catalogo;
+
+    @Setup
+    public void mPreparar() {
+        Controlador controlador = DatosFlota.mCrear(clientes, true, precision);
+        registradores = new Registrador[clientes];
+        for (int i = 0; i < clientes; i++) {
+            registradores[i] = controlador.mGetRegistradorDeCliente("C" + i, "R" + i);
+        }
+        catalogo = controlador.mGetCatalogoTarifas();
+    }
+
+    @Benchmark
+    public double resumirFlota() {
+        return mResumirFlota();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+    public double resumirFlotaConVectores() {
+        return mResumirFlota();
+    }
+
+    private double mResumirFlota() {
+        double total = 0;
+        for (Registrador registrador : registradores) {
+            ResumenMensual resumen = ResumenMensual.mCalcular(registrador, DatosFlota.ANIO, DatosFlota.MES, catalogo);
+            total += resumen.mGetCosto() + resumen.mGetMaximo() - resumen.mGetMinimo();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.Cliente;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la búsqueda de clientes por ID (mBusCliente, a través de mGetCliente) con flotas de distintos tamaños.
+ * La flota no tiene consumos, así que se pueden probar tamaños grandes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkBusquedaClientes {
+
+    private static final int CONSULTAS = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    public int clientes;
+
+    private Controlador controlador;
+    /** IDs a buscar, en orden al azar; uno de cada 8 no existe. */
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup
+    public void mPreparar() {
+        controlador = DatosFlota.mCrear(clientes, false);
+        SplittableRandom aleatorio = new SplittableRandom(2);
+        consultas = new String[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            consultas[i] = (i % 8 == 7) ? "NO" + i : "C" + aleatorio.nextInt(clientes);
+        }
+    }
+
+    @Benchmark
+    public Cliente buscarCliente() {
+        return controlador.mGetCliente(consultas[siguiente++ & (CONSULTAS - 1)]);
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.Consumo;
+import model.CursorConsumos;
+import model.VisitanteConsumoCosto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide las consultas de facturación de un cliente con flotas de distintos tamaños (un medidor por cliente,
+ * un mes simulado). Cada operación usa el siguiente cliente de la flota, en orden.
+ *
+ * Las variantes "EnCache" miden la consulta repetida (la factura ya está guardada); las variantes
+ * "TrasCambio" cambian antes un consumo del cliente, así que miden el ajuste incremental de los totales
+ * y el armado de la factura sin caché. Los consumos de un medidor se leen de tres formas: como lista de
+ * objetos, con un visitante y con un cursor (estas dos no crean objetos por hora).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkFacturacion {
+
+    @Param({"100", "1000", "10000"})
+    public int clientes;
+
+    private Controlador controlador;
+    private String[] idsClientes;
+    private String[] idsMedidores;
+    private int siguiente;
+    private double costoAcumulado;
+    /** Suma el costo de cada hora recorrida (se crea una sola vez, fuera de lo que se mide). */
+    private final VisitanteConsumoCosto sumador = (horaEpoca, kWh, costo) -> costoAcumulado += costo;
+
+    @Setup
+    public void mPreparar() {
+        controlador = DatosFlota.mCrear(clientes, true);
+        idsClientes = DatosFlota.mIds("C", clientes);
+        idsMedidores = DatosFlota.mIds("R", clientes);
+    }
+
+    /** Devuelve el índice del siguiente cliente, dando la vuelta al llegar al final. */
+    private int mSiguiente() {
+        int i = siguiente;
+        siguiente = (i + 1 == clientes) ? 0 : i + 1;
+        return i;
+    }
+
+    /** Cambia un consumo del cliente, para que su factura ya no esté en la caché. */
+    private void mCambiarConsumo(int i) {
+        controlador.mCambiarConsumoHoraEspecifica(idsClientes[i], idsMedidores[i], DatosFlota.ANIO, DatosFlota.MES,
+                1 + i % 28, i % 24, 150.0 + i % 500);
+    }
+
+    @Benchmark
+    public double valorFacturaEnCache() {
+        return controlador.mCalcularValorFacturaClienteMes(idsClientes[mSiguiente()], DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public double valorFacturaTrasCambio() {
+        int i = mSiguiente();
+        mCambiarConsumo(i);
+        return controlador.mCalcularValorFacturaClienteMes(idsClientes[i], DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public String facturaTextoEnCache() {
+        return controlador.mGenerarFacturaTextoCliente(idsClientes[mSiguiente()], DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public String facturaTextoTrasCambio() {
+        int i = mSiguiente();
+        mCambiarConsumo(i);
+        return controlador.mGenerarFacturaTextoCliente(idsClientes[i], DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public List<Consumo> obtenerConsumosRegistrador() {
+        int i = mSiguiente();
+        return controlador.mObtenerConsumosRegistrador(idsClientes[i], idsMedidores[i], DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public double recorrerConsumosRegistrador() {
+        int i = mSiguiente();
+        costoAcumulado = 0;
+        controlador.mRecorrerConsumosRegistrador(idsClientes[i], idsMedidores[i], DatosFlota.ANIO, DatosFlota.MES, sumador);
+        return costoAcumulado;
+    }
+
+    @Benchmark
+    public double cursorConsumosRegistrador() {
+        int i = mSiguiente();
+        CursorConsumos cursor = controlador.mGetRegistradorDeCliente(idsClientes[i], idsMedidores[i])
+                .mCursorConsumos(DatosFlota.ANIO, DatosFlota.MES, controlador.mGetCatalogoTarifas());
+        double costo = 0;
+        while (cursor.mAvanzar()) {
+            costo += cursor.mGetCosto();
+        }
+        return costo;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import controller.Controlador;
+import controller.ResultadoRenderizadoFacturas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la generación de las facturas de toda la flota en un solo lote, escritas en un destino que descarta
+ * lo que recibe (así se mide el armado del texto y no el disco).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkFacturasEnLote {
+
+    @Param({"1000", "10000"})
+    public int clientes;
+
+    private Controlador controlador;
+    private final Writer descarte = Writer.nullWriter();
+
+    @Setup
+    public void mPreparar() {
+        controlador = DatosFlota.mCrear(clientes, true);
+    }
+
+    @Benchmark
+    public ResultadoRenderizadoFacturas facturasEnLote() throws IOException {
+        return controlador.mGenerarFacturas(DatosFlota.ANIO, DatosFlota.MES, null, descarte);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.Cliente;
+import model.PerfilConsumo;
+import model.Registrador;
+import model.ResumenMensual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide las consultas de un solo cliente con muchos medidores (un mes simulado): recorrer sus medidores
+ * y armar su resumen del mes (que combina el resumen de cada medidor). Con gc.alloc.rate.norm se ve si
+ * pedir la lista de medidores crea objetos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkMedidoresCliente {
+
+    @Param({"1", "100", "5000"})
+    public int medidores;
+
+    private Controlador controlador;
+    private Cliente cliente;
+
+    @Setup
+    public void mPreparar() {
+        controlador = new Controlador();
+        controlador.mCrearCliente("C0", "CC", "cliente0@correo.com", "Calle 0");
+        for (int i = 0; i < medidores; i++) {
+            controlador.mCrearRegistrador("R" + i, "Calle " + i, (i % 2 == 0) ? "Medellín" : "Bogotá", "C0");
+        }
+        controlador.mSimularConsumosFlota(DatosFlota.ANIO, DatosFlota.MES, 1, PerfilConsumo.mFranjas(), DatosFlota.SEMILLA);
+        cliente = controlador.mGetCliente("C0");
+    }
+
+    @Benchmark
+    public long recorrerMedidores() {
+        long periodos = 0;
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            periodos += registrador.mGetAlmacenConsumos().mCantidadPeriodos();
+        }
+        return periodos;
+    }
+
+    @Benchmark
+    public ResumenMensual resumenClienteMes() {
+        return controlador.mResumenClienteMes("C0", DatosFlota.ANIO, DatosFlota.MES);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.Cliente;
+import model.HistogramaConsumos;
+import model.Registrador;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el p95 del consumo horario de toda la flota en un mes:
+ * - {@link #p95FlotaConHistogramas()}: suma las distribuciones que guarda cada medidor (lo que hace el Controlador).
+ * - {@link #p95FlotaTrasCambio()}: igual, pero antes cambia un consumo de un cliente (la distribución se ajusta sin recorrer el mes).
+ * - {@link #p95FlotaOrdenando()}: junta todos los consumos del mes y los ordena, como referencia.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkPercentiles {
+
+    @Param({"1000"})
+    public int clientes;
+
+    private Controlador controlador;
+    private int siguiente;
+    /** Los consumos que junta {@link #p95FlotaOrdenando()}, y cuántos lleva. */
+    private double[] todos;
+    private int cantidad;
+
+    @Setup
+    public void mPreparar() {
+        controlador = DatosFlota.mCrear(clientes, true);
+        controlador.mDistribucionConsumoFlotaMes(null, DatosFlota.ANIO, DatosFlota.MES); // Cada medidor arma la suya.
+    }
+
+    @Benchmark
+    public double p95FlotaConHistogramas() {
+        return controlador.mDistribucionConsumoFlotaMes(null, DatosFlota.ANIO, DatosFlota.MES).mPercentil(0.95);
+    }
+
+    @Benchmark
+    public double p95FlotaTrasCambio() {
+        int i = siguiente;
+        siguiente = (i + 1 == clientes) ? 0 : i + 1;
+        controlador.mCambiarConsumoHoraEspecifica("C" + i, "R" + i, DatosFlota.ANIO, DatosFlota.MES,
+                1 + i % 28, i % 24, 150.0 + i % 500);
+        HistogramaConsumos distribucion = controlador.mDistribucionConsumoFlotaMes(null, DatosFlota.ANIO, DatosFlota.MES);
+        return distribucion.mPercentil(0.95);
+    }
+
+    @Benchmark
+    public double p95FlotaOrdenando() {
+        todos = new double[0];
+        cantidad = 0;
+        for (Cliente cliente : controlador.mGetClientes()) {
+            for (Registrador registrador : cliente.mGetRegistradores()) {
+                registrador.mRecorrerDias(DatosFlota.ANIO, DatosFlota.MES, this::mJuntarDia);
+            }
+        }
+        Arrays.sort(todos, 0, cantidad);
+        return todos[(int) Math.max(1, Math.ceil(0.95 * cantidad)) - 1];
+    }
+
+    /** Agrega a {@link #todos} las 24 horas de un día. */
+    private void mJuntarDia(int dia, double[] kWh, int desde) {
+        if (cantidad + 24 > todos.length) {
+            todos = Arrays.copyOf(todos, Math.max(todos.length * 2, cantidad + 24));
+        }
+        System.arraycopy(kWh, desde, todos, cantidad, 24);
+        cantidad += 24;
+    }
+}
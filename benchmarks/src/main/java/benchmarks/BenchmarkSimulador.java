@@ -0,0 +1,60 @@
+package benchmarks;
+
+import controller.SimuladorConsumos;
+import model.CatalogoTarifas;
+import model.PerfilConsumo;
+import model.Registrador;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cuánto tarda simular un mes para toda una flota de medidores, con cada perfil predefinido.
+ * Cada operación vuelve a simular el mismo mes sobre los mismos medidores (con otra semilla).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkSimulador {
+
+    @Param({"1000", "10000"})
+    public int medidores;
+
+    @Param({"franjas", "residencial", "comercial"})
+    public String perfil;
+
+    private final SimuladorConsumos simulador = new SimuladorConsumos();
+    private final CatalogoTarifas catalogo = CatalogoTarifas.mPredeterminado();
+    private List<Registrador> flota;
+    private PerfilConsumo perfilConsumo;
+    private long semilla;
+
+    @Setup
+    public void mPreparar() {
+        flota = new ArrayList<>(medidores);
+        for (int i = 0; i < medidores; i++) {
+            flota.add(new Registrador("R" + i, "Calle " + i, "Medellín"));
+        }
+        perfilConsumo = PerfilConsumo.mBuscar(perfil);
+    }
+
+    @Benchmark
+    public long simularMes() {
+        return simulador.mSimular(flota, DatosFlota.ANIO, DatosFlota.MES, 1, catalogo, perfilConsumo, semilla++);
+    }
+}
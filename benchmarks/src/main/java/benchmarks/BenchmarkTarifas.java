@@ -0,0 +1,59 @@
+package benchmarks;
+
+import model.Consumo;
+import model.FranjaHoraria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la búsqueda de la franja de una hora y el costo de un consumo, con horas y kWh variados
+ * (dentro y fuera de las franjas) para que no se mida siempre el mismo caso.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkTarifas {
+
+    private static final int CASOS = 1024;
+
+    private final int[] horas = new int[CASOS];
+    private final double[] kWh = new double[CASOS];
+    private final Consumo[] consumos = new Consumo[CASOS];
+    private int siguiente;
+
+    @Setup
+    public void mPreparar() {
+        SplittableRandom aleatorio = new SplittableRandom(1);
+        for (int i = 0; i < CASOS; i++) {
+            horas[i] = aleatorio.nextInt(24);
+            kWh[i] = aleatorio.nextDouble(50, 1100);
+            consumos[i] = new Consumo(LocalDateTime.of(2025, 3, 1 + i % 28, horas[i], 0), kWh[i]);
+        }
+    }
+
+    @Benchmark
+    public FranjaHoraria obtenerFranja() {
+        int i = siguiente++ & (CASOS - 1);
+        return FranjaHoraria.mObtenerFranja(horas[i], kWh[i]);
+    }
+
+    @Benchmark
+    public double calcularCosto() {
+        return consumos[siguiente++ & (CASOS - 1)].mCalcularCosto();
+    }
+}
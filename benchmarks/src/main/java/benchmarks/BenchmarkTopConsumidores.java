@@ -0,0 +1,66 @@
+package benchmarks;
+
+import controller.ConsumidorDestacado;
+import controller.Controlador;
+import model.Cliente;
+import model.CriterioConsumo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cómo hallar los 100 clientes que más pagaron en un mes:
+ * - {@link #top100PorCosto()}: con el motor de top-K del Controlador (un montículo de 100 por tramo).
+ * - {@link #top100FacturandoYOrdenando()}: calculando el valor de la factura de cada cliente y ordenándolos todos, como referencia.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenchmarkTopConsumidores {
+
+    private static final int K = 100;
+
+    @Param({"1000", "10000"})
+    public int clientes;
+
+    private Controlador controlador;
+
+    @Setup
+    public void mPreparar() {
+        controlador = DatosFlota.mCrear(clientes, true);
+        controlador.mFacturarFlota(DatosFlota.ANIO, DatosFlota.MES); // Cada medidor resume su mes.
+    }
+
+    @Benchmark
+    public List<ConsumidorDestacado> top100PorCosto() {
+        return controlador.mTopConsumidoresFlotaMes(K, CriterioConsumo.COSTO, 0, false, DatosFlota.ANIO, DatosFlota.MES);
+    }
+
+    @Benchmark
+    public List<ConsumidorDestacado> top100FacturandoYOrdenando() {
+        List<ConsumidorDestacado> todos = new ArrayList<>();
+        for (Cliente cliente : controlador.mGetClientes()) {
+            String id = cliente.mGetNumeroIdentificacion();
+            double valor = controlador.mCalcularValorFacturaClienteMes(id, DatosFlota.ANIO, DatosFlota.MES);
+            if (valor >= 0) todos.add(new ConsumidorDestacado(id, null, valor));
+        }
+        todos.sort(Comparator.comparingDouble(ConsumidorDestacado::mGetValor).reversed());
+        return todos.subList(0, Math.min(K, todos.size()));
+    }
+}
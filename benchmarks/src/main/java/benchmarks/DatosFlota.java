@@ -0,0 +1,59 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.PerfilConsumo;
+import model.PrecisionConsumos;
+
+/**
+ * Arma un Controlador con una flota de prueba reproducible: clientes "C0", "C1", ..., cada uno con
+ * un medidor "R0", "R1", ..., y (si se pide) el mes {@value #ANIO}/{@value #MES} simulado con una semilla fija.
+ */
+final class DatosFlota {
+
+    static final int ANIO = 2025;
+    static final int MES = 3;
+    static final long SEMILLA = 20250301L;
+
+    private DatosFlota() {
+    }
+
+    /**
+     * Crea la flota.
+     * @param clientes Cuántos clientes (y medidores).
+     * @param conConsumos Si se simulan los consumos del mes.
+     * @return El controlador con la flota cargada.
+     */
+    static Controlador mCrear(int clientes, boolean conConsumos) {
+        return mCrear(clientes, conConsumos, PrecisionConsumos.DOBLE);
+    }
+
+    /**
+     * Crea la flota guardando los consumos en memoria con la precisión indicada.
+     * @param clientes Cuántos clientes (y medidores).
+     * @param conConsumos Si se simulan los consumos del mes.
+     * @param precision Con qué tipo de número se guardan los consumos.
+     * @return El controlador con la flota cargada.
+     */
+    static Controlador mCrear(int clientes, boolean conConsumos, PrecisionConsumos precision) {
+        Controlador controlador = new Controlador(null, precision);
+        for (int i = 0; i < clientes; i++) {
+            controlador.mCrearCliente("C" + i, "CC", "cliente" + i + "@correo.com", "Calle " + i);
+            controlador.mCrearRegistrador("R" + i, "Calle " + i, (i % 2 == 0) ? "Medellín" : "Bogotá", "C" + i);
+        }
+        if (conConsumos) {
+            controlador.mSimularConsumosFlota(ANIO, MES, 1, PerfilConsumo.mFranjas(), SEMILLA);
+        }
+        return controlador;
+    }
+
+    /**
+     * Devuelve los IDs de clientes "C0" a "C(n-1)", para no armar textos dentro de lo que se mide.
+     */
+    static String[] mIds(String prefijo, int cantidad) {
+        String[] ids = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ids[i] = prefijo + i;
+        }
+        return ids;
+    }
+}
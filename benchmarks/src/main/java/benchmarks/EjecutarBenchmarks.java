@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de los benchmarks. Acepta las mismas opciones que JMH (por ejemplo, un filtro
+ * por nombre, {@code -p clientes=1000} o {@code -rf json -rff resultado.json}) y siempre agrega el
+ * perfilador de memoria (gc), para que cada resultado muestre también cuántos bytes se reservan por operación.
+ *
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar [opciones de JMH]}
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    /**
+     * Ejecuta los benchmarks.
+     * @param args Las opciones de JMH.
+     * @throws RunnerException Si falla algún benchmark.
+     * @throws CommandLineOptionException Si las opciones no son válidas.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        boolean yaTieneGc = opciones.getProfilers().stream()
+                .anyMatch(perfilador -> perfilador.getKlass().equals(GCProfiler.class.getName()));
+        OptionsBuilder constructor = new OptionsBuilder();
+        constructor.parent(opciones);
+        if (!yaTieneGc) {
+            constructor.addProfiler(GCProfiler.class);
+        }
+        new Runner(constructor.build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package benchmarks;
+
+import controller.Controlador;
+import model.PerfilConsumo;
+import view.ServidorHttp;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de la API HTTP: levanta el servidor sobre una flota simulada y le envía muchas peticiones
+ * a la vez (consultas de resumen y de valor de factura, y lotes de lecturas), con un tope de peticiones en
+ * curso. Muestra cuántas peticiones por segundo atendió y cuántas fallaron.
+ *
+ * Uso: {@code java -cp benchmarks/target/benchmarks.jar benchmarks.PruebaCargaHttp [peticiones] [enCurso] [clientes]}
+ * Termina con código 1 si alguna petición falla.
+ */
+public final class PruebaCargaHttp {
+
+    private static final int ANIO = 2025;
+    private static final int MES = 3;
+    /** Lecturas de cada lote. */
+    private static final int LECTURAS_POR_LOTE = 100;
+
+    private PruebaCargaHttp() {
+    }
+
+    /**
+     * Ejecuta la prueba.
+     * @param args Peticiones, peticiones en curso a la vez y clientes de la flota.
+     * @throws Exception Si falla la preparación.
+     */
+    public static void main(String[] args) throws Exception {
+        int peticiones = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int enCurso = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int clientes = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        Controlador controlador = new Controlador();
+        for (int c = 0; c < clientes; c++) {
+            controlador.mCrearCliente("C" + c, "CC", "cliente" + c + "@correo.com", "Calle " + c);
+            controlador.mCrearRegistrador("R" + c, "Calle " + c, (c % 2 == 0) ? "Medellín" : "Bogotá", "C" + c);
+        }
+        controlador.mSimularConsumosFlota(ANIO, MES, 1, PerfilConsumo.mFranjas(), 42L);
+
+        ServidorHttp servidor = new ServidorHttp(controlador, 0);
+        servidor.mIniciar();
+        String base = "http://localhost:" + servidor.mGetPuerto() + "/api";
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        System.out.println("Enviando " + peticiones + " peticiones (" + enCurso + " a la vez) a una flota de " + clientes
+                + " clientes; el servidor usa " + (servidor.mUsaHilosVirtuales() ? "hilos virtuales" : "un grupo fijo de hilos") + ".");
+
+        Semaphore cupos = new Semaphore(enCurso);
+        AtomicLong fallidas = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        List<String> ejemplosFalla = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> pendientes = new ArrayList<>(peticiones);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < peticiones; i++) {
+            int c = (int) ((i * 2654435761L) % clientes);
+            HttpRequest peticion = switch (i % 4) {
+                case 0 -> HttpRequest.newBuilder(URI.create(base + "/clientes/C" + c + "/resumen?anio=" + ANIO + "&mes=" + MES)).build();
+                case 1 -> HttpRequest.newBuilder(URI.create(base + "/clientes/C" + c + "/valor-factura?anio=" + ANIO + "&mes=" + MES)).build();
+                case 2 -> HttpRequest.newBuilder(URI.create(base + "/clientes/C" + c)).build();
+                default -> HttpRequest.newBuilder(URI.create(base + "/lecturas"))
+                        .POST(HttpRequest.BodyPublishers.ofString(mLote(c, i))).build();
+            };
+            cupos.acquire();
+            pendientes.add(cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofString())
+                    .handle((respuesta, error) -> {
+                        cupos.release();
+                        if (error != null || respuesta.statusCode() != 200) {
+                            fallidas.incrementAndGet();
+                            if (ejemplosFalla.size() < 5) {
+                                ejemplosFalla.add(error != null ? error.toString() : respuesta.statusCode() + " " + respuesta.body());
+                            }
+                        } else {
+                            bytes.addAndGet(respuesta.body().length());
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(pendientes.toArray(new CompletableFuture<?>[0])).join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        servidor.mDetener(1);
+
+        System.out.println(String.format("%d peticiones en %.2f s: %.0f peticiones/s, %d KB recibidos, %d fallidas.",
+                peticiones, segundos, peticiones / segundos, bytes.get() / 1024, fallidas.get()));
+        if (fallidas.get() > 0) {
+            ejemplosFalla.forEach(ejemplo -> System.out.println("  - " + ejemplo));
+            System.exit(1);
+        }
+    }
+
+    /** Arma un lote de lecturas JSON de un medidor: horas seguidas del mes, desde una que depende de la petición. */
+    private static String mLote(int c, int peticion) {
+        StringBuilder lote = new StringBuilder("[");
+        for (int j = 0; j < LECTURAS_POR_LOTE; j++) {
+            int k = (peticion + j) % (31 * 24);
+            if (j > 0) lote.append(',');
+            lote.append("{\"medidor\":\"R").append(c).append("\",\"fechaHora\":\"")
+                .append(String.format("%d-%02d-%02dT%02d:00", ANIO, MES, k / 24 + 1, k % 24))
+                .append("\",\"kWh\":").append(100 + j).append('}');
+        }
+        return lote.append(']').toString();
+    }
+}
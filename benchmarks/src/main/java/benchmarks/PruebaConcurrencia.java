@@ -0,0 +1,383 @@
+package benchmarks;
+
+import controller.Controlador;
+import controller.ResultadoCargaConsumos;
+import controller.ResultadoFacturacionFlota;
+import model.HistogramaConsumos;
+import model.PerfilConsumo;
+import model.Registrador;
+import model.ResumenMensual;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Prueba de estrés del Controlador desde varios hilos a la vez: escritores que cambian consumos hora por hora,
+ * una carga de archivos CSV, lectores que piden resúmenes y facturas, la facturación de toda la flota y un hilo
+ * que crea y elimina clientes y medidores. Al terminar verifica que:
+ * - no se perdió ningún cambio: cada hora tiene el último valor que le escribió su dueño (cada hora del mes
+ *   tiene un solo hilo dueño, así que el valor esperado se conoce sin sincronizar);
+ * - ninguna lectura vio un cambio a medias: en cada resumen leído, la suma por días y por franjas coincide
+ *   con el total, y las horas registradas son las del mes completo;
+ * - los totales que cada medidor mantiene al día coinciden con la suma de sus consumos;
+ * - la distribución de la flota (para los percentiles), que se arma mientras los escritores la ajustan, cuenta
+ *   siempre meses completos;
+ * - los clientes temporales se eliminaron todos;
+ * - con {@code --bitacora}, que un segundo Controlador recuperado de la instantánea y la bitácora (como
+ *   después de una caída, sin cerrar el primero) tiene exactamente los mismos consumos.
+ *
+ * Uso: {@code java -cp benchmarks/target/benchmarks.jar benchmarks.PruebaConcurrencia [segundos] [escritores] [lectores] [--bitacora]}
+ * Termina con código 1 si encuentra algún error.
+ */
+public final class PruebaConcurrencia {
+
+    private static final int ANIO = 2025;
+    private static final int MES = 3;
+    private static final int DIAS = 31;
+    private static final int HORAS_MES = DIAS * 24;
+    private static final int CLIENTES = 256;
+    private static final int MEDIDORES_POR_CLIENTE = 2;
+    /** Clientes que se incluyen en cada archivo CSV. */
+    private static final int CLIENTES_POR_CSV = 32;
+
+    private final Controlador controlador;
+    private final long fin;
+    private final int escritores;
+    /** Hilo dueño de cada hora del mes: los escritores son 0..escritores-1 y la carga CSV es {@code escritores}. */
+    private final int duenos;
+    /** Último valor escrito en cada hora [cliente][medidor][hora del mes] (NaN si nadie la cambió). */
+    private final double[][][] esperado = new double[CLIENTES][MEDIDORES_POR_CLIENTE][HORAS_MES];
+    private final ConcurrentLinkedQueue<String> errores = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong cambios = new AtomicLong();
+    private final AtomicLong filasCsv = new AtomicLong();
+    private final AtomicLong lecturas = new AtomicLong();
+    private final AtomicLong facturacionesFlota = new AtomicLong();
+    private final AtomicLong cambiosEstructura = new AtomicLong();
+
+    private PruebaConcurrencia(Controlador controlador, long fin, int escritores) {
+        this.controlador = controlador;
+        this.fin = fin;
+        this.escritores = escritores;
+        this.duenos = escritores + 1;
+        for (double[][] cliente : esperado) {
+            for (double[] medidor : cliente) {
+                Arrays.fill(medidor, Double.NaN);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta la prueba.
+     * @param args Segundos, escritores, lectores y, opcionalmente, {@code --bitacora}.
+     * @throws Exception Si falla la preparación.
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> numeros = new ArrayList<>();
+        boolean conBitacora = false;
+        for (String arg : args) {
+            if (arg.equals("--bitacora")) conBitacora = true;
+            else numeros.add(arg);
+        }
+        int segundos = numeros.size() > 0 ? Integer.parseInt(numeros.get(0)) : 10;
+        int escritores = numeros.size() > 1 ? Integer.parseInt(numeros.get(1)) : 4;
+        int lectores = numeros.size() > 2 ? Integer.parseInt(numeros.get(2)) : 3;
+
+        Path carpeta = Files.createTempDirectory("prueba-concurrencia");
+        Path instantanea = carpeta.resolve("estado.bin");
+        try {
+            Controlador controlador = new Controlador();
+            if (conBitacora) {
+                controlador.mActivarPersistencia(instantanea);
+            }
+            for (int c = 0; c < CLIENTES; c++) {
+                controlador.mCrearCliente("C" + c, "CC", "cliente" + c + "@correo.com", "Calle " + c);
+                for (int m = 0; m < MEDIDORES_POR_CLIENTE; m++) {
+                    controlador.mCrearRegistrador(mIdMedidor(c, m), "Calle " + c, (m == 0) ? "Medellín" : "Bogotá", "C" + c);
+                }
+            }
+            controlador.mSimularConsumosFlota(ANIO, MES, 1, PerfilConsumo.mFranjas(), 20250301L);
+
+            PruebaConcurrencia prueba = new PruebaConcurrencia(controlador, System.nanoTime() + segundos * 1_000_000_000L, escritores);
+            List<Thread> hilos = new ArrayList<>();
+            for (int t = 0; t < escritores; t++) {
+                int dueno = t;
+                hilos.add(new Thread(() -> prueba.mEscribir(dueno), "escritor-" + t));
+            }
+            hilos.add(new Thread(() -> prueba.mCargarCsv(carpeta), "carga-csv"));
+            for (int t = 0; t < lectores; t++) {
+                long semilla = 1000 + t;
+                hilos.add(new Thread(() -> prueba.mLeer(semilla), "lector-" + t));
+            }
+            hilos.add(new Thread(prueba::mFacturarFlota, "flota"));
+            hilos.add(new Thread(prueba::mCambiarEstructura, "estructura"));
+
+            System.out.println("Probando " + segundos + " s con " + escritores + " escritores, " + lectores
+                    + " lectores, carga CSV, facturación de flota y altas/bajas" + (conBitacora ? ", con bitácora" : "") + "...");
+            for (Thread hilo : hilos) hilo.start();
+            for (Thread hilo : hilos) hilo.join();
+
+            prueba.mVerificar();
+            if (conBitacora) {
+                prueba.mVerificarRecuperacion(instantanea);
+            }
+            System.out.println(String.format("Cambios: %d, filas CSV: %d, lecturas: %d, facturaciones de flota: %d, altas/bajas: %d",
+                    prueba.cambios.get(), prueba.filasCsv.get(), prueba.lecturas.get(),
+                    prueba.facturacionesFlota.get(), prueba.cambiosEstructura.get()));
+            if (!prueba.errores.isEmpty()) {
+                System.out.println("Resultado: " + prueba.errores.size() + " errores. Los primeros:");
+                prueba.errores.stream().limit(20).forEach(error -> System.out.println("  - " + error));
+                System.exit(1);
+            }
+            System.out.println("Resultado: OK");
+            if (conBitacora) {
+                controlador.mCerrarPersistencia();
+            }
+        } finally {
+            try (Stream<Path> archivos = Files.walk(carpeta)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+            }
+        }
+    }
+
+    private static String mIdMedidor(int cliente, int medidor) {
+        return "R" + cliente + (char) ('a' + medidor);
+    }
+
+    /** Devuelve una hora al azar del mes (como día * 24 + hora) de la que es dueño el hilo. */
+    private int mHoraDe(int dueno, SplittableRandom aleatorio) {
+        return dueno + duenos * aleatorio.nextInt((HORAS_MES - dueno + duenos - 1) / duenos);
+    }
+
+    private boolean mSigue() {
+        return System.nanoTime() < fin;
+    }
+
+    /** Cambia consumos hora por hora, solo en las horas de las que es dueño. */
+    private void mEscribir(int dueno) {
+        SplittableRandom aleatorio = new SplittableRandom(dueno);
+        try {
+            while (mSigue()) {
+                int c = aleatorio.nextInt(CLIENTES);
+                int m = aleatorio.nextInt(MEDIDORES_POR_CLIENTE);
+                int k = mHoraDe(dueno, aleatorio);
+                double valor = Math.floor(aleatorio.nextDouble() * 100_000) / 100;
+                if (!controlador.mCambiarConsumoHoraEspecifica("C" + c, mIdMedidor(c, m), ANIO, MES, k / 24 + 1, k % 24, valor)) {
+                    errores.add("No se pudo cambiar el consumo de " + mIdMedidor(c, m) + ".");
+                }
+                esperado[c][m][k] = valor;
+                cambios.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            errores.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    /** Carga archivos CSV con las horas de las que es dueña la carga, para unos clientes cada vez. */
+    private void mCargarCsv(Path carpeta) {
+        int dueno = escritores;
+        SplittableRandom aleatorio = new SplittableRandom(-1);
+        try {
+            for (int ronda = 0; mSigue(); ronda++) {
+                int primero = aleatorio.nextInt(CLIENTES - CLIENTES_POR_CSV + 1);
+                double valor = ronda + 0.25;
+                StringBuilder csv = new StringBuilder("medidor,fechaHora,kWh\n");
+                int filas = 0;
+                for (int c = primero; c < primero + CLIENTES_POR_CSV; c++) {
+                    for (int m = 0; m < MEDIDORES_POR_CLIENTE; m++) {
+                        for (int k = dueno; k < HORAS_MES; k += duenos) {
+                            csv.append(mIdMedidor(c, m)).append(',')
+                               .append(String.format("%d-%02d-%02dT%02d:00", ANIO, MES, k / 24 + 1, k % 24))
+                               .append(',').append(valor).append('\n');
+                            filas++;
+                        }
+                    }
+                }
+                Path archivo = carpeta.resolve("consumos.csv");
+                Files.writeString(archivo, csv, StandardCharsets.UTF_8);
+                ResultadoCargaConsumos resultado = controlador.mCargarConsumosDesdeArchivos(List.of(archivo));
+                if (resultado.mGetFilasAceptadas() != filas) {
+                    errores.add("La carga CSV aceptó " + resultado.mGetFilasAceptadas() + " de " + filas + " filas.");
+                }
+                for (int c = primero; c < primero + CLIENTES_POR_CSV; c++) {
+                    for (int m = 0; m < MEDIDORES_POR_CLIENTE; m++) {
+                        for (int k = dueno; k < HORAS_MES; k += duenos) {
+                            esperado[c][m][k] = valor;
+                        }
+                    }
+                }
+                filasCsv.addAndGet(filas);
+            }
+        } catch (IOException | RuntimeException e) {
+            errores.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    /** Pide resúmenes, valores y facturas, y revisa que cada resumen sea coherente consigo mismo. */
+    private void mLeer(long semilla) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        try {
+            while (mSigue()) {
+                String id = "C" + aleatorio.nextInt(CLIENTES);
+                switch (aleatorio.nextInt(3)) {
+                    case 0 -> {
+                        ResumenMensual resumen = controlador.mResumenClienteMes(id, ANIO, MES);
+                        mRevisarResumen(id, resumen);
+                    }
+                    case 1 -> {
+                        if (controlador.mCalcularValorFacturaClienteMes(id, ANIO, MES) < 0) {
+                            errores.add("La factura de " + id + " no tiene valor.");
+                        }
+                    }
+                    default -> {
+                        String factura = controlador.mGenerarFacturaTextoCliente(id, ANIO, MES);
+                        if (!factura.contains("VALOR TOTAL A PAGAR")) {
+                            errores.add("La factura de " + id + " está incompleta.");
+                        }
+                    }
+                }
+                lecturas.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            errores.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    private void mRevisarResumen(String id, ResumenMensual resumen) {
+        if (resumen == null || resumen.mGetHorasRegistradas() != MEDIDORES_POR_CLIENTE * HORAS_MES) {
+            errores.add("El resumen de " + id + " no tiene el mes completo: " + resumen);
+            return;
+        }
+        double total = resumen.mGetTotalKWh();
+        double porDias = 0;
+        for (double valor : resumen.mGetConsumoPorDia()) porDias += valor;
+        double porFranjas = 0;
+        for (double valor : resumen.mGetConsumoPorFranja()) porFranjas += valor;
+        if (!mParecidos(total, porDias) || !mParecidos(total, porFranjas)) {
+            errores.add(String.format("Resumen a medias de %s: total %.4f, por días %.4f, por franjas %.4f",
+                    id, total, porDias, porFranjas));
+        }
+    }
+
+    /** Factura toda la flota y genera todas las facturas en lote, una y otra vez. */
+    private void mFacturarFlota() {
+        try {
+            while (mSigue()) {
+                ResultadoFacturacionFlota resultado = controlador.mFacturarFlota(ANIO, MES);
+                if (resultado.mGetClientesConDatos() < CLIENTES) {
+                    errores.add("La facturación de flota solo encontró " + resultado.mGetClientesConDatos() + " clientes con datos.");
+                }
+                controlador.mGenerarFacturas(ANIO, MES, null, Writer.nullWriter());
+                HistogramaConsumos distribucion = controlador.mDistribucionConsumoFlotaMes(null, ANIO, MES);
+                if (distribucion == null || distribucion.mGetHoras() % HORAS_MES != 0
+                        || distribucion.mGetHoras() < (long) CLIENTES * MEDIDORES_POR_CLIENTE * HORAS_MES) {
+                    errores.add("La distribución de la flota tiene " + (distribucion == null ? 0 : distribucion.mGetHoras()) + " horas.");
+                }
+                facturacionesFlota.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            errores.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    /** Crea y elimina clientes y medidores temporales (y de vez en cuando compacta la bitácora). */
+    private void mCambiarEstructura() {
+        try {
+            for (int i = 0; mSigue(); i++) {
+                String idCliente = "T" + i;
+                if (!controlador.mCrearCliente(idCliente, "NIT", "temporal@correo.com", "Carrera " + i)
+                        || controlador.mCrearRegistrador("RT" + i, "Carrera " + i, "Cali", idCliente) == null
+                        || !controlador.mCambiarConsumoHoraEspecifica(idCliente, "RT" + i, ANIO, MES, 1, 0, i)) {
+                    errores.add("No se pudo crear el cliente temporal " + idCliente + ".");
+                }
+                controlador.mCargarConsumosAutomaticosUnCliente(idCliente, ANIO, MES);
+                if (!controlador.mEliminarRegistrador("RT" + i, idCliente) || !controlador.mEliminarCliente(idCliente)) {
+                    errores.add("No se pudo eliminar el cliente temporal " + idCliente + ".");
+                }
+                if (i % 100 == 99) {
+                    try {
+                        controlador.mCompactarBitacora();
+                    } catch (IllegalStateException e) {
+                        // Sin bitácora: no hay nada que compactar.
+                    }
+                }
+                cambiosEstructura.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            errores.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    /** Revisa, ya sin otros hilos, los valores esperados, los totales de cada medidor y los clientes temporales. */
+    private void mVerificar() {
+        int perdidos = 0;
+        for (int c = 0; c < CLIENTES; c++) {
+            for (int m = 0; m < MEDIDORES_POR_CLIENTE; m++) {
+                Registrador registrador = controlador.mGetRegistradorDeCliente("C" + c, mIdMedidor(c, m));
+                double suma = 0;
+                for (int k = 0; k < HORAS_MES; k++) {
+                    double valor = registrador.mGetConsumoEn(ANIO, MES, k / 24 + 1, k % 24);
+                    suma += valor;
+                    if (!Double.isNaN(esperado[c][m][k]) && valor != esperado[c][m][k] && perdidos++ < 10) {
+                        errores.add(String.format("Cambio perdido en %s, hora %d: se esperaba %.2f y hay %.2f",
+                                mIdMedidor(c, m), k, esperado[c][m][k], valor));
+                    }
+                }
+                double total = registrador.mGetResumen(ANIO, MES, controlador.mGetCatalogoTarifas()).mGetTotalKWh();
+                if (!mParecidos(total, suma)) {
+                    errores.add(String.format("El total de %s (%.4f) no coincide con la suma de sus consumos (%.4f).",
+                            mIdMedidor(c, m), total, suma));
+                }
+            }
+        }
+        if (perdidos > 0) {
+            errores.add(perdidos + " cambios perdidos en total.");
+        }
+        if (controlador.mGetClientes().size() != CLIENTES) {
+            errores.add("Quedaron " + controlador.mGetClientes().size() + " clientes; se esperaban " + CLIENTES + ".");
+        }
+    }
+
+    /** Recupera un segundo Controlador de la instantánea y la bitácora y compara todos los consumos. */
+    private void mVerificarRecuperacion(Path instantanea) throws IOException {
+        Controlador recuperado = new Controlador();
+        long aplicados = recuperado.mActivarPersistencia(instantanea);
+        System.out.println("Recuperación: se aplicaron " + aplicados + " cambios de la bitácora sobre la instantánea.");
+        if (recuperado.mGetClientes().size() != CLIENTES) {
+            errores.add("La recuperación tiene " + recuperado.mGetClientes().size() + " clientes; se esperaban " + CLIENTES + ".");
+        }
+        int diferentes = 0;
+        for (int c = 0; c < CLIENTES; c++) {
+            for (int m = 0; m < MEDIDORES_POR_CLIENTE; m++) {
+                Registrador original = controlador.mGetRegistradorDeCliente("C" + c, mIdMedidor(c, m));
+                Registrador copia = recuperado.mGetRegistradorDeCliente("C" + c, mIdMedidor(c, m));
+                if (copia == null) {
+                    errores.add("La recuperación no tiene el medidor " + mIdMedidor(c, m) + ".");
+                    continue;
+                }
+                for (int k = 0; k < HORAS_MES; k++) {
+                    double a = original.mGetConsumoEn(ANIO, MES, k / 24 + 1, k % 24);
+                    double b = copia.mGetConsumoEn(ANIO, MES, k / 24 + 1, k % 24);
+                    if (a != b && diferentes++ < 10) {
+                        errores.add(String.format("La recuperación difiere en %s, hora %d: %.2f y %.2f", mIdMedidor(c, m), k, a, b));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean mParecidos(double a, double b) {
+        return Math.abs(a - b) <= 1e-6 * Math.max(1.0, Math.abs(a));
+    }
+}
@@ -0,0 +1,505 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Bitácora (write-ahead log) donde se anotan, en orden y solo al final del archivo, los cambios hechos
+ * al sistema desde la última instantánea. Al reiniciar la aplicación, los cambios se vuelven a aplicar
+ * sobre la instantánea para recuperar el estado que había antes de cerrarse (o de caerse).
+ *
+ * Cada entrada tiene un tipo, un número de secuencia creciente y una lista de campos (textos, enteros,
+ * enteros largos o decimales). En el archivo se guarda con su largo y un CRC32C, así que una entrada
+ * escrita a medias por un corte se detecta y se descarta al abrir la bitácora.
+ *
+ * Confirmación en grupo: {@link #mRegistrar(byte, Object...)} no vuelve hasta que la entrada está en disco,
+ * pero si varios hilos registran a la vez, el primero escribe y sincroniza (fsync) de una sola vez todas
+ * las entradas pendientes, y los demás solo esperan. Así el costo del fsync se reparte entre todos.
+ *
+ * Si escribir o sincronizar un grupo falla, el archivo se recorta a lo que ya estaba en disco y el grupo
+ * vuelve al frente de las pendientes, para que el siguiente intento lo escriba completo: ninguna entrada
+ * se da por guardada sin estarlo. Si ni siquiera se puede recortar, la bitácora queda dañada y todas las
+ * llamadas siguientes fallan.
+ *
+ * Al descartar las entradas que ya están en una instantánea, la bitácora nueva se escribe aparte y reemplaza
+ * a la anterior de una sola vez: si la aplicación se cae a mitad de camino, queda la anterior completa.
+ */
+public class BitacoraEscrituras implements Closeable {
+
+    /** Número mágico al inicio del archivo ("JPOB"). */
+    private static final int MAGICO = 0x4A504F42;
+    private static final int VERSION = 1;
+    private static final int TAMANO_CABECERA = 8;
+    /** Bytes antes de los campos: largo, CRC, secuencia y tipo. */
+    private static final int TAMANO_ENCABEZADO_ENTRADA = Integer.BYTES + Integer.BYTES + Long.BYTES + 1;
+    /** Tamaño máximo de una entrada; una entrada más grande en el archivo se considera dañada. */
+    private static final int MAXIMO_ENTRADA = 1 << 20;
+
+    private static final byte CAMPO_NULO = 0;
+    private static final byte CAMPO_TEXTO = 1;
+    private static final byte CAMPO_ENTERO = 2;
+    private static final byte CAMPO_LARGO = 3;
+    private static final byte CAMPO_DECIMAL = 4;
+
+    /**
+     * Recibe cada entrada de la bitácora mientras se recorre.
+     */
+    @FunctionalInterface
+    public interface VisitanteEntrada {
+        /**
+         * Se llama una vez por entrada, en el orden en que se registraron.
+         * @param tipo El tipo de la entrada.
+         * @param campos Los campos (String, Integer, Long, Double o null).
+         */
+        void mAplicar(byte tipo, Object[] campos);
+    }
+
+    private final Path archivo;
+    /** El archivo abierto. Cambia al descartar entradas (se reemplaza el archivo); se lee con el candado tomado. */
+    private FileChannel canal;
+
+    /** Entradas registradas que aún no se escriben en el archivo. */
+    private ByteBuffer pendientes = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    /** Segundo buffer, que se intercambia con el de pendientes mientras uno se escribe. */
+    private ByteBuffer libre = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    /** Secuencia de la última entrada registrada. */
+    private long ultimaSecuencia;
+    /** Secuencia de la última entrada que ya está en disco. */
+    private long secuenciaDurable;
+    /** Si algún hilo está escribiendo y sincronizando un grupo de entradas. */
+    private boolean escribiendo;
+    /** Tamaño del archivo (incluye solo lo ya escrito). */
+    private long tamanoArchivo;
+    /** El error que dejó la bitácora inutilizable (null mientras funcione). */
+    private IOException dano;
+    private final CRC32C crc = new CRC32C();
+
+    private BitacoraEscrituras(Path archivo, FileChannel canal, long tamanoValido, long ultimaSecuencia) {
+        this.archivo = archivo;
+        this.canal = canal;
+        this.tamanoArchivo = tamanoValido;
+        this.ultimaSecuencia = ultimaSecuencia;
+        this.secuenciaDurable = ultimaSecuencia;
+    }
+
+    /**
+     * Abre (o crea) una bitácora. Si al final del archivo hay una entrada incompleta o dañada
+     * (por ejemplo, por un corte de luz mientras se escribía), se descarta.
+     *
+     * @param archivo La ruta del archivo.
+     * @param secuenciaInicial La secuencia desde la que se numera si la bitácora está vacía
+     *                         (normalmente la de la última instantánea).
+     * @return La bitácora abierta.
+     * @throws IOException Si el archivo no se puede abrir o no es una bitácora.
+     */
+    public static BitacoraEscrituras mAbrir(Path archivo, long secuenciaInicial) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (canal.size() < TAMANO_CABECERA) {
+                ByteBuffer cabecera = mCabecera();
+                canal.truncate(0);
+                while (cabecera.hasRemaining()) canal.write(cabecera, cabecera.position());
+                canal.force(true);
+            }
+            long[] fin = new long[]{TAMANO_CABECERA, secuenciaInicial};
+            mRecorrerArchivo(canal, archivo, (posicion, secuencia, tipo, campos) -> {
+                fin[0] = posicion;
+                fin[1] = Math.max(fin[1], secuencia);
+            });
+            if (canal.size() > fin[0]) {
+                System.err.println("Atención: Se descartó el final dañado de la bitácora " + archivo + ".");
+                canal.truncate(fin[0]);
+                canal.force(true);
+            }
+            canal.position(fin[0]);
+            return new BitacoraEscrituras(archivo, canal, fin[0], fin[1]);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Anota una entrada y espera a que esté en disco.
+     *
+     * @param tipo El tipo de la entrada.
+     * @param campos Los campos: String, Integer, Long, Double o null.
+     * @return La secuencia de la entrada.
+     * @throws IOException Si no se pudo escribir o sincronizar el archivo.
+     */
+    public long mRegistrar(byte tipo, Object... campos) throws IOException {
+        long secuencia = mAgregar(tipo, campos);
+        mEsperarDurable(secuencia);
+        return secuencia;
+    }
+
+    /**
+     * Anota una entrada sin esperar a que esté en disco. Sirve para anotar muchas entradas seguidas
+     * y esperar una sola vez, con {@link #mConfirmar(long)}, a que estén todas en disco.
+     *
+     * @param tipo El tipo de la entrada.
+     * @param campos Los campos: String, Integer, Long, Double o null.
+     * @return La secuencia de la entrada.
+     */
+    public long mAnotar(byte tipo, Object... campos) {
+        return mAgregar(tipo, campos);
+    }
+
+    /**
+     * Espera a que todas las entradas hasta una secuencia estén en disco (las escribe si nadie lo está haciendo).
+     *
+     * @param secuencia La secuencia que devolvió {@link #mAnotar(byte, Object...)}.
+     * @throws IOException Si no se pudo escribir o sincronizar el archivo.
+     */
+    public void mConfirmar(long secuencia) throws IOException {
+        mEsperarDurable(secuencia);
+    }
+
+    /**
+     * Recorre en orden las entradas con secuencia mayor que la indicada.
+     *
+     * @param despuesDe Se omiten las entradas con esta secuencia o menor (por ejemplo, las que ya están en la instantánea).
+     * @param visitante Quien recibe cada entrada.
+     * @return Cuántas entradas se recorrieron.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public synchronized long mRecorrer(long despuesDe, VisitanteEntrada visitante) throws IOException {
+        long[] cantidad = new long[1];
+        mRecorrerArchivo(canal, archivo, (posicion, secuencia, tipo, campos) -> {
+            if (secuencia > despuesDe) {
+                visitante.mAplicar(tipo, campos);
+                cantidad[0]++;
+            }
+        });
+        return cantidad[0];
+    }
+
+    /**
+     * Devuelve la secuencia de la última entrada registrada.
+     * @return La secuencia (0 si nunca se registró nada).
+     */
+    public synchronized long mUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    /**
+     * Devuelve el tamaño actual del archivo de la bitácora.
+     * @return El tamaño en bytes.
+     */
+    public synchronized long mTamanoBytes() {
+        return tamanoArchivo;
+    }
+
+    /**
+     * Descarta las entradas hasta una secuencia (después de guardar una instantánea que ya las incluye)
+     * y conserva las posteriores, que pudieron registrarse mientras se guardaba la instantánea.
+     * Las secuencias siguen desde la última registrada. Mientras tanto, las entradas nuevas esperan.
+     *
+     * @param secuencia La última secuencia incluida en la instantánea.
+     * @throws IOException Si no se puede reescribir el archivo.
+     */
+    public synchronized void mDescartarHasta(long secuencia) throws IOException {
+        while (escribiendo) {
+            try {
+                wait(); // Se espera a que termine el grupo que se está escribiendo.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Se interrumpió la espera de la bitácora.");
+            }
+        }
+        // Las entradas están en orden de secuencia: se busca dónde empieza la primera que se conserva.
+        long[] inicio = new long[]{tamanoArchivo};
+        long[] anterior = new long[]{TAMANO_CABECERA};
+        mRecorrerArchivo(canal, archivo, (posicion, secuenciaEntrada, tipo, campos) -> {
+            if (secuenciaEntrada > secuencia && inicio[0] == tamanoArchivo) inicio[0] = anterior[0];
+            anterior[0] = posicion;
+        });
+        ByteBuffer conservadas = ByteBuffer.allocate((int) (tamanoArchivo - inicio[0]));
+        mLeerCompleto(canal, conservadas, inicio[0]);
+        conservadas.flip();
+
+        // La bitácora nueva se escribe aparte y se sincroniza antes de reemplazar a la anterior, que hasta
+        // entonces sigue completa: las entradas que se conservan ya se confirmaron como guardadas.
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer cabecera = mCabecera();
+            while (cabecera.hasRemaining()) nuevo.write(cabecera);
+            while (conservadas.hasRemaining()) nuevo.write(conservadas);
+            nuevo.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel reemplazado = canal;
+        try {
+            canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            dano = e; // El canal anterior apunta al archivo reemplazado: lo que se escriba ahí se perdería.
+            throw e;
+        } finally {
+            reemplazado.close();
+        }
+        tamanoArchivo = TAMANO_CABECERA + conservadas.limit();
+        canal.position(tamanoArchivo);
+        notifyAll();
+    }
+
+    /** Arma la cabecera de un archivo de bitácora vacío, lista para escribir. */
+    private static ByteBuffer mCabecera() {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        cabecera.putInt(MAGICO).putInt(VERSION).flip();
+        return cabecera;
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el archivo.
+     * @throws IOException Si no se puede escribir o cerrar.
+     */
+    @Override
+    public void close() throws IOException {
+        long secuencia;
+        synchronized (this) {
+            secuencia = ultimaSecuencia;
+        }
+        try {
+            mEsperarDurable(secuencia);
+        } finally {
+            synchronized (this) {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Codifica la entrada en el buffer de pendientes y le asigna la siguiente secuencia.
+     */
+    private synchronized long mAgregar(byte tipo, Object[] campos) {
+        ByteBuffer entrada = mCodificar(++ultimaSecuencia, tipo, campos);
+        if (pendientes.remaining() < entrada.remaining()) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendientes.capacity() * 2, pendientes.position() + entrada.remaining()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            pendientes.flip();
+            mayor.put(pendientes);
+            pendientes = mayor;
+        }
+        pendientes.put(entrada);
+        return ultimaSecuencia;
+    }
+
+    /**
+     * Espera a que una secuencia esté en disco. Si nadie está escribiendo, este hilo escribe y sincroniza
+     * todas las entradas pendientes (las suyas y las de los demás hilos); si no, espera a que termine el que escribe.
+     */
+    private void mEsperarDurable(long secuencia) throws IOException {
+        while (true) {
+            ByteBuffer lote;
+            long hasta;
+            long inicioLote;
+            FileChannel destino;
+            synchronized (this) {
+                while (secuenciaDurable < secuencia && escribiendo) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Se interrumpió la espera de la bitácora.");
+                    }
+                }
+                if (secuenciaDurable >= secuencia) return;
+                if (dano != null) {
+                    throw new IOException("La bitácora " + archivo + " quedó dañada por un error anterior: " + dano.getMessage(), dano);
+                }
+                escribiendo = true;
+                lote = pendientes;
+                pendientes = libre;
+                libre = null;
+                hasta = ultimaSecuencia;
+                inicioLote = tamanoArchivo;
+                destino = canal;
+            }
+
+            IOException falla = null;
+            boolean recortado = true;
+            lote.flip();
+            int bytesLote = lote.remaining();
+            try {
+                while (lote.hasRemaining()) destino.write(lote);
+                destino.force(false);
+            } catch (IOException e) {
+                falla = e;
+                // Se quita lo que haya alcanzado a escribirse, para no dejar una entrada a medias en medio del archivo.
+                try {
+                    destino.truncate(inicioLote);
+                    destino.position(inicioLote);
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                    recortado = false;
+                }
+            }
+
+            synchronized (this) {
+                escribiendo = false;
+                if (falla == null) {
+                    lote.clear();
+                    libre = lote;
+                    secuenciaDurable = hasta;
+                    tamanoArchivo += bytesLote;
+                } else {
+                    // El grupo vuelve al frente de las pendientes, antes de las que llegaron mientras se escribía.
+                    lote.rewind();
+                    pendientes.flip();
+                    ByteBuffer juntas = ByteBuffer.allocate(Math.max(lote.capacity(), bytesLote + pendientes.remaining()))
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    juntas.put(lote).put(pendientes);
+                    pendientes.clear();
+                    libre = pendientes;
+                    pendientes = juntas;
+                    if (!recortado) dano = falla;
+                }
+                notifyAll();
+            }
+            if (falla != null) {
+                throw new IOException("No se pudo escribir en la bitácora " + archivo + ": " + falla.getMessage(), falla);
+            }
+        }
+    }
+
+    /**
+     * Codifica una entrada completa: largo, CRC, secuencia, tipo y campos.
+     */
+    private ByteBuffer mCodificar(long secuencia, byte tipo, Object[] campos) {
+        int tamano = TAMANO_ENCABEZADO_ENTRADA;
+        byte[][] textos = new byte[campos.length][];
+        for (int i = 0; i < campos.length; i++) {
+            Object campo = campos[i];
+            tamano += 1;
+            if (campo instanceof String) {
+                textos[i] = ((String) campo).getBytes(StandardCharsets.UTF_8);
+                tamano += Integer.BYTES + textos[i].length;
+            } else if (campo instanceof Integer) {
+                tamano += Integer.BYTES;
+            } else if (campo instanceof Long || campo instanceof Double) {
+                tamano += Long.BYTES;
+            } else if (campo != null) {
+                throw new IllegalArgumentException("Tipo de campo no soportado en la bitácora: " + campo.getClass().getSimpleName());
+            }
+        }
+        if (tamano > MAXIMO_ENTRADA) {
+            throw new IllegalArgumentException("La entrada es demasiado grande para la bitácora.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(tamano).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(tamano - 2 * Integer.BYTES).putInt(0).putLong(secuencia).put(tipo);
+        for (int i = 0; i < campos.length; i++) {
+            Object campo = campos[i];
+            if (campo == null) {
+                buffer.put(CAMPO_NULO);
+            } else if (campo instanceof String) {
+                buffer.put(CAMPO_TEXTO).putInt(textos[i].length).put(textos[i]);
+            } else if (campo instanceof Integer) {
+                buffer.put(CAMPO_ENTERO).putInt((Integer) campo);
+            } else if (campo instanceof Long) {
+                buffer.put(CAMPO_LARGO).putLong((Long) campo);
+            } else {
+                buffer.put(CAMPO_DECIMAL).putDouble((Double) campo);
+            }
+        }
+        crc.reset();
+        crc.update(buffer.array(), 2 * Integer.BYTES, tamano - 2 * Integer.BYTES);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Recibe cada entrada válida del archivo, junto con la posición donde termina.
+     */
+    @FunctionalInterface
+    private interface LectorEntradas {
+        void mLeer(long posicionFinal, long secuencia, byte tipo, Object[] campos);
+    }
+
+    /**
+     * Lee el archivo desde el inicio y entrega cada entrada válida, hasta el final o hasta la primera
+     * entrada incompleta o dañada.
+     */
+    private static void mRecorrerArchivo(FileChannel canal, Path archivo, LectorEntradas lector) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        mLeerCompleto(canal, cabecera, 0);
+        if (cabecera.getInt(0) != MAGICO) {
+            throw new IOException("El archivo " + archivo + " no es una bitácora del sistema.");
+        }
+        if (cabecera.getInt(4) != VERSION) {
+            throw new IOException("La bitácora " + archivo + " tiene una versión desconocida (" + cabecera.getInt(4) + ").");
+        }
+
+        long posicion = TAMANO_CABECERA;
+        long tamano = canal.size();
+        ByteBuffer prefijo = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crcLectura = new CRC32C();
+        while (posicion + prefijo.capacity() <= tamano) {
+            prefijo.clear();
+            mLeerCompleto(canal, prefijo, posicion);
+            int largo = prefijo.getInt(0);
+            if (largo < Long.BYTES + 1 || largo > MAXIMO_ENTRADA || posicion + prefijo.capacity() + largo > tamano) {
+                return; // Entrada incompleta o dañada: aquí termina la parte válida.
+            }
+            ByteBuffer cuerpo = ByteBuffer.allocate(largo).order(ByteOrder.LITTLE_ENDIAN);
+            mLeerCompleto(canal, cuerpo, posicion + prefijo.capacity());
+            crcLectura.reset();
+            crcLectura.update(cuerpo.array(), 0, largo);
+            if ((int) crcLectura.getValue() != prefijo.getInt(Integer.BYTES)) {
+                return;
+            }
+            cuerpo.flip();
+            long secuencia = cuerpo.getLong();
+            byte tipo = cuerpo.get();
+            Object[] campos;
+            try {
+                campos = mDecodificarCampos(cuerpo);
+            } catch (RuntimeException e) {
+                return;
+            }
+            posicion += prefijo.capacity() + largo;
+            lector.mLeer(posicion, secuencia, tipo, campos);
+        }
+    }
+
+    private static Object[] mDecodificarCampos(ByteBuffer cuerpo) {
+        int cantidad = 0;
+        Object[] campos = new Object[8];
+        while (cuerpo.hasRemaining()) {
+            byte tipoCampo = cuerpo.get();
+            Object campo = switch (tipoCampo) {
+                case CAMPO_NULO -> null;
+                case CAMPO_TEXTO -> {
+                    byte[] bytes = new byte[cuerpo.getInt()];
+                    cuerpo.get(bytes);
+                    yield new String(bytes, StandardCharsets.UTF_8);
+                }
+                case CAMPO_ENTERO -> cuerpo.getInt();
+                case CAMPO_LARGO -> cuerpo.getLong();
+                case CAMPO_DECIMAL -> cuerpo.getDouble();
+                default -> throw new IllegalStateException("Campo desconocido en la bitácora: " + tipoCampo);
+            };
+            if (cantidad == campos.length) campos = java.util.Arrays.copyOf(campos, cantidad * 2);
+            campos[cantidad++] = campo;
+        }
+        return java.util.Arrays.copyOf(campos, cantidad);
+    }
+
+    private static void mLeerCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                throw new IOException("Fin inesperado de la bitácora.");
+            }
+        }
+    }
+}
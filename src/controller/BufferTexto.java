@@ -0,0 +1,164 @@
+package controller;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+/**
+ * Texto que se arma agregando partes al final, como un StringBuilder, pero que se puede reutilizar
+ * (se vacía sin liberar su memoria) y que formatea los números sin pasar por {@code String.format}.
+ *
+ * {@link #mDecimal2(double)} escribe un número con dos decimales exactamente igual que {@code "%.2f"}
+ * con punto decimal (redondeo "mitad hacia arriba" sobre el valor que muestra {@code Double.toString}),
+ * sin crear objetos salvo en los casos raros que quedan justo en la mitad.
+ */
+final class BufferTexto {
+
+    /** Mayor valor que se redondea con aritmética de enteros; los mayores usan BigDecimal. */
+    private static final double MAXIMO_RAPIDO = 1e15;
+
+    private char[] caracteres;
+    private int largo;
+
+    BufferTexto(int capacidadInicial) {
+        this.caracteres = new char[Math.max(16, capacidadInicial)];
+    }
+
+    /** Devuelve cuántos caracteres tiene el texto. */
+    int mLargo() {
+        return largo;
+    }
+
+    /** Vacía el texto, conservando la memoria reservada. */
+    void mVaciar() {
+        largo = 0;
+    }
+
+    BufferTexto mAgregar(String texto) {
+        if (texto == null) texto = "null"; // Igual que StringBuilder.
+        int n = texto.length();
+        mAsegurar(n);
+        texto.getChars(0, n, caracteres, largo);
+        largo += n;
+        return this;
+    }
+
+    BufferTexto mAgregar(char caracter) {
+        mAsegurar(1);
+        caracteres[largo++] = caracter;
+        return this;
+    }
+
+    BufferTexto mAgregar(BufferTexto otro) {
+        mAsegurar(otro.largo);
+        System.arraycopy(otro.caracteres, 0, caracteres, largo, otro.largo);
+        largo += otro.largo;
+        return this;
+    }
+
+    /** Agrega un entero, como {@code "%d"}. */
+    BufferTexto mEntero(long valor) {
+        if (valor == Long.MIN_VALUE) return mAgregar(Long.toString(valor));
+        if (valor < 0) {
+            mAgregar('-');
+            valor = -valor;
+        }
+        int digitos = 1;
+        for (long limite = 10; digitos < 19 && valor >= limite; limite *= 10) digitos++;
+        mAsegurar(digitos);
+        for (int i = largo + digitos - 1; i >= largo; i--) {
+            caracteres[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        largo += digitos;
+        return this;
+    }
+
+    /** Agrega un entero de 0 a 99 con dos dígitos, como {@code "%02d"}. */
+    BufferTexto mDosDigitos(int valor) {
+        if (valor < 0 || valor > 99) return mEntero(valor);
+        mAsegurar(2);
+        caracteres[largo++] = (char) ('0' + valor / 10);
+        caracteres[largo++] = (char) ('0' + valor % 10);
+        return this;
+    }
+
+    /** Agrega un número con dos decimales, como {@code "%.2f"} con punto decimal. */
+    BufferTexto mDecimal2(double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            return mAgregar(Double.isNaN(valor) ? "NaN" : (valor > 0 ? "Infinity" : "-Infinity"));
+        }
+        boolean negativo = valor < 0 || (valor == 0 && 1 / valor < 0);
+        double absoluto = Math.abs(valor);
+        double escalado = absoluto * 100;
+        double fraccion = escalado - Math.floor(escalado);
+        if (negativo) mAgregar('-');
+        // El error de "escalado" frente a los dígitos de Double.toString crece con el valor: unos pocos ulp.
+        double tolerancia = Math.max(1e-6, 4 * Math.ulp(escalado));
+        if (absoluto >= MAXIMO_RAPIDO || Math.abs(fraccion - 0.5) <= tolerancia) {
+            // Casi en la mitad (o muy grande): se redondea igual que Formatter, sobre los dígitos de Double.toString.
+            return mAgregar(new BigDecimal(Double.toString(absoluto)).setScale(2, RoundingMode.HALF_UP).toPlainString());
+        }
+        long centesimos = Math.round(escalado);
+        mEntero(centesimos / 100);
+        mAgregar('.');
+        return mDosDigitos((int) (centesimos % 100));
+    }
+
+    /** Escribe el texto en un Writer. */
+    void mEscribirEn(Writer destino) throws IOException {
+        destino.write(caracteres, 0, largo);
+    }
+
+    /**
+     * Codifica el texto y lo escribe completo en un canal.
+     *
+     * @param destino El canal.
+     * @param codificador El codificador (por ejemplo, de UTF-8); se reinicia antes de usarlo.
+     * @param bytes Buffer de trabajo para los bytes codificados (se reutiliza entre llamadas).
+     * @return Cuántos bytes se escribieron.
+     */
+    long mEscribirEn(WritableByteChannel destino, CharsetEncoder codificador, ByteBuffer bytes) throws IOException {
+        CharBuffer texto = CharBuffer.wrap(caracteres, 0, largo);
+        codificador.reset();
+        long escritos = 0;
+        CoderResult resultado;
+        do {
+            bytes.clear();
+            resultado = codificador.encode(texto, bytes, true);
+            if (resultado.isError()) resultado.throwException();
+            escritos += mVaciarBytes(destino, bytes);
+        } while (resultado.isOverflow());
+        do {
+            bytes.clear();
+            resultado = codificador.flush(bytes);
+            escritos += mVaciarBytes(destino, bytes);
+        } while (resultado.isOverflow());
+        return escritos;
+    }
+
+    private static long mVaciarBytes(WritableByteChannel destino, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        long escritos = 0;
+        while (bytes.hasRemaining()) escritos += destino.write(bytes);
+        return escritos;
+    }
+
+    @Override
+    public String toString() {
+        return new String(caracteres, 0, largo);
+    }
+
+    private void mAsegurar(int adicionales) {
+        if (largo + adicionales > caracteres.length) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, largo + adicionales));
+        }
+    }
+}
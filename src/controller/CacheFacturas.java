@@ -0,0 +1,455 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guarda las facturas ya calculadas (el texto y el valor total) por cliente, año y mes, para no
+ * recalcularlas cada vez que se piden de nuevo.
+ *
+ * La caché tiene un límite de memoria aproximado: cuando se pasa, se descartan las facturas que
+ * hace más tiempo no se consultan (LRU). El Controlador invalida las entradas exactamente cuando
+ * cambia algo que aparece en la factura (consumos del periodo, medidores o datos del cliente, tarifas).
+ *
+ * Las facturas se reparten en {@value #PARTES} partes según el cliente, cada una con su propio candado,
+ * su parte del límite de memoria y su propio orden LRU: los hilos que consultan clientes distintos casi
+ * nunca se esperan entre sí. Cada parte además indexa sus claves por cliente y por periodo, así que
+ * invalidar un cliente o un periodo solo recorre las facturas que se descartan.
+ *
+ * Todos los métodos son seguros para usarse desde varios hilos.
+ */
+public class CacheFacturas {
+
+    /** Memoria aproximada (en bytes) que ocupa una entrada sin contar el texto de la factura. */
+    private static final int BYTES_POR_ENTRADA = 96;
+    /** Cantidad de partes en que se reparten las facturas (potencia de 2). */
+    private static final int PARTES = 16;
+
+    /** Las partes de la caché; las facturas de un cliente están todas en la misma. */
+    private final ParteCache[] partes;
+    /** Memoria máxima (aproximada) que pueden ocupar las entradas entre todas las partes. */
+    private final long maximoBytes;
+    /** Veces que se ha guardado una factura (ver {@link #mGetGuardadas()}). */
+    private final AtomicLong guardadas = new AtomicLong();
+
+    /**
+     * Crea una caché vacía.
+     * @param maximoBytes La memoria máxima aproximada (en bytes) que pueden ocupar las facturas guardadas.
+     */
+    public CacheFacturas(long maximoBytes) {
+        if (maximoBytes <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de la caché debe ser mayor que cero.");
+        }
+        this.maximoBytes = maximoBytes;
+        this.partes = new ParteCache[PARTES];
+        for (int i = 0; i < PARTES; i++) {
+            partes[i] = new ParteCache(Math.max(1, maximoBytes / PARTES));
+        }
+    }
+
+    /**
+     * Busca el texto de una factura ya generada.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return El texto guardado, o null si no está en la caché.
+     */
+    public String mBuscarTexto(String idCliente, int anio, int mes) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            EntradaFactura entrada = parte.entradas.get(new ClaveFactura(idCliente, anio, mes));
+            return parte.mContar(entrada != null ? entrada.texto : null);
+        }
+    }
+
+    /**
+     * Busca el valor total de una factura ya calculado.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return El valor guardado, o null si no está en la caché.
+     */
+    public Double mBuscarValor(String idCliente, int anio, int mes) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            EntradaFactura entrada = parte.entradas.get(new ClaveFactura(idCliente, anio, mes));
+            return parte.mContar(entrada != null ? entrada.valor : null);
+        }
+    }
+
+    /**
+     * Guarda el texto de una factura.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param texto El texto de la factura.
+     */
+    public void mGuardarTexto(String idCliente, int anio, int mes, String texto) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            guardadas.incrementAndGet();
+            EntradaFactura entrada = parte.mEntrada(new ClaveFactura(idCliente, anio, mes));
+            parte.bytesUsados -= entrada.mBytes();
+            entrada.texto = texto;
+            parte.bytesUsados += entrada.mBytes();
+            parte.mDesalojar();
+        }
+    }
+
+    /**
+     * Guarda el valor total de una factura.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param valor El valor total de la factura.
+     */
+    public void mGuardarValor(String idCliente, int anio, int mes, double valor) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            guardadas.incrementAndGet();
+            parte.mEntrada(new ClaveFactura(idCliente, anio, mes)).valor = valor;
+            parte.mDesalojar();
+        }
+    }
+
+    /**
+     * Descarta la factura de un cliente para un periodo.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     */
+    public void mInvalidar(String idCliente, int anio, int mes) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            parte.mQuitar(new ClaveFactura(idCliente, anio, mes));
+        }
+    }
+
+    /**
+     * Descarta las facturas de todos los periodos de un cliente.
+     * @param idCliente El ID del cliente.
+     */
+    public void mInvalidarCliente(String idCliente) {
+        ParteCache parte = mParte(idCliente);
+        synchronized (parte) {
+            Set<ClaveFactura> claves = parte.porCliente.get(idCliente);
+            if (claves == null) return;
+            for (ClaveFactura clave : new ArrayList<>(claves)) {
+                parte.mQuitar(clave);
+            }
+        }
+    }
+
+    /**
+     * Descarta las facturas de todos los clientes para un periodo.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     */
+    public void mInvalidarPeriodo(int anio, int mes) {
+        Integer periodo = mPeriodo(anio, mes);
+        for (ParteCache parte : partes) {
+            synchronized (parte) {
+                Set<ClaveFactura> claves = parte.porPeriodo.get(periodo);
+                if (claves == null) continue;
+                for (ClaveFactura clave : new ArrayList<>(claves)) {
+                    parte.mQuitar(clave);
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todas las facturas guardadas.
+     */
+    public void mInvalidarTodo() {
+        for (ParteCache parte : partes) {
+            synchronized (parte) {
+                parte.invalidaciones += parte.entradas.size();
+                parte.entradas.clear();
+                parte.porCliente.clear();
+                parte.porPeriodo.clear();
+                parte.bytesUsados = 0;
+            }
+        }
+    }
+
+    /**
+     * Devuelve cuántas veces se ha guardado una factura desde que se creó la caché. Si no cambió desde que
+     * se descartó una factura, esa factura sigue sin estar guardada: así la carga de consumos no la vuelve
+     * a descartar en cada fila.
+     * @return La cantidad de facturas guardadas hasta ahora.
+     */
+    public long mGetGuardadas() {
+        return guardadas.get();
+    }
+
+    /**
+     * Devuelve las estadísticas actuales de la caché. Las partes se leen de a una, así que con otros hilos
+     * usando la caché los contadores pueden no corresponder a un mismo instante.
+     * @return Una copia de los contadores (no cambia con usos posteriores).
+     */
+    public Estadisticas mGetEstadisticas() {
+        long aciertos = 0, fallos = 0, desalojos = 0, invalidaciones = 0, bytesUsados = 0;
+        int entradas = 0;
+        for (ParteCache parte : partes) {
+            synchronized (parte) {
+                aciertos += parte.aciertos;
+                fallos += parte.fallos;
+                desalojos += parte.desalojos;
+                invalidaciones += parte.invalidaciones;
+                entradas += parte.entradas.size();
+                bytesUsados += parte.bytesUsados;
+            }
+        }
+        return new Estadisticas(aciertos, fallos, desalojos, invalidaciones, entradas, bytesUsados, maximoBytes);
+    }
+
+    /**
+     * Devuelve la parte donde están las facturas de un cliente.
+     */
+    private ParteCache mParte(String idCliente) {
+        int h = idCliente.hashCode();
+        return partes[(h ^ (h >>> 16)) & (PARTES - 1)];
+    }
+
+    /**
+     * Devuelve la clave con que se indexa un periodo.
+     */
+    private static Integer mPeriodo(int anio, int mes) {
+        return anio * 12 + (mes - 1);
+    }
+
+    /**
+     * Una de las partes de la caché: sus facturas en orden LRU, los índices por cliente y por periodo,
+     * y sus contadores. Todo se usa con el monitor de la parte tomado.
+     */
+    private static final class ParteCache {
+        /** Facturas guardadas, en orden de último acceso (la primera es la más antigua). */
+        private final LinkedHashMap<ClaveFactura, EntradaFactura> entradas = new LinkedHashMap<>(16, 0.75f, true);
+        /** Claves de las facturas guardadas de cada cliente. */
+        private final Map<String, Set<ClaveFactura>> porCliente = new HashMap<>();
+        /** Claves de las facturas guardadas de cada periodo (ver {@link CacheFacturas#mPeriodo}). */
+        private final Map<Integer, Set<ClaveFactura>> porPeriodo = new HashMap<>();
+        /** Memoria máxima (aproximada) que pueden ocupar las entradas de esta parte. */
+        private final long maximoBytes;
+        private long bytesUsados;
+
+        private long aciertos;
+        private long fallos;
+        private long desalojos;
+        private long invalidaciones;
+
+        ParteCache(long maximoBytes) {
+            this.maximoBytes = maximoBytes;
+        }
+
+        /**
+         * Cuenta un acierto o un fallo según si se encontró el valor.
+         */
+        <T> T mContar(T encontrado) {
+            if (encontrado != null) aciertos++;
+            else fallos++;
+            return encontrado;
+        }
+
+        /**
+         * Devuelve la entrada de una clave, creándola vacía (y agregándola a los índices) si no existía.
+         */
+        EntradaFactura mEntrada(ClaveFactura clave) {
+            EntradaFactura entrada = entradas.get(clave);
+            if (entrada == null) {
+                entrada = new EntradaFactura();
+                entradas.put(clave, entrada);
+                porCliente.computeIfAbsent(clave.idCliente, k -> new HashSet<>()).add(clave);
+                porPeriodo.computeIfAbsent(mPeriodo(clave.anio, clave.mes), k -> new HashSet<>()).add(clave);
+                bytesUsados += entrada.mBytes();
+            }
+            return entrada;
+        }
+
+        /**
+         * Descarta una factura que se invalidó (si estaba guardada).
+         */
+        void mQuitar(ClaveFactura clave) {
+            EntradaFactura entrada = entradas.remove(clave);
+            if (entrada != null) {
+                mQuitarDeIndices(clave);
+                bytesUsados -= entrada.mBytes();
+                invalidaciones++;
+            }
+        }
+
+        /**
+         * Descarta las entradas usadas hace más tiempo hasta volver a estar dentro del límite de memoria.
+         */
+        void mDesalojar() {
+            Iterator<Map.Entry<ClaveFactura, EntradaFactura>> it = entradas.entrySet().iterator();
+            while (bytesUsados > maximoBytes && it.hasNext()) {
+                Map.Entry<ClaveFactura, EntradaFactura> e = it.next();
+                it.remove();
+                mQuitarDeIndices(e.getKey());
+                bytesUsados -= e.getValue().mBytes();
+                desalojos++;
+            }
+        }
+
+        /**
+         * Quita una clave de los índices por cliente y por periodo.
+         */
+        private void mQuitarDeIndices(ClaveFactura clave) {
+            mQuitarDe(porCliente, clave.idCliente, clave);
+            mQuitarDe(porPeriodo, mPeriodo(clave.anio, clave.mes), clave);
+        }
+
+        private static <K> void mQuitarDe(Map<K, Set<ClaveFactura>> indice, K grupo, ClaveFactura clave) {
+            Set<ClaveFactura> claves = indice.get(grupo);
+            if (claves != null && claves.remove(clave) && claves.isEmpty()) {
+                indice.remove(grupo);
+            }
+        }
+    }
+
+    /**
+     * Identifica una factura: cliente, año y mes.
+     */
+    private static final class ClaveFactura {
+        private final String idCliente;
+        private final int anio;
+        private final int mes;
+
+        ClaveFactura(String idCliente, int anio, int mes) {
+            this.idCliente = idCliente;
+            this.anio = anio;
+            this.mes = mes;
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (this == otro) return true;
+            if (!(otro instanceof ClaveFactura)) return false;
+            ClaveFactura clave = (ClaveFactura) otro;
+            return anio == clave.anio && mes == clave.mes && idCliente.equals(clave.idCliente);
+        }
+
+        @Override
+        public int hashCode() {
+            return (idCliente.hashCode() * 31 + anio) * 31 + mes;
+        }
+    }
+
+    /**
+     * Lo que se tiene guardado de una factura. Cualquiera de las dos partes puede faltar.
+     */
+    private static final class EntradaFactura {
+        private String texto;
+        private Double valor;
+
+        /** Memoria aproximada que ocupa la entrada (2 bytes por carácter del texto). */
+        long mBytes() {
+            return BYTES_POR_ENTRADA + (texto != null ? 2L * texto.length() : 0);
+        }
+    }
+
+    /**
+     * Contadores de uso de la caché en un momento dado.
+     */
+    public static final class Estadisticas {
+        private final long aciertos;
+        private final long fallos;
+        private final long desalojos;
+        private final long invalidaciones;
+        private final int entradas;
+        private final long bytesUsados;
+        private final long maximoBytes;
+
+        Estadisticas(long aciertos, long fallos, long desalojos, long invalidaciones,
+                     int entradas, long bytesUsados, long maximoBytes) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.desalojos = desalojos;
+            this.invalidaciones = invalidaciones;
+            this.entradas = entradas;
+            this.bytesUsados = bytesUsados;
+            this.maximoBytes = maximoBytes;
+        }
+
+        /**
+         * Devuelve cuántas búsquedas encontraron la factura guardada.
+         * @return La cantidad de aciertos.
+         */
+        public long mGetAciertos() {
+            return aciertos;
+        }
+
+        /**
+         * Devuelve cuántas búsquedas no encontraron la factura y hubo que calcularla.
+         * @return La cantidad de fallos.
+         */
+        public long mGetFallos() {
+            return fallos;
+        }
+
+        /**
+         * Devuelve cuántas facturas se descartaron por falta de espacio.
+         * @return La cantidad de desalojos.
+         */
+        public long mGetDesalojos() {
+            return desalojos;
+        }
+
+        /**
+         * Devuelve cuántas facturas se descartaron porque cambiaron sus datos.
+         * @return La cantidad de invalidaciones.
+         */
+        public long mGetInvalidaciones() {
+            return invalidaciones;
+        }
+
+        /**
+         * Devuelve cuántas facturas hay guardadas.
+         * @return La cantidad de entradas.
+         */
+        public int mGetEntradas() {
+            return entradas;
+        }
+
+        /**
+         * Devuelve la memoria aproximada que ocupan las facturas guardadas.
+         * @return Los bytes usados.
+         */
+        public long mGetBytesUsados() {
+            return bytesUsados;
+        }
+
+        /**
+         * Devuelve la proporción de búsquedas que encontraron la factura guardada.
+         * @return Un valor entre 0 y 1 (0 si aún no hubo búsquedas).
+         */
+        public double mGetTasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (double) aciertos / total;
+        }
+
+        /**
+         * Devuelve un texto con todas las estadísticas.
+         * @return Una cadena de texto con los contadores.
+         */
+        @Override
+        public String toString() {
+            return String.format("Aciertos: %d, Fallos: %d (tasa de aciertos %.1f%%), Desalojos: %d, Invalidaciones: %d, "
+                            + "Entradas: %d, Memoria: %d de %d bytes",
+                    aciertos, fallos, mGetTasaAciertos() * 100, desalojos, invalidaciones, entradas, bytesUsados, maximoBytes);
+        }
+    }
+}
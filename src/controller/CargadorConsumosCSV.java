@@ -0,0 +1,514 @@
+package controller;
+
+import model.Cliente;
+import model.Registrador;
+import model.RegistroClientes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Carga masivamente consumos horarios desde archivos CSV con filas {@code idMedidor,fechaHora,kWh}, por ejemplo:
+ * <pre>
+ * MED-001,2025-06-01T13:00,412.5
+ * </pre>
+ * La fecha y hora se escriben como {@code AAAA-MM-DDTHH} (la "T" también puede ser un espacio); lo que siga
+ * a la hora (minutos, segundos, zona) se ignora. Si la primera línea no tiene una fecha, se toma como encabezado.
+ *
+ * Cada archivo se lee por bloques con un canal de NIO y se interpreta directamente sobre los bytes, sin crear
+ * objetos por fila (ni {@code Consumo}, ni {@code LocalDateTime}, ni cadenas): el ID del medidor solo se convierte
+ * en texto y se busca en el índice cuando cambia respecto a la fila anterior. Los valores se escriben directamente
+ * en el almacén de cada medidor, con el candado de escritura de su cliente tomado solo durante esa fila (así se
+ * puede facturar y consultar mientras se carga). Con ese candado tomado se confirma que el medidor sigue siendo
+ * de ese cliente (pudo moverse o eliminarse mientras tanto) y se descarta la factura guardada del cliente para
+ * ese mes, igual que al cambiar un consumo desde el Controlador. Varios archivos se cargan en paralelo, uno por hilo.
+ *
+ * Las filas con errores (formato, fecha, medidor inexistente, valor negativo) se cuentan como rechazadas
+ * y no detienen la carga.
+ */
+public class CargadorConsumosCSV {
+
+    /** Tamaño del bloque que se lee del archivo en cada llamada al canal. */
+    private static final int TAMANO_BLOQUE = 1 << 20;
+    /** Potencias de 10 exactas en double, para convertir los decimales sin redondeos intermedios. */
+    private static final double[] POTENCIAS_DIEZ = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    /** Mayor mantisa que se convierte a double sin perder precisión (2^53). */
+    private static final long MANTISA_MAXIMA = 1L << 53;
+
+    /** Índice de medidores donde se buscan los IDs de cada fila. */
+    private final RegistroClientes registro;
+    /** Facturas guardadas que se descartan al cambiar sus consumos (null si no hay). */
+    private final CacheFacturas cacheFacturas;
+    /** Grupo de hilos donde se leen los archivos. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un cargador que usa el grupo de hilos común de Java.
+     * @param registro El registro donde se buscan los medidores.
+     * @param cacheFacturas Las facturas guardadas que se descartan al cambiar sus consumos (null si no hay).
+     */
+    public CargadorConsumosCSV(RegistroClientes registro, CacheFacturas cacheFacturas) {
+        this(registro, cacheFacturas, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un cargador que usa el grupo de hilos indicado.
+     * @param registro El registro donde se buscan los medidores.
+     * @param cacheFacturas Las facturas guardadas que se descartan al cambiar sus consumos (null si no hay).
+     * @param grupoHilos El grupo de hilos donde se leen los archivos.
+     */
+    public CargadorConsumosCSV(RegistroClientes registro, CacheFacturas cacheFacturas, ForkJoinPool grupoHilos) {
+        if (registro == null || grupoHilos == null) {
+            throw new IllegalArgumentException("El registro y el grupo de hilos son obligatorios.");
+        }
+        this.registro = registro;
+        this.cacheFacturas = cacheFacturas;
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Carga los consumos de varios archivos, en paralelo.
+     * Las filas de un medidor que se elimina durante la carga se rechazan; las de uno que pasa a otro
+     * cliente se guardan con el candado del cliente nuevo.
+     *
+     * @param archivos Las rutas de los archivos CSV.
+     * @return El resultado con las filas leídas, aceptadas y rechazadas, y el tiempo que tardó.
+     * @throws IOException Si algún archivo no se puede leer (los demás archivos sí se cargan).
+     */
+    public ResultadoCargaConsumos mCargar(List<Path> archivos) throws IOException {
+        long inicio = System.nanoTime();
+        List<ForkJoinTask<LectorArchivo>> tareas = new ArrayList<>(archivos.size());
+        for (Path archivo : archivos) {
+            tareas.add(grupoHilos.submit(() -> {
+                LectorArchivo lector = new LectorArchivo(archivo);
+                lector.mLeer();
+                return lector;
+            }));
+        }
+
+        long leidas = 0, aceptadas = 0, rechazadas = 0;
+        List<String> ejemplos = new ArrayList<>();
+        Set<YearMonth> periodos = new HashSet<>();
+        IOException primerError = null;
+        for (ForkJoinTask<LectorArchivo> tarea : tareas) {
+            LectorArchivo lector = tarea.join();
+            if (lector.error != null) {
+                if (primerError == null) primerError = lector.error;
+                else primerError.addSuppressed(lector.error);
+            }
+            leidas += lector.filasLeidas;
+            aceptadas += lector.filasAceptadas;
+            rechazadas += lector.filasRechazadas;
+            for (String ejemplo : lector.ejemplosRechazo) {
+                if (ejemplos.size() < ResultadoCargaConsumos.MAXIMO_EJEMPLOS_RECHAZO) ejemplos.add(ejemplo);
+            }
+            for (int clave : lector.periodos) {
+                periodos.add(YearMonth.of(clave / 12, clave % 12 + 1));
+            }
+        }
+        ResultadoCargaConsumos resultado = new ResultadoCargaConsumos(archivos.size(), leidas, aceptadas, rechazadas,
+                System.nanoTime() - inicio, ejemplos, periodos);
+        if (primerError != null) {
+            throw new IOException("No se pudieron leer todos los archivos (" + resultado + ").", primerError);
+        }
+        return resultado;
+    }
+
+    /**
+     * Lee un archivo de principio a fin. Cada lector lo usa un solo hilo.
+     */
+    private final class LectorArchivo {
+
+        private final Path archivo;
+        private final byte[] datos = new byte[TAMANO_BLOQUE];
+
+        private long filasLeidas;
+        private long filasAceptadas;
+        private long filasRechazadas;
+        private final List<String> ejemplosRechazo = new ArrayList<>();
+        /** Meses modificados, como {@code anio * 12 + mes - 1}. */
+        private final Set<Integer> periodos = new HashSet<>();
+        private IOException error;
+
+        private long numeroLinea;
+        /** Si la línea actual no cupo en el bloque y se está saltando hasta el próximo salto de línea. */
+        private boolean saltandoLinea;
+
+        /** Bytes del ID de medidor de la fila anterior, para no buscarlo otra vez. */
+        private byte[] ultimoId = new byte[32];
+        private int largoUltimoId = -1;
+        private String ultimoIdTexto;
+        private Registrador ultimoRegistrador;
+        /** Cliente dueño de ese medidor cuando se buscó, y su candado de escritura. */
+        private Cliente ultimoPropietario;
+        private Lock candadoUltimoRegistrador;
+        private int ultimaClavePeriodo = -1;
+
+        /** Última factura descartada (cliente y mes), y cuántas se habían guardado en la caché en ese momento. */
+        private Cliente propietarioDescartado;
+        private int claveDescartada = -1;
+        private long guardadasAlDescartar;
+
+        // Campos de la fila que se está interpretando.
+        private int anio;
+        private int mes;
+        private int dia;
+        private int hora;
+
+        LectorArchivo(Path archivo) {
+            this.archivo = archivo;
+        }
+
+        /**
+         * Lee el archivo por bloques y procesa cada línea completa. Lo que queda de una línea
+         * cortada se mueve al inicio del bloque para completarla con la siguiente lectura.
+         */
+        void mLeer() {
+            ByteBuffer buffer = ByteBuffer.wrap(datos);
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                int pendientes = 0; // Bytes de una línea incompleta al inicio del bloque.
+                while (canal.read(buffer) >= 0) {
+                    int fin = buffer.position();
+                    int inicioLinea = 0;
+                    for (int i = pendientes; i < fin; i++) {
+                        if (datos[i] == '\n') {
+                            mProcesarLinea(inicioLinea, i);
+                            inicioLinea = i + 1;
+                        }
+                    }
+                    pendientes = fin - inicioLinea;
+                    if (pendientes == datos.length) {
+                        // Una línea más larga que todo el bloque: se rechaza y se salta el resto.
+                        numeroLinea++;
+                        mRechazarFila("la línea es demasiado larga.");
+                        saltandoLinea = true;
+                        pendientes = 0;
+                    } else {
+                        System.arraycopy(datos, inicioLinea, datos, 0, pendientes);
+                    }
+                    buffer.position(pendientes);
+                }
+                if (pendientes > 0) {
+                    mProcesarLinea(0, pendientes); // Última línea, sin salto de línea al final.
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        /**
+         * Interpreta una línea {@code idMedidor,fechaHora,kWh} (sin el salto de línea) y guarda el consumo.
+         */
+        private void mProcesarLinea(int inicio, int fin) {
+            if (saltandoLinea) { // Es el final de una línea demasiado larga, ya rechazada.
+                saltandoLinea = false;
+                return;
+            }
+            numeroLinea++;
+            if (fin > inicio && datos[fin - 1] == '\r') fin--;
+            fin = mSinEspaciosFinal(inicio, fin);
+            inicio = mSinEspaciosInicio(inicio, fin);
+            if (inicio == fin) return; // Línea vacía.
+
+            int coma1 = mBuscarComa(inicio, fin);
+            int coma2 = coma1 < 0 ? -1 : mBuscarComa(coma1 + 1, fin);
+            if (coma2 < 0 || mBuscarComa(coma2 + 1, fin) >= 0) {
+                mRechazarFila("se esperaban 3 columnas (idMedidor,fechaHora,kWh).");
+                return;
+            }
+            int inicioFecha = mSinEspaciosInicio(coma1 + 1, coma2);
+            if (numeroLinea == 1 && (inicioFecha == coma2 || !mEsDigito(datos[inicioFecha]))) {
+                return; // Encabezado.
+            }
+            filasLeidas++;
+
+            if (!mLeerFechaHora(inicioFecha, mSinEspaciosFinal(inicioFecha, coma2))) {
+                mRechazar("la fecha y hora no es válida (se espera AAAA-MM-DDTHH).");
+                return;
+            }
+            double kWh = mLeerNumero(mSinEspaciosInicio(coma2 + 1, fin), fin);
+            if (Double.isNaN(kWh)) {
+                mRechazar("el consumo no es un número.");
+                return;
+            }
+            if (kWh < 0) {
+                mRechazar("el consumo no puede ser negativo.");
+                return;
+            }
+            int finId = mSinEspaciosFinal(inicio, coma1);
+            int clave = anio * 12 + mes - 1;
+            try {
+                boolean guardado = false;
+                while (!guardado) {
+                    Registrador registrador = mResolverMedidor(inicio, finId);
+                    if (registrador == null) {
+                        mRechazar("el medidor no existe.");
+                        return;
+                    }
+                    guardado = mGuardar(registrador, clave, kWh);
+                    if (!guardado) largoUltimoId = -1; // Cambió de dueño: se busca otra vez.
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                mRechazar(e.getMessage());
+                return;
+            }
+            filasAceptadas++;
+            if (clave != ultimaClavePeriodo) {
+                periodos.add(clave);
+                ultimaClavePeriodo = clave;
+            }
+        }
+
+        /**
+         * Guarda el consumo de la fila con el candado de escritura del dueño del medidor tomado (otros archivos,
+         * u otros hilos, pueden usar el mismo medidor a la vez), y descarta la factura guardada de ese mes.
+         * @return false, sin guardar nada, si el medidor ya no es de ese cliente.
+         * @throws IllegalArgumentException Si el mes, el día, la hora o el valor no son válidos.
+         * @throws IllegalStateException Si el medidor no puede guardar ese mes.
+         */
+        private boolean mGuardar(Registrador registrador, int clave, double kWh) {
+            candadoUltimoRegistrador.lock();
+            try {
+                // Pudo pasar a otro cliente (o eliminarse) desde que se buscó.
+                if (registro.mBuscarPropietario(ultimoIdTexto) != ultimoPropietario
+                        || ultimoPropietario.mBuscarRegistrador(ultimoIdTexto) != registrador) {
+                    return false;
+                }
+                mDescartarFactura(clave);
+                registrador.mAsegurarPeriodo(anio, mes);
+                registrador.mSetConsumoEn(anio, mes, dia, hora, kWh);
+                return true;
+            } finally {
+                candadoUltimoRegistrador.unlock();
+            }
+        }
+
+        /**
+         * Descarta la factura guardada del dueño del medidor para el mes de la fila. Se llama con su candado de
+         * escritura tomado, y las facturas se guardan con el de lectura, así que si es el mismo cliente y mes de
+         * la última vez y desde entonces no se guardó ninguna factura, no hace falta descartarla otra vez.
+         */
+        private void mDescartarFactura(int clave) {
+            if (cacheFacturas == null) return;
+            long guardadas = cacheFacturas.mGetGuardadas();
+            if (ultimoPropietario == propietarioDescartado && clave == claveDescartada && guardadas == guardadasAlDescartar) {
+                return;
+            }
+            cacheFacturas.mInvalidar(ultimoPropietario.mGetNumeroIdentificacion(), anio, mes);
+            propietarioDescartado = ultimoPropietario;
+            claveDescartada = clave;
+            guardadasAlDescartar = guardadas;
+        }
+
+        /**
+         * Devuelve el medidor de la fila. Solo lo busca en el índice si el ID es distinto al de la fila anterior.
+         */
+        private Registrador mResolverMedidor(int inicio, int fin) {
+            int largo = fin - inicio;
+            if (largo == largoUltimoId && Arrays.equals(datos, inicio, fin, ultimoId, 0, largo)) {
+                return ultimoRegistrador;
+            }
+            String id = new String(datos, inicio, largo, StandardCharsets.UTF_8);
+            ultimoIdTexto = id;
+            ultimoRegistrador = registro.mBuscarRegistrador(id);
+            ultimoPropietario = registro.mBuscarPropietario(id);
+            if (ultimoRegistrador == null || ultimoPropietario == null) {
+                ultimoRegistrador = null; // Se acaba de eliminar.
+            } else {
+                candadoUltimoRegistrador = ultimoPropietario.mCandado().writeLock();
+            }
+            if (ultimoId.length < largo) ultimoId = new byte[Math.max(largo, ultimoId.length * 2)];
+            System.arraycopy(datos, inicio, ultimoId, 0, largo);
+            largoUltimoId = largo;
+            return ultimoRegistrador;
+        }
+
+        /**
+         * Lee {@code AAAA-MM-DD?HH} y deja el año, mes, día y hora en los campos de la fila.
+         * @return true si la fecha y hora son válidas.
+         */
+        private boolean mLeerFechaHora(int inicio, int fin) {
+            if (fin - inicio < 13 || datos[inicio + 4] != '-' || datos[inicio + 7] != '-'
+                    || (datos[inicio + 10] != 'T' && datos[inicio + 10] != ' ')) {
+                return false;
+            }
+            anio = mLeerEntero(inicio, 4);
+            mes = mLeerEntero(inicio + 5, 2);
+            dia = mLeerEntero(inicio + 8, 2);
+            hora = mLeerEntero(inicio + 11, 2);
+            if (anio < 0 || mes < 1 || mes > 12 || dia < 1 || hora < 0 || hora > 23) return false;
+            return dia <= mDiasDelMes(anio, mes);
+        }
+
+        /**
+         * Lee un entero de una cantidad fija de dígitos.
+         * @return El número, o -1 si algún carácter no es un dígito.
+         */
+        private int mLeerEntero(int inicio, int digitos) {
+            int valor = 0;
+            for (int i = inicio; i < inicio + digitos; i++) {
+                if (!mEsDigito(datos[i])) return -1;
+                valor = valor * 10 + (datos[i] - '0');
+            }
+            return valor;
+        }
+
+        /**
+         * Lee un número decimal como {@code 123}, {@code -4.5} o {@code 0.001}.
+         * Los números comunes se convierten directamente de los bytes; los muy largos o con exponente
+         * se delegan a {@link Double#parseDouble(String)}.
+         * @return El número, o NaN si no es válido.
+         */
+        private double mLeerNumero(int inicio, int fin) {
+            if (inicio == fin) return Double.NaN;
+            int i = inicio;
+            boolean negativo = datos[i] == '-';
+            if (negativo || datos[i] == '+') i++;
+            long mantisa = 0;
+            int decimales = 0;
+            int digitos = 0;
+            boolean hayPunto = false;
+            for (; i < fin; i++) {
+                byte b = datos[i];
+                if (mEsDigito(b)) {
+                    mantisa = mantisa * 10 + (b - '0');
+                    if (hayPunto) decimales++;
+                    if (++digitos > 18 || mantisa >= MANTISA_MAXIMA) return mLeerNumeroLento(inicio, fin);
+                } else if (b == '.' && !hayPunto) {
+                    hayPunto = true;
+                } else if (b == 'e' || b == 'E') {
+                    return mLeerNumeroLento(inicio, fin);
+                } else {
+                    return Double.NaN;
+                }
+            }
+            if (digitos == 0) return Double.NaN;
+            double valor = mantisa / POTENCIAS_DIEZ[decimales];
+            return negativo ? -valor : valor;
+        }
+
+        /**
+         * Convierte un número poco común creando el texto (solo para casos raros).
+         */
+        private double mLeerNumeroLento(int inicio, int fin) {
+            try {
+                return Double.parseDouble(new String(datos, inicio, fin - inicio, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private int mBuscarComa(int inicio, int fin) {
+            for (int i = inicio; i < fin; i++) {
+                if (datos[i] == ',') return i;
+            }
+            return -1;
+        }
+
+        private int mSinEspaciosInicio(int inicio, int fin) {
+            while (inicio < fin && (datos[inicio] == ' ' || datos[inicio] == '\t')) inicio++;
+            return inicio;
+        }
+
+        private int mSinEspaciosFinal(int inicio, int fin) {
+            while (fin > inicio && (datos[fin - 1] == ' ' || datos[fin - 1] == '\t')) fin--;
+            return fin;
+        }
+
+        /**
+         * Cuenta una fila de datos rechazada que todavía no se había contado como leída.
+         */
+        private void mRechazarFila(String motivo) {
+            filasLeidas++;
+            mRechazar(motivo);
+        }
+
+        /**
+         * Cuenta una fila rechazada y guarda el motivo si aún hay espacio para ejemplos.
+         */
+        private void mRechazar(String motivo) {
+            filasRechazadas++;
+            if (ejemplosRechazo.size() < ResultadoCargaConsumos.MAXIMO_EJEMPLOS_RECHAZO) {
+                ejemplosRechazo.add(archivo.getFileName() + ", línea " + numeroLinea + ": " + motivo);
+            }
+        }
+    }
+
+    private static boolean mEsDigito(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Interpreta una fecha y hora con las mismas reglas que las filas de los archivos ({@code AAAA-MM-DDTHH},
+     * la "T" también puede ser un espacio y se ignora lo que siga a la hora). Sirve para leer filas CSV que
+     * no vienen de un archivo, como los lotes de la API HTTP.
+     *
+     * @param texto La fecha y hora, sin espacios alrededor.
+     * @return La fecha y hora (en punto), o null si no es válida.
+     */
+    public static LocalDateTime mLeerFechaHora(String texto) {
+        if (texto.length() < 13 || texto.charAt(4) != '-' || texto.charAt(7) != '-'
+                || (texto.charAt(10) != 'T' && texto.charAt(10) != ' ')) {
+            return null;
+        }
+        int anio = mLeerEntero(texto, 0, 4);
+        int mes = mLeerEntero(texto, 5, 2);
+        int dia = mLeerEntero(texto, 8, 2);
+        int hora = mLeerEntero(texto, 11, 2);
+        if (anio < 0 || mes < 1 || mes > 12 || dia < 1 || hora < 0 || hora > 23) return null;
+        if (dia > mDiasDelMes(anio, mes)) return null;
+        return LocalDateTime.of(anio, mes, dia, hora, 0);
+    }
+
+    /**
+     * Indica si la primera línea es un encabezado, con la misma regla que los archivos: su columna de fecha
+     * está vacía o no empieza con un dígito.
+     *
+     * @param columnaFecha La columna de fecha de la primera línea, sin espacios alrededor.
+     * @return true si la línea es un encabezado.
+     */
+    public static boolean mEsEncabezado(String columnaFecha) {
+        return columnaFecha.isEmpty() || columnaFecha.charAt(0) < '0' || columnaFecha.charAt(0) > '9';
+    }
+
+    /**
+     * Lee un entero de una cantidad fija de dígitos de un texto.
+     * @return El número, o -1 si algún carácter no es un dígito.
+     */
+    private static int mLeerEntero(String texto, int inicio, int digitos) {
+        int valor = 0;
+        for (int i = inicio; i < inicio + digitos; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * Devuelve los días de un mes sin crear objetos de fecha.
+     */
+    private static int mDiasDelMes(int anio, int mes) {
+        return switch (mes) {
+            case 2 -> ((anio % 4 == 0 && anio % 100 != 0) || anio % 400 == 0) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package controller;
+
+import java.util.Comparator;
+
+/**
+ * Un cliente (o uno de sus medidores) entre los que más consumieron en un mes, con la cifra por la
+ * que quedó en esa posición (ver {@link MotorTopConsumidores}).
+ */
+public final class ConsumidorDestacado {
+
+    /**
+     * Orden del ranking: primero la cifra más alta; si empatan, por ID de cliente y luego de medidor,
+     * para que el resultado no dependa de cuántos hilos lo calcularon.
+     */
+    static final Comparator<ConsumidorDestacado> ORDEN_RANKING = (a, b) -> {
+        int porValor = Double.compare(b.valor, a.valor);
+        if (porValor != 0) return porValor;
+        int porCliente = a.idCliente.compareTo(b.idCliente);
+        if (porCliente != 0) return porCliente;
+        if (a.idRegistrador == null || b.idRegistrador == null) return 0;
+        return a.idRegistrador.compareTo(b.idRegistrador);
+    };
+
+    private final String idCliente;
+    /** El medidor, o null si el ranking es por cliente. */
+    private final String idRegistrador;
+    private final double valor;
+
+    /**
+     * Crea una posición del ranking.
+     * @param idCliente El ID del cliente.
+     * @param idRegistrador El ID del medidor, o null si el ranking es por cliente.
+     * @param valor La cifra por la que se ordenó.
+     */
+    public ConsumidorDestacado(String idCliente, String idRegistrador, double valor) {
+        this.idCliente = idCliente;
+        this.idRegistrador = idRegistrador;
+        this.valor = valor;
+    }
+
+    /**
+     * Devuelve el ID del cliente.
+     * @return El ID del cliente.
+     */
+    public String mGetIdCliente() {
+        return idCliente;
+    }
+
+    /**
+     * Devuelve el ID del medidor.
+     * @return El ID del medidor, o null si el ranking es por cliente.
+     */
+    public String mGetIdRegistrador() {
+        return idRegistrador;
+    }
+
+    /**
+     * Devuelve la cifra por la que se ordenó (kWh o COP, según el criterio).
+     * @return La cifra.
+     */
+    public double mGetValor() {
+        return valor;
+    }
+
+    @Override
+    public String toString() {
+        return idCliente + (idRegistrador != null ? "/" + idRegistrador : "") + ": " + valor;
+    }
+}
@@ -1,53 +1,195 @@
 package controller;
 
+import model.AlmacenMapeado;
+import model.CandadosClientes;
+import model.CatalogoTarifas;
 import model.Cliente;
 import model.Consumo;
+import model.CriterioConsumo;
+import model.CursorConsumos;
+import model.HistogramaConsumos;
+import model.InstantaneaBinaria;
+import model.PerfilConsumo;
+import model.PrecisionConsumos;
 import model.Registrador;
-// No es necesario importar FranjaHoraria aquí si solo se usa dentro de Consumo.mCalcularCosto
+import model.RegistroClientes;
+import model.ResumenMensual;
+import model.SegmentoMensual;
+import model.SerieConsumos;
+import model.VisitanteConsumoCosto;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Es el "cerebro" de la aplicación. Conecta la Vista (lo que ve el usuario)
  * con el Modelo (los datos y cómo funcionan). Se encarga de realizar las
  * operaciones que el usuario solicita.
+ *
+ * Se puede usar desde varios hilos a la vez (por ejemplo, uno cargando consumos mientras otros facturan):
+ * - Cada cliente tiene un candado de lectura y escritura ({@link CandadosClientes}, repartidos por grupos).
+ *   Las consultas toman el de lectura y los cambios el de escritura, así que una factura o un resumen
+ *   nunca ve un cambio a medias, y dos hilos que trabajan con clientes distintos no se esperan.
+ * - Buscar clientes y medidores no toma candados. Las altas y bajas de clientes y medidores se hacen de a una.
+ * - La facturación de flota, las facturas en lote y las instantáneas leen cliente por cliente, sin detener
+ *   los cambios de los demás.
+ * - Los cambios masivos que se anotan en la bitácora (simular toda la flota, archivar meses) toman los
+ *   candados de todos los clientes mientras se hacen.
+ * Cada cambio se anota en la bitácora mientras se tiene el candado del cliente, así que los cambios de un mismo
+ * cliente quedan anotados en el orden en que se hicieron. Los objetos Cliente y Registrador que se devuelven
+ * no están protegidos: si se leen mientras otro hilo hace cambios, pueden verse a medias.
+ *
+ * Cada método público (salvo los que solo devuelven un campo) cuenta sus llamadas, sus errores y su latencia
+ * en las métricas del Controlador ({@link #mGetMetricas()}), que también se pueden publicar por JMX.
  */
 public class Controlador {
 
-    /** Guarda la lista de todos los clientes que se han creado. */
-    private List<Cliente> listaClientes;
-    /** Se usa para generar números al azar, útil para simular consumos. */
+    /** Memoria aproximada (en bytes) que pueden ocupar las facturas guardadas en la caché. */
+    private static final long TAMANO_CACHE_FACTURAS = 8L * 1024 * 1024;
+    /** Tamaño de la bitácora a partir del cual se compacta (se guarda una instantánea y se vacía la bitácora). */
+    private static final long LIMITE_BITACORA = 32L * 1024 * 1024;
+
+    // Tipos de entrada de la bitácora de escrituras. No se deben cambiar los números ya usados.
+    private static final byte ENTRADA_CREAR_CLIENTE = 1;
+    private static final byte ENTRADA_EDITAR_CLIENTE = 2;
+    private static final byte ENTRADA_ELIMINAR_CLIENTE = 3;
+    private static final byte ENTRADA_CREAR_REGISTRADOR = 4;
+    private static final byte ENTRADA_EDITAR_REGISTRADOR = 5;
+    private static final byte ENTRADA_ELIMINAR_REGISTRADOR = 6;
+    private static final byte ENTRADA_CAMBIAR_CONSUMO = 7;
+    /** Simulación con el generador anterior (java.util.Random); ya no se anota. */
+    private static final byte ENTRADA_SIMULAR_TODOS_ANTERIOR = 8;
+    /** Simulación de un cliente con el generador anterior; ya no se anota. */
+    private static final byte ENTRADA_SIMULAR_CLIENTE_ANTERIOR = 9;
+    private static final byte ENTRADA_ARCHIVAR = 10;
+    private static final byte ENTRADA_SIMULAR_FLOTA = 11;
+    private static final byte ENTRADA_SIMULAR_CLIENTE = 12;
+
+    /** Guarda todos los clientes y sus medidores, indexados para búsquedas en O(1). */
+    private final RegistroClientes registro;
+    /** Se usa para elegir la semilla de las simulaciones de consumos. */
     private final Random generadorAleatorio;
+    /** Motor que factura a muchos clientes en paralelo. */
+    private final MotorFacturacionFlota motorFacturacion;
+    /** Arma en paralelo la distribución de los consumos de la flota (para los percentiles). */
+    private final MotorDistribucionConsumo motorDistribucion;
+    /** Busca en paralelo los clientes o medidores que más consumieron en un mes. */
+    private final MotorTopConsumidores motorTop;
+    /** Genera en paralelo el texto de muchas facturas y lo escribe en archivos o canales. */
+    private final RenderizadorFacturas renderizadorFacturas;
+    /** Simulador paralelo de consumos. */
+    private final SimuladorConsumos simulador;
+    /**
+     * Archivo mapeado donde los medidores guardan sus consumos, fuera del heap.
+     * Si es null, cada medidor guarda sus consumos en memoria.
+     */
+    private final AlmacenMapeado almacenMapeado;
+    /** Con qué tipo de número guardan sus consumos los medidores en memoria (no aplica al archivo mapeado). */
+    private final PrecisionConsumos precisionConsumos;
+    /** Planes tarifarios con que se factura. Al inicio son las tarifas del proyecto. */
+    private volatile CatalogoTarifas catalogoTarifas;
+    /** Facturas ya calculadas, por cliente y periodo. Se invalidan cuando cambia algo que aparece en ellas. */
+    private final CacheFacturas cacheFacturas;
+    /** Bitácora donde se anotan los cambios desde la última instantánea. Es null si no se activó la persistencia. */
+    private volatile BitacoraEscrituras bitacora;
+    /** Instantánea que acompaña a la bitácora (donde se guarda todo al compactar). */
+    private Path archivoInstantanea;
+    /** Si se están volviendo a aplicar los cambios de la bitácora (en ese caso no se anotan de nuevo). */
+    private boolean reproduciendoBitacora;
+    /**
+     * Se toma para dar de alta o de baja clientes y medidores (de a uno) y para los cambios masivos, antes de
+     * los candados de los clientes; y al compactar, mientras se guarda la instantánea.
+     */
+    private final Object cambiosEstructura = new Object();
+    /** Se toma para compactar la bitácora (de a una compactación), antes de {@link #cambiosEstructura}. */
+    private final Object compactacion = new Object();
+    /** Lo que el hilo anotó en la bitácora con los candados tomados y aún no confirmó (ver {@link #mAnotarEnBitacora}). */
+    private final ThreadLocal<AnotacionPendiente> anotacionPendiente = ThreadLocal.withInitial(AnotacionPendiente::new);
+    /** Llamadas, errores y latencias de cada operación, y el estado general (ver {@link MetricasControlador}). */
+    private final MetricasControlador metricas;
 
     /**
-     * Constructor del Controlador. Prepara la lista de clientes y el generador de números.
+     * Constructor del Controlador. Prepara el registro de clientes y el generador de números.
+     * Los consumos de los medidores se guardan en memoria.
      */
     public Controlador() {
-        this.listaClientes = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * Constructor del Controlador que guarda los consumos de todos los medidores en un archivo mapeado.
+     * Al crear un medidor cuyo ID ya estaba en el archivo, recupera sus consumos guardados.
+     *
+     * @param almacenMapeado El archivo mapeado a usar, o null para guardar los consumos en memoria.
+     */
+    public Controlador(AlmacenMapeado almacenMapeado) {
+        this(almacenMapeado, PrecisionConsumos.DOBLE);
+    }
+
+    /**
+     * Constructor del Controlador que permite elegir con qué precisión guardan sus consumos los medidores
+     * en memoria. Con {@link PrecisionConsumos#SIMPLE} ocupan la mitad de memoria (ver la precisión).
+     *
+     * @param almacenMapeado El archivo mapeado a usar, o null para guardar los consumos en memoria.
+     * @param precisionConsumos La precisión de los consumos en memoria. El archivo mapeado siempre guarda doubles.
+     */
+    public Controlador(AlmacenMapeado almacenMapeado, PrecisionConsumos precisionConsumos) {
+        this.registro = new RegistroClientes();
         this.generadorAleatorio = new Random();
+        this.almacenMapeado = almacenMapeado;
+        this.precisionConsumos = precisionConsumos;
+        this.motorFacturacion = new MotorFacturacionFlota();
+        this.motorDistribucion = new MotorDistribucionConsumo();
+        this.motorTop = new MotorTopConsumidores();
+        this.renderizadorFacturas = new RenderizadorFacturas();
+        // Grupo de hilos propio: la simulación de la flota se hace con todos los candados tomados, y sus
+        // tareas no deben esperar detrás de las del grupo común, que pueden estar esperando esos candados.
+        this.simulador = new SimuladorConsumos(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+        this.catalogoTarifas = CatalogoTarifas.mPredeterminado();
+        this.cacheFacturas = new CacheFacturas(TAMANO_CACHE_FACTURAS);
+        this.metricas = new MetricasControlador(registro);
     }
 
     // --- OPERACIONES RELACIONADAS CON CLIENTES ---
 
     /**
-     * Busca un cliente en la lista usando su número de identificación.
+     * Busca un cliente en el registro usando su número de identificación.
      * Es un método privado porque solo lo usa el Controlador internamente.
      *
      * @param numeroIdentificacion El ID del cliente que se quiere encontrar.
      * @return El objeto Cliente si se encuentra, o null si no existe.
      */
     private Cliente mBusCliente(String numeroIdentificacion) {
-        if (numeroIdentificacion == null) return null;
-        for (Cliente cliente : listaClientes) {
-            if (cliente.mGetNumeroIdentificacion().equals(numeroIdentificacion)) {
-                return cliente; // ¡Encontrado!
-            }
-        }
-        return null; // No se encontró.
+        return registro.mBuscarCliente(numeroIdentificacion); // Búsqueda directa por ID.
+    }
+
+    /**
+     * Busca un cliente por su número de identificación. Usado por la Vista.
+     *
+     * @param numeroIdentificacion El ID del cliente.
+     * @return El objeto Cliente si existe, o null si no.
+     */
+    public Cliente mGetCliente(String numeroIdentificacion) {
+        return mMedir(Operacion.GET_CLIENTE, () -> mBusCliente(numeroIdentificacion));
     }
 
     /**
@@ -63,13 +205,27 @@ public class Controlador {
      */
     public boolean mCrearCliente(String numeroIdentificacion, String tipoIdentificacion,
                                 String correoElectronico, String direccionFisica) {
-        if (mBusCliente(numeroIdentificacion) != null) {
+        return mMedir(Operacion.CREAR_CLIENTE,
+                () -> mAltaCliente(numeroIdentificacion, tipoIdentificacion, correoElectronico, direccionFisica));
+    }
+
+    /**
+     * Crea un cliente, sin contarlo en las métricas (ver {@link #mCrearCliente(String, String, String, String)}).
+     */
+    private boolean mAltaCliente(String numeroIdentificacion, String tipoIdentificacion,
+                                 String correoElectronico, String direccionFisica) {
+        if (registro.mExisteCliente(numeroIdentificacion)) {
             return false; // Ya existe un cliente con este ID.
         }
         Cliente nuevoCliente = new Cliente(numeroIdentificacion, tipoIdentificacion,
                                            correoElectronico, direccionFisica);
-        listaClientes.add(nuevoCliente);
-        return true;
+        return mCambiarEstructura(numeroIdentificacion, () -> {
+            if (!registro.mAgregarCliente(nuevoCliente)) {
+                return false;
+            }
+            mAnotarEnBitacora(ENTRADA_CREAR_CLIENTE, numeroIdentificacion, tipoIdentificacion, correoElectronico, direccionFisica);
+            return true;
+        });
     }
 
     /**
@@ -86,14 +242,29 @@ public class Controlador {
      */
     public Cliente mEditarCliente(String numeroIdentificacion, String nuevoTipoIdentificacion,
                                  String nuevoCorreoElectronico, String nuevaDireccionFisica) {
-        Cliente clienteAEditar = mBusCliente(numeroIdentificacion);
-        if (clienteAEditar != null) {
-            clienteAEditar.mSetTipoIdentificacion(nuevoTipoIdentificacion);
-            clienteAEditar.mSetCorreoElectronico(nuevoCorreoElectronico);
-            clienteAEditar.mSetDireccionFisica(nuevaDireccionFisica);
-            return clienteAEditar;
-        }
-        return null; // Cliente no encontrado.
+        return mMedir(Operacion.EDITAR_CLIENTE, () -> mCambiarDatosCliente(numeroIdentificacion, nuevoTipoIdentificacion,
+                nuevoCorreoElectronico, nuevaDireccionFisica));
+    }
+
+    /**
+     * Cambia los datos de un cliente, sin contarlo en las métricas
+     * (ver {@link #mEditarCliente(String, String, String, String)}).
+     */
+    private Cliente mCambiarDatosCliente(String numeroIdentificacion, String nuevoTipoIdentificacion,
+                                         String nuevoCorreoElectronico, String nuevaDireccionFisica) {
+        return mEscribirCliente(numeroIdentificacion, () -> {
+            Cliente clienteAEditar = mBusCliente(numeroIdentificacion);
+            if (clienteAEditar != null) {
+                clienteAEditar.mSetTipoIdentificacion(nuevoTipoIdentificacion);
+                clienteAEditar.mSetCorreoElectronico(nuevoCorreoElectronico);
+                clienteAEditar.mSetDireccionFisica(nuevaDireccionFisica);
+                cacheFacturas.mInvalidarCliente(numeroIdentificacion); // Sus datos aparecen en la factura.
+                mAnotarEnBitacora(ENTRADA_EDITAR_CLIENTE, numeroIdentificacion, nuevoTipoIdentificacion,
+                        nuevoCorreoElectronico, nuevaDireccionFisica);
+                return clienteAEditar;
+            }
+            return null; // Cliente no encontrado.
+        });
     }
 
     /**
@@ -104,12 +275,25 @@ public class Controlador {
      * @return true si se eliminó, false si no se encontró.
      */
     public boolean mEliminarCliente(String numeroIdentificacion) {
-        Cliente clienteAEliminar = mBusCliente(numeroIdentificacion);
-        if (clienteAEliminar != null) {
-            listaClientes.remove(clienteAEliminar);
+        return mMedir(Operacion.ELIMINAR_CLIENTE, () -> mBajaCliente(numeroIdentificacion));
+    }
+
+    /**
+     * Elimina un cliente, sin contarlo en las métricas (ver {@link #mEliminarCliente(String)}).
+     */
+    private boolean mBajaCliente(String numeroIdentificacion) {
+        return mCambiarEstructura(numeroIdentificacion, () -> {
+            Cliente eliminado = registro.mEliminarCliente(numeroIdentificacion);
+            if (eliminado == null) {
+                return false;
+            }
+            for (Registrador registrador : eliminado.mGetRegistradores()) {
+                mLiberarCasilla(registrador.mGetNumeroIdentificacion());
+            }
+            cacheFacturas.mInvalidarCliente(numeroIdentificacion);
+            mAnotarEnBitacora(ENTRADA_ELIMINAR_CLIENTE, numeroIdentificacion);
             return true;
-        }
-        return false;
+        });
     }
 
     /**
@@ -117,7 +301,7 @@ public class Controlador {
      * @return Una lista de objetos Cliente.
      */
     public List<Cliente> mGetClientes() {
-        return new ArrayList<>(listaClientes); // Se devuelve una copia.
+        return mMedir(Operacion.GET_CLIENTES, registro::mGetClientes); // Se devuelve una copia.
     }
 
     // --- OPERACIONES RELACIONADAS CON MEDIDORES (REGISTRADORES) ---
@@ -131,21 +315,38 @@ public class Controlador {
      * @param ciudad La ciudad donde se ubica.
      * @param idCliente El ID del cliente al que pertenecerá este medidor.
      * @return El objeto Registrador que se creó, o null si el cliente no existe
-     * o si ese cliente ya tiene un medidor con el mismo ID.
+     * o si ya hay un medidor con el mismo ID (en este o en otro cliente).
      */
     public Registrador mCrearRegistrador(String idRegistrador, String direccion,
                                          String ciudad, String idCliente) {
-        Cliente clientePropietario = mBusCliente(idCliente);
-        if (clientePropietario != null) {
-            // Verificar que el cliente no tenga ya un registrador con ese ID.
-            if (clientePropietario.mBuscarRegistrador(idRegistrador) != null) {
-                return null; // Registrador duplicado para este cliente.
+        return mMedir(Operacion.CREAR_REGISTRADOR, () -> mAltaRegistrador(idRegistrador, direccion, ciudad, idCliente));
+    }
+
+    /**
+     * Crea un medidor, sin contarlo en las métricas (ver {@link #mCrearRegistrador(String, String, String, String)}).
+     */
+    private Registrador mAltaRegistrador(String idRegistrador, String direccion, String ciudad, String idCliente) {
+        if (!registro.mExisteCliente(idCliente)) {
+            return null; // Cliente no encontrado.
+        }
+        // Verificar que no exista ya un registrador con ese ID en el sistema.
+        if (registro.mExisteRegistrador(idRegistrador)) {
+            return null; // Registrador duplicado.
+        }
+        return mCambiarEstructura(idCliente, () -> {
+            if (!registro.mExisteCliente(idCliente) || registro.mExisteRegistrador(idRegistrador)) {
+                return null; // Otro hilo lo cambió mientras tanto.
+            }
+            Registrador nuevoRegistrador = (almacenMapeado == null)
+                    ? new Registrador(idRegistrador, direccion, ciudad, new SerieConsumos(precisionConsumos))
+                    : new Registrador(idRegistrador, direccion, ciudad, almacenMapeado.mAlmacenDeMedidor(idRegistrador));
+            if (!registro.mAgregarRegistrador(idCliente, nuevoRegistrador)) {
+                return null;
             }
-            Registrador nuevoRegistrador = new Registrador(idRegistrador, direccion, ciudad);
-            clientePropietario.mAgregarRegistrador(nuevoRegistrador);
+            cacheFacturas.mInvalidarCliente(idCliente); // El medidor nuevo aparece en sus facturas.
+            mAnotarEnBitacora(ENTRADA_CREAR_REGISTRADOR, idRegistrador, direccion, ciudad, idCliente);
             return nuevoRegistrador;
-        }
-        return null; // Cliente no encontrado.
+        });
     }
 
     /**
@@ -162,16 +363,30 @@ public class Controlador {
      */
     public Registrador mEditarRegistrador(String idRegistrador, String nuevaDireccion,
                                          String nuevaCiudad, String idCliente) {
-        Cliente clientePropietario = mBusCliente(idCliente);
-        if (clientePropietario != null) {
-            Registrador registradorAEditar = clientePropietario.mBuscarRegistrador(idRegistrador);
-            if (registradorAEditar != null) {
-                registradorAEditar.mSetDireccion(nuevaDireccion);
-                registradorAEditar.mSetCiudad(nuevaCiudad);
-                return registradorAEditar;
+        return mMedir(Operacion.EDITAR_REGISTRADOR,
+                () -> mCambiarDatosRegistrador(idRegistrador, nuevaDireccion, nuevaCiudad, idCliente));
+    }
+
+    /**
+     * Cambia los datos de un medidor, sin contarlo en las métricas
+     * (ver {@link #mEditarRegistrador(String, String, String, String)}).
+     */
+    private Registrador mCambiarDatosRegistrador(String idRegistrador, String nuevaDireccion,
+                                                 String nuevaCiudad, String idCliente) {
+        return mEscribirCliente(idCliente, () -> {
+            Cliente clientePropietario = mBusCliente(idCliente);
+            if (clientePropietario != null) {
+                Registrador registradorAEditar = clientePropietario.mBuscarRegistrador(idRegistrador);
+                if (registradorAEditar != null) {
+                    registradorAEditar.mSetDireccion(nuevaDireccion);
+                    registradorAEditar.mSetCiudad(nuevaCiudad);
+                    cacheFacturas.mInvalidarCliente(idCliente); // La ubicación (y la ciudad, que define la tarifa) aparece en la factura.
+                    mAnotarEnBitacora(ENTRADA_EDITAR_REGISTRADOR, idRegistrador, nuevaDireccion, nuevaCiudad, idCliente);
+                    return registradorAEditar;
+                }
             }
-        }
-        return null; // No se encontró el cliente o el medidor.
+            return null; // No se encontró el cliente o el medidor.
+        });
     }
 
     /**
@@ -183,11 +398,32 @@ public class Controlador {
      * @return true si se eliminó, false si no se encontró.
      */
     public boolean mEliminarRegistrador(String idRegistrador, String idCliente) {
-        Cliente clientePropietario = mBusCliente(idCliente);
-        if (clientePropietario != null) {
-            return clientePropietario.mEliminarRegistrador(idRegistrador);
+        return mMedir(Operacion.ELIMINAR_REGISTRADOR, () -> mBajaRegistrador(idRegistrador, idCliente));
+    }
+
+    /**
+     * Elimina un medidor, sin contarlo en las métricas (ver {@link #mEliminarRegistrador(String, String)}).
+     */
+    private boolean mBajaRegistrador(String idRegistrador, String idCliente) {
+        return mCambiarEstructura(idCliente, () -> {
+            if (!registro.mEliminarRegistrador(idCliente, idRegistrador)) {
+                return false;
+            }
+            mLiberarCasilla(idRegistrador);
+            cacheFacturas.mInvalidarCliente(idCliente);
+            mAnotarEnBitacora(ENTRADA_ELIMINAR_REGISTRADOR, idRegistrador, idCliente);
+            return true;
+        });
+    }
+
+    /**
+     * Si los consumos están en un archivo mapeado, borra los meses de la casilla de un medidor eliminado,
+     * para que un medidor nuevo con el mismo ID no herede sus datos.
+     */
+    private void mLiberarCasilla(String idRegistrador) {
+        if (almacenMapeado != null) {
+            almacenMapeado.mLiberarMedidor(idRegistrador);
         }
-        return false;
     }
 
      /**
@@ -197,6 +433,15 @@ public class Controlador {
      * @return El objeto Registrador si se encuentra, sino null.
      */
     public Registrador mGetRegistradorDeCliente(String idCliente, String idRegistrador) {
+        return mMedir(Operacion.GET_REGISTRADOR_DE_CLIENTE,
+                () -> mLeerCliente(idCliente, () -> mBusRegistrador(idCliente, idRegistrador)));
+    }
+
+    /**
+     * Busca un medidor de un cliente, sin contarlo en las métricas. Se llama con el candado de lectura
+     * (o de escritura) del cliente tomado.
+     */
+    private Registrador mBusRegistrador(String idCliente, String idRegistrador) {
         Cliente cliente = mBusCliente(idCliente);
         if (cliente != null) {
             return cliente.mBuscarRegistrador(idRegistrador);
@@ -204,58 +449,544 @@ public class Controlador {
         return null;
     }
 
+    /**
+     * Busca un medidor en todo el sistema, sin necesidad de saber a qué cliente pertenece.
+     * @param idRegistrador El ID del medidor.
+     * @return El objeto Registrador si existe, sino null.
+     */
+    public Registrador mBuscarRegistradorGlobal(String idRegistrador) {
+        return mMedir(Operacion.BUSCAR_REGISTRADOR_GLOBAL, () -> registro.mBuscarRegistrador(idRegistrador));
+    }
+
+    /**
+     * Devuelve el cliente dueño de un medidor, buscándolo solo por el ID del medidor.
+     * @param idRegistrador El ID del medidor.
+     * @return El cliente propietario, o null si el medidor no existe.
+     */
+    public Cliente mBuscarPropietarioRegistrador(String idRegistrador) {
+        return mMedir(Operacion.BUSCAR_PROPIETARIO_REGISTRADOR, () -> registro.mBuscarPropietario(idRegistrador));
+    }
+
+
+    // --- OPERACIONES DE PERSISTENCIA ---
+
+    /**
+     * Guarda todos los clientes, sus medidores y sus consumos en un archivo binario (instantánea),
+     * para poder recuperarlos al volver a iniciar la aplicación.
+     *
+     * @param archivo La ruta del archivo.
+     * @return El tamaño del archivo en bytes.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public long mGuardarInstantanea(Path archivo) throws IOException {
+        return mMedirConEntradaSalida(Operacion.GUARDAR_INSTANTANEA, () -> {
+            BitacoraEscrituras actual = bitacora;
+            long secuencia = (actual != null) ? actual.mUltimaSecuencia() : 0L;
+            return InstantaneaBinaria.mGuardar(archivo, registro.mVistaClientes(), secuencia, ForkJoinPool.commonPool());
+        });
+    }
+
+    /**
+     * Carga los clientes, medidores y consumos de una instantánea y los agrega al sistema.
+     * Los clientes que ya existen (o que tienen un medidor que ya está en otro cliente) no se cargan.
+     * Si se usa un archivo mapeado, los consumos cargados se copian en él.
+     *
+     * @param archivo La ruta del archivo.
+     * @return Cuántos clientes se agregaron.
+     * @throws IOException Si el archivo no se puede leer o no es una instantánea válida.
+     */
+    public int mCargarInstantanea(Path archivo) throws IOException {
+        return mMedirConEntradaSalida(Operacion.CARGAR_INSTANTANEA, () -> mAgregarDeInstantanea(archivo));
+    }
+
+    /**
+     * Agrega los clientes de una instantánea, sin contarlo en las métricas (ver {@link #mCargarInstantanea(Path)}).
+     */
+    private int mAgregarDeInstantanea(Path archivo) throws IOException {
+        List<Cliente> clientes = InstantaneaBinaria.mCargar(archivo,
+                almacenMapeado == null ? id -> new SerieConsumos(precisionConsumos) : almacenMapeado::mAlmacenDeMedidor,
+                ForkJoinPool.commonPool());
+        int agregados = 0;
+        synchronized (cambiosEstructura) { // Los clientes cargados aún no los ve nadie: basta con agregarlos de a uno.
+            for (Cliente cliente : clientes) {
+                if (registro.mAgregarCliente(cliente)) {
+                    agregados++;
+                } else {
+                    System.err.println("Atención: El cliente " + cliente.mGetNumeroIdentificacion()
+                            + " de la instantánea ya existe (o uno de sus medidores); no se cargó.");
+                }
+            }
+        }
+        cacheFacturas.mInvalidarTodo();
+        mCompactarSiHayBitacora(); // Los clientes cargados no están en la bitácora.
+        return agregados;
+    }
+
+    /**
+     * Activa la persistencia con bitácora: carga la instantánea (si existe), vuelve a aplicar los cambios
+     * anotados en la bitácora después de ella, y desde ese momento anota cada cambio en la bitácora antes
+     * de confirmarlo. La bitácora se guarda junto a la instantánea, con la extensión ".bitacora".
+     *
+     * Se anotan las altas, cambios y bajas de clientes y medidores, los cambios de consumos hora por hora,
+     * las simulaciones (con su semilla) y el archivado de meses. Las cargas masivas (archivos CSV, otra
+     * instantánea) no se anotan: al terminar se compacta, para que queden guardadas en la instantánea.
+     * Las tarifas no forman parte del estado guardado; se cargan al iniciar.
+     *
+     * @param instantanea La ruta de la instantánea.
+     * @return Cuántos cambios de la bitácora se volvieron a aplicar.
+     * @throws IOException Si no se puede leer la instantánea o la bitácora.
+     */
+    public long mActivarPersistencia(Path instantanea) throws IOException {
+        return mMedirConEntradaSalida(Operacion.ACTIVAR_PERSISTENCIA, () -> {
+            if (bitacora != null) {
+                throw new IllegalStateException("La persistencia ya está activada.");
+            }
+            long secuenciaInstantanea = 0L;
+            if (Files.exists(instantanea)) {
+                mAgregarDeInstantanea(instantanea);
+                secuenciaInstantanea = InstantaneaBinaria.mLeerSecuenciaBitacora(instantanea);
+            }
+            BitacoraEscrituras abierta = BitacoraEscrituras.mAbrir(mRutaBitacora(instantanea), secuenciaInstantanea);
+            long aplicados;
+            reproduciendoBitacora = true;
+            try {
+                aplicados = abierta.mRecorrer(secuenciaInstantanea, this::mAplicarEntradaBitacora);
+            } catch (IOException | RuntimeException e) {
+                abierta.close();
+                throw e;
+            } finally {
+                reproduciendoBitacora = false;
+            }
+            this.bitacora = abierta;
+            this.archivoInstantanea = instantanea;
+            return aplicados;
+        });
+    }
+
+    /**
+     * Compacta la bitácora: guarda una instantánea con todo el estado actual y vacía la bitácora,
+     * para que la próxima recuperación no tenga que aplicar muchos cambios. Se hace solo cuando la
+     * bitácora crece demasiado y al cerrar la aplicación.
+     *
+     * Los demás hilos pueden seguir cambiando consumos y datos de los clientes mientras tanto: los que se
+     * anoten después de empezar la instantánea se conservan en la bitácora (volver a aplicar un cambio que ya
+     * quedó en la instantánea deja el mismo resultado). Las altas y bajas y los cambios masivos (simular la
+     * flota, archivar) esperan a que termine la instantánea: una simulación de la flota que se vuelve a aplicar
+     * sobre otros medidores (uno que se creó después, por ejemplo) no deja el mismo resultado.
+     *
+     * @throws IOException Si no se puede guardar la instantánea o vaciar la bitácora.
+     */
+    public void mCompactarBitacora() throws IOException {
+        mMedirConEntradaSalida(Operacion.COMPACTAR_BITACORA, () -> {
+            mCompactar();
+            return null;
+        });
+    }
+
+    /**
+     * Compacta la bitácora, sin contarlo en las métricas (ver {@link #mCompactarBitacora()}). Así la compactan
+     * también el cierre y los cambios que la hacen crecer demasiado.
+     */
+    private void mCompactar() throws IOException {
+        synchronized (compactacion) {
+            BitacoraEscrituras actual = bitacora;
+            if (actual == null) {
+                throw new IllegalStateException("La persistencia no está activada.");
+            }
+            // Todo cambio anotado hasta esta secuencia ya se hizo, así que queda en la instantánea. Si la
+            // aplicación se cae entre los dos pasos, la instantánea anota hasta qué secuencia llega y al
+            // recuperar no se aplica dos veces ningún cambio.
+            synchronized (cambiosEstructura) {
+                long secuencia = actual.mUltimaSecuencia();
+                InstantaneaBinaria.mGuardar(archivoInstantanea, registro.mVistaClientes(), secuencia, ForkJoinPool.commonPool());
+                if (almacenMapeado != null) {
+                    almacenMapeado.mForzar(); // Las casillas asignadas y sus datos, antes de descartar la bitácora.
+                }
+                actual.mDescartarHasta(secuencia);
+            }
+        }
+    }
+
+    /**
+     * Compacta la bitácora y la cierra. Después de esto los cambios ya no se anotan.
+     * @throws IOException Si no se puede guardar la instantánea o cerrar la bitácora.
+     */
+    public void mCerrarPersistencia() throws IOException {
+        mMedirConEntradaSalida(Operacion.CERRAR_PERSISTENCIA, () -> {
+            synchronized (compactacion) {
+                if (bitacora == null) return null;
+                try {
+                    mCompactar();
+                } finally {
+                    bitacora.close();
+                    bitacora = null;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Devuelve la ruta de la bitácora que acompaña a una instantánea.
+     * @param instantanea La ruta de la instantánea.
+     * @return La ruta de la bitácora.
+     */
+    public static Path mRutaBitacora(Path instantanea) {
+        return instantanea.resolveSibling(instantanea.getFileName() + ".bitacora");
+    }
+
+    /**
+     * Anota un cambio ya hecho en la bitácora, sin esperar a que quede en disco. Se llama con el candado
+     * del cliente tomado, para que los cambios queden anotados en el mismo orden en que se hicieron; la
+     * espera la hace {@link #mTerminarCambio()}, ya sin candados. Si no hay bitácora (o se está recuperando),
+     * no hace nada.
+     */
+    private void mAnotarEnBitacora(byte tipo, Object... campos) {
+        BitacoraEscrituras actual = bitacora;
+        if (actual == null || reproduciendoBitacora) return;
+        AnotacionPendiente pendiente = anotacionPendiente.get();
+        pendiente.secuencia = actual.mAnotar(tipo, campos);
+        pendiente.bitacora = actual;
+    }
+
+    /**
+     * Termina un cambio, después de soltar los candados: espera a que lo que el hilo anotó en la bitácora
+     * quede en disco y compacta la bitácora si creció demasiado.
+     *
+     * @throws UncheckedIOException Si el cambio se hizo, pero no se pudo guardar en la bitácora.
+     */
+    private void mTerminarCambio() {
+        AnotacionPendiente pendiente = anotacionPendiente.get();
+        BitacoraEscrituras anotada = pendiente.bitacora;
+        if (anotada != null) {
+            pendiente.bitacora = null;
+            try {
+                anotada.mConfirmar(pendiente.secuencia);
+            } catch (IOException e) {
+                throw new UncheckedIOException("El cambio se hizo, pero no se pudo guardar en disco: " + e.getMessage(), e);
+            }
+        }
+        mCompactarSiCrecio();
+    }
+
+    /** La última entrada que un hilo anotó en la bitácora sin esperar a que quedara en disco. */
+    private static final class AnotacionPendiente {
+        /** La bitácora donde se anotó, o null si no hay nada pendiente. */
+        private BitacoraEscrituras bitacora;
+        private long secuencia;
+    }
+
+    /**
+     * Compacta la bitácora si creció demasiado. Se llama después de soltar los candados de los clientes
+     * (y {@link #cambiosEstructura}), porque guardar la instantánea necesita leerlos a todos.
+     */
+    private void mCompactarSiCrecio() {
+        BitacoraEscrituras actual = bitacora;
+        if (actual == null || reproduciendoBitacora || actual.mTamanoBytes() <= LIMITE_BITACORA) return;
+        synchronized (compactacion) {
+            if (bitacora != actual || actual.mTamanoBytes() <= LIMITE_BITACORA) return; // Ya la compactó otro hilo.
+            try {
+                mCompactar();
+            } catch (IOException e) {
+                System.err.println("Error: No se pudo compactar la bitácora: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hace una consulta sobre un cliente con su candado de lectura tomado.
+     */
+    private <T> T mLeerCliente(String idCliente, Supplier<T> consulta) {
+        Lock lectura = CandadosClientes.mDe(idCliente).readLock();
+        lectura.lock();
+        try {
+            return consulta.get();
+        } finally {
+            lectura.unlock();
+        }
+    }
+
+    /**
+     * Hace un cambio sobre un cliente con su candado de escritura tomado (el cambio se anota en la bitácora
+     * antes de soltarlo). Al terminar, espera a que la anotación quede en disco y compacta la bitácora si hace falta.
+     */
+    private <T> T mEscribirCliente(String idCliente, Supplier<T> cambio) {
+        T resultado;
+        Lock escritura = CandadosClientes.mDe(idCliente).writeLock();
+        escritura.lock();
+        try {
+            resultado = cambio.get();
+        } finally {
+            escritura.unlock();
+        }
+        mTerminarCambio();
+        return resultado;
+    }
+
+    /**
+     * Da de alta o de baja un cliente o un medidor: de a un cambio de estructura a la vez, y con el candado
+     * de escritura del cliente. Así, por ejemplo, un medidor que pasa de un cliente a otro se anota en la
+     * bitácora en el mismo orden en que se quitó y se volvió a crear.
+     */
+    private <T> T mCambiarEstructura(String idCliente, Supplier<T> cambio) {
+        T resultado;
+        synchronized (cambiosEstructura) {
+            Lock escritura = CandadosClientes.mDe(idCliente).writeLock();
+            escritura.lock();
+            try {
+                resultado = cambio.get();
+            } finally {
+                escritura.unlock();
+            }
+        }
+        mTerminarCambio();
+        return resultado;
+    }
+
+    /**
+     * Hace un cambio masivo (sobre muchos clientes) con los candados de todos los clientes tomados,
+     * y sin cambios de estructura ni compactaciones a la vez.
+     */
+    private <T> T mCambiarTodos(Supplier<T> cambio) {
+        T resultado;
+        synchronized (cambiosEstructura) {
+            CandadosClientes.mBloquearTodos();
+            try {
+                resultado = cambio.get();
+            } finally {
+                CandadosClientes.mDesbloquearTodos();
+            }
+        }
+        mTerminarCambio();
+        return resultado;
+    }
+
+    /**
+     * Hace una operación contando la llamada, su latencia y, si lanza una excepción, el error.
+     */
+    private <T> T mMedir(Operacion operacion, Supplier<T> llamada) {
+        MetricaOperacion metrica = metricas.mDe(operacion);
+        long inicio = metrica.mIniciar();
+        try {
+            return llamada.get();
+        } catch (RuntimeException | Error e) {
+            metrica.mContarError();
+            throw e;
+        } finally {
+            metrica.mTerminar(inicio);
+        }
+    }
+
+    /**
+     * Igual que {@link #mMedir(Operacion, Supplier)}, para una operación que no devuelve nada.
+     */
+    private void mMedirSinResultado(Operacion operacion, Runnable llamada) {
+        mMedir(operacion, () -> {
+            llamada.run();
+            return null;
+        });
+    }
+
+    /**
+     * Igual que {@link #mMedir(Operacion, Supplier)}, para una operación que lee o escribe archivos.
+     */
+    private <T> T mMedirConEntradaSalida(Operacion operacion, LlamadaConEntradaSalida<T> llamada) throws IOException {
+        MetricaOperacion metrica = metricas.mDe(operacion);
+        long inicio = metrica.mIniciar();
+        try {
+            return llamada.mEjecutar();
+        } catch (IOException | RuntimeException | Error e) {
+            metrica.mContarError();
+            throw e;
+        } finally {
+            metrica.mTerminar(inicio);
+        }
+    }
+
+    /** Una operación que puede fallar al leer o escribir archivos. */
+    @FunctionalInterface
+    private interface LlamadaConEntradaSalida<T> {
+        T mEjecutar() throws IOException;
+    }
+
+    /**
+     * Compacta la bitácora después de una carga masiva, si la persistencia está activada.
+     */
+    private void mCompactarSiHayBitacora() {
+        if (bitacora == null || reproduciendoBitacora) return;
+        try {
+            mCompactar();
+        } catch (IOException e) {
+            System.err.println("Error: Los datos se cargaron, pero no se pudieron guardar en disco: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve el perfil de simulación anotado en la bitácora (el de franjas si ya no existe).
+     */
+    private static PerfilConsumo mPerfilDeBitacora(String nombre) {
+        PerfilConsumo perfil = PerfilConsumo.mBuscar(nombre);
+        return perfil != null ? perfil : PerfilConsumo.mFranjas();
+    }
+
+    /**
+     * Vuelve a aplicar un cambio anotado en la bitácora, con los mismos métodos con que se hizo (sin contarlo
+     * en las métricas: no es una llamada de un usuario).
+     */
+    private void mAplicarEntradaBitacora(byte tipo, Object[] campos) {
+        switch (tipo) {
+            case ENTRADA_CREAR_CLIENTE -> mAltaCliente((String) campos[0], (String) campos[1], (String) campos[2], (String) campos[3]);
+            case ENTRADA_EDITAR_CLIENTE -> mCambiarDatosCliente((String) campos[0], (String) campos[1], (String) campos[2], (String) campos[3]);
+            case ENTRADA_ELIMINAR_CLIENTE -> mBajaCliente((String) campos[0]);
+            case ENTRADA_CREAR_REGISTRADOR -> mAltaRegistrador((String) campos[0], (String) campos[1], (String) campos[2], (String) campos[3]);
+            case ENTRADA_EDITAR_REGISTRADOR -> mCambiarDatosRegistrador((String) campos[0], (String) campos[1], (String) campos[2], (String) campos[3]);
+            case ENTRADA_ELIMINAR_REGISTRADOR -> mBajaRegistrador((String) campos[0], (String) campos[1]);
+            case ENTRADA_CAMBIAR_CONSUMO -> mCambiarConsumo((String) campos[0], (String) campos[1],
+                    (Integer) campos[2], (Integer) campos[3], (Integer) campos[4], (Integer) campos[5], (Double) campos[6]);
+            case ENTRADA_SIMULAR_FLOTA -> mSimularConsumos(registro.mVistaClientes(), (Integer) campos[0], (Integer) campos[1],
+                    (Integer) campos[2], mPerfilDeBitacora((String) campos[3]), (Long) campos[4]);
+            case ENTRADA_SIMULAR_CLIENTE -> {
+                Cliente cliente = mBusCliente((String) campos[0]);
+                if (cliente != null) {
+                    mSimularConsumos(List.of(cliente), (Integer) campos[1], (Integer) campos[2],
+                            (Integer) campos[3], mPerfilDeBitacora((String) campos[4]), (Long) campos[5]);
+                }
+            }
+            // Las simulaciones anotadas con el generador anterior se regeneran con la misma semilla en el
+            // simulador actual: los consumos quedan dentro de las mismas franjas, aunque no son idénticos.
+            case ENTRADA_SIMULAR_TODOS_ANTERIOR -> mSimularConsumos(registro.mVistaClientes(),
+                    (Integer) campos[0], (Integer) campos[1], 1, PerfilConsumo.mFranjas(), (Long) campos[2]);
+            case ENTRADA_SIMULAR_CLIENTE_ANTERIOR -> {
+                Cliente cliente = mBusCliente((String) campos[0]);
+                if (cliente != null) {
+                    mSimularConsumos(List.of(cliente), (Integer) campos[1], (Integer) campos[2], 1,
+                            PerfilConsumo.mFranjas(), (Long) campos[3]);
+                }
+            }
+            case ENTRADA_ARCHIVAR -> mArchivarConsumosTodos((Integer) campos[0], (Integer) campos[1]);
+            default -> System.err.println("Atención: Se ignoró una entrada desconocida de la bitácora (tipo " + tipo + ").");
+        }
+    }
+
+    // --- OPERACIONES RELACIONADAS CON TARIFAS ---
+
+    /**
+     * Carga los planes tarifarios desde un archivo de tarifas y los usa, desde ese momento,
+     * para facturar, agrupar por franjas y simular consumos.
+     * Si el archivo tiene algún error, se conservan las tarifas que había.
+     *
+     * @param archivo La ruta del archivo de tarifas (ver el formato en {@link CatalogoTarifas}).
+     * @return El catálogo cargado.
+     * @throws IOException Si no se puede leer el archivo.
+     * @throws IllegalArgumentException Si el archivo tiene una línea mal escrita.
+     */
+    public CatalogoTarifas mCargarTarifas(Path archivo) throws IOException {
+        return mMedirConEntradaSalida(Operacion.CARGAR_TARIFAS, () -> {
+            CatalogoTarifas catalogo = CatalogoTarifas.mCargar(archivo);
+            // Se cambian con los candados de todos los clientes tomados: así ninguna factura calculada con las
+            // tarifas anteriores se guarda en la caché después de vaciarla.
+            return mCambiarTodos(() -> {
+                this.catalogoTarifas = catalogo;
+                cacheFacturas.mInvalidarTodo(); // Cambian los valores de todas las facturas.
+                return catalogo;
+            });
+        });
+    }
+
+    /**
+     * Devuelve los planes tarifarios que se usan actualmente.
+     * @return El catálogo de tarifas.
+     */
+    public CatalogoTarifas mGetCatalogoTarifas() {
+        return catalogoTarifas;
+    }
+
+    /**
+     * Devuelve los nombres de las franjas horarias generales vigentes en un mes,
+     * en el mismo orden que los totales de {@link #mHallarConsumoPorFranjasClienteMes(String, int, int)}.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return La lista de nombres de franjas (vacía si no hay tarifas vigentes).
+     */
+    public List<String> mGetNombresFranjas(int anio, int mes) {
+        return mMedir(Operacion.GET_NOMBRES_FRANJAS, () -> catalogoTarifas.mTablaGeneral(anio, mes).mGetNombresFranjas());
+    }
 
     // --- OPERACIONES RELACIONADAS CON CONSUMOS ---
 
     /**
-     * Genera un valor de consumo (kWh) al azar, siguiendo las reglas de
-     * las franjas horarias del proyecto para simular datos realistas.
-     * - Franja 1 (00-06h): Consumo entre 100 y 300 kWh.
-     * - Franja 2 (07-17h): Consumo entre un poco más de 300 y 600 kWh.
-     * - Franja 3 (18-23h): Consumo entre un poco más de 600 y casi 1000 kWh.
+     * Simula los consumos hora por hora de todos los medidores de todos los clientes, para uno o varios
+     * meses seguidos, en paralelo. Con la misma semilla, los mismos medidores y el mismo perfil genera
+     * exactamente los mismos consumos (ver {@link SimuladorConsumos}).
      *
-     * @param hora La hora del día (0 a 23).
-     * @return Un valor de kWh simulado.
+     * @param anio El año del primer mes.
+     * @param mes El primer mes (1 a 12).
+     * @param meses Cuántos meses seguidos se simulan.
+     * @param perfil El perfil de consumo ({@link PerfilConsumo#mFranjas()} simula como el Requisito 5).
+     * @param semilla La semilla de la simulación.
+     * @return Cuántos meses de medidor se generaron.
+     * @throws IllegalArgumentException Si los meses no son válidos.
+     */
+    public long mSimularConsumosFlota(int anio, int mes, int meses, PerfilConsumo perfil, long semilla) {
+        return mMedir(Operacion.SIMULAR_CONSUMOS_FLOTA, () -> mSimularFlota(anio, mes, meses, perfil, semilla));
+    }
+
+    /**
+     * Simula los consumos de toda la flota y los anota en la bitácora, sin contarlo en las métricas
+     * (ver {@link #mSimularConsumosFlota(int, int, int, PerfilConsumo, long)}).
      */
-    private double mGenerarConsumoAleatorioSegunFranjaPDF(int hora) {
-        if (hora >= 0 && hora <= 6) { // Franja 1
-            return 100 + generadorAleatorio.nextDouble() * (300 - 100); // Entre 100 y 300
-        } else if (hora >= 7 && hora <= 17) { // Franja 2
-            return 300.01 + generadorAleatorio.nextDouble() * (600 - 300.01); // Entre >300 y 600
-        } else if (hora >= 18 && hora <= 23) { // Franja 3
-            return 600.01 + generadorAleatorio.nextDouble() * (999.99 - 600.01); // Entre >600 y <1000
+    private long mSimularFlota(int anio, int mes, int meses, PerfilConsumo perfil, long semilla) {
+        return mCambiarTodos(() -> {
+            long generados = mSimularConsumos(registro.mVistaClientes(), anio, mes, meses, perfil, semilla);
+            mAnotarEnBitacora(ENTRADA_SIMULAR_FLOTA, anio, mes, meses, perfil.mGetNombre(), semilla);
+            return generados;
+        });
+    }
+
+    /**
+     * Simula los consumos de los medidores de los clientes dados y descarta las facturas de esos meses.
+     * Se llama con los candados de escritura de esos clientes tomados (el simulador no toma candados).
+     */
+    private long mSimularConsumos(Collection<Cliente> clientes, int anio, int mes, int meses,
+                                  PerfilConsumo perfil, long semilla) {
+        List<Registrador> medidores = new ArrayList<>();
+        for (Cliente cliente : clientes) {
+            medidores.addAll(cliente.mGetRegistradores());
+        }
+        long generados = simulador.mSimular(medidores, anio, mes, meses, catalogoTarifas, perfil, semilla);
+        YearMonth periodo = YearMonth.of(anio, mes);
+        for (int i = 0; i < meses; i++, periodo = periodo.plusMonths(1)) {
+            if (clientes.size() == 1) {
+                cacheFacturas.mInvalidar(clientes.iterator().next().mGetNumeroIdentificacion(), periodo.getYear(), periodo.getMonthValue());
+            } else {
+                cacheFacturas.mInvalidarPeriodo(periodo.getYear(), periodo.getMonthValue());
+            }
         }
-        return 0; // Si la hora no corresponde a ninguna franja, devuelve 0.
+        return generados;
     }
 
     /**
      * Simula y carga los consumos hora por hora para todos los medidores
      * de todos los clientes, para un mes y año específicos.
+     * Cada hora toma un valor al azar dentro del rango de kWh de la franja que aplica a esa hora.
+     * Con las tarifas del proyecto:
+     * - Franja 1 (00-06h): Consumo entre 100 y 300 kWh.
+     * - Franja 2 (07-17h): Consumo entre un poco más de 300 y 600 kWh.
+     * - Franja 3 (18-23h): Consumo entre un poco más de 600 y casi 1000 kWh.
      * Corresponde al Requisito 5 del proyecto.
      *
      * @param anio El año para el que se simulan los consumos.
      * @param mes El mes (1 a 12) para el que se simulan los consumos.
      */
     public void mCargarConsumosAutomaticosTodosClientes(int anio, int mes) {
-        YearMonth infoMesAnio = YearMonth.of(anio, mes);
-        int numDiasDelMes = infoMesAnio.lengthOfMonth();
-
-        for (Cliente cliente : listaClientes) {
-            for (Registrador reg : cliente.mGetRegistradores()) {
-                reg.mInicializarConsumos(mes, anio); // Prepara la matriz del medidor para el mes/año.
-                for (int dia = 1; dia <= numDiasDelMes; dia++) {
-                    for (int hora = 0; hora < 24; hora++) {
-                        double valorAleatorio = mGenerarConsumoAleatorioSegunFranjaPDF(hora);
-                        reg.mSetConsumoEn(dia, hora, valorAleatorio);
-                    }
-                }
-            }
-        }
+        mMedirSinResultado(Operacion.CARGAR_CONSUMOS_AUTOMATICOS_TODOS_CLIENTES,
+                () -> mSimularFlota(anio, mes, 1, PerfilConsumo.mFranjas(), generadorAleatorio.nextLong()));
     }
 
     /**
      * Simula y carga los consumos hora por hora para todos los medidores
-     * de un cliente específico, para un mes y año dados.
+     * de un cliente específico, para un mes y año dados (igual que el Requisito 5).
      * Corresponde al Requisito 6 del proyecto.
      *
      * @param idCliente El ID del cliente.
@@ -265,24 +996,20 @@ public class Controlador {
      * false si el cliente no existe.
      */
     public boolean mCargarConsumosAutomaticosUnCliente(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) {
-            return false; // Cliente no encontrado.
-        }
-
-        YearMonth infoMesAnio = YearMonth.of(anio, mes);
-        int numDiasDelMes = infoMesAnio.lengthOfMonth();
-
-        for (Registrador reg : cliente.mGetRegistradores()) {
-            reg.mInicializarConsumos(mes, anio); // Prepara la matriz del medidor.
-            for (int dia = 1; dia <= numDiasDelMes; dia++) {
-                for (int hora = 0; hora < 24; hora++) {
-                    double valorAleatorio = mGenerarConsumoAleatorioSegunFranjaPDF(hora);
-                    reg.mSetConsumoEn(dia, hora, valorAleatorio);
-                }
+        return mMedir(Operacion.CARGAR_CONSUMOS_AUTOMATICOS_UN_CLIENTE, () -> {
+            Cliente cliente = mBusCliente(idCliente);
+            if (cliente == null) {
+                return false; // Cliente no encontrado.
             }
-        }
-        return true;
+
+            long semilla = generadorAleatorio.nextLong();
+            return mEscribirCliente(idCliente, () -> {
+                if (mBusCliente(idCliente) != cliente) return false; // Se eliminó mientras tanto.
+                mSimularConsumos(List.of(cliente), anio, mes, 1, PerfilConsumo.mFranjas(), semilla);
+                mAnotarEnBitacora(ENTRADA_SIMULAR_CLIENTE, idCliente, anio, mes, 1, PerfilConsumo.mFranjas().mGetNombre(), semilla);
+                return true;
+            });
+        });
     }
 
     /**
@@ -302,29 +1029,149 @@ public class Controlador {
      */
     public boolean mCambiarConsumoHoraEspecifica(String idCliente, String idRegistrador,
                                                 int anio, int mes, int dia, int hora, double nuevoKWh) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return false;
+        return mMedir(Operacion.CAMBIAR_CONSUMO_HORA_ESPECIFICA,
+                () -> mCambiarConsumo(idCliente, idRegistrador, anio, mes, dia, hora, nuevoKWh));
+    }
 
-        Registrador registrador = cliente.mBuscarRegistrador(idRegistrador);
-        if (registrador == null) return false;
+    /**
+     * Cambia el consumo de una hora, sin contarlo en las métricas
+     * (ver {@link #mCambiarConsumoHoraEspecifica(String, String, int, int, int, int, double)}).
+     */
+    private boolean mCambiarConsumo(String idCliente, String idRegistrador,
+                                    int anio, int mes, int dia, int hora, double nuevoKWh) {
+        return mEscribirCliente(idCliente, () -> {
+            Cliente cliente = mBusCliente(idCliente);
+            if (cliente == null) return false;
 
-        // Verifica si los consumos del medidor son del mes y año correctos.
-        // Si no, los inicializa para poder registrar el nuevo consumo.
-        if (registrador.mGetAnioActualConsumos() != anio || registrador.mGetMesActualConsumos() != mes) {
-             registrador.mInicializarConsumos(mes, anio); // Prepara con ceros si es un mes nuevo.
-        }
-        
-        try {
-            registrador.mSetConsumoEn(dia, hora, nuevoKWh); // Intenta guardar el nuevo valor.
+            Registrador registrador = cliente.mBuscarRegistrador(idRegistrador);
+            if (registrador == null) return false;
+
+            try {
+                mFijarConsumo(idCliente, registrador, anio, mes, dia, hora, nuevoKWh); // Intenta guardar el nuevo valor.
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                // Esto puede pasar si, por ejemplo, el mes, el día o la hora son incorrectos,
+                // o si hubo otro problema.
+                System.err.println("Error al intentar cambiar el consumo: " + e.getMessage());
+                return false;
+            }
+            mAnotarEnBitacora(ENTRADA_CAMBIAR_CONSUMO, idCliente, idRegistrador, anio, mes, dia, hora, nuevoKWh);
             return true;
-        } catch (IllegalStateException | IllegalArgumentException e) {
-            // Esto puede pasar si, por ejemplo, el día o la hora son incorrectos
-            // después de la inicialización, o si hubo otro problema.
-            System.err.println("Error al intentar cambiar el consumo: " + e.getMessage());
-            return false;
+        });
+    }
+
+    /**
+     * Guarda el consumo de una hora en un medidor. Se llama con el candado de escritura del cliente tomado.
+     * Si el medidor aún no tiene ese mes, lo prepara con ceros; los meses ya cargados (incluido este,
+     * si existe) se conservan tal como están.
+     *
+     * @throws IllegalStateException Si el medidor no puede guardar ese mes.
+     * @throws IllegalArgumentException Si el mes, el día, la hora o el valor no son válidos.
+     */
+    private void mFijarConsumo(String idCliente, Registrador registrador, int anio, int mes, int dia, int hora, double kWh) {
+        cacheFacturas.mInvalidar(idCliente, anio, mes); // Cambian los consumos de la factura de ese periodo.
+        registrador.mAsegurarPeriodo(anio, mes);
+        registrador.mSetConsumoEn(anio, mes, dia, hora, kWh);
+    }
+
+    /**
+     * Registra un lote de lecturas de uno o varios medidores (por ejemplo, las que llegan por la API HTTP).
+     * Cada lectura se guarda y se anota en la bitácora igual que con
+     * {@link #mCambiarConsumoHoraEspecifica(String, String, int, int, int, int, double)}, pero las lecturas
+     * de un mismo cliente se guardan con una sola toma de su candado, y se espera una sola vez, al final,
+     * a que todo el lote esté en disco.
+     *
+     * @param lecturas Las lecturas, en cualquier orden (si hay dos de la misma hora, queda la última).
+     * @return El resultado con las lecturas recibidas, aceptadas y rechazadas (con algunos ejemplos del motivo).
+     * @throws IOException Si los cambios se hicieron, pero no se pudieron guardar en la bitácora.
+     */
+    public ResultadoCargaConsumos mRegistrarLecturas(List<LecturaConsumo> lecturas) throws IOException {
+        return mMedirConEntradaSalida(Operacion.REGISTRAR_LECTURAS, () -> {
+            long inicio = System.nanoTime();
+            List<String> ejemplosRechazo = new ArrayList<>();
+            Set<YearMonth> periodos = new HashSet<>();
+            long[] rechazadas = new long[1];
+
+            // Se agrupan por cliente dueño (en el orden en que aparecen), para tomar cada candado una sola vez.
+            Map<String, List<LecturaConsumo>> porCliente = new LinkedHashMap<>();
+            for (LecturaConsumo lectura : lecturas) {
+                Cliente propietario = (lectura.mGetIdRegistrador() != null) ? registro.mBuscarPropietario(lectura.mGetIdRegistrador()) : null;
+                if (propietario == null) {
+                    mRechazarLectura(lectura, "el medidor no existe", rechazadas, ejemplosRechazo);
+                } else {
+                    porCliente.computeIfAbsent(propietario.mGetNumeroIdentificacion(), id -> new ArrayList<>()).add(lectura);
+                }
+            }
+
+            BitacoraEscrituras actual = bitacora;
+            long ultimaSecuencia = 0L;
+            for (Map.Entry<String, List<LecturaConsumo>> grupo : porCliente.entrySet()) {
+                String idCliente = grupo.getKey();
+                long secuencia = mEscribirCliente(idCliente, () -> {
+                    Cliente cliente = mBusCliente(idCliente);
+                    long ultima = 0L;
+                    for (LecturaConsumo lectura : grupo.getValue()) {
+                        // El medidor pudo pasar a otro cliente (o eliminarse) antes de tomar el candado.
+                        Registrador registrador = (cliente != null) ? cliente.mBuscarRegistrador(lectura.mGetIdRegistrador()) : null;
+                        LocalDateTime fechaHora = lectura.mGetFechaHora();
+                        if (registrador == null) {
+                            mRechazarLectura(lectura, "el medidor no existe", rechazadas, ejemplosRechazo);
+                            continue;
+                        }
+                        if (fechaHora == null) {
+                            mRechazarLectura(lectura, "falta la fecha y hora", rechazadas, ejemplosRechazo);
+                            continue;
+                        }
+                        int anio = fechaHora.getYear();
+                        int mes = fechaHora.getMonthValue();
+                        try {
+                            mFijarConsumo(idCliente, registrador, anio, mes, fechaHora.getDayOfMonth(), fechaHora.getHour(), lectura.mGetKWh());
+                        } catch (IllegalStateException | IllegalArgumentException e) {
+                            mRechazarLectura(lectura, e.getMessage(), rechazadas, ejemplosRechazo);
+                            continue;
+                        }
+                        periodos.add(YearMonth.of(anio, mes));
+                        if (actual != null && !reproduciendoBitacora) {
+                            ultima = actual.mAnotar(ENTRADA_CAMBIAR_CONSUMO, idCliente, lectura.mGetIdRegistrador(), anio, mes,
+                                    fechaHora.getDayOfMonth(), fechaHora.getHour(), lectura.mGetKWh());
+                        }
+                    }
+                    return ultima;
+                });
+                ultimaSecuencia = Math.max(ultimaSecuencia, secuencia);
+            }
+            if (ultimaSecuencia > 0) {
+                actual.mConfirmar(ultimaSecuencia); // Una sola espera (y, con suerte, un solo fsync) para todo el lote.
+            }
+            return new ResultadoCargaConsumos(0, lecturas.size(), lecturas.size() - rechazadas[0], rechazadas[0],
+                    System.nanoTime() - inicio, ejemplosRechazo, periodos);
+        });
+    }
+
+    private static void mRechazarLectura(LecturaConsumo lectura, String motivo, long[] rechazadas, List<String> ejemplos) {
+        rechazadas[0]++;
+        if (ejemplos.size() < ResultadoCargaConsumos.MAXIMO_EJEMPLOS_RECHAZO) {
+            ejemplos.add(lectura + ": " + motivo);
         }
     }
 
+    /**
+     * Carga consumos horarios desde uno o varios archivos CSV ({@code idMedidor,fechaHora,kWh}),
+     * leyéndolos en paralelo. Los medidores deben existir; las filas de medidores desconocidos
+     * o con datos inválidos se rechazan y se cuentan en el resultado.
+     *
+     * @param archivos Las rutas de los archivos.
+     * @return El resultado con las filas leídas, aceptadas y rechazadas, y las filas por segundo.
+     * @throws IOException Si algún archivo no se pudo leer (los demás sí se cargan).
+     */
+    public ResultadoCargaConsumos mCargarConsumosDesdeArchivos(List<Path> archivos) throws IOException {
+        return mMedirConEntradaSalida(Operacion.CARGAR_CONSUMOS_DESDE_ARCHIVOS, () -> {
+            // Cada fila descarta la factura guardada de su cliente y mes al escribirse.
+            ResultadoCargaConsumos resultado = new CargadorConsumosCSV(registro, cacheFacturas).mCargar(archivos);
+            mCompactarSiHayBitacora(); // Las filas cargadas no se anotan una por una en la bitácora.
+            return resultado;
+        });
+    }
+
     /**
      * Agrega un nuevo registro de consumo (o modifica uno existente si es para la misma hora)
      * a un medidor específico. Usado por la Vista.
@@ -335,57 +1182,124 @@ public class Controlador {
      * @return true si se agregó/modificó correctamente, false si no.
      */
     public boolean mAgregarConsumoRegistrador(String idCliente, String idRegistrador, Consumo consumo) {
-        if (consumo == null) return false;
-        LocalDateTime fechaHoraDelConsumo = consumo.mGetFechaHora();
-        // Llama al método más detallado para hacer el cambio.
-        return mCambiarConsumoHoraEspecifica(
-                idCliente,
-                idRegistrador,
-                fechaHoraDelConsumo.getYear(),
-                fechaHoraDelConsumo.getMonthValue(),
-                fechaHoraDelConsumo.getDayOfMonth(),
-                fechaHoraDelConsumo.getHour(),
-                consumo.mGetKWh()
-        );
+        return mMedir(Operacion.AGREGAR_CONSUMO_REGISTRADOR, () -> {
+            if (consumo == null) return false;
+            LocalDateTime fechaHoraDelConsumo = consumo.mGetFechaHora();
+            // Llama al método más detallado para hacer el cambio.
+            return mCambiarConsumo(
+                    idCliente,
+                    idRegistrador,
+                    fechaHoraDelConsumo.getYear(),
+                    fechaHoraDelConsumo.getMonthValue(),
+                    fechaHoraDelConsumo.getDayOfMonth(),
+                    fechaHoraDelConsumo.getHour(),
+                    consumo.mGetKWh()
+            );
+        });
     }
 
     /**
      * Obtiene una lista de todos los consumos (hora por hora) de un medidor
-     * específico, para un mes y año dados. Usado por la Vista.
+     * específico, para un mes y año dados.
+     * Crea un objeto por hora; para recorrer muchos medidores o meses es mejor
+     * {@link #mRecorrerConsumosRegistrador(String, String, int, int, VisitanteConsumoCosto)}.
      *
      * @param idCliente El ID del cliente.
      * @param idRegistrador El ID del medidor.
      * @param anio El año de los consumos deseados.
      * @param mes El mes (1-12) de los consumos.
-     * @return Una lista de objetos Consumo. Estará vacía si no hay datos.
+     * @return Una lista de objetos Consumo, cada uno con su costo según las tarifas vigentes. Estará vacía si no hay datos.
      */
     public List<Consumo> mObtenerConsumosRegistrador(String idCliente, String idRegistrador, int anio, int mes) {
-        List<Consumo> listaDeConsumos = new ArrayList<>();
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return listaDeConsumos; // Cliente no existe.
+        return mMedir(Operacion.OBTENER_CONSUMOS_REGISTRADOR, () -> mLeerCliente(idCliente,
+                () -> mStreamConsumos(idCliente, idRegistrador, anio, mes).collect(Collectors.toCollection(ArrayList::new))));
+    }
 
-        Registrador registrador = cliente.mBuscarRegistrador(idRegistrador);
-        if (registrador == null) return listaDeConsumos; // Medidor no existe.
+    /**
+     * Recorre los consumos (hora por hora) de un medidor para un mes y año, entregando la hora,
+     * los kWh y el costo de cada hora como números, sin crear objetos. Usado por la Vista.
+     * El visitante se llama con el candado de lectura del cliente tomado: no debe hacer cambios en el sistema.
+     *
+     * @param idCliente El ID del cliente.
+     * @param idRegistrador El ID del medidor.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param visitante Quien recibe cada consumo (hora de época, kWh, costo con las tarifas vigentes).
+     * @return true si se recorrió el mes, false si no existe el cliente o el medidor, o el periodo no está cargado.
+     */
+    public boolean mRecorrerConsumosRegistrador(String idCliente, String idRegistrador, int anio, int mes,
+                                                VisitanteConsumoCosto visitante) {
+        return mMedir(Operacion.RECORRER_CONSUMOS_REGISTRADOR, () -> mLeerCliente(idCliente, () -> {
+            Registrador registrador = mBusRegistrador(idCliente, idRegistrador);
+            return registrador != null && registrador.mRecorrerConsumosConCosto(anio, mes, catalogoTarifas, visitante);
+        }));
+    }
 
-        // Verifica que los datos cargados en el medidor sean del mes y año solicitados.
-        if (registrador.mGetAnioActualConsumos() != anio || registrador.mGetMesActualConsumos() != mes) {
-            // Si no coinciden, significa que los datos para este periodo no están cargados o no son los actuales.
-            return listaDeConsumos; // Devuelve lista vacía.
-        }
+    /**
+     * Devuelve los consumos (hora por hora) de un medidor para un mes y año como un Stream que crea
+     * cada {@link Consumo} solo cuando se pide. Cada consumo se lee cuando se pide, sin candado: si otro hilo
+     * cambia el mes mientras se recorre, se pueden ver algunos valores nuevos. Para una copia de un momento
+     * dado, use {@link #mObtenerConsumosRegistrador(String, String, int, int)}.
+     *
+     * @param idCliente El ID del cliente.
+     * @param idRegistrador El ID del medidor.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return El Stream de consumos (vacío si no existe el cliente o el medidor, o el periodo no está cargado).
+     */
+    public Stream<Consumo> mStreamConsumosRegistrador(String idCliente, String idRegistrador, int anio, int mes) {
+        return mMedir(Operacion.STREAM_CONSUMOS_REGISTRADOR, () -> mStreamConsumos(idCliente, idRegistrador, anio, mes));
+    }
 
-        double[][] consumosGuardados = registrador.mGetConsumosMensuales();
-        if (consumosGuardados == null) return listaDeConsumos; // No hay matriz de consumos.
+    /**
+     * Arma el Stream de consumos de un medidor, sin contarlo en las métricas
+     * (ver {@link #mStreamConsumosRegistrador(String, String, int, int)}).
+     */
+    private Stream<Consumo> mStreamConsumos(String idCliente, String idRegistrador, int anio, int mes) {
+        CursorConsumos cursor = mLeerCliente(idCliente, () -> {
+            Registrador registrador = mBusRegistrador(idCliente, idRegistrador);
+            return registrador != null ? registrador.mCursorConsumos(anio, mes, catalogoTarifas) : null;
+        });
+        return cursor != null ? cursor.mComoStream() : Stream.empty(); // null: no existe el medidor o el periodo no está cargado.
+    }
 
-        // Recorre la matriz de consumos y crea objetos Consumo para cada uno.
-        for (int diaIndice = 0; diaIndice < consumosGuardados.length; diaIndice++) {
-            for (int hora = 0; hora < consumosGuardados[diaIndice].length; hora++) {
-                double kWh = consumosGuardados[diaIndice][hora];
-                // Crea la fecha y hora exacta para este consumo.
-                LocalDateTime fechaHoraConsumo = LocalDateTime.of(anio, mes, diaIndice + 1, hora, 0);
-                listaDeConsumos.add(new Consumo(fechaHoraConsumo, kWh));
+    /**
+     * Comprime (archiva) todos los meses cargados anteriores a un periodo, en todos los medidores
+     * que guardan sus consumos en memoria. Los meses archivados ocupan varias veces menos memoria
+     * y se siguen pudiendo consultar y facturar; sus consumos quedan redondeados a milésimas de kWh.
+     *
+     * @param anio El año del primer mes que NO se archiva.
+     * @param mes El mes (1-12) del primer mes que NO se archiva.
+     * @return Cuántos meses (medidor-mes) se archivaron.
+     */
+    public int mArchivarConsumosAnterioresA(int anio, int mes) {
+        return mMedir(Operacion.ARCHIVAR_CONSUMOS_ANTERIORES_A, () -> mCambiarTodos(() -> mArchivarConsumosTodos(anio, mes)));
+    }
+
+    /**
+     * Archiva los meses anteriores a un periodo en todos los medidores. Se llama con todos los candados tomados.
+     */
+    private int mArchivarConsumosTodos(int anio, int mes) {
+        int archivados = 0;
+        for (Cliente cliente : registro.mVistaClientes()) {
+            for (Registrador registrador : cliente.mGetRegistradores()) {
+                if (registrador.mGetAlmacenConsumos() instanceof SerieConsumos) {
+                    SerieConsumos serie = (SerieConsumos) registrador.mGetAlmacenConsumos();
+                    for (SegmentoMensual segmento : serie.mGetSegmentos()) {
+                        if (SerieConsumos.mClavePeriodo(segmento.mGetAnio(), segmento.mGetMes()) < SerieConsumos.mClavePeriodo(anio, mes)
+                                && registrador.mArchivarConsumos(segmento.mGetAnio(), segmento.mGetMes())) {
+                            archivados++;
+                            // Los consumos quedaron redondeados: la factura de ese periodo puede cambiar.
+                            cacheFacturas.mInvalidar(cliente.mGetNumeroIdentificacion(), segmento.mGetAnio(), segmento.mGetMes());
+                        }
+                    }
+                }
             }
         }
-        return listaDeConsumos;
+        if (archivados > 0) {
+            mAnotarEnBitacora(ENTRADA_ARCHIVAR, anio, mes);
+        }
+        return archivados;
     }
 
     // --- REQUISITOS DEL PDF: DEL 8 AL 13 ---
@@ -401,72 +1315,62 @@ public class Controlador {
      * @return Un String con el texto de la factura, o un mensaje de error.
      */
     public String mGenerarFacturaTextoCliente(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return "Error: Cliente con ID " + idCliente + " no encontrado.";
-
-        StringBuilder factura = new StringBuilder();
-        factura.append("========================================\n");
-        factura.append("         FACTURA DE CONSUMO ELÉCTRICO\n");
-        factura.append("========================================\n");
-        factura.append("Cliente: ").append(cliente.mGetNumeroIdentificacion()).append(" (").append(cliente.mGetTipoIdentificacion()).append(")\n");
-        factura.append("Correo: ").append(cliente.mGetCorreoElectronico()).append("\n");
-        factura.append("Dirección: ").append(cliente.mGetDireccionFisica()).append("\n");
-        factura.append("Periodo Facturado: ").append(String.format("%02d/%d", mes, anio)).append("\n");
-        factura.append("----------------------------------------\n");
-        factura.append("Detalle de Consumos por Medidor:\n");
-
-        double totalKWhGeneralCliente = 0;
-        double valorTotalFacturaCliente = 0;
-
-        if (cliente.mGetRegistradores().isEmpty()){
-            factura.append("\n  ** Este cliente no tiene medidores de energía asociados. **\n");
+        // Las que ya están en la caché se cuentan sin cronometrar (ver mCalcularValorFacturaClienteMes).
+        String facturaGuardada = mLeerCliente(idCliente, () -> cacheFacturas.mBuscarTexto(idCliente, anio, mes));
+        if (facturaGuardada != null) { // Ya se había generado y nada cambió.
+            metricas.mDe(Operacion.GENERAR_FACTURA_TEXTO_CLIENTE).mContarSinCronometrar();
+            return facturaGuardada;
         }
 
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            factura.append("\n  Medidor ID: ").append(registrador.mGetNumeroIdentificacion()).append("\n");
-            factura.append("  Ubicación: ").append(registrador.mGetDireccion()).append(", ").append(registrador.mGetCiudad()).append("\n");
-
-            // Verifica si los datos de este medidor corresponden al periodo de la factura.
-            if (registrador.mGetAnioActualConsumos() != anio || registrador.mGetMesActualConsumos() != mes) {
-                factura.append("    - Consumos para el periodo ").append(mes).append("/").append(anio)
-                       .append(" no están cargados actualmente para este medidor.\n");
-                continue; // Pasa al siguiente medidor.
-            }
+        return mMedir(Operacion.GENERAR_FACTURA_TEXTO_CLIENTE, () -> mLeerCliente(idCliente, () -> {
+            Cliente cliente = mBusCliente(idCliente);
+            if (cliente == null) return "Error: Cliente con ID " + idCliente + " no encontrado.";
 
-            double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-            if (consumosDelMes == null) {
-                 factura.append("    - No hay datos de consumo disponibles para este medidor en el periodo.\n");
-                 continue;
-            }
+            // Con el candado del cliente tomado las tarifas no cambian (ver mCargarTarifas).
+            String textoFactura = RenderizadorFacturas.mFacturaTexto(cliente, anio, mes, catalogoTarifas);
+            cacheFacturas.mGuardarTexto(idCliente, anio, mes, textoFactura);
+            return textoFactura;
+        }));
+    }
 
-            double totalKWhDelRegistrador = 0;
-            double valorTotalDelRegistrador = 0;
-
-            // Calcula el consumo y costo para este medidor.
-            for (int d = 0; d < consumosDelMes.length; d++) { // d es el índice del día (0 para día 1)
-                for (int h = 0; h < consumosDelMes[d].length; h++) { // h es la hora (0-23)
-                    double kWhEnLaHora = consumosDelMes[d][h];
-                    if (kWhEnLaHora > 0) { // Solo procesa si hubo consumo.
-                        totalKWhDelRegistrador += kWhEnLaHora;
-                        LocalDateTime fechaHora = LocalDateTime.of(anio, mes, d + 1, h, 0);
-                        Consumo consumoIndividual = new Consumo(fechaHora, kWhEnLaHora);
-                        valorTotalDelRegistrador += consumoIndividual.mCalcularCosto();
-                    }
-                }
-            }
-            factura.append(String.format("    Consumo Total del Medidor: %.2f kWh\n", totalKWhDelRegistrador));
-            factura.append(String.format("    Valor Total del Medidor: %.2f COP\n", valorTotalDelRegistrador));
-            
-            totalKWhGeneralCliente += totalKWhDelRegistrador;
-            valorTotalFacturaCliente += valorTotalDelRegistrador;
-        }
+    /**
+     * Calcula el resumen de consumos de un cliente para un mes y año: mínimo, máximo, total,
+     * totales por franja y por día, valor a pagar y horas con consumo.
+     * Combina (en orden) los resúmenes que cada medidor mantiene al día, sin recorrer sus consumos.
+     * Los requisitos 9 a 13 se responden a partir de este resumen.
+     *
+     * @param idCliente El ID del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return El resumen del cliente, o null si el cliente no existe o ningún medidor tiene datos para el periodo.
+     */
+    public ResumenMensual mResumenClienteMes(String idCliente, int anio, int mes) {
+        return mMedir(Operacion.RESUMEN_CLIENTE_MES, () -> mLeerResumenCliente(idCliente, anio, mes));
+    }
+
+    /**
+     * Toma el candado de lectura del cliente y combina los resúmenes de sus medidores con las tarifas vigentes,
+     * sin contarlo en las métricas (ver {@link #mResumenClienteMes(String, int, int)}).
+     */
+    private ResumenMensual mLeerResumenCliente(String idCliente, int anio, int mes) {
+        return mLeerCliente(idCliente, () -> mResumenCliente(idCliente, anio, mes, catalogoTarifas));
+    }
 
-        factura.append("----------------------------------------\n");
-        factura.append(String.format("CONSUMO TOTAL GENERAL DEL CLIENTE: %.2f kWh\n", totalKWhGeneralCliente));
-        factura.append(String.format("VALOR TOTAL A PAGAR POR EL CLIENTE: %.2f COP\n", valorTotalFacturaCliente));
-        factura.append("========================================\n");
+    /**
+     * Combina los resúmenes de los medidores de un cliente. Se llama con el candado de lectura del cliente tomado.
+     */
+    private ResumenMensual mResumenCliente(String idCliente, int anio, int mes, CatalogoTarifas catalogo) {
+        Cliente cliente = mBusCliente(idCliente);
+        if (cliente == null) return null; // Cliente no existe.
 
-        return factura.toString();
+        ResumenMensual resumenCliente = null;
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            // Resumen del medidor para el periodo buscado (null si no está cargado). El medidor
+            // lo mantiene al día con cada cambio, así que solo recorre el mes la primera vez.
+            ResumenMensual resumenMedidor = registrador.mGetResumen(anio, mes, catalogo);
+            resumenCliente = (resumenCliente == null) ? resumenMedidor : resumenCliente.mCombinar(resumenMedidor);
+        }
+        return resumenCliente;
     }
 
     /**
@@ -480,30 +1384,11 @@ public class Controlador {
      * @return El valor del consumo mínimo. Si no hay datos, devuelve un valor muy alto (Double.MAX_VALUE).
      */
     public double mHallarConsumoMinimoClienteMes(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return Double.MAX_VALUE; // Cliente no existe.
-
-        double consumoMinimoGlobal = Double.MAX_VALUE;
-        boolean seEncontraronConsumosValidos = false;
-
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            // Verifica si los datos del medidor son del periodo buscado.
-            if (registrador.mGetAnioActualConsumos() == anio && registrador.mGetMesActualConsumos() == mes) {
-                double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-                if (consumosDelMes != null) {
-                    for (int d = 0; d < consumosDelMes.length; d++) {
-                        for (int h = 0; h < consumosDelMes[d].length; h++) {
-                            if (consumosDelMes[d][h] < consumoMinimoGlobal) {
-                                consumoMinimoGlobal = consumosDelMes[d][h];
-                            }
-                            seEncontraronConsumosValidos = true;
-                        }
-                    }
-                }
-            }
-        }
-        // Si no se encontró ningún consumo, devuelve MAX_VALUE. Sino, el mínimo encontrado.
-        return seEncontraronConsumosValidos ? consumoMinimoGlobal : Double.MAX_VALUE;
+        return mMedir(Operacion.HALLAR_CONSUMO_MINIMO_CLIENTE_MES, () -> {
+            ResumenMensual resumen = mLeerResumenCliente(idCliente, anio, mes);
+            // Si no se encontró ningún consumo, devuelve MAX_VALUE. Sino, el mínimo encontrado.
+            return resumen != null ? Math.min(resumen.mGetMinimo(), Double.MAX_VALUE) : Double.MAX_VALUE;
+        });
     }
 
     /**
@@ -517,66 +1402,31 @@ public class Controlador {
      * @return El valor del consumo máximo. Si no hay datos, devuelve un valor muy bajo (Double.MIN_VALUE).
      */
     public double mHallarConsumoMaximoClienteMes(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return Double.MIN_VALUE; // Cliente no existe.
-
-        double consumoMaximoGlobal = Double.MIN_VALUE;
-        boolean seEncontraronConsumosValidos = false;
-
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            if (registrador.mGetAnioActualConsumos() == anio && registrador.mGetMesActualConsumos() == mes) {
-                double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-                if (consumosDelMes != null) {
-                    for (int d = 0; d < consumosDelMes.length; d++) {
-                        for (int h = 0; h < consumosDelMes[d].length; h++) {
-                            if (consumosDelMes[d][h] > consumoMaximoGlobal) {
-                                consumoMaximoGlobal = consumosDelMes[d][h];
-                            }
-                            seEncontraronConsumosValidos = true;
-                        }
-                    }
-                }
-            }
-        }
-        return seEncontraronConsumosValidos ? consumoMaximoGlobal : Double.MIN_VALUE;
+        return mMedir(Operacion.HALLAR_CONSUMO_MAXIMO_CLIENTE_MES, () -> {
+            ResumenMensual resumen = mLeerResumenCliente(idCliente, anio, mes);
+            return resumen != null ? Math.max(resumen.mGetMaximo(), Double.MIN_VALUE) : Double.MIN_VALUE;
+        });
     }
 
     /**
      * Calcula el consumo total (en kWh) para un cliente, separado por cada franja horaria,
      * durante un mes y año específicos.
-     * Las franjas son: Franja 1 (00-06h), Franja 2 (07-17h), Franja 3 (18-23h).
+     * Las franjas son las de las tarifas generales vigentes ese mes (con las tarifas del proyecto:
+     * Franja 1 (00-06h), Franja 2 (07-17h), Franja 3 (18-23h)); sus nombres se obtienen con
+     * {@link #mGetNombresFranjas(int, int)}.
      * Corresponde al Requisito 11 del proyecto.
      *
      * @param idCliente El ID del cliente.
      * @param anio El año.
      * @param mes El mes (1-12).
-     * @return Un array de 3 doubles: [total kWh Franja1, total kWh Franja2, total kWh Franja3].
+     * @return Un array con el total de kWh de cada franja, en el orden de sus nombres.
      * Devuelve null si el cliente no existe o no hay datos para el periodo.
      */
     public double[] mHallarConsumoPorFranjasClienteMes(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return null;
-
-        double[] consumoTotalPorFranja = new double[3]; // Posición 0 para Franja1, 1 para Franja2, etc.
-        boolean hayDatosParaCalcular = false;
-
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            if (registrador.mGetAnioActualConsumos() == anio && registrador.mGetMesActualConsumos() == mes) {
-                double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-                if (consumosDelMes != null) {
-                    hayDatosParaCalcular = true;
-                    for (int d = 0; d < consumosDelMes.length; d++) {
-                        for (int h = 0; h < consumosDelMes[d].length; h++) {
-                            double kWh = consumosDelMes[d][h];
-                            if (h >= 0 && h <= 6) consumoTotalPorFranja[0] += kWh;       // Acumula en Franja 1
-                            else if (h >= 7 && h <= 17) consumoTotalPorFranja[1] += kWh; // Acumula en Franja 2
-                            else if (h >= 18 && h <= 23) consumoTotalPorFranja[2] += kWh; // Acumula en Franja 3
-                        }
-                    }
-                }
-            }
-        }
-        return hayDatosParaCalcular ? consumoTotalPorFranja : null;
+        return mMedir(Operacion.HALLAR_CONSUMO_POR_FRANJAS_CLIENTE_MES, () -> {
+            ResumenMensual resumen = mLeerResumenCliente(idCliente, anio, mes);
+            return resumen != null ? resumen.mGetConsumoPorFranja() : null;
+        });
     }
 
     /**
@@ -592,29 +1442,78 @@ public class Controlador {
      * Devuelve null si el cliente no existe o no hay datos para el periodo.
      */
     public double[] mHallarConsumoPorDiasClienteMes(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return null;
+        return mMedir(Operacion.HALLAR_CONSUMO_POR_DIAS_CLIENTE_MES, () -> {
+            ResumenMensual resumen = mLeerResumenCliente(idCliente, anio, mes);
+            return resumen != null ? resumen.mGetConsumoPorDia() : null;
+        });
+    }
 
-        YearMonth infoMesAnio = YearMonth.of(anio, mes);
-        int numDiasDelMes = infoMesAnio.lengthOfMonth();
-        double[] consumoTotalPorDia = new double[numDiasDelMes]; // Un espacio para cada día.
-        boolean hayDatosGenerales = false;
+    /**
+     * Arma la distribución de los consumos horarios de un cliente (o de uno de sus medidores) durante un mes,
+     * para estimar percentiles como p50, p95 y p99 ({@link HistogramaConsumos#mPercentil(double)}).
+     * Cada medidor guarda la distribución de cada mes y la mantiene al día con cada cambio, así que solo
+     * recorre sus consumos la primera vez; la del cliente es la suma de las de sus medidores.
+     *
+     * @param idCliente El ID del cliente.
+     * @param idRegistrador El ID de uno de sus medidores, o null para todos los medidores del cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return La distribución (un histograma nuevo), o null si el cliente (o el medidor) no existe o no hay datos para el periodo.
+     */
+    public HistogramaConsumos mDistribucionConsumoClienteMes(String idCliente, String idRegistrador, int anio, int mes) {
+        return mMedir(Operacion.DISTRIBUCION_CONSUMO_CLIENTE_MES, () -> mLeerCliente(idCliente, () -> {
+            Cliente cliente = mBusCliente(idCliente);
+            if (cliente == null) return null;
+            HistogramaConsumos distribucion = new HistogramaConsumos();
+            MotorDistribucionConsumo.mSumarCliente(cliente, idRegistrador, null, anio, mes, catalogoTarifas, distribucion);
+            return distribucion.mGetHoras() > 0 ? distribucion : null;
+        }));
+    }
 
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            if (registrador.mGetAnioActualConsumos() == anio && registrador.mGetMesActualConsumos() == mes) {
-                double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-                // Verifica que la matriz de consumos exista y tenga el número correcto de días.
-                if (consumosDelMes != null && consumosDelMes.length == numDiasDelMes) {
-                    hayDatosGenerales = true;
-                    for (int d = 0; d < numDiasDelMes; d++) { // d es el índice del día (0 para día 1)
-                        for (int h = 0; h < consumosDelMes[d].length; h++) { // Recorre las horas de ese día
-                            consumoTotalPorDia[d] += consumosDelMes[d][h]; // Acumula el consumo del día 'd'.
-                        }
-                    }
+    /**
+     * Arma la distribución de los consumos horarios de toda la flota (o de los medidores de una ciudad)
+     * durante un mes, sumando en paralelo las que guarda cada medidor. No ordena ni vuelve a recorrer los
+     * consumos, salvo los de los medidores cuya distribución de ese mes aún no se había pedido.
+     *
+     * @param ciudad Solo se cuentan los medidores de esta ciudad (sin importar mayúsculas), o null para toda la flota.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return La distribución, o null si ningún medidor tiene datos para el periodo.
+     */
+    public HistogramaConsumos mDistribucionConsumoFlotaMes(String ciudad, int anio, int mes) {
+        return mMedir(Operacion.DISTRIBUCION_CONSUMO_FLOTA_MES,
+                () -> motorDistribucion.mDistribucion(registro.mVistaClientes(), ciudad, anio, mes, catalogoTarifas));
+    }
+
+    /**
+     * Busca los K clientes (o medidores) de toda la flota que más consumieron en un mes, según un criterio:
+     * total de kWh, costo, hora pico o el total de una franja. Recorre la flota en paralelo guardando solo los
+     * K mejores de cada tramo (ver {@link MotorTopConsumidores}), así que no factura ni ordena a todos los clientes.
+     * El total y el costo de un cliente son exactamente los de {@link #mResumenClienteMes(String, int, int)}.
+     *
+     * @param k Cuántos se devuelven, como máximo (al menos 1).
+     * @param criterio Por qué cifra se ordenan.
+     * @param franja Con {@link CriterioConsumo#FRANJA}, la posición de la franja (desde 0) en
+     *               {@link #mGetNombresFranjas(int, int)}; con los demás criterios se ignora.
+     * @param porMedidor true para ordenar medidores; false para ordenar clientes (sumando sus medidores).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return Los que más consumieron, de mayor a menor (vacía si nadie tiene datos para el periodo).
+     * @throws IllegalArgumentException Si K no es positivo, no se indica el criterio o la franja no existe ese mes.
+     */
+    public List<ConsumidorDestacado> mTopConsumidoresFlotaMes(int k, CriterioConsumo criterio, int franja,
+                                                               boolean porMedidor, int anio, int mes) {
+        return mMedir(Operacion.TOP_CONSUMIDORES_FLOTA_MES, () -> {
+            CatalogoTarifas catalogo = catalogoTarifas;
+            if (criterio == CriterioConsumo.FRANJA) {
+                int franjas = catalogo.mTablaGeneral(anio, mes).mGetNombresFranjas().size();
+                if (franja < 0 || franja >= franjas) {
+                    throw new IllegalArgumentException("La franja " + (franja + 1) + " no existe en " + mes + "/" + anio
+                            + " (hay " + franjas + ").");
                 }
             }
-        }
-        return hayDatosGenerales ? consumoTotalPorDia : null;
+            return motorTop.mTop(registro.mVistaClientes(), k, criterio, franja, porMedidor, anio, mes, catalogo);
+        });
     }
 
     /**
@@ -628,31 +1527,89 @@ public class Controlador {
      * @return El valor total de la factura. Devuelve -1.0 si hay algún error o no hay datos.
      */
     public double mCalcularValorFacturaClienteMes(String idCliente, int anio, int mes) {
-        Cliente cliente = mBusCliente(idCliente);
-        if (cliente == null) return -1.0; // Cliente no encontrado.
+        // Si ya está en la caché, la llamada se cuenta pero no se cronometra: leer el reloj costaría casi
+        // tanto como buscarla.
+        Double valorGuardado = mLeerCliente(idCliente, () -> cacheFacturas.mBuscarValor(idCliente, anio, mes));
+        if (valorGuardado != null) {
+            metricas.mDe(Operacion.CALCULAR_VALOR_FACTURA_CLIENTE_MES).mContarSinCronometrar();
+            return valorGuardado;
+        }
 
-        double valorTotalFactura = 0;
-        boolean seConsideraronDatos = false;
+        return mMedir(Operacion.CALCULAR_VALOR_FACTURA_CLIENTE_MES, () -> {
+            if (!registro.mExisteCliente(idCliente)) return -1.0; // Cliente no encontrado.
 
-        for (Registrador registrador : cliente.mGetRegistradores()) {
-            if (registrador.mGetAnioActualConsumos() == anio && registrador.mGetMesActualConsumos() == mes) {
-                double[][] consumosDelMes = registrador.mGetConsumosMensuales();
-                if (consumosDelMes != null) {
-                    seConsideraronDatos = true;
-                    for (int d = 0; d < consumosDelMes.length; d++) {
-                        for (int h = 0; h < consumosDelMes[d].length; h++) {
-                            double kWhEnLaHora = consumosDelMes[d][h];
-                            if (kWhEnLaHora > 0) { // Solo si hubo consumo.
-                                LocalDateTime fechaHora = LocalDateTime.of(anio, mes, d + 1, h, 0);
-                                Consumo consumoIndividual = new Consumo(fechaHora, kWhEnLaHora);
-                                valorTotalFactura += consumoIndividual.mCalcularCosto(); // Suma el costo de cada consumo.
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        // Si no se procesó ningún dato, devuelve -1.0 para indicar que no se pudo calcular.
-        return seConsideraronDatos ? valorTotalFactura : -1.0;
+            return mLeerCliente(idCliente, () -> {
+                // Suma el valor de cada medidor (en orden), igual que la facturación de flota.
+                // Con el candado del cliente tomado las tarifas no cambian (ver mCargarTarifas).
+                ResumenMensual resumen = mResumenCliente(idCliente, anio, mes, catalogoTarifas);
+                double valor = resumen != null ? resumen.mGetCosto() : -1.0;
+                cacheFacturas.mGuardarValor(idCliente, anio, mes, valor);
+                return valor;
+            });
+        });
+    }
+
+    /**
+     * Devuelve las estadísticas de la caché de facturas (aciertos, fallos, desalojos, invalidaciones y memoria).
+     * @return Una copia de los contadores actuales.
+     */
+    public CacheFacturas.Estadisticas mGetEstadisticasCacheFacturas() {
+        return cacheFacturas.mGetEstadisticas();
+    }
+
+    /**
+     * Devuelve las métricas del Controlador: llamadas, errores y latencias de cada operación, y cuántos
+     * clientes, medidores y meses de consumos hay.
+     * @return Las métricas (se actualizan solas: no es una copia).
+     */
+    public MetricasControlador mGetMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Factura a todos los clientes del sistema para un mes y año, repartiendo el trabajo
+     * entre varios hilos. Los totales son exactamente iguales a los de facturar cliente por cliente
+     * con {@link #mCalcularValorFacturaClienteMes(String, int, int)}.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return El resultado con los totales por cliente, por medidor y el gran total.
+     */
+    public ResultadoFacturacionFlota mFacturarFlota(int anio, int mes) {
+        return mMedir(Operacion.FACTURAR_FLOTA, () -> motorFacturacion.mFacturar(registro.mVistaClientes(), anio, mes, catalogoTarifas));
+    }
+
+    /**
+     * Genera el texto de las facturas de todos los clientes para un mes y año, en paralelo, y lo escribe
+     * en uno o varios archivos de una carpeta ({@code facturas_AAAA_MM.txt} o {@code facturas_AAAA_MM_N.txt}).
+     * Cada factura es igual a la de {@link #mGenerarFacturaTextoCliente(String, int, int)}; se separan con una línea vacía.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param carpeta La carpeta donde se crean los archivos (se crea si no existe).
+     * @param fragmentos En cuántos archivos se reparten las facturas (al menos 1).
+     * @return Cuántas facturas, archivos y bytes se escribieron, y cuánto tardó.
+     * @throws IOException Si no se puede crear la carpeta o escribir algún archivo.
+     * @throws IllegalArgumentException Si la cantidad de archivos no es válida.
+     */
+    public ResultadoRenderizadoFacturas mGenerarFacturasEnArchivos(int anio, int mes, Path carpeta, int fragmentos) throws IOException {
+        return mMedirConEntradaSalida(Operacion.GENERAR_FACTURAS_EN_ARCHIVOS, () -> renderizadorFacturas.mRenderizarEnArchivos(
+                registro.mVistaClientes(), null, anio, mes, catalogoTarifas, carpeta, fragmentos));
+    }
+
+    /**
+     * Genera el texto de las facturas de los clientes que cumplan el filtro (o de todos) para un mes y año,
+     * en paralelo, y lo escribe en un Writer, sin armar un String con todas las facturas. El Writer no se cierra.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param filtro Qué clientes se facturan (null para todos).
+     * @param destino Donde se escriben las facturas.
+     * @return Cuántas facturas y caracteres se escribieron, y cuánto tardó.
+     * @throws IOException Si no se puede escribir.
+     */
+    public ResultadoRenderizadoFacturas mGenerarFacturas(int anio, int mes, Predicate<Cliente> filtro, Writer destino) throws IOException {
+        return mMedirConEntradaSalida(Operacion.GENERAR_FACTURAS, () -> renderizadorFacturas.mRenderizar(
+                registro.mVistaClientes(), filtro, anio, mes, catalogoTarifas, destino));
     }
-}
\ No newline at end of file
+}
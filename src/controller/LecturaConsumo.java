@@ -0,0 +1,57 @@
+package controller;
+
+import java.time.LocalDateTime;
+
+/**
+ * Una lectura de consumo recibida de afuera (por ejemplo, en un lote por la API HTTP): el medidor,
+ * la hora y los kWh. A diferencia de {@link model.Consumo}, no se valida al crearla; las lecturas
+ * inválidas se rechazan al registrarlas con {@link Controlador#mRegistrarLecturas(java.util.List)}.
+ */
+public class LecturaConsumo {
+
+    private final String idRegistrador;
+    private final LocalDateTime fechaHora;
+    private final double kWh;
+
+    /**
+     * Crea una lectura.
+     *
+     * @param idRegistrador El ID del medidor.
+     * @param fechaHora La hora de la lectura (se ignoran los minutos).
+     * @param kWh El consumo de esa hora en kWh.
+     */
+    public LecturaConsumo(String idRegistrador, LocalDateTime fechaHora, double kWh) {
+        this.idRegistrador = idRegistrador;
+        this.fechaHora = fechaHora;
+        this.kWh = kWh;
+    }
+
+    /**
+     * Devuelve el ID del medidor.
+     * @return El ID del medidor.
+     */
+    public String mGetIdRegistrador() {
+        return idRegistrador;
+    }
+
+    /**
+     * Devuelve la hora de la lectura.
+     * @return La fecha y hora.
+     */
+    public LocalDateTime mGetFechaHora() {
+        return fechaHora;
+    }
+
+    /**
+     * Devuelve el consumo en kWh.
+     * @return Los kWh.
+     */
+    public double mGetKWh() {
+        return kWh;
+    }
+
+    @Override
+    public String toString() {
+        return idRegistrador + "," + fechaHora + "," + kWh;
+    }
+}
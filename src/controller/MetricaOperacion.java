@@ -0,0 +1,201 @@
+package controller;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latencias de una operación. Se actualizan desde muchos hilos a la vez sin
+ * candados: las llamadas, los errores y las muestras se cuentan con {@link LongAdder} (que reparte la suma
+ * en celdas cuando hay competencia, sin registrar cada hilo) y el histograma es un arreglo de contadores atómicos.
+ *
+ * Histograma: cada potencia de dos de nanosegundos se divide en {@value #SUBCUBETAS} cubetas, así que cada
+ * latencia se guarda con un error relativo de a lo más 12,5 %, en un arreglo fijo que cubre desde 1 ns
+ * hasta cientos de años.
+ *
+ * Muestreo: leer el reloj dos veces cuesta unas decenas de nanosegundos, tanto como una consulta que
+ * encuentra la factura en la caché. Por eso, mientras la operación tarde menos de
+ * {@value #UMBRAL_MUESTREO_NANOS} ns, se cronometra al azar una de cada {@value #MUESTREO} llamadas (con
+ * {@link ThreadLocalRandom}, que no depende de cuántas llamadas haga cada hilo: sirve igual con un hilo por
+ * petición o con hilos virtuales); las operaciones más lentas se cronometran siempre. Cualquier llamada
+ * cronometrada vuelve a decidir si se muestrea, así que una operación que se vuelve lenta deja de muestrearse
+ * en unas {@value #MUESTREO} llamadas. Las llamadas y los errores se cuentan siempre todos.
+ */
+final class MetricaOperacion implements MetricaOperacionMXBean {
+
+    /** Valor de inicio de una llamada que no se cronometra. */
+    static final long SIN_CRONOMETRAR = Long.MIN_VALUE;
+
+    /** Bits de la subdivisión de cada potencia de dos. */
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    /** Cubetas necesarias para cualquier latencia positiva de un long. */
+    private static final int CUBETAS = (63 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+    /** De cada cuántas llamadas se cronometra una, en las operaciones rápidas (potencia de dos). */
+    private static final int MUESTREO = 64;
+    /** Latencia a partir de la cual se cronometran todas las llamadas. */
+    private static final long UMBRAL_MUESTREO_NANOS = 20_000;
+
+    private final String operacion;
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder muestras = new LongAdder();
+    private final LongAdder nanosMuestras = new LongAdder();
+    private final LongAccumulator maximoNanos = new LongAccumulator(Math::max, 0L);
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    /** 0 si se cronometran todas las llamadas; MUESTREO - 1 si una de cada MUESTREO. Empieza cronometrando todas. */
+    private volatile int mascaraMuestreo;
+
+    MetricaOperacion(String operacion) {
+        this.operacion = operacion;
+    }
+
+    /**
+     * Cuenta una llamada que empieza y decide si se cronometra.
+     * @return La hora de inicio (de System.nanoTime), o {@link #SIN_CRONOMETRAR}.
+     */
+    long mIniciar() {
+        llamadas.increment();
+        int mascara = mascaraMuestreo;
+        if (mascara != 0 && (ThreadLocalRandom.current().nextInt() & mascara) != 0) {
+            return SIN_CRONOMETRAR;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Cuenta una llamada sin cronometrarla, para las que se responden tan rápido (una factura que ya estaba
+     * en la caché) que leer el reloj o sortear el muestreo costaría casi tanto como la llamada.
+     */
+    void mContarSinCronometrar() {
+        llamadas.increment();
+    }
+
+    /** Cuenta una llamada que terminó con una excepción. */
+    void mContarError() {
+        errores.increment();
+    }
+
+    /**
+     * Termina una llamada: si se cronometró, guarda su latencia.
+     * @param inicio Lo que devolvió {@link #mIniciar()}.
+     */
+    void mTerminar(long inicio) {
+        if (inicio != SIN_CRONOMETRAR) {
+            mGuardarMuestra(Math.max(0L, System.nanoTime() - inicio));
+        }
+    }
+
+    /**
+     * Guarda la latencia de una llamada cronometrada y decide si las siguientes se cronometran todas.
+     * Está separado de {@link #mTerminar(long)} para que este quede corto y el compilador lo copie en cada operación.
+     */
+    private void mGuardarMuestra(long nanos) {
+        muestras.increment();
+        nanosMuestras.add(nanos);
+        maximoNanos.accumulate(nanos);
+        cubetas.incrementAndGet(mCubeta(nanos));
+        int mascara = (nanos < UMBRAL_MUESTREO_NANOS) ? MUESTREO - 1 : 0;
+        if (mascara != mascaraMuestreo) mascaraMuestreo = mascara; // Solo se escribe si cambia.
+    }
+
+    /** Devuelve la cubeta de una latencia. */
+    static int mCubeta(long nanos) {
+        if (nanos < SUBCUBETAS) return (int) nanos;
+        int exponente = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + sub;
+    }
+
+    /** Devuelve la menor latencia que cae en una cubeta. */
+    static long mInicioCubeta(int cubeta) {
+        if (cubeta < SUBCUBETAS) return cubeta;
+        int exponente = cubeta / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long sub = cubeta % SUBCUBETAS;
+        return (SUBCUBETAS + sub) << (exponente - BITS_SUBCUBETA);
+    }
+
+    /**
+     * Estima un percentil con el histograma: el punto medio de la cubeta donde cae (sin pasar del máximo).
+     * @param fraccion El percentil como fracción (0,99 para el p99).
+     * @return La latencia en nanosegundos (0 si no hay muestras).
+     */
+    double mPercentilNanos(double fraccion) {
+        long[] conteos = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            conteos[i] = cubetas.get(i);
+            total += conteos[i];
+        }
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(fraccion * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos[i];
+            if (acumulado >= objetivo) {
+                double inicio = mInicioCubeta(i);
+                double fin = (i + 1 < CUBETAS) ? mInicioCubeta(i + 1) : inicio;
+                return Math.min((inicio + fin) / 2, maximoNanos.get());
+            }
+        }
+        return maximoNanos.get();
+    }
+
+    @Override
+    public String getOperacion() {
+        return operacion;
+    }
+
+    @Override
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public long getMuestras() {
+        return muestras.sum();
+    }
+
+    @Override
+    public double getLatenciaMediaMicros() {
+        long cantidad = muestras.sum();
+        return cantidad == 0 ? 0 : nanosMuestras.sum() / 1000.0 / cantidad;
+    }
+
+    @Override
+    public double getLatenciaP50Micros() {
+        return mPercentilNanos(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaP95Micros() {
+        return mPercentilNanos(0.95) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaP99Micros() {
+        return mPercentilNanos(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaMaximaMicros() {
+        return maximoNanos.get() / 1000.0;
+    }
+
+    /**
+     * Devuelve una línea con los contadores y las latencias.
+     * @return Una cadena de texto con la métrica.
+     */
+    @Override
+    public String toString() {
+        return String.format("%-42s llamadas: %10d  errores: %6d  media: %10.1f us  p50: %10.1f us  p99: %10.1f us  máx: %10.1f us",
+                operacion, getLlamadas(), getErrores(), getLatenciaMediaMicros(), getLatenciaP50Micros(),
+                getLatenciaP99Micros(), getLatenciaMaximaMicros());
+    }
+}
@@ -0,0 +1,36 @@
+package controller;
+
+/**
+ * Lo que se publica por JMX de cada operación del Controlador (ver {@link MetricasControlador}).
+ * Los nombres siguen la convención de JMX ({@code getX}), que es como las herramientas de monitoreo
+ * descubren los atributos.
+ */
+public interface MetricaOperacionMXBean {
+
+    /** @return El nombre del método del Controlador. */
+    String getOperacion();
+
+    /** @return Cuántas veces se llamó la operación. */
+    long getLlamadas();
+
+    /** @return Cuántas llamadas terminaron con una excepción. */
+    long getErrores();
+
+    /** @return Cuántas llamadas se cronometraron (las operaciones rápidas se cronometran por muestreo). */
+    long getMuestras();
+
+    /** @return La latencia media de las llamadas cronometradas, en microsegundos. */
+    double getLatenciaMediaMicros();
+
+    /** @return La latencia bajo la que quedó la mitad de las llamadas cronometradas, en microsegundos. */
+    double getLatenciaP50Micros();
+
+    /** @return La latencia bajo la que quedó el 95 % de las llamadas cronometradas, en microsegundos. */
+    double getLatenciaP95Micros();
+
+    /** @return La latencia bajo la que quedó el 99 % de las llamadas cronometradas, en microsegundos. */
+    double getLatenciaP99Micros();
+
+    /** @return La mayor latencia cronometrada, en microsegundos. */
+    double getLatenciaMaximaMicros();
+}
@@ -0,0 +1,174 @@
+package controller;
+
+import model.CandadosClientes;
+import model.Cliente;
+import model.Registrador;
+import model.RegistroClientes;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Métricas de un Controlador: por cada {@link Operacion}, cuántas llamadas hubo, cuántas fallaron y cuánto
+ * tardaron (media y percentiles, ver {@link MetricaOperacion}); y del estado general, cuántos clientes,
+ * medidores y meses de consumos hay.
+ *
+ * Se pueden consultar desde la aplicación o publicar por JMX (por ejemplo, para verlas con JConsole o
+ * VisualVM) con {@link #mPublicarEnJmx()}:
+ * - {@code jpoenergia:type=Controlador} con el estado general.
+ * - {@code jpoenergia:type=Operacion,name=<método>} con las métricas de cada operación.
+ */
+public class MetricasControlador implements MetricasControladorMXBean {
+
+    /** Dominio de los nombres JMX. */
+    private static final String DOMINIO_JMX = "jpoenergia";
+
+    /** Los clientes y medidores del Controlador, para el estado general. */
+    private final RegistroClientes registro;
+    /** La métrica de cada operación, en el orden de {@link Operacion}. */
+    private final MetricaOperacion[] operaciones;
+    /** Los nombres con que se publicaron por JMX (null si no se publicaron). */
+    private ObjectName[] nombresJmx;
+
+    MetricasControlador(RegistroClientes registro) {
+        this.registro = registro;
+        Operacion[] todas = Operacion.values();
+        this.operaciones = new MetricaOperacion[todas.length];
+        for (Operacion operacion : todas) {
+            operaciones[operacion.ordinal()] = new MetricaOperacion(operacion.mGetMetodo());
+        }
+    }
+
+    /** Devuelve la métrica de una operación, para registrar sus llamadas. */
+    MetricaOperacion mDe(Operacion operacion) {
+        return operaciones[operacion.ordinal()];
+    }
+
+    /**
+     * Devuelve las métricas de una operación.
+     * @param operacion La operación.
+     * @return Sus contadores y latencias (se actualizan solos: no es una copia).
+     */
+    public MetricaOperacionMXBean mGetOperacion(Operacion operacion) {
+        return mDe(operacion);
+    }
+
+    @Override
+    public int getClientes() {
+        return registro.mCantidadClientes();
+    }
+
+    @Override
+    public int getMedidores() {
+        return registro.mCantidadRegistradores();
+    }
+
+    /**
+     * Cuenta los meses de cada medidor con el candado de lectura de su cliente tomado.
+     * Recorre todos los medidores, así que no conviene consultarlo muy seguido en flotas grandes.
+     */
+    @Override
+    public long getMesesMedidor() {
+        long meses = 0;
+        for (Cliente cliente : registro.mVistaClientes()) {
+            Lock lectura = CandadosClientes.mDe(cliente.mGetNumeroIdentificacion()).readLock();
+            lectura.lock();
+            try {
+                for (Registrador registrador : cliente.mGetRegistradores()) {
+                    meses += registrador.mGetAlmacenConsumos().mCantidadPeriodos();
+                }
+            } finally {
+                lectura.unlock();
+            }
+        }
+        return meses;
+    }
+
+    @Override
+    public long getLlamadas() {
+        long llamadas = 0;
+        for (MetricaOperacion metrica : operaciones) {
+            llamadas += metrica.getLlamadas();
+        }
+        return llamadas;
+    }
+
+    @Override
+    public long getErrores() {
+        long errores = 0;
+        for (MetricaOperacion metrica : operaciones) {
+            errores += metrica.getErrores();
+        }
+        return errores;
+    }
+
+    /**
+     * Publica las métricas en el servidor JMX de la plataforma. Solo se puede publicar un Controlador a la vez.
+     * @throws IllegalStateException Si ya se publicaron, o si JMX las rechaza (por ejemplo, porque ya hay
+     *                               otro Controlador publicado).
+     */
+    public synchronized void mPublicarEnJmx() {
+        if (nombresJmx != null) {
+            throw new IllegalStateException("Las métricas ya están publicadas en JMX.");
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        ObjectName[] nombres = new ObjectName[operaciones.length + 1];
+        int publicados = 0;
+        try {
+            nombres[0] = new ObjectName(DOMINIO_JMX + ":type=Controlador");
+            servidor.registerMBean(this, nombres[0]);
+            publicados++;
+            for (MetricaOperacion metrica : operaciones) {
+                nombres[publicados] = new ObjectName(DOMINIO_JMX + ":type=Operacion,name=" + metrica.getOperacion());
+                servidor.registerMBean(metrica, nombres[publicados]);
+                publicados++;
+            }
+        } catch (JMException e) {
+            mRetirar(servidor, nombres, publicados); // No se deja publicada solo una parte.
+            throw new IllegalStateException("No se pudieron publicar las métricas en JMX: " + e.getMessage(), e);
+        }
+        this.nombresJmx = nombres;
+    }
+
+    /**
+     * Retira las métricas del servidor JMX de la plataforma (si se publicaron).
+     */
+    public synchronized void mRetirarDeJmx() {
+        if (nombresJmx == null) return;
+        mRetirar(ManagementFactory.getPlatformMBeanServer(), nombresJmx, nombresJmx.length);
+        nombresJmx = null;
+    }
+
+    private static void mRetirar(MBeanServer servidor, ObjectName[] nombres, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            try {
+                servidor.unregisterMBean(nombres[i]);
+            } catch (JMException e) {
+                System.err.println("Atención: No se pudo retirar de JMX " + nombres[i] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Devuelve el estado general y una línea por cada operación que se haya llamado.
+     * @return Una cadena de texto con las métricas.
+     */
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        texto.append("Clientes: ").append(getClientes())
+             .append(" | Medidores: ").append(getMedidores())
+             .append(" | Meses de medidor: ").append(getMesesMedidor())
+             .append(" | Llamadas: ").append(getLlamadas())
+             .append(" | Errores: ").append(getErrores());
+        for (MetricaOperacion metrica : operaciones) {
+            if (metrica.getLlamadas() > 0) {
+                texto.append('\n').append(metrica);
+            }
+        }
+        return texto.toString();
+    }
+}
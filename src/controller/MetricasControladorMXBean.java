@@ -0,0 +1,23 @@
+package controller;
+
+/**
+ * Lo que se publica por JMX del estado general del Controlador (ver {@link MetricasControlador}).
+ * Los nombres siguen la convención de JMX ({@code getX}).
+ */
+public interface MetricasControladorMXBean {
+
+    /** @return Cuántos clientes hay registrados. */
+    int getClientes();
+
+    /** @return Cuántos medidores hay registrados. */
+    int getMedidores();
+
+    /** @return Cuántos meses de consumos guardan entre todos los medidores (medidor-mes). */
+    long getMesesMedidor();
+
+    /** @return Cuántas llamadas se han hecho al Controlador, sumando todas las operaciones. */
+    long getLlamadas();
+
+    /** @return Cuántas llamadas al Controlador terminaron con una excepción. */
+    long getErrores();
+}
@@ -0,0 +1,136 @@
+package controller;
+
+import model.CatalogoTarifas;
+import model.Cliente;
+import model.HistogramaConsumos;
+import model.Registrador;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Arma la distribución de los consumos horarios de muchos clientes a la vez (para los percentiles de una
+ * ciudad o de toda la flota), repartiéndolos entre los hilos de un {@link ForkJoinPool}.
+ *
+ * Cada medidor guarda la distribución de cada mes junto a sus totales ({@link Registrador#mSumarDistribucion}),
+ * así que armar la de la flota no ordena ni vuelve a recorrer los consumos: cada tarea suma las de sus
+ * clientes en su propio histograma, y al final se suman los histogramas de las tareas, cubeta por cubeta.
+ * Como las sumas son de enteros, el resultado es el mismo sin importar cuántos hilos se usen.
+ *
+ * Cada cliente se lee con su candado de lectura tomado, igual que al facturar.
+ */
+public class MotorDistribucionConsumo {
+
+    /** Cantidad de clientes a partir de la cual una tarea se divide en dos. */
+    private static final int CLIENTES_POR_TAREA = 64;
+
+    /** Grupo de hilos donde se arma la distribución. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un motor que usa el grupo de hilos común de Java (un hilo por núcleo).
+     */
+    public MotorDistribucionConsumo() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un motor que usa el grupo de hilos indicado.
+     * @param grupoHilos El grupo de hilos donde se arma la distribución.
+     */
+    public MotorDistribucionConsumo(ForkJoinPool grupoHilos) {
+        if (grupoHilos == null) {
+            throw new IllegalArgumentException("El grupo de hilos es obligatorio.");
+        }
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Arma en paralelo la distribución de los consumos de un mes de los medidores de varios clientes.
+     *
+     * @param clientes Los clientes.
+     * @param ciudad Solo se cuentan los medidores de esta ciudad (null para contarlos todos).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas vigentes (los medidores guardan la distribución junto a los totales calculados con ellas).
+     * @return La distribución, o null si ningún medidor tiene datos para el periodo.
+     */
+    public HistogramaConsumos mDistribucion(Collection<Cliente> clientes, String ciudad, int anio, int mes, CatalogoTarifas catalogo) {
+        Cliente[] arregloClientes = clientes.toArray(new Cliente[0]);
+        HistogramaConsumos distribucion = grupoHilos.invoke(
+                new TareaDistribucion(arregloClientes, 0, arregloClientes.length, ciudad, anio, mes, catalogo));
+        return distribucion.mGetHoras() > 0 ? distribucion : null;
+    }
+
+    /**
+     * Suma a un histograma la distribución de los consumos de un mes de los medidores de un cliente.
+     * Se llama con el candado de lectura del cliente tomado.
+     *
+     * @param cliente El cliente.
+     * @param idRegistrador Solo se cuenta este medidor (null para contarlos todos).
+     * @param ciudad Solo se cuentan los medidores de esta ciudad (null para contarlos todos).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas vigentes.
+     * @param destino El histograma al que se suma.
+     */
+    static void mSumarCliente(Cliente cliente, String idRegistrador, String ciudad, int anio, int mes,
+                              CatalogoTarifas catalogo, HistogramaConsumos destino) {
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            if (idRegistrador != null && !idRegistrador.equals(registrador.mGetNumeroIdentificacion())) continue;
+            if (ciudad != null && (registrador.mGetCiudad() == null
+                    || !registrador.mGetCiudad().trim().equalsIgnoreCase(ciudad.trim()))) continue;
+            registrador.mSumarDistribucion(anio, mes, catalogo, destino);
+        }
+    }
+
+    /**
+     * Tarea que arma la distribución de un rango de clientes, dividiéndose en dos mientras el rango sea grande.
+     */
+    private static class TareaDistribucion extends RecursiveTask<HistogramaConsumos> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Cliente[] clientes;
+        private final int desde;
+        private final int hasta;
+        private final String ciudad;
+        private final int anio;
+        private final int mes;
+        private final CatalogoTarifas catalogo;
+
+        TareaDistribucion(Cliente[] clientes, int desde, int hasta, String ciudad, int anio, int mes, CatalogoTarifas catalogo) {
+            this.clientes = clientes;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.ciudad = ciudad;
+            this.anio = anio;
+            this.mes = mes;
+            this.catalogo = catalogo;
+        }
+
+        @Override
+        protected HistogramaConsumos compute() {
+            if (hasta - desde <= CLIENTES_POR_TAREA) {
+                HistogramaConsumos distribucion = new HistogramaConsumos();
+                for (int i = desde; i < hasta; i++) {
+                    Lock lectura = clientes[i].mCandado().readLock();
+                    lectura.lock();
+                    try {
+                        mSumarCliente(clientes[i], null, ciudad, anio, mes, catalogo, distribucion);
+                    } finally {
+                        lectura.unlock();
+                    }
+                }
+                return distribucion;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            TareaDistribucion segunda = new TareaDistribucion(clientes, mitad, hasta, ciudad, anio, mes, catalogo);
+            segunda.fork();
+            HistogramaConsumos primera = new TareaDistribucion(clientes, desde, mitad, ciudad, anio, mes, catalogo).compute();
+            return primera.mSumar(segunda.join());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package controller;
+
+import controller.ResultadoFacturacionFlota.FacturaCliente;
+import controller.ResultadoFacturacionFlota.FacturaMedidor;
+import model.CatalogoTarifas;
+import model.Cliente;
+import model.Registrador;
+import model.ResumenMensual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Factura a muchos clientes a la vez, repartiéndolos entre los hilos de un {@link ForkJoinPool}.
+ *
+ * Cada cliente se factura completo en un solo hilo (sus medidores en orden), y los totales
+ * generales se suman al final, en el orden original de los clientes. Así el resultado es
+ * exactamente el mismo (bit a bit) que facturar uno por uno, sin importar cuántos hilos se usen.
+ *
+ * Cada consumo se cobra con las tarifas del catálogo que estaban vigentes ese día en la ciudad del medidor.
+ * Cada cliente se lee con su candado de lectura tomado, así que se puede facturar mientras otros hilos
+ * cambian consumos: la factura de cada cliente es la de un momento dado, sin cambios a medias.
+ */
+public class MotorFacturacionFlota {
+
+    /** Cantidad de clientes a partir de la cual una tarea se divide en dos. */
+    private static final int CLIENTES_POR_TAREA = 64;
+
+    /** Grupo de hilos donde se ejecuta la facturación. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un motor que usa el grupo de hilos común de Java (un hilo por núcleo).
+     */
+    public MotorFacturacionFlota() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un motor que usa el grupo de hilos indicado.
+     * @param grupoHilos El grupo de hilos donde se factura.
+     */
+    public MotorFacturacionFlota(ForkJoinPool grupoHilos) {
+        if (grupoHilos == null) {
+            throw new IllegalArgumentException("El grupo de hilos es obligatorio.");
+        }
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Factura en paralelo a todos los clientes indicados para un mes y año.
+     *
+     * @param clientes Los clientes a facturar.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @return El resultado con los totales por cliente, por medidor y generales.
+     */
+    public ResultadoFacturacionFlota mFacturar(Collection<Cliente> clientes, int anio, int mes, CatalogoTarifas catalogo) {
+        Cliente[] arregloClientes = clientes.toArray(new Cliente[0]);
+        FacturaCliente[] facturas = new FacturaCliente[arregloClientes.length];
+        grupoHilos.invoke(new TareaFacturacion(arregloClientes, facturas, 0, arregloClientes.length, anio, mes, catalogo));
+        return new ResultadoFacturacionFlota(anio, mes, Arrays.asList(facturas));
+    }
+
+    /**
+     * Factura uno por uno, en el hilo actual, a todos los clientes indicados.
+     * Da exactamente el mismo resultado que {@link #mFacturar(Collection, int, int, CatalogoTarifas)}.
+     *
+     * @param clientes Los clientes a facturar.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @return El resultado con los totales por cliente, por medidor y generales.
+     */
+    public static ResultadoFacturacionFlota mFacturarSecuencial(Collection<Cliente> clientes, int anio, int mes, CatalogoTarifas catalogo) {
+        List<FacturaCliente> facturas = new ArrayList<>(clientes.size());
+        for (Cliente cliente : clientes) {
+            facturas.add(mFacturarCliente(cliente, anio, mes, catalogo));
+        }
+        return new ResultadoFacturacionFlota(anio, mes, facturas);
+    }
+
+    /**
+     * Factura a un cliente: calcula el total de cada uno de sus medidores (en orden) y los suma.
+     *
+     * @param cliente El cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @return La factura del cliente; solo incluye los medidores con datos para el periodo.
+     */
+    public static FacturaCliente mFacturarCliente(Cliente cliente, int anio, int mes, CatalogoTarifas catalogo) {
+        List<FacturaMedidor> facturasMedidores = new ArrayList<>();
+        Lock lectura = cliente.mCandado().readLock(); // Nadie cambia al cliente mientras se factura.
+        lectura.lock();
+        try {
+            for (Registrador registrador : cliente.mGetRegistradores()) {
+                FacturaMedidor factura = mFacturarMedidor(registrador, anio, mes, catalogo);
+                if (factura != null) {
+                    facturasMedidores.add(factura);
+                }
+            }
+        } finally {
+            lectura.unlock();
+        }
+        return new FacturaCliente(cliente.mGetNumeroIdentificacion(), facturasMedidores);
+    }
+
+    /**
+     * Calcula los kWh y el valor de un medidor para un mes y año.
+     * Todas las facturaciones (una por una o en paralelo) usan este mismo cálculo,
+     * para que los totales siempre coincidan.
+     *
+     * @param registrador El medidor.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra; se usa la tabla vigente cada día en la ciudad del medidor.
+     * @return La factura del medidor, o null si no tiene datos para el periodo.
+     */
+    public static FacturaMedidor mFacturarMedidor(Registrador registrador, int anio, int mes, CatalogoTarifas catalogo) {
+        return mFacturarResumen(registrador, registrador.mGetResumen(anio, mes, catalogo));
+    }
+
+    /**
+     * Arma la factura de un medidor a partir del resumen de su mes, ya calculado.
+     *
+     * @param registrador El medidor.
+     * @param resumen El resumen del mes del medidor (null si no tiene datos).
+     * @return La factura del medidor, o null si el resumen es null.
+     */
+    public static FacturaMedidor mFacturarResumen(Registrador registrador, ResumenMensual resumen) {
+        return resumen != null ? new FacturaMedidor(registrador.mGetNumeroIdentificacion(), resumen.mGetTotalKWh(), resumen.mGetCosto()) : null;
+    }
+
+    /**
+     * Tarea que factura un rango de clientes, dividiéndose en dos mientras el rango sea grande.
+     * Cada factura se guarda en la misma posición que su cliente.
+     */
+    private static class TareaFacturacion extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Cliente[] clientes;
+        private final FacturaCliente[] facturas;
+        private final int desde;
+        private final int hasta;
+        private final int anio;
+        private final int mes;
+        private final CatalogoTarifas catalogo;
+
+        TareaFacturacion(Cliente[] clientes, FacturaCliente[] facturas, int desde, int hasta, int anio, int mes,
+                         CatalogoTarifas catalogo) {
+            this.clientes = clientes;
+            this.facturas = facturas;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.anio = anio;
+            this.mes = mes;
+            this.catalogo = catalogo;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= CLIENTES_POR_TAREA) {
+                for (int i = desde; i < hasta; i++) {
+                    facturas[i] = mFacturarCliente(clientes[i], anio, mes, catalogo);
+                }
+                return;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            invokeAll(new TareaFacturacion(clientes, facturas, desde, mitad, anio, mes, catalogo),
+                      new TareaFacturacion(clientes, facturas, mitad, hasta, anio, mes, catalogo));
+        }
+    }
+}
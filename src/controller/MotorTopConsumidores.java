@@ -0,0 +1,237 @@
+package controller;
+
+import model.CatalogoTarifas;
+import model.Cliente;
+import model.CriterioConsumo;
+import model.Registrador;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Busca los K clientes (o medidores) que más consumieron en un mes, según un {@link CriterioConsumo}
+ * (kWh, costo, hora pico o una franja), repartiendo la flota entre los hilos de un {@link ForkJoinPool}.
+ *
+ * No arma la lista de toda la flota para ordenarla: los clientes se reparten en unos pocos tramos seguidos
+ * ({@value #TRAMOS_POR_HILO} por hilo, para que los hilos que terminan antes tomen los que quedan), y cada
+ * tramo recorre los suyos guardando solo los K mejores en un montículo acotado, cuya raíz es el peor de
+ * ellos: un candidato que no la supera se descarta sin crear nada. Al final se juntan los montículos de los
+ * tramos. Así la memoria es de K por tramo (K x hilos), sin importar el tamaño de la flota.
+ *
+ * Las cifras se toman de los totales que cada medidor mantiene al día ({@link Registrador#mGetCifraMes}), sin
+ * copiarlos en un resumen, así que no se recorren los consumos salvo en los medidores cuyo mes aún no se había resumido. Cada cliente se lee con
+ * su candado de lectura tomado, igual que al facturar. Los empates se ordenan por ID, así que el resultado es el
+ * mismo sin importar cuántos hilos se usen.
+ */
+public class MotorTopConsumidores {
+
+    /** Tramos en que se reparten los clientes por cada hilo del grupo. */
+    private static final int TRAMOS_POR_HILO = 4;
+    /** Cantidad mínima de clientes de un tramo (con menos, no vale la pena repartirlos). */
+    private static final int CLIENTES_POR_TAREA = 64;
+
+    /** Grupo de hilos donde se arma el ranking. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un motor que usa el grupo de hilos común de Java (un hilo por núcleo).
+     */
+    public MotorTopConsumidores() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un motor que usa el grupo de hilos indicado.
+     * @param grupoHilos El grupo de hilos donde se arma el ranking.
+     */
+    public MotorTopConsumidores(ForkJoinPool grupoHilos) {
+        if (grupoHilos == null) {
+            throw new IllegalArgumentException("El grupo de hilos es obligatorio.");
+        }
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Busca en paralelo los K clientes (o medidores) con la cifra más alta de un mes.
+     *
+     * @param clientes Los clientes.
+     * @param k Cuántos se devuelven, como máximo.
+     * @param criterio Por qué cifra se ordenan.
+     * @param franja La posición de la franja (desde 0), solo con {@link CriterioConsumo#FRANJA}; ya validada.
+     * @param porMedidor true para ordenar medidores; false para ordenar clientes (sumando sus medidores).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas vigentes.
+     * @return Los que más consumieron, de mayor a menor (lista no modificable, vacía si nadie tiene datos para el periodo).
+     * @throws IllegalArgumentException Si K no es positivo o no se indica el criterio.
+     */
+    public List<ConsumidorDestacado> mTop(Collection<Cliente> clientes, int k, CriterioConsumo criterio, int franja,
+                                          boolean porMedidor, int anio, int mes, CatalogoTarifas catalogo) {
+        if (k < 1) {
+            throw new IllegalArgumentException("La cantidad a devolver debe ser mayor que cero. Ingresaste: " + k);
+        }
+        if (criterio == null) {
+            throw new IllegalArgumentException("El criterio es obligatorio.");
+        }
+        Cliente[] arregloClientes = clientes.toArray(new Cliente[0]);
+        int tramos = Math.max(1, Math.min(grupoHilos.getParallelism() * TRAMOS_POR_HILO,
+                (arregloClientes.length + CLIENTES_POR_TAREA - 1) / CLIENTES_POR_TAREA));
+        List<TareaTramo> tareas = new ArrayList<>(tramos);
+        for (int t = 0; t < tramos; t++) {
+            tareas.add(new TareaTramo(arregloClientes, (int) ((long) arregloClientes.length * t / tramos),
+                    (int) ((long) arregloClientes.length * (t + 1) / tramos), k, criterio, franja, porMedidor, anio, mes, catalogo));
+        }
+        grupoHilos.invoke(new TareaRanking(tareas));
+
+        Ranking ranking = tareas.get(0).ranking;
+        for (int t = 1; t < tramos; t++) {
+            ranking.mJuntar(tareas.get(t).ranking);
+        }
+        return Collections.unmodifiableList(ranking.mOrdenado());
+    }
+
+    /**
+     * Ofrece al ranking la cifra de un cliente, o la de cada uno de sus medidores.
+     * Se llama con el candado de lectura del cliente tomado.
+     */
+    private static void mEvaluarCliente(Cliente cliente, CriterioConsumo criterio, int franja, boolean porMedidor,
+                                        int anio, int mes, CatalogoTarifas catalogo, Ranking ranking) {
+        boolean conDatos = false;
+        double acumulado = 0;
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            double valor = registrador.mGetCifraMes(anio, mes, catalogo, criterio, franja);
+            if (Double.isNaN(valor)) continue; // El medidor no tiene ese mes cargado.
+            if (porMedidor) {
+                ranking.mOfrecer(cliente.mGetNumeroIdentificacion(), registrador.mGetNumeroIdentificacion(), valor);
+            } else {
+                acumulado = conDatos ? criterio.mCombinar(acumulado, valor) : valor;
+                conDatos = true;
+            }
+        }
+        if (conDatos) {
+            ranking.mOfrecer(cliente.mGetNumeroIdentificacion(), null, acumulado);
+        }
+    }
+
+    /**
+     * Los K mejores vistos hasta ahora, en un montículo cuya raíz es el peor de ellos.
+     * No es seguro para usar desde varios hilos a la vez.
+     */
+    private static final class Ranking {
+
+        private final int k;
+        private final PriorityQueue<ConsumidorDestacado> mejores;
+
+        Ranking(int k) {
+            this.k = k;
+            // Al revés del orden del ranking, para que la raíz sea el que primero sale si llega uno mejor.
+            this.mejores = new PriorityQueue<>(Math.min(k, 1024) + 1, ConsumidorDestacado.ORDEN_RANKING.reversed());
+        }
+
+        /** Considera un candidato: entra si todavía no hay K, o si es mejor que el peor de los K. */
+        void mOfrecer(String idCliente, String idRegistrador, double valor) {
+            if (mejores.size() < k) {
+                mejores.add(new ConsumidorDestacado(idCliente, idRegistrador, valor));
+                return;
+            }
+            double peor = mejores.peek().mGetValor();
+            if (valor < peor) return; // Lo más común en una flota grande: ni se crea el candidato.
+            mOfrecer(new ConsumidorDestacado(idCliente, idRegistrador, valor));
+        }
+
+        private void mOfrecer(ConsumidorDestacado candidato) {
+            if (mejores.size() < k) {
+                mejores.add(candidato);
+            } else if (ConsumidorDestacado.ORDEN_RANKING.compare(candidato, mejores.peek()) < 0) {
+                mejores.poll();
+                mejores.add(candidato);
+            }
+        }
+
+        /** Agrega a este ranking los candidatos de otro (el otro no cambia). */
+        void mJuntar(Ranking otro) {
+            for (ConsumidorDestacado candidato : otro.mejores) {
+                mOfrecer(candidato);
+            }
+        }
+
+        /** Devuelve los K mejores en una lista nueva, de mayor a menor. */
+        List<ConsumidorDestacado> mOrdenado() {
+            List<ConsumidorDestacado> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(ConsumidorDestacado.ORDEN_RANKING);
+            return ordenados;
+        }
+    }
+
+    /**
+     * Tarea que lanza los tramos a la vez y espera a que terminen.
+     */
+    private static class TareaRanking extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<TareaTramo> tareas;
+
+        TareaRanking(List<TareaTramo> tareas) {
+            this.tareas = tareas;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tareas);
+        }
+    }
+
+    /**
+     * Tarea que recorre un tramo de clientes guardando sus K mejores.
+     */
+    private static class TareaTramo extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Cliente[] clientes;
+        private final int desde;
+        private final int hasta;
+        private final CriterioConsumo criterio;
+        private final int franja;
+        private final boolean porMedidor;
+        private final int anio;
+        private final int mes;
+        private final CatalogoTarifas catalogo;
+        /** Los K mejores del tramo (se leen cuando la tarea termina). */
+        private final Ranking ranking;
+
+        TareaTramo(Cliente[] clientes, int desde, int hasta, int k, CriterioConsumo criterio, int franja,
+                   boolean porMedidor, int anio, int mes, CatalogoTarifas catalogo) {
+            this.clientes = clientes;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.criterio = criterio;
+            this.franja = franja;
+            this.porMedidor = porMedidor;
+            this.anio = anio;
+            this.mes = mes;
+            this.catalogo = catalogo;
+            this.ranking = new Ranking(k);
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = desde; i < hasta; i++) {
+                Lock lectura = clientes[i].mCandado().readLock();
+                lectura.lock();
+                try {
+                    mEvaluarCliente(clientes[i], criterio, franja, porMedidor, anio, mes, catalogo, ranking);
+                } finally {
+                    lectura.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package controller;
+
+/**
+ * Las operaciones del {@link Controlador} de las que se llevan métricas (ver {@link MetricasControlador}):
+ * una por cada método público, salvo los que solo devuelven un campo (el catálogo de tarifas, las
+ * estadísticas de la caché y las propias métricas), que no vale la pena medir. Cada llamada se cuenta
+ * una sola vez, en la operación que se llamó: lo que el Controlador hace por dentro (las consultas que
+ * reutiliza, la recuperación de la bitácora, las compactaciones automáticas) no se cuenta aparte. En
+ * {@link #GENERAR_FACTURA_TEXTO_CLIENTE} y {@link #CALCULAR_VALOR_FACTURA_CLIENTE_MES} se cuentan todas las
+ * llamadas, pero solo se cronometran las facturas que se calculan: las que ya estaban en la caché se
+ * responden en lo que tarda leer el reloj.
+ */
+public enum Operacion {
+    GET_CLIENTE,
+    CREAR_CLIENTE,
+    EDITAR_CLIENTE,
+    ELIMINAR_CLIENTE,
+    GET_CLIENTES,
+    CREAR_REGISTRADOR,
+    EDITAR_REGISTRADOR,
+    ELIMINAR_REGISTRADOR,
+    GET_REGISTRADOR_DE_CLIENTE,
+    BUSCAR_REGISTRADOR_GLOBAL,
+    BUSCAR_PROPIETARIO_REGISTRADOR,
+    GUARDAR_INSTANTANEA,
+    CARGAR_INSTANTANEA,
+    ACTIVAR_PERSISTENCIA,
+    COMPACTAR_BITACORA,
+    CERRAR_PERSISTENCIA,
+    CARGAR_TARIFAS,
+    GET_NOMBRES_FRANJAS,
+    SIMULAR_CONSUMOS_FLOTA,
+    CARGAR_CONSUMOS_AUTOMATICOS_TODOS_CLIENTES,
+    CARGAR_CONSUMOS_AUTOMATICOS_UN_CLIENTE,
+    CAMBIAR_CONSUMO_HORA_ESPECIFICA,
+    REGISTRAR_LECTURAS,
+    CARGAR_CONSUMOS_DESDE_ARCHIVOS,
+    AGREGAR_CONSUMO_REGISTRADOR,
+    OBTENER_CONSUMOS_REGISTRADOR,
+    RECORRER_CONSUMOS_REGISTRADOR,
+    STREAM_CONSUMOS_REGISTRADOR,
+    ARCHIVAR_CONSUMOS_ANTERIORES_A,
+    GENERAR_FACTURA_TEXTO_CLIENTE,
+    RESUMEN_CLIENTE_MES,
+    HALLAR_CONSUMO_MINIMO_CLIENTE_MES,
+    HALLAR_CONSUMO_MAXIMO_CLIENTE_MES,
+    HALLAR_CONSUMO_POR_FRANJAS_CLIENTE_MES,
+    HALLAR_CONSUMO_POR_DIAS_CLIENTE_MES,
+    DISTRIBUCION_CONSUMO_CLIENTE_MES,
+    DISTRIBUCION_CONSUMO_FLOTA_MES,
+    TOP_CONSUMIDORES_FLOTA_MES,
+    CALCULAR_VALOR_FACTURA_CLIENTE_MES,
+    FACTURAR_FLOTA,
+    GENERAR_FACTURAS_EN_ARCHIVOS,
+    GENERAR_FACTURAS;
+
+    /** El nombre del método del Controlador (por ejemplo, "mCrearCliente"). */
+    private final String metodo;
+
+    Operacion() {
+        StringBuilder nombre = new StringBuilder("m");
+        for (String palabra : name().split("_")) {
+            nombre.append(palabra.charAt(0)).append(palabra.substring(1).toLowerCase());
+        }
+        this.metodo = nombre.toString();
+    }
+
+    /**
+     * Devuelve el nombre del método del Controlador que corresponde a la operación.
+     * @return El nombre del método.
+     */
+    public String mGetMetodo() {
+        return metodo;
+    }
+}
@@ -0,0 +1,282 @@
+package controller;
+
+import controller.ResultadoFacturacionFlota.FacturaMedidor;
+import model.CatalogoTarifas;
+import model.Cliente;
+import model.Registrador;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+/**
+ * Genera el texto de las facturas de muchos clientes y lo escribe directamente en un Writer, un canal
+ * o varios archivos, sin armar nunca un String con todas las facturas.
+ *
+ * Los clientes se reparten en grupos de {@value #CLIENTES_POR_TAREA}; varios grupos se generan en paralelo
+ * y se escriben en el orden original de los clientes. Como solo hay unos pocos grupos en memoria a la vez
+ * (y sus buffers se reutilizan), la memoria usada no depende de cuántos clientes se facturen.
+ *
+ * Los números se escriben con {@link BufferTexto}, que da el mismo resultado que {@code String.format("%.2f")}
+ * con punto decimal, sin crear objetos. El texto de cada factura es el mismo de
+ * {@link Controlador#mGenerarFacturaTextoCliente(String, int, int)}. Cada factura se escribe con el candado
+ * de lectura de su cliente tomado, así que nunca mezcla datos de antes y después de un cambio.
+ */
+public class RenderizadorFacturas {
+
+    /** Cantidad de clientes que genera cada tarea. */
+    private static final int CLIENTES_POR_TAREA = 64;
+    /** Tamaño inicial (en caracteres) del buffer de cada tarea. */
+    private static final int CAPACIDAD_BUFFER = 64 * 1024;
+    /** Tamaño del buffer de bytes donde se codifica el texto antes de escribirlo. */
+    private static final int TAMANO_BUFFER_BYTES = 64 * 1024;
+
+    /** Grupo de hilos donde se generan las facturas. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un generador que usa el grupo de hilos común de Java (un hilo por núcleo).
+     */
+    public RenderizadorFacturas() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un generador que usa el grupo de hilos indicado.
+     * @param grupoHilos El grupo de hilos donde se generan las facturas.
+     */
+    public RenderizadorFacturas(ForkJoinPool grupoHilos) {
+        if (grupoHilos == null) {
+            throw new IllegalArgumentException("El grupo de hilos es obligatorio.");
+        }
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Genera el texto de la factura de un cliente.
+     *
+     * @param cliente El cliente.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @return El texto de la factura.
+     */
+    public static String mFacturaTexto(Cliente cliente, int anio, int mes, CatalogoTarifas catalogo) {
+        BufferTexto texto = new BufferTexto(1024);
+        mEscribirFactura(cliente, anio, mes, catalogo, texto);
+        return texto.toString();
+    }
+
+    /**
+     * Genera las facturas de los clientes (todos o los que cumplan el filtro) y las escribe en un Writer,
+     * una después de otra, separadas por una línea vacía. El Writer no se cierra.
+     *
+     * @param clientes Los clientes, en el orden en que se escriben.
+     * @param filtro Qué clientes se facturan (null para todos).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @param destino Donde se escriben las facturas.
+     * @return El resultado del lote (el tamaño se cuenta en caracteres).
+     * @throws IOException Si no se puede escribir.
+     */
+    public ResultadoRenderizadoFacturas mRenderizar(Collection<Cliente> clientes, Predicate<Cliente> filtro, int anio, int mes,
+                                                    CatalogoTarifas catalogo, Writer destino) throws IOException {
+        long inicio = System.nanoTime();
+        Cliente[] seleccion = mFiltrar(clientes, filtro);
+        long[] caracteres = new long[1];
+        mGenerarEnOrden(seleccion, anio, mes, catalogo, bloque -> {
+            bloque.mEscribirEn(destino);
+            caracteres[0] += bloque.mLargo();
+        });
+        return new ResultadoRenderizadoFacturas(seleccion.length, 0, caracteres[0], System.nanoTime() - inicio);
+    }
+
+    /**
+     * Genera las facturas de los clientes (todos o los que cumplan el filtro) y las escribe en UTF-8
+     * en un canal (por ejemplo, un archivo o un socket). El canal no se cierra.
+     *
+     * @param clientes Los clientes, en el orden en que se escriben.
+     * @param filtro Qué clientes se facturan (null para todos).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @param destino Donde se escriben las facturas.
+     * @return El resultado del lote.
+     * @throws IOException Si no se puede escribir.
+     */
+    public ResultadoRenderizadoFacturas mRenderizar(Collection<Cliente> clientes, Predicate<Cliente> filtro, int anio, int mes,
+                                                    CatalogoTarifas catalogo, WritableByteChannel destino) throws IOException {
+        long inicio = System.nanoTime();
+        Cliente[] seleccion = mFiltrar(clientes, filtro);
+        long bytes = mEscribirEnCanal(seleccion, 0, seleccion.length, anio, mes, catalogo, destino);
+        return new ResultadoRenderizadoFacturas(seleccion.length, 0, bytes, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Genera las facturas de los clientes (todos o los que cumplan el filtro) en uno o varios archivos
+     * de una carpeta: {@code facturas_AAAA_MM.txt}, o {@code facturas_AAAA_MM_N.txt} si se pide más de un
+     * fragmento. Cada fragmento tiene un grupo seguido de clientes, en orden. Los archivos existentes se reemplazan.
+     *
+     * @param clientes Los clientes, en orden.
+     * @param filtro Qué clientes se facturan (null para todos).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra.
+     * @param carpeta La carpeta donde se crean los archivos (se crea si no existe).
+     * @param fragmentos En cuántos archivos se reparten las facturas (al menos 1).
+     * @return El resultado del lote.
+     * @throws IOException Si no se puede crear la carpeta o escribir algún archivo.
+     */
+    public ResultadoRenderizadoFacturas mRenderizarEnArchivos(Collection<Cliente> clientes, Predicate<Cliente> filtro,
+                                                              int anio, int mes, CatalogoTarifas catalogo,
+                                                              Path carpeta, int fragmentos) throws IOException {
+        if (fragmentos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un archivo de facturas.");
+        }
+        long inicio = System.nanoTime();
+        Cliente[] seleccion = mFiltrar(clientes, filtro);
+        Files.createDirectories(carpeta);
+        long bytes = 0;
+        for (int f = 0; f < fragmentos; f++) {
+            int desde = (int) ((long) seleccion.length * f / fragmentos);
+            int hasta = (int) ((long) seleccion.length * (f + 1) / fragmentos);
+            String nombre = String.format("facturas_%d_%02d%s.txt", anio, mes, fragmentos == 1 ? "" : "_" + (f + 1));
+            try (FileChannel canal = FileChannel.open(carpeta.resolve(nombre), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                bytes += mEscribirEnCanal(seleccion, desde, hasta, anio, mes, catalogo, canal);
+            }
+        }
+        return new ResultadoRenderizadoFacturas(seleccion.length, fragmentos, bytes, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Escribe en un canal, en UTF-8, las facturas de una parte de los clientes.
+     */
+    private long mEscribirEnCanal(Cliente[] clientes, int desde, int hasta, int anio, int mes,
+                                  CatalogoTarifas catalogo, WritableByteChannel destino) throws IOException {
+        CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate(TAMANO_BUFFER_BYTES);
+        long[] escritos = new long[1];
+        Cliente[] parte = (desde == 0 && hasta == clientes.length) ? clientes : Arrays.copyOfRange(clientes, desde, hasta);
+        mGenerarEnOrden(parte, anio, mes, catalogo, bloque -> escritos[0] += bloque.mEscribirEn(destino, codificador, bytes));
+        return escritos[0];
+    }
+
+    /**
+     * Recibe, en orden, el texto de cada grupo de facturas ya generado.
+     */
+    @FunctionalInterface
+    private interface SalidaBloques {
+        void mEscribir(BufferTexto bloque) throws IOException;
+    }
+
+    /**
+     * Genera las facturas en paralelo, por grupos, y entrega los grupos a la salida en el orden de los clientes.
+     * Solo hay unos pocos grupos en memoria a la vez; sus buffers se reutilizan.
+     */
+    private void mGenerarEnOrden(Cliente[] clientes, int anio, int mes, CatalogoTarifas catalogo,
+                                 SalidaBloques salida) throws IOException {
+        int porLote = Math.max(1, grupoHilos.getParallelism() * 2);
+        ArrayDeque<BufferTexto> libres = new ArrayDeque<>();
+        for (int primero = 0; primero < clientes.length; primero += porLote * CLIENTES_POR_TAREA) {
+            List<ForkJoinTask<BufferTexto>> tareas = new ArrayList<>(porLote);
+            for (int t = 0; t < porLote; t++) {
+                int desde = primero + t * CLIENTES_POR_TAREA;
+                if (desde >= clientes.length) break;
+                int hasta = Math.min(clientes.length, desde + CLIENTES_POR_TAREA);
+                BufferTexto buffer = libres.isEmpty() ? new BufferTexto(CAPACIDAD_BUFFER) : libres.pop();
+                tareas.add(grupoHilos.submit(() -> {
+                    buffer.mVaciar();
+                    for (int i = desde; i < hasta; i++) {
+                        mEscribirFactura(clientes[i], anio, mes, catalogo, buffer);
+                        buffer.mAgregar('\n');
+                    }
+                    return buffer;
+                }));
+            }
+            for (ForkJoinTask<BufferTexto> tarea : tareas) {
+                BufferTexto bloque = tarea.join();
+                salida.mEscribir(bloque);
+                libres.push(bloque);
+            }
+        }
+    }
+
+    private static Cliente[] mFiltrar(Collection<Cliente> clientes, Predicate<Cliente> filtro) {
+        if (filtro == null) return clientes.toArray(new Cliente[0]);
+        return clientes.stream().filter(filtro).toArray(Cliente[]::new);
+    }
+
+    /**
+     * Escribe el texto de la factura de un cliente al final del buffer.
+     */
+    static void mEscribirFactura(Cliente cliente, int anio, int mes, CatalogoTarifas catalogo, BufferTexto factura) {
+        Lock lectura = cliente.mCandado().readLock(); // Nadie cambia al cliente mientras se escribe su factura.
+        lectura.lock();
+        try {
+            mEscribirFacturaBloqueada(cliente, anio, mes, catalogo, factura);
+        } finally {
+            lectura.unlock();
+        }
+    }
+
+    private static void mEscribirFacturaBloqueada(Cliente cliente, int anio, int mes, CatalogoTarifas catalogo, BufferTexto factura) {
+        factura.mAgregar("========================================\n");
+        factura.mAgregar("         FACTURA DE CONSUMO ELÉCTRICO\n");
+        factura.mAgregar("========================================\n");
+        factura.mAgregar("Cliente: ").mAgregar(cliente.mGetNumeroIdentificacion()).mAgregar(" (").mAgregar(cliente.mGetTipoIdentificacion()).mAgregar(")\n");
+        factura.mAgregar("Correo: ").mAgregar(cliente.mGetCorreoElectronico()).mAgregar("\n");
+        factura.mAgregar("Dirección: ").mAgregar(cliente.mGetDireccionFisica()).mAgregar("\n");
+        factura.mAgregar("Periodo Facturado: ").mDosDigitos(mes).mAgregar('/').mEntero(anio).mAgregar("\n");
+        factura.mAgregar("----------------------------------------\n");
+        factura.mAgregar("Detalle de Consumos por Medidor:\n");
+
+        double totalKWhGeneralCliente = 0;
+        double valorTotalFacturaCliente = 0;
+
+        List<Registrador> registradores = cliente.mGetRegistradores();
+        if (registradores.isEmpty()) {
+            factura.mAgregar("\n  ** Este cliente no tiene medidores de energía asociados. **\n");
+        }
+
+        for (Registrador registrador : registradores) {
+            factura.mAgregar("\n  Medidor ID: ").mAgregar(registrador.mGetNumeroIdentificacion()).mAgregar("\n");
+            factura.mAgregar("  Ubicación: ").mAgregar(registrador.mGetDireccion()).mAgregar(", ").mAgregar(registrador.mGetCiudad()).mAgregar("\n");
+
+            // Calcula el consumo y costo de este medidor para el periodo de la factura.
+            FacturaMedidor facturaMedidor = MotorFacturacionFlota.mFacturarMedidor(registrador, anio, mes, catalogo);
+            if (facturaMedidor == null) {
+                factura.mAgregar("    - Consumos para el periodo ").mEntero(mes).mAgregar('/').mEntero(anio)
+                       .mAgregar(" no están cargados actualmente para este medidor.\n");
+                continue; // Pasa al siguiente medidor.
+            }
+            factura.mAgregar("    Consumo Total del Medidor: ").mDecimal2(facturaMedidor.mGetTotalKWh()).mAgregar(" kWh\n");
+            factura.mAgregar("    Valor Total del Medidor: ").mDecimal2(facturaMedidor.mGetTotalValor()).mAgregar(" COP\n");
+
+            totalKWhGeneralCliente += facturaMedidor.mGetTotalKWh();
+            valorTotalFacturaCliente += facturaMedidor.mGetTotalValor();
+        }
+
+        factura.mAgregar("----------------------------------------\n");
+        factura.mAgregar("CONSUMO TOTAL GENERAL DEL CLIENTE: ").mDecimal2(totalKWhGeneralCliente).mAgregar(" kWh\n");
+        factura.mAgregar("VALOR TOTAL A PAGAR POR EL CLIENTE: ").mDecimal2(valorTotalFacturaCliente).mAgregar(" COP\n");
+        factura.mAgregar("========================================\n");
+    }
+}
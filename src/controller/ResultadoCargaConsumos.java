@@ -0,0 +1,146 @@
+package controller;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resultado de cargar uno o varios archivos de consumos: cuántas filas se leyeron, cuántas se
+ * guardaron y cuántas se rechazaron (con algunos ejemplos del motivo), cuánto tardó la carga y
+ * qué meses quedaron modificados.
+ */
+public class ResultadoCargaConsumos {
+
+    /** Cantidad máxima de ejemplos de filas rechazadas que se guardan. */
+    static final int MAXIMO_EJEMPLOS_RECHAZO = 20;
+
+    private final int archivos;
+    private final long filasLeidas;
+    private final long filasAceptadas;
+    private final long filasRechazadas;
+    private final long nanosegundos;
+    private final List<String> ejemplosRechazo;
+    private final Set<YearMonth> periodosAfectados;
+
+    /**
+     * Crea el resultado de una carga.
+     *
+     * @param archivos Cuántos archivos se procesaron.
+     * @param filasLeidas Cuántas filas de datos se leyeron (sin contar encabezados ni líneas vacías).
+     * @param filasAceptadas Cuántas filas se guardaron en los medidores.
+     * @param filasRechazadas Cuántas filas no se pudieron guardar.
+     * @param nanosegundos Cuánto tardó la carga completa.
+     * @param ejemplosRechazo Algunos ejemplos de filas rechazadas, con el motivo.
+     * @param periodosAfectados Los meses en que se guardó al menos un consumo.
+     */
+    public ResultadoCargaConsumos(int archivos, long filasLeidas, long filasAceptadas, long filasRechazadas,
+                                  long nanosegundos, List<String> ejemplosRechazo, Set<YearMonth> periodosAfectados) {
+        this.archivos = archivos;
+        this.filasLeidas = filasLeidas;
+        this.filasAceptadas = filasAceptadas;
+        this.filasRechazadas = filasRechazadas;
+        this.nanosegundos = nanosegundos;
+        this.ejemplosRechazo = Collections.unmodifiableList(new ArrayList<>(ejemplosRechazo));
+        this.periodosAfectados = Collections.unmodifiableSet(new TreeSet<>(periodosAfectados));
+    }
+
+    /**
+     * Devuelve cuántos archivos se procesaron.
+     * @return La cantidad de archivos.
+     */
+    public int mGetArchivos() {
+        return archivos;
+    }
+
+    /**
+     * Devuelve cuántas filas de datos se leyeron.
+     * @return La cantidad de filas leídas.
+     */
+    public long mGetFilasLeidas() {
+        return filasLeidas;
+    }
+
+    /**
+     * Devuelve cuántas filas se guardaron en los medidores.
+     * @return La cantidad de filas aceptadas.
+     */
+    public long mGetFilasAceptadas() {
+        return filasAceptadas;
+    }
+
+    /**
+     * Devuelve cuántas filas se rechazaron (formato inválido, medidor inexistente, fecha fuera de rango, etc.).
+     * @return La cantidad de filas rechazadas.
+     */
+    public long mGetFilasRechazadas() {
+        return filasRechazadas;
+    }
+
+    /**
+     * Devuelve cuánto tardó la carga.
+     * @return El tiempo en milisegundos.
+     */
+    public long mGetMilisegundos() {
+        return nanosegundos / 1_000_000;
+    }
+
+    /**
+     * Devuelve la velocidad de la carga.
+     * @return Las filas leídas por segundo.
+     */
+    public double mGetFilasPorSegundo() {
+        return nanosegundos == 0 ? 0 : filasLeidas * 1e9 / nanosegundos;
+    }
+
+    /**
+     * Devuelve algunos ejemplos de filas rechazadas (como máximo {@value #MAXIMO_EJEMPLOS_RECHAZO}),
+     * con el archivo, la línea y el motivo.
+     * @return Una lista no modificable de mensajes.
+     */
+    public List<String> mGetEjemplosRechazo() {
+        return ejemplosRechazo;
+    }
+
+    /**
+     * Devuelve los meses en que se guardó al menos un consumo.
+     * @return Un conjunto no modificable, ordenado, de meses.
+     */
+    public Set<YearMonth> mGetPeriodosAfectados() {
+        return periodosAfectados;
+    }
+
+    /**
+     * Devuelve este resultado sumándole filas que se rechazaron antes de intentar guardarlas (por ejemplo,
+     * las filas mal escritas de un lote CSV). Sus motivos quedan primero entre los ejemplos.
+     *
+     * @param motivos El motivo de cada fila rechazada.
+     * @return Un resultado nuevo con esas filas contadas como leídas y rechazadas (este mismo si no hay ninguna).
+     */
+    public ResultadoCargaConsumos mSumarRechazadas(List<String> motivos) {
+        if (motivos.isEmpty()) return this;
+        List<String> ejemplos = new ArrayList<>();
+        for (String ejemplo : motivos) {
+            if (ejemplos.size() == MAXIMO_EJEMPLOS_RECHAZO) break;
+            ejemplos.add(ejemplo);
+        }
+        for (String ejemplo : ejemplosRechazo) {
+            if (ejemplos.size() == MAXIMO_EJEMPLOS_RECHAZO) break;
+            ejemplos.add(ejemplo);
+        }
+        return new ResultadoCargaConsumos(archivos, filasLeidas + motivos.size(), filasAceptadas,
+                filasRechazadas + motivos.size(), nanosegundos, ejemplos, periodosAfectados);
+    }
+
+    /**
+     * Devuelve un texto con el resumen de la carga.
+     * @return Una cadena de texto con los contadores.
+     */
+    @Override
+    public String toString() {
+        return String.format("Archivos: %d, Filas leídas: %d, Aceptadas: %d, Rechazadas: %d, Tiempo: %d ms (%.0f filas/s)",
+                archivos, filasLeidas, filasAceptadas, filasRechazadas, mGetMilisegundos(), mGetFilasPorSegundo());
+    }
+}
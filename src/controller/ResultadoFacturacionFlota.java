@@ -0,0 +1,224 @@
+package controller;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de facturar a toda la flota (o a un grupo de clientes) para un mes y año.
+ * Tiene el total de cada cliente, el total de cada uno de sus medidores y el gran total.
+ * Los clientes aparecen en el mismo orden en que se facturaron.
+ */
+public class ResultadoFacturacionFlota {
+
+    /** Año facturado. */
+    private final int anio;
+    /** Mes (1-12) facturado. */
+    private final int mes;
+    /** Facturas de cada cliente, en orden. */
+    private final List<FacturaCliente> facturasClientes;
+    /** Suma de los kWh de todos los clientes. */
+    private final double totalKWh;
+    /** Suma del valor (COP) de todos los clientes. */
+    private final double totalValor;
+    /** Cuántos clientes tenían datos para el periodo. */
+    private final int clientesConDatos;
+
+    /**
+     * Crea el resultado a partir de las facturas de cada cliente.
+     * Los totales se suman en el orden de la lista, para que siempre den exactamente lo mismo.
+     *
+     * @param anio El año facturado.
+     * @param mes El mes facturado.
+     * @param facturasClientes Las facturas de cada cliente, en orden.
+     */
+    public ResultadoFacturacionFlota(int anio, int mes, List<FacturaCliente> facturasClientes) {
+        this.anio = anio;
+        this.mes = mes;
+        this.facturasClientes = Collections.unmodifiableList(facturasClientes);
+        double sumaKWh = 0;
+        double sumaValor = 0;
+        int conDatos = 0;
+        for (FacturaCliente factura : facturasClientes) {
+            if (factura.mTieneDatos()) {
+                sumaKWh += factura.mGetTotalKWh();
+                sumaValor += factura.mGetTotalValor();
+                conDatos++;
+            }
+        }
+        this.totalKWh = sumaKWh;
+        this.totalValor = sumaValor;
+        this.clientesConDatos = conDatos;
+    }
+
+    /**
+     * Devuelve el año facturado.
+     * @return El año facturado.
+     */
+    public int mGetAnio() {
+        return anio;
+    }
+
+    /**
+     * Devuelve el mes (1-12) facturado.
+     * @return El mes (1-12) facturado.
+     */
+    public int mGetMes() {
+        return mes;
+    }
+
+    /**
+     * Devuelve las facturas de cada cliente, en orden.
+     * @return Las facturas de cada cliente, en orden (lista no modificable).
+     */
+    public List<FacturaCliente> mGetFacturasClientes() {
+        return facturasClientes;
+    }
+
+    /**
+     * Devuelve la suma de los kWh de toda la flota.
+     * @return La suma de los kWh de toda la flota.
+     */
+    public double mGetTotalKWh() {
+        return totalKWh;
+    }
+
+    /**
+     * Devuelve la suma del valor (COP) de toda la flota.
+     * @return La suma del valor (COP) de toda la flota.
+     */
+    public double mGetTotalValor() {
+        return totalValor;
+    }
+
+    /**
+     * Devuelve cuántos clientes tenían datos cargados para el periodo.
+     * @return Cuántos clientes tenían datos cargados para el periodo.
+     */
+    public int mGetClientesConDatos() {
+        return clientesConDatos;
+    }
+
+    /**
+     * Totales de un cliente y de cada uno de sus medidores.
+     */
+    public static class FacturaCliente {
+
+        /** ID del cliente. */
+        private final String idCliente;
+        /** Facturas de los medidores que tenían datos, en orden. */
+        private final List<FacturaMedidor> facturasMedidores;
+        /** Suma de los kWh de sus medidores. */
+        private final double totalKWh;
+        /** Suma del valor (COP) de sus medidores. */
+        private final double totalValor;
+
+        /**
+         * Crea la factura de un cliente. Los totales se suman en el orden de la lista.
+         *
+         * @param idCliente El ID del cliente.
+         * @param facturasMedidores Las facturas de sus medidores con datos, en orden.
+         */
+        public FacturaCliente(String idCliente, List<FacturaMedidor> facturasMedidores) {
+            this.idCliente = idCliente;
+            this.facturasMedidores = Collections.unmodifiableList(facturasMedidores);
+            double sumaKWh = 0;
+            double sumaValor = 0;
+            for (FacturaMedidor factura : facturasMedidores) {
+                sumaKWh += factura.mGetTotalKWh();
+                sumaValor += factura.mGetTotalValor();
+            }
+            this.totalKWh = sumaKWh;
+            this.totalValor = sumaValor;
+        }
+
+        /**
+         * Devuelve el ID del cliente.
+         * @return El ID del cliente.
+         */
+        public String mGetIdCliente() {
+            return idCliente;
+        }
+
+        /**
+         * Devuelve las facturas de sus medidores que tenían datos.
+         * @return Las facturas de sus medidores que tenían datos (lista no modificable).
+         */
+        public List<FacturaMedidor> mGetFacturasMedidores() {
+            return facturasMedidores;
+        }
+
+        /**
+         * Indica si al menos uno de sus medidores tenía datos para el periodo.
+         * @return true si al menos uno de sus medidores tenía datos para el periodo.
+         */
+        public boolean mTieneDatos() {
+            return !facturasMedidores.isEmpty();
+        }
+
+        /**
+         * Devuelve la suma de los kWh del cliente.
+         * @return La suma de los kWh del cliente.
+         */
+        public double mGetTotalKWh() {
+            return totalKWh;
+        }
+
+        /**
+         * Devuelve la suma del valor (COP) del cliente.
+         * @return La suma del valor (COP) del cliente.
+         */
+        public double mGetTotalValor() {
+            return totalValor;
+        }
+    }
+
+    /**
+     * Totales de un medidor para el periodo.
+     */
+    public static class FacturaMedidor {
+
+        /** ID del medidor. */
+        private final String idRegistrador;
+        /** kWh consumidos en el periodo. */
+        private final double totalKWh;
+        /** Valor (COP) del consumo del periodo. */
+        private final double totalValor;
+
+        /**
+         * Crea la factura de un medidor.
+         *
+         * @param idRegistrador El ID del medidor.
+         * @param totalKWh Los kWh del periodo.
+         * @param totalValor El valor en COP del periodo.
+         */
+        public FacturaMedidor(String idRegistrador, double totalKWh, double totalValor) {
+            this.idRegistrador = idRegistrador;
+            this.totalKWh = totalKWh;
+            this.totalValor = totalValor;
+        }
+
+        /**
+         * Devuelve el ID del medidor.
+         * @return El ID del medidor.
+         */
+        public String mGetIdRegistrador() {
+            return idRegistrador;
+        }
+
+        /**
+         * Devuelve los kWh del periodo.
+         * @return Los kWh del periodo.
+         */
+        public double mGetTotalKWh() {
+            return totalKWh;
+        }
+
+        /**
+         * Devuelve el valor (COP) del periodo.
+         * @return El valor (COP) del periodo.
+         */
+        public double mGetTotalValor() {
+            return totalValor;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package controller;
+
+/**
+ * Resultado de generar un lote de facturas: cuántas facturas se escribieron, en cuántos archivos,
+ * cuánto ocuparon y cuánto tardó.
+ */
+public class ResultadoRenderizadoFacturas {
+
+    private final int facturas;
+    private final int archivos;
+    private final long bytes;
+    private final long nanosegundos;
+
+    /**
+     * Crea el resultado de un lote.
+     *
+     * @param facturas Cuántas facturas se escribieron.
+     * @param archivos En cuántos archivos (0 si se escribió en un Writer o canal ya abierto).
+     * @param bytes Cuántos bytes se escribieron (caracteres, si se escribió en un Writer).
+     * @param nanosegundos Cuánto tardó.
+     */
+    public ResultadoRenderizadoFacturas(int facturas, int archivos, long bytes, long nanosegundos) {
+        this.facturas = facturas;
+        this.archivos = archivos;
+        this.bytes = bytes;
+        this.nanosegundos = nanosegundos;
+    }
+
+    /**
+     * Devuelve cuántas facturas se escribieron.
+     * @return La cantidad de facturas.
+     */
+    public int mGetFacturas() {
+        return facturas;
+    }
+
+    /**
+     * Devuelve en cuántos archivos se escribieron las facturas.
+     * @return La cantidad de archivos (0 si se escribió en un destino ya abierto).
+     */
+    public int mGetArchivos() {
+        return archivos;
+    }
+
+    /**
+     * Devuelve cuánto ocupan las facturas escritas.
+     * @return Los bytes escritos (o caracteres, si se escribió en un Writer).
+     */
+    public long mGetBytes() {
+        return bytes;
+    }
+
+    /**
+     * Devuelve cuánto tardó el lote.
+     * @return El tiempo en milisegundos.
+     */
+    public long mGetMilisegundos() {
+        return nanosegundos / 1_000_000;
+    }
+
+    /**
+     * Devuelve la velocidad del lote.
+     * @return Las facturas escritas por segundo.
+     */
+    public double mGetFacturasPorSegundo() {
+        return nanosegundos == 0 ? 0 : facturas * 1e9 / nanosegundos;
+    }
+
+    /**
+     * Devuelve un texto con el resumen del lote.
+     * @return Una cadena de texto con los contadores.
+     */
+    @Override
+    public String toString() {
+        return String.format("Facturas: %d, Archivos: %d, Tamaño: %d bytes, Tiempo: %d ms (%.0f facturas/s)",
+                facturas, archivos, bytes, mGetMilisegundos(), mGetFacturasPorSegundo());
+    }
+}
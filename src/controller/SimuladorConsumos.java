@@ -0,0 +1,157 @@
+package controller;
+
+import model.CatalogoTarifas;
+import model.PerfilConsumo;
+import model.Registrador;
+import model.TablaTarifas;
+
+import java.time.DayOfWeek;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Simula los consumos hora por hora de muchos medidores a la vez, repartiéndolos entre los hilos de un
+ * {@link ForkJoinPool}. Se usa para llenar el sistema con datos de prueba (por ejemplo, en pruebas de capacidad).
+ *
+ * La simulación es reproducible: los medidores se dividen en particiones fijas de
+ * {@value #MEDIDORES_POR_PARTICION}, y cada partición usa su propio {@link SplittableRandom}, derivado en
+ * orden de la semilla general. Con la misma semilla, los mismos medidores y el mismo perfil se obtienen
+ * exactamente los mismos consumos, sin importar cuántos hilos se usen.
+ *
+ * Cada mes de cada medidor se genera completo en un arreglo y se copia de una vez al almacén del medidor.
+ * El simulador no toma los candados de los clientes: quien lo llama debe tener tomados los de escritura
+ * de los clientes dueños de los medidores (ver {@link model.CandadosClientes}).
+ */
+public class SimuladorConsumos {
+
+    /** Cantidad de medidores de cada partición (cada una tiene su propio generador de números al azar). */
+    private static final int MEDIDORES_POR_PARTICION = 64;
+
+    /** Grupo de hilos donde se ejecuta la simulación. */
+    private final ForkJoinPool grupoHilos;
+
+    /**
+     * Crea un simulador que usa el grupo de hilos común de Java (un hilo por núcleo).
+     */
+    public SimuladorConsumos() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un simulador que usa el grupo de hilos indicado.
+     * @param grupoHilos El grupo de hilos donde se simula.
+     */
+    public SimuladorConsumos(ForkJoinPool grupoHilos) {
+        if (grupoHilos == null) {
+            throw new IllegalArgumentException("El grupo de hilos es obligatorio.");
+        }
+        this.grupoHilos = grupoHilos;
+    }
+
+    /**
+     * Simula uno o varios meses seguidos para todos los medidores indicados. Los meses simulados
+     * reemplazan los que tuviera cada medidor; los demás meses no se tocan.
+     *
+     * @param medidores Los medidores, en un orden fijo (el orden forma parte de la semilla).
+     * @param anio El año del primer mes.
+     * @param mes El primer mes (1 a 12).
+     * @param meses Cuántos meses seguidos se simulan (al menos 1).
+     * @param catalogo Las tarifas: en cada hora se simula dentro del rango de kWh de la franja general vigente.
+     * @param perfil El perfil de consumo.
+     * @param semilla La semilla general de la simulación.
+     * @return Cuántos meses de medidor (medidor x mes) se generaron.
+     * @throws IllegalArgumentException Si la cantidad de meses no es válida o algún periodo está fuera del rango permitido.
+     */
+    public long mSimular(List<Registrador> medidores, int anio, int mes, int meses,
+                         CatalogoTarifas catalogo, PerfilConsumo perfil, long semilla) {
+        if (meses < 1) {
+            throw new IllegalArgumentException("Se debe simular al menos un mes.");
+        }
+        if (perfil == null) {
+            throw new IllegalArgumentException("El perfil de consumo es obligatorio.");
+        }
+        MesSimulado[] periodos = new MesSimulado[meses];
+        YearMonth periodo = YearMonth.of(anio, mes);
+        for (int i = 0; i < meses; i++, periodo = periodo.plusMonths(1)) {
+            periodos[i] = new MesSimulado(periodo, catalogo.mTablaGeneral(periodo.getYear(), periodo.getMonthValue()));
+        }
+
+        // Los generadores se derivan en orden, antes de repartir el trabajo: así no dependen de los hilos.
+        Registrador[] arreglo = medidores.toArray(new Registrador[0]);
+        SplittableRandom raiz = new SplittableRandom(semilla);
+        List<ForkJoinTask<?>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < arreglo.length; desde += MEDIDORES_POR_PARTICION) {
+            int inicio = desde;
+            int fin = Math.min(arreglo.length, desde + MEDIDORES_POR_PARTICION);
+            SplittableRandom aleatorio = raiz.split();
+            tareas.add(grupoHilos.submit(() -> mSimularParticion(arreglo, inicio, fin, periodos, perfil, aleatorio)));
+        }
+        for (ForkJoinTask<?> tarea : tareas) {
+            tarea.join();
+        }
+        return (long) arreglo.length * meses;
+    }
+
+    /**
+     * Simula todos los meses de los medidores de una partición, con el generador de esa partición.
+     */
+    private static void mSimularParticion(Registrador[] medidores, int desde, int hasta, MesSimulado[] periodos,
+                                          PerfilConsumo perfil, SplittableRandom aleatorio) {
+        double[] valores = new double[31 * 24]; // Se reutiliza para todos los meses de la partición.
+        double ruido = perfil.mGetRuido();
+        for (int m = desde; m < hasta; m++) {
+            for (MesSimulado periodo : periodos) {
+                int i = 0;
+                for (int d = 0; d < periodo.dias; d++) {
+                    double factor = perfil.mFactorDia(periodo.mes, periodo.finDeSemana[d]);
+                    for (int h = 0; h < 24; h++) {
+                        double valor = (periodo.minimo[h] + aleatorio.nextDouble() * periodo.rango[h]) * factor;
+                        if (ruido > 0) {
+                            valor = Math.max(0.0, valor * (1.0 + ruido * aleatorio.nextGaussian()));
+                        }
+                        valores[i++] = valor;
+                    }
+                }
+                medidores[m].mCargarConsumosMes(periodo.anio, periodo.mes, valores);
+            }
+        }
+    }
+
+    /**
+     * Lo que se calcula una sola vez por mes simulado: los días que son fin de semana y,
+     * para cada hora, el mínimo y el ancho del rango de kWh de su franja.
+     */
+    private static final class MesSimulado {
+        private final int anio;
+        private final int mes;
+        private final int dias;
+        private final boolean[] finDeSemana;
+        private final double[] minimo = new double[24];
+        private final double[] rango = new double[24];
+
+        MesSimulado(YearMonth periodo, TablaTarifas tarifas) {
+            this.anio = periodo.getYear();
+            this.mes = periodo.getMonthValue();
+            this.dias = periodo.lengthOfMonth();
+            this.finDeSemana = new boolean[dias];
+            for (int d = 0; d < dias; d++) {
+                DayOfWeek diaSemana = periodo.atDay(d + 1).getDayOfWeek();
+                finDeSemana[d] = diaSemana == DayOfWeek.SATURDAY || diaSemana == DayOfWeek.SUNDAY;
+            }
+            for (int h = 0; h < 24; h++) {
+                double minimoHora = tarifas.mKWhMinimoHora(h);
+                double maximoHora = tarifas.mKWhMaximoHora(h);
+                if (Double.isInfinite(maximoHora)) {
+                    maximoHora = minimoHora * 2; // Franja sin tope: se simula hasta el doble del mínimo.
+                }
+                // Si la hora no corresponde a ninguna franja, mínimo y máximo son 0 y se simula 0.
+                minimo[h] = minimoHora;
+                rango[h] = maximoHora - minimoHora;
+            }
+        }
+    }
+}
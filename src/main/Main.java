@@ -1,26 +1,191 @@
 package main;
 
+import controller.Controlador;
+import model.AlmacenMapeado;
+import model.PrecisionConsumos;
+import view.ServidorHttp;
 import view.Vista;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+
 /**
  * Esta es la clase que da inicio a toda la aplicación de gestión de consumo eléctrico.
  * Su única tarea es crear la "Vista" (la interfaz con el usuario) y ponerla en marcha.
  */
 public class Main {
 
+    /** Años que cubre un almacén mapeado nuevo (desde 5 años atrás hasta 5 adelante). */
+    private static final int ANIOS_ALMACEN = 11;
+    /** Cantidad máxima de medidores de un almacén mapeado nuevo. */
+    private static final int CAPACIDAD_ALMACEN = 100_000;
+    /** Prefijo del argumento que indica el archivo de tarifas. */
+    private static final String OPCION_TARIFAS = "--tarifas=";
+    /**
+     * Prefijo del argumento que indica el archivo de instantánea (se carga al iniciar y se guarda al salir).
+     * Junto a ella se lleva la bitácora de cambios, para no perder nada si la aplicación se cierra sin salir del menú.
+     */
+    private static final String OPCION_INSTANTANEA = "--instantanea=";
+    /** Prefijo del argumento que indica el puerto donde se atiende la API HTTP/JSON. */
+    private static final String OPCION_HTTP = "--http=";
+    /** Argumento para atender solo la API HTTP, sin el menú de consola (hasta que se detenga el proceso). */
+    private static final String OPCION_SIN_MENU = "--sin-menu";
+    /** Prefijo del argumento que indica con qué precisión se guardan los consumos en memoria ("doble" o "simple"). */
+    private static final String OPCION_PRECISION = "--precision=";
+    /** Segundos que se espera a las peticiones HTTP en curso al cerrar. */
+    private static final int ESPERA_CIERRE_HTTP = 5;
+
     /**
      * El método que se ejecuta cuando arranca el programa.
-     * @param args Argumentos que se le pueden pasar al programa desde la línea de comandos (no los usamos aquí).
+     * @param args Argumentos de la línea de comandos. Si se pasa una ruta de archivo, los consumos
+     *             se guardan en ese archivo mapeado en memoria (y se conservan entre ejecuciones).
+     *             Con {@code --tarifas=<ruta>} se factura con los planes de ese archivo de tarifas.
+     *             Con {@code --instantanea=<ruta>} se recupera el estado guardado en ese archivo al iniciar
+     *             (si existe), se aplican los cambios anotados en su bitácora, cada cambio se anota
+     *             en la bitácora y al salir se vuelve a guardar todo en la instantánea.
+     *             Con {@code --http=<puerto>} se atiende además la API HTTP/JSON en ese puerto (ver {@link ServidorHttp});
+     *             con {@code --sin-menu}, solo la API, hasta que se detenga el proceso (por ejemplo, con Ctrl+C).
+     *             Con {@code --precision=simple} los consumos en memoria se guardan como float, en la mitad de
+     *             memoria (por defecto, {@code --precision=doble}).
      */
     public static void main(String[] args) {
         System.out.println("Iniciando la Aplicación de Gestión de Energía Eléctrica...");
         System.out.println("Bienvenido al sistema para Clientes No Regulados.\n");
-        
+
+        String rutaAlmacen = null;
+        String rutaTarifas = null;
+        String rutaInstantanea = null;
+        String puertoHttp = null;
+        boolean sinMenu = false;
+        PrecisionConsumos precision = PrecisionConsumos.DOBLE;
+        for (String argumento : args) {
+            if (argumento.startsWith(OPCION_HTTP)) {
+                puertoHttp = argumento.substring(OPCION_HTTP.length());
+            } else if (argumento.equals(OPCION_SIN_MENU)) {
+                sinMenu = true;
+            } else if (argumento.startsWith(OPCION_TARIFAS)) {
+                rutaTarifas = argumento.substring(OPCION_TARIFAS.length());
+            } else if (argumento.startsWith(OPCION_PRECISION)) {
+                try {
+                    precision = PrecisionConsumos.mDesdeNombre(argumento.substring(OPCION_PRECISION.length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage() + " Se usará la precisión doble.");
+                }
+            } else if (argumento.startsWith(OPCION_INSTANTANEA)) {
+                rutaInstantanea = argumento.substring(OPCION_INSTANTANEA.length());
+            } else {
+                rutaAlmacen = argumento;
+            }
+        }
+
+        AlmacenMapeado almacen = null;
+        if (rutaAlmacen != null) {
+            try {
+                almacen = AlmacenMapeado.mAbrir(Path.of(rutaAlmacen), Year.now().getValue() - 5, ANIOS_ALMACEN, CAPACIDAD_ALMACEN);
+                System.out.println("Usando el almacén de consumos en el archivo: " + rutaAlmacen);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo abrir el almacén de consumos (" + e.getMessage() + "). Se usará la memoria.");
+            }
+        }
+
+        Controlador controlador = new Controlador(almacen, precision);
+        if (precision != PrecisionConsumos.DOBLE && almacen == null) {
+            System.out.println("Guardando los consumos en memoria con precisión " + precision.name().toLowerCase()
+                    + " (" + precision.mBytesPorHora() + " bytes por hora).");
+        }
+        if (rutaTarifas != null) {
+            try {
+                controlador.mCargarTarifas(Path.of(rutaTarifas));
+                System.out.println("Usando las tarifas del archivo: " + rutaTarifas);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudieron cargar las tarifas (" + e.getMessage() + "). Se usarán las del proyecto.");
+            }
+        }
+
+        boolean persistenciaActiva = false;
+        if (rutaInstantanea != null) {
+            try {
+                long inicio = System.nanoTime();
+                boolean habiaInstantanea = Files.exists(Path.of(rutaInstantanea));
+                long cambios = controlador.mActivarPersistencia(Path.of(rutaInstantanea));
+                persistenciaActiva = true;
+                if (habiaInstantanea || cambios > 0) {
+                    System.out.println("Se recuperaron " + controlador.mGetClientes().size() + " clientes de la instantánea "
+                            + rutaInstantanea + " y " + cambios + " cambios de la bitácora (en "
+                            + (System.nanoTime() - inicio) / 1_000_000 + " ms).");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo recuperar el estado guardado (" + e.getMessage() + "). Los cambios no se guardarán.");
+            }
+        }
+
+        try {
+            controlador.mGetMetricas().mPublicarEnJmx(); // Para verlas con JConsole o VisualVM.
+        } catch (RuntimeException e) {
+            System.err.println("No se pudieron publicar las métricas por JMX (" + e.getMessage() + ").");
+        }
+
+        ServidorHttp servidor = null;
+        if (puertoHttp != null) {
+            try {
+                servidor = new ServidorHttp(controlador, Integer.parseInt(puertoHttp));
+                servidor.mIniciar();
+                System.out.println("API HTTP escuchando en http://localhost:" + servidor.mGetPuerto() + "/api ("
+                        + (servidor.mUsaHilosVirtuales() ? "hilos virtuales" : "grupo fijo de hilos") + ").");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo iniciar la API HTTP en el puerto " + puertoHttp + " (" + e.getMessage() + ").");
+                servidor = null;
+            }
+        }
+
+        String rutaFinal = rutaInstantanea;
+        boolean guardarAlCerrar = persistenciaActiva;
+        ServidorHttp servidorFinal = servidor;
+        AlmacenMapeado almacenFinal = almacen;
+        if (sinMenu && servidor != null) {
+            // Sin menú, el proceso sigue vivo mientras el servidor atienda; se cierra todo al detenerlo.
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    mCerrar(controlador, servidorFinal, guardarAlCerrar, rutaFinal, almacenFinal)));
+            System.out.println("Atendiendo solo la API HTTP. Presione Ctrl+C para detener.");
+            return;
+        }
+
         // Creamos la Vista, que es la que interactuará con el usuario.
-        Vista interfazDeUsuario = new Vista(); 
+        Vista interfazDeUsuario = new Vista(controlador);
         // Le decimos a la Vista que comience a mostrar el menú y a funcionar.
-        interfazDeUsuario.mIniciar(); 
-        
+        interfazDeUsuario.mIniciar();
+
+        mCerrar(controlador, servidorFinal, guardarAlCerrar, rutaFinal, almacenFinal);
+    }
+
+    /**
+     * Detiene la API HTTP (si se inició), guarda el estado (si la persistencia está activada) y cierra el almacén.
+     */
+    private static void mCerrar(Controlador controlador, ServidorHttp servidor, boolean persistenciaActiva,
+                                String rutaInstantanea, AlmacenMapeado almacen) {
+        if (servidor != null) {
+            servidor.mDetener(ESPERA_CIERRE_HTTP); // Antes de guardar, para que no lleguen más cambios.
+        }
+
+        if (persistenciaActiva) {
+            try {
+                controlador.mCerrarPersistencia(); // Guarda todo en la instantánea y vacía la bitácora.
+                System.out.println("Estado guardado en " + rutaInstantanea + " (" + Files.size(Path.of(rutaInstantanea)) + " bytes).");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error al guardar la instantánea (los cambios siguen en la bitácora): " + e.getMessage());
+            }
+        }
+
+        if (almacen != null) {
+            try {
+                almacen.close(); // Deja los consumos guardados en disco.
+            } catch (IOException e) {
+                System.err.println("Error al cerrar el almacén de consumos: " + e.getMessage());
+            }
+        }
+
         System.out.println("\nGracias por usar la aplicación. ¡Que tengas un buen día!");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Totales de un mes de un medidor que se mantienen al día con cada escritura, para no tener
+ * que recorrer todo el mes cada vez que se consulta (ver {@link Registrador#mGetResumen(int, int, CatalogoTarifas)}).
+ *
+ * Se arma recorriendo el mes una sola vez, y guarda los totales de cada día (consumo, costo, franjas, horas
+ * con consumo, mínimo y máximo). Cuando cambia un consumo no se resta el valor anterior (los redondeos se
+ * irían acumulando): se vuelven a leer las 24 horas de ese día y se recalculan sus totales, igual que al
+ * armarlo; los del mes se vuelven a sumar a partir de los de cada día. Así los totales no dependen de la
+ * historia de cambios: son exactamente los mismos que si se armara de nuevo (por ejemplo, al recuperar).
+ *
+ * Los totales dependen de las tarifas y de la ciudad del medidor, así que el agregado recuerda con cuáles
+ * se armó; si alguna cambia, el medidor lo vuelve a armar.
+ *
+ * La distribución de los consumos ({@link HistogramaConsumos}, para los percentiles) se arma aparte, la
+ * primera vez que se pide, porque la facturación no la necesita; desde entonces también se ajusta con cada cambio.
+ */
+final class AgregadoMensual {
+
+    /** Los cálculos con que se procesa cada día (con vectores, si la JVM los tiene). */
+    private static final NucleosConsumo NUCLEOS = NucleosConsumo.mActivos();
+
+    private final int anio;
+    private final int mes;
+    /** Catálogo con que se calcularon el costo y las franjas. */
+    private final CatalogoTarifas catalogo;
+    /** Ciudad del medidor cuando se armó (el costo depende de ella). */
+    private final String ciudad;
+    private final TablaTarifas[] tarifasPorDia;
+    private final TablaTarifas tablaFranjas;
+
+    /** Totales del mes, sumados a partir de los de cada día (ver {@link #mSumarMes()}). */
+    private double totalKWh;
+    private double costo;
+    private int horasRegistradas;
+    private int horasConConsumo;
+    private final double[] consumoPorFranja;
+    private final double[] consumoPorDia;
+    private final double[] costoPorDia;
+    private final int[] horasConConsumoPorDia;
+    /** Consumo de cada franja en cada día: la franja {@code f} del día {@code d} está en {@code (d - 1) * franjas + f}. */
+    private final double[] consumoPorFranjaDia;
+    /** Consumo más bajo de cada día; la posición 0 es el día 1. */
+    private final double[] minimoPorDia;
+    /** Consumo más alto de cada día; la posición 0 es el día 1. */
+    private final double[] maximoPorDia;
+    /**
+     * Distribución de los consumos del mes, o null si todavía no se ha pedido. Se publica ya armada (puede
+     * armarse con el candado de lectura del cliente, desde varios hilos a la vez).
+     */
+    private volatile HistogramaConsumos distribucion;
+    /** Los totales del día que se está sumando (al armarlo o al cambiar un consumo, con el candado de escritura). */
+    private final NucleosConsumo.TotalesDia totalesDia = new NucleosConsumo.TotalesDia();
+    /** El consumo de cada franja del día que se está sumando. */
+    private final double[] franjasDia;
+    /** Las 24 horas del día que se vuelve a leer al cambiar un consumo. */
+    private final double[] horasDia = new double[24];
+
+    private AgregadoMensual(int anio, int mes, CatalogoTarifas catalogo, String ciudad) {
+        this.anio = anio;
+        this.mes = mes;
+        this.catalogo = catalogo;
+        this.ciudad = ciudad;
+        this.tarifasPorDia = catalogo.mTablasDelMes(ciudad, anio, mes);
+        this.tablaFranjas = catalogo.mTablaGeneral(anio, mes);
+        this.consumoPorFranja = new double[tablaFranjas.mGetNombresFranjas().size()];
+        this.consumoPorDia = new double[tarifasPorDia.length];
+        this.costoPorDia = new double[tarifasPorDia.length];
+        this.horasConConsumoPorDia = new int[tarifasPorDia.length];
+        this.consumoPorFranjaDia = new double[tarifasPorDia.length * consumoPorFranja.length];
+        this.franjasDia = new double[consumoPorFranja.length];
+        this.minimoPorDia = new double[tarifasPorDia.length];
+        this.maximoPorDia = new double[tarifasPorDia.length];
+        Arrays.fill(minimoPorDia, Double.POSITIVE_INFINITY);
+        Arrays.fill(maximoPorDia, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Arma el agregado de un mes recorriendo una sola vez los consumos del medidor, día por día: las 24
+     * horas de cada día se procesan en bloque con {@link NucleosConsumo}.
+     *
+     * @param registrador El medidor.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra y se agrupa por franjas.
+     * @return El agregado, o null si el mes no está cargado.
+     */
+    static AgregadoMensual mConstruir(Registrador registrador, int anio, int mes, CatalogoTarifas catalogo) {
+        AgregadoMensual agregado = new AgregadoMensual(anio, mes, catalogo, registrador.mGetCiudad());
+        boolean hayDatos = registrador.mRecorrerDias(anio, mes, agregado::mResumirDia);
+        if (!hayDatos) return null;
+        agregado.horasRegistradas = 24 * agregado.consumoPorDia.length;
+        agregado.mSumarMes();
+        return agregado;
+    }
+
+    /**
+     * Calcula (o vuelve a calcular) los totales de un día a partir de sus 24 consumos.
+     */
+    private void mResumirDia(int dia, double[] kWh, int desde) {
+        int d = dia - 1;
+        Arrays.fill(franjasDia, 0);
+        NUCLEOS.mResumirDia(kWh, desde, tarifasPorDia[d], tablaFranjas, franjasDia, totalesDia);
+        consumoPorDia[d] = totalesDia.suma; // Los consumos no son negativos: sumar todos es sumar los que tienen consumo.
+        costoPorDia[d] = totalesDia.costo;
+        horasConConsumoPorDia[d] = totalesDia.horasConConsumo;
+        minimoPorDia[d] = totalesDia.minimo;
+        maximoPorDia[d] = totalesDia.maximo;
+        System.arraycopy(franjasDia, 0, consumoPorFranjaDia, d * franjasDia.length, franjasDia.length);
+    }
+
+    /**
+     * Suma los totales del mes a partir de los de cada día, siempre en el mismo orden (del día 1 al último).
+     */
+    private void mSumarMes() {
+        double kWh = 0;
+        double cobrado = 0;
+        int horas = 0;
+        Arrays.fill(consumoPorFranja, 0);
+        int franjas = consumoPorFranja.length;
+        for (int d = 0; d < consumoPorDia.length; d++) {
+            kWh += consumoPorDia[d];
+            cobrado += costoPorDia[d];
+            horas += horasConConsumoPorDia[d];
+            for (int f = 0; f < franjas; f++) {
+                consumoPorFranja[f] += consumoPorFranjaDia[d * franjas + f];
+            }
+        }
+        totalKWh = kWh;
+        costo = cobrado;
+        horasConConsumo = horas;
+    }
+
+    /**
+     * Indica si el agregado se armó con estas tarifas y esta ciudad, es decir, si sus totales siguen valiendo.
+     * @param catalogo Las tarifas actuales.
+     * @param ciudad La ciudad actual del medidor.
+     * @return true si se puede seguir usando.
+     */
+    boolean mEsVigente(CatalogoTarifas catalogo, String ciudad) {
+        return this.catalogo == catalogo && (this.ciudad == null ? ciudad == null : this.ciudad.equals(ciudad));
+    }
+
+    /**
+     * Ajusta los totales por el cambio de un consumo: vuelve a leer las 24 horas de su día, recalcula los
+     * totales de ese día y vuelve a sumar los del mes.
+     *
+     * @param registrador El medidor (ya con el valor nuevo guardado), para releer el día.
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0-23).
+     * @param anterior El valor que había antes.
+     * @param nuevo El valor que se guardó.
+     */
+    void mAplicarCambio(Registrador registrador, int dia, int hora, double anterior, double nuevo) {
+        HistogramaConsumos histograma = distribucion;
+        if (histograma != null) {
+            histograma.mCambiar(anterior, nuevo); // Primero, porque es lo único que puede rechazar el cambio.
+        }
+        registrador.mLeerDia(anio, mes, dia, horasDia);
+        mResumirDia(dia, horasDia, 0);
+        mSumarMes();
+    }
+
+    /**
+     * Devuelve la distribución de los consumos del mes. La primera vez la arma recorriendo el mes
+     * (día por día); después la mantiene al día con cada cambio.
+     *
+     * @param registrador El medidor, para recorrer el mes si hace falta.
+     * @return La distribución. Es la del agregado, no una copia: no se debe modificar.
+     */
+    HistogramaConsumos mGetDistribucion(Registrador registrador) {
+        HistogramaConsumos histograma = distribucion;
+        if (histograma == null) {
+            HistogramaConsumos nuevo = HistogramaConsumos.mDeUnMedidor();
+            registrador.mRecorrerDias(anio, mes, (dia, kWh, desde) -> nuevo.mAgregar(kWh, desde, 24));
+            distribucion = histograma = nuevo;
+        }
+        return histograma;
+    }
+
+    /**
+     * Devuelve una sola cifra de los totales actuales, sin armar el resumen completo.
+     * @param criterio Qué cifra.
+     * @param franja La posición de la franja (desde 0), solo con {@link CriterioConsumo#FRANJA}.
+     * @return La cifra.
+     */
+    double mGetCifra(CriterioConsumo criterio, int franja) {
+        return switch (criterio) {
+            case KWH -> totalKWh;
+            case COSTO -> costo;
+            case PICO -> NUCLEOS.mMaximo(maximoPorDia, 0, maximoPorDia.length);
+            case FRANJA -> consumoPorFranja[franja];
+        };
+    }
+
+    /**
+     * Devuelve un resumen con los totales actuales. El resumen es una copia: no cambia con escrituras posteriores.
+     * @return El resumen del mes.
+     */
+    ResumenMensual mGetResumen() {
+        double minimo = NUCLEOS.mMinimo(minimoPorDia, 0, minimoPorDia.length);
+        double maximo = NUCLEOS.mMaximo(maximoPorDia, 0, maximoPorDia.length);
+        return new ResumenMensual(anio, mes, 1, minimo, maximo, totalKWh, costo,
+                horasRegistradas, horasConConsumo, consumoPorFranja, consumoPorDia);
+    }
+}
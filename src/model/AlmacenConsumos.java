@@ -0,0 +1,178 @@
+package model;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Define dónde y cómo se guardan los consumos hora por hora de un medidor.
+ * Un {@link Registrador} no sabe si sus datos están en la memoria de Java o en un
+ * archivo; solo habla con su almacén a través de estos métodos.
+ *
+ * Los periodos se identifican por año y mes (1 a 12); los días van desde 1 y las horas de 0 a 23.
+ */
+public interface AlmacenConsumos {
+
+    /**
+     * Indica si hay datos cargados para un periodo.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return true si el periodo está cargado.
+     */
+    boolean mTienePeriodo(int anio, int mes);
+
+    /**
+     * Crea (o reinicia) un periodo con todos sus consumos en 0.0. Los demás periodos no se tocan.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     */
+    void mInicializarPeriodo(int anio, int mes);
+
+    /**
+     * Quita los datos de un periodo.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return true si el periodo existía y se quitó.
+     */
+    boolean mEliminarPeriodo(int anio, int mes);
+
+    /**
+     * Devuelve cuántos periodos hay cargados.
+     * @return El número de meses guardados.
+     */
+    int mCantidadPeriodos();
+
+    /**
+     * Devuelve los periodos cargados, del más antiguo al más reciente.
+     * @return Las claves de los periodos (ver {@link SerieConsumos#mClavePeriodo(int, int)}), ordenadas.
+     */
+    int[] mGetClavesPeriodos();
+
+    /**
+     * Lee el consumo de una hora.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @return El consumo en kWh.
+     * @throws IllegalStateException Si el periodo no está cargado.
+     * @throws IllegalArgumentException Si el día o la hora no son válidos para ese mes.
+     */
+    double mLeer(int anio, int mes, int dia, int hora);
+
+    /**
+     * Guarda el consumo de una hora. El periodo debe estar cargado.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @param valor El consumo en kWh (ya validado como no negativo).
+     * @throws IllegalStateException Si el periodo no está cargado.
+     * @throws IllegalArgumentException Si el día o la hora no son válidos para ese mes.
+     */
+    void mEscribir(int anio, int mes, int dia, int hora, double valor);
+
+    /**
+     * Lee las 24 horas de un día en un arreglo.
+     * Los almacenes que puedan copiarlas de una vez deberían sobreescribir este método.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param dia El día del mes (desde 1).
+     * @param destino Donde se copian (al menos 24 posiciones; la hora {@code h} queda en la posición {@code h}).
+     * @throws IllegalStateException Si el periodo no está cargado.
+     * @throws IllegalArgumentException Si el día no es válido para ese mes.
+     */
+    default void mLeerDia(int anio, int mes, int dia, double[] destino) {
+        for (int h = 0; h < 24; h++) {
+            destino[h] = mLeer(anio, mes, dia, h);
+        }
+    }
+
+    /**
+     * Crea (o reemplaza) un periodo completo con los consumos dados, de una sola vez.
+     * Los almacenes que puedan copiar los datos en bloque deberían sobreescribir este método.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param valores Los consumos del mes en orden (día 1 hora 0, día 1 hora 1, ...). Se usan los primeros
+     *                días x 24 valores, que ya deben estar validados como no negativos.
+     */
+    default void mEscribirMes(int anio, int mes, double[] valores) {
+        mInicializarPeriodo(anio, mes);
+        int dias = YearMonth.of(anio, mes).lengthOfMonth();
+        for (int d = 0; d < dias; d++) {
+            for (int h = 0; h < 24; h++) {
+                mEscribir(anio, mes, d + 1, h, valores[d * 24 + h]);
+            }
+        }
+    }
+
+    /**
+     * Devuelve los consumos de un periodo en un solo arreglo, día tras día: la hora {@code h} del día {@code d}
+     * está en la posición {@code (d - 1) * 24 + h}. Los almacenes en memoria pueden devolver su propio arreglo
+     * (que no se debe modificar); los que guardan los datos fuera de la memoria de Java, comprimidos o con otra
+     * precisión, devuelven una copia.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return Los días x 24 consumos en kWh, o null si el periodo no está cargado.
+     */
+    double[] mGetPlano(int anio, int mes);
+
+    /**
+     * Devuelve los consumos de un periodo como matriz [día-1][hora], armada a partir de {@link #mGetPlano(int, int)}.
+     * Es siempre una copia: cambiarla no cambia el almacén.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return Una matriz nueva de kWh, o null si el periodo no está cargado.
+     */
+    default double[][] mGetMatriz(int anio, int mes) {
+        double[] plano = mGetPlano(anio, mes);
+        if (plano == null) return null;
+        double[][] matriz = new double[plano.length / 24][];
+        for (int d = 0; d < matriz.length; d++) {
+            matriz[d] = Arrays.copyOfRange(plano, d * 24, d * 24 + 24);
+        }
+        return matriz;
+    }
+
+    /**
+     * Recorre en orden todos los consumos de un periodo.
+     * Los almacenes que puedan leer sus datos directamente deberían sobreescribir este método.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param visitante Quien recibe cada consumo.
+     * @return true si el periodo estaba cargado y se recorrió, false si no está cargado.
+     */
+    default boolean mRecorrer(int anio, int mes, VisitanteConsumo visitante) {
+        double[] plano = mGetPlano(anio, mes);
+        if (plano == null) return false;
+        for (int i = 0; i < plano.length; i++) {
+            visitante.mVisitar(i / 24 + 1, i % 24, plano[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Recorre en orden los días de un periodo, entregando las 24 horas de cada día juntas, para poder
+     * procesarlas en bloque. Los almacenes que guardan cada día seguido en un arreglo deberían sobreescribir
+     * este método para entregar su propio arreglo; por defecto se copian los consumos de cada día en un
+     * arreglo de 24 que se reutiliza.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param visitante Quien recibe cada día.
+     * @return true si el periodo estaba cargado y se recorrió, false si no está cargado.
+     */
+    default boolean mRecorrerDias(int anio, int mes, VisitanteDiaConsumo visitante) {
+        double[] horasDia = new double[24];
+        return mRecorrer(anio, mes, (dia, hora, kWh) -> {
+            horasDia[hora] = kWh;
+            if (hora == 23) visitante.mVisitarDia(dia, horasDia, 0);
+        });
+    }
+}
\ No newline at end of file
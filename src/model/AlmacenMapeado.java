@@ -0,0 +1,409 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Guarda los consumos hora por hora de toda la flota de medidores en un archivo mapeado en memoria,
+ * fuera del heap de Java. Así el uso de memoria del programa no crece con la cantidad de medidores,
+ * y los datos siguen ahí al reiniciar: basta con volver a abrir el archivo.
+ *
+ * Cada medidor ocupa una "casilla" (slot) de tamaño fijo dentro del archivo:
+ * - Primero, un byte por cada mes del rango, que indica si ese mes está cargado.
+ * - Después, un double (8 bytes) por cada hora del rango, contando horas desde el 1 de enero
+ *   del año base (la "hora de época").
+ *
+ * El rango cubre {@code anios} años a partir de {@code anioBase}. Junto al archivo de datos se guarda
+ * un archivo de texto (".indice") con la casilla asignada a cada ID de medidor, para que al reabrir
+ * cada medidor vuelva a encontrar sus datos. Al eliminar un medidor se borran las banderas de su casilla
+ * ({@link #mLiberarMedidor(String)}): si después se crea otro con el mismo ID, empieza sin datos.
+ *
+ * Los métodos que asignan casillas están sincronizados; las lecturas y escrituras de consumos
+ * son accesos directos a la memoria mapeada.
+ */
+public class AlmacenMapeado implements Closeable {
+
+    /** Número mágico al inicio del archivo ("JPOE"). */
+    private static final int MAGICO = 0x4A504F45;
+    /** Versión del formato del archivo. */
+    private static final int VERSION = 1;
+    /** Tamaño en bytes de la cabecera del archivo. */
+    private static final int TAMANO_CABECERA = 64;
+    /** Tamaño máximo aproximado de cada bloque mapeado (1 GB). */
+    private static final long TAMANO_MAXIMO_BLOQUE = 1L << 30;
+
+    /** Canal del archivo de datos. */
+    private final FileChannel canal;
+    /** Año en el que empieza el rango de fechas del almacén. */
+    private final int anioBase;
+    /** Cantidad de años que cubre el almacén. */
+    private final int anios;
+    /** Cantidad máxima de medidores (casillas) del archivo. */
+    private final int capacidadMedidores;
+
+    /** Día de época (días desde 1970-01-01) del 1 de enero del año base. */
+    private final long diaEpocaBase;
+    /** Bytes de banderas por casilla (un byte por mes, redondeado a múltiplo de 8). */
+    private final int bytesBanderas;
+    /** Cantidad de horas que cubre cada casilla. */
+    private final int horasPorCasilla;
+    /** Tamaño en bytes de cada casilla. */
+    private final long tamanoCasilla;
+    /** Hora de época en la que empieza cada mes del rango (índice = mes desde el inicio). */
+    private final int[] horaInicioMes;
+
+    /** Cuántas casillas caben en cada bloque mapeado. */
+    private final int casillasPorBloque;
+    /** Bloques mapeados del archivo (se mapean la primera vez que se usan). */
+    private final MappedByteBuffer[] bloques;
+
+    /** Casilla asignada a cada ID de medidor. */
+    private final Map<String, Integer> casillaPorMedidor;
+    /** Canal del archivo de índice, para agregar las nuevas asignaciones. */
+    private final FileChannel canalIndice;
+
+    /**
+     * Abre un almacén existente o crea uno nuevo en la ruta indicada.
+     * Si el archivo ya existe, se usan los parámetros guardados en su cabecera y se ignoran los recibidos.
+     *
+     * @param archivo Ruta del archivo de datos.
+     * @param anioBase Primer año del rango (solo se usa al crear el archivo).
+     * @param anios Cantidad de años del rango (solo se usa al crear el archivo).
+     * @param capacidadMedidores Cantidad máxima de medidores (solo se usa al crear el archivo).
+     * @return El almacén abierto.
+     * @throws IOException Si no se puede leer o crear el archivo, o si no tiene el formato esperado.
+     */
+    public static AlmacenMapeado mAbrir(Path archivo, int anioBase, int anios, int capacidadMedidores) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer cabecera;
+            if (canal.size() == 0) {
+                if (anios < 1 || capacidadMedidores < 1) {
+                    throw new IllegalArgumentException("El rango de años y la capacidad de medidores deben ser positivos.");
+                }
+                cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_CABECERA);
+                cabecera.putInt(0, MAGICO);
+                cabecera.putInt(4, VERSION);
+                cabecera.putInt(8, anioBase);
+                cabecera.putInt(12, anios);
+                cabecera.putInt(16, capacidadMedidores);
+                cabecera.force();
+            } else {
+                cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANO_CABECERA);
+                if (cabecera.getInt(0) != MAGICO) {
+                    throw new IOException("El archivo " + archivo + " no es un almacén de consumos.");
+                }
+                if (cabecera.getInt(4) != VERSION) {
+                    throw new IOException("Versión de almacén no soportada: " + cabecera.getInt(4));
+                }
+            }
+            return new AlmacenMapeado(canal, archivo.resolveSibling(archivo.getFileName() + ".indice"),
+                    cabecera.getInt(8), cabecera.getInt(12), cabecera.getInt(16));
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Prepara el almacén a partir de los parámetros de la cabecera y carga el índice de casillas.
+     */
+    private AlmacenMapeado(FileChannel canal, Path archivoIndice, int anioBase, int anios, int capacidadMedidores) throws IOException {
+        this.canal = canal;
+        this.anioBase = anioBase;
+        this.anios = anios;
+        this.capacidadMedidores = capacidadMedidores;
+
+        this.diaEpocaBase = LocalDate.of(anioBase, 1, 1).toEpochDay();
+        int meses = anios * 12;
+        this.bytesBanderas = (meses + 7) & ~7; // Alineado a 8 para que los doubles queden alineados.
+        this.horaInicioMes = new int[meses + 1];
+        for (int i = 0; i <= meses; i++) {
+            LocalDate inicio = LocalDate.of(anioBase + i / 12, i % 12 + 1, 1);
+            horaInicioMes[i] = (int) ((inicio.toEpochDay() - diaEpocaBase) * 24);
+        }
+        this.horasPorCasilla = horaInicioMes[meses];
+        this.tamanoCasilla = bytesBanderas + (long) horasPorCasilla * Double.BYTES;
+        this.casillasPorBloque = (int) Math.max(1, Math.min(capacidadMedidores, TAMANO_MAXIMO_BLOQUE / tamanoCasilla));
+        this.bloques = new MappedByteBuffer[(capacidadMedidores + casillasPorBloque - 1) / casillasPorBloque];
+
+        this.casillaPorMedidor = new HashMap<>();
+        if (Files.exists(archivoIndice)) {
+            List<String> lineas = Files.readAllLines(archivoIndice, StandardCharsets.UTF_8);
+            for (String linea : lineas) {
+                int separador = linea.indexOf(';');
+                if (separador > 0) {
+                    casillaPorMedidor.put(linea.substring(separador + 1), Integer.parseInt(linea.substring(0, separador)));
+                }
+            }
+        }
+        this.canalIndice = FileChannel.open(archivoIndice, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Devuelve el almacén de consumos de un medidor, asignándole una casilla si todavía no tenía.
+     * Si el medidor ya existía (por ejemplo, antes de reiniciar), recupera sus datos guardados.
+     *
+     * @param idRegistrador El ID del medidor.
+     * @return El almacén de consumos del medidor, respaldado por este archivo.
+     * @throws IllegalStateException Si el archivo ya no tiene casillas libres.
+     */
+    public synchronized AlmacenConsumos mAlmacenDeMedidor(String idRegistrador) {
+        Integer casilla = casillaPorMedidor.get(idRegistrador);
+        if (casilla == null) {
+            if (casillaPorMedidor.size() >= capacidadMedidores) {
+                throw new IllegalStateException("El almacén mapeado ya tiene el máximo de " + capacidadMedidores + " medidores.");
+            }
+            casilla = casillaPorMedidor.size();
+            try {
+                ByteBuffer linea = ByteBuffer.wrap((casilla + ";" + idRegistrador + System.lineSeparator())
+                        .getBytes(StandardCharsets.UTF_8));
+                while (linea.hasRemaining()) {
+                    canalIndice.write(linea);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo guardar la casilla del medidor " + idRegistrador, e);
+            }
+            casillaPorMedidor.put(idRegistrador, casilla);
+        }
+        return new AlmacenCasilla(casilla);
+    }
+
+    /**
+     * Borra las banderas de los meses de la casilla de un medidor que se eliminó, para que un medidor
+     * creado después con el mismo ID no herede sus consumos. La casilla queda asignada a ese ID.
+     *
+     * @param idRegistrador El ID del medidor.
+     */
+    public synchronized void mLiberarMedidor(String idRegistrador) {
+        Integer casilla = casillaPorMedidor.get(idRegistrador);
+        if (casilla == null) return;
+        MappedByteBuffer bloque = mBloque(casilla);
+        int inicio = (int) ((long) (casilla % casillasPorBloque) * tamanoCasilla);
+        for (int i = 0; i < anios * 12; i++) {
+            bloque.put(inicio + i, (byte) 0);
+        }
+    }
+
+    /**
+     * Devuelve cuántos medidores tienen casilla asignada en el archivo.
+     * @return El número de casillas usadas.
+     */
+    public synchronized int mCantidadMedidores() {
+        return casillaPorMedidor.size();
+    }
+
+    /**
+     * Escribe en disco todos los cambios que estén pendientes en la memoria mapeada y en el índice de
+     * casillas, y espera a que el disco los confirme.
+     * @throws IOException Si el índice no se puede forzar a disco.
+     */
+    public synchronized void mForzar() throws IOException {
+        for (MappedByteBuffer bloque : bloques) {
+            if (bloque != null) {
+                bloque.force();
+            }
+        }
+        canalIndice.force(true);
+    }
+
+    /**
+     * Guarda los cambios pendientes y cierra el archivo.
+     * @throws IOException Si hay un error al cerrar.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        mForzar();
+        canalIndice.close();
+        canal.close();
+    }
+
+    // --- Cálculo de posiciones dentro del archivo ---
+
+    /**
+     * Devuelve el índice del mes dentro del rango del almacén.
+     */
+    private int mIndiceMes(int anio, int mes) {
+        int indice = (anio - anioBase) * 12 + (mes - 1);
+        if (mes < 1 || mes > 12 || indice < 0 || indice >= anios * 12) {
+            throw new IllegalArgumentException("El periodo " + mes + "/" + anio + " está fuera del rango del almacén ("
+                    + anioBase + " a " + (anioBase + anios - 1) + ").");
+        }
+        return indice;
+    }
+
+    /**
+     * Devuelve (mapeándolo si hace falta) el bloque que contiene una casilla.
+     */
+    private MappedByteBuffer mBloque(int casilla) {
+        int numeroBloque = casilla / casillasPorBloque;
+        MappedByteBuffer bloque = bloques[numeroBloque];
+        if (bloque == null) {
+            synchronized (this) {
+                bloque = bloques[numeroBloque];
+                if (bloque == null) {
+                    long inicio = TAMANO_CABECERA + (long) numeroBloque * casillasPorBloque * tamanoCasilla;
+                    long casillasEnBloque = Math.min(casillasPorBloque, capacidadMedidores - (long) numeroBloque * casillasPorBloque);
+                    try {
+                        bloque = canal.map(FileChannel.MapMode.READ_WRITE, inicio, casillasEnBloque * tamanoCasilla);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("No se pudo mapear el bloque " + numeroBloque + " del almacén.", e);
+                    }
+                    bloque.order(ByteOrder.nativeOrder());
+                    bloques[numeroBloque] = bloque;
+                }
+            }
+        }
+        return bloque;
+    }
+
+    /**
+     * Vista del almacén para un solo medidor (una casilla del archivo).
+     */
+    private final class AlmacenCasilla implements AlmacenConsumos {
+
+        /** Bloque mapeado donde está la casilla. */
+        private final MappedByteBuffer bloque;
+        /** Posición (en bytes) donde empieza la casilla dentro del bloque. */
+        private final int inicio;
+
+        private AlmacenCasilla(int casilla) {
+            this.bloque = mBloque(casilla);
+            this.inicio = (int) ((long) (casilla % casillasPorBloque) * tamanoCasilla);
+        }
+
+        @Override
+        public boolean mTienePeriodo(int anio, int mes) {
+            int indice = (anio - anioBase) * 12 + (mes - 1);
+            if (mes < 1 || mes > 12 || indice < 0 || indice >= anios * 12) return false;
+            return bloque.get(inicio + indice) != 0;
+        }
+
+        @Override
+        public void mInicializarPeriodo(int anio, int mes) {
+            int indice = mIndiceMes(anio, mes);
+            for (int h = horaInicioMes[indice]; h < horaInicioMes[indice + 1]; h++) {
+                bloque.putDouble(mPosicionHora(h), 0.0);
+            }
+            bloque.put(inicio + indice, (byte) 1);
+        }
+
+        @Override
+        public boolean mEliminarPeriodo(int anio, int mes) {
+            if (!mTienePeriodo(anio, mes)) return false;
+            bloque.put(inicio + mIndiceMes(anio, mes), (byte) 0);
+            return true;
+        }
+
+        @Override
+        public int mCantidadPeriodos() {
+            int cantidad = 0;
+            for (int i = 0; i < anios * 12; i++) {
+                if (bloque.get(inicio + i) != 0) cantidad++;
+            }
+            return cantidad;
+        }
+
+        @Override
+        public int[] mGetClavesPeriodos() {
+            int[] claves = new int[mCantidadPeriodos()];
+            int j = 0;
+            for (int i = 0; i < anios * 12; i++) {
+                if (bloque.get(inicio + i) != 0) claves[j++] = SerieConsumos.mClavePeriodo(anioBase + i / 12, i % 12 + 1);
+            }
+            return claves;
+        }
+
+        @Override
+        public double mLeer(int anio, int mes, int dia, int hora) {
+            return bloque.getDouble(mPosicionHora(mHoraEpoca(anio, mes, dia, hora)));
+        }
+
+        @Override
+        public void mEscribir(int anio, int mes, int dia, int hora, double valor) {
+            bloque.putDouble(mPosicionHora(mHoraEpoca(anio, mes, dia, hora)), valor);
+        }
+
+        /**
+         * Copia el mes completo al archivo de una vez, y luego lo marca como cargado.
+         */
+        @Override
+        public void mEscribirMes(int anio, int mes, double[] valores) {
+            int indice = mIndiceMes(anio, mes);
+            int horas = horaInicioMes[indice + 1] - horaInicioMes[indice];
+            ByteBuffer destino = bloque.duplicate().order(ByteOrder.nativeOrder());
+            destino.position(mPosicionHora(horaInicioMes[indice]));
+            destino.asDoubleBuffer().put(valores, 0, horas);
+            bloque.put(inicio + indice, (byte) 1);
+        }
+
+        /**
+         * Devuelve una copia de los consumos del mes, leída del archivo de una vez.
+         */
+        @Override
+        public double[] mGetPlano(int anio, int mes) {
+            if (!mTienePeriodo(anio, mes)) return null;
+            int indice = mIndiceMes(anio, mes);
+            double[] plano = new double[horaInicioMes[indice + 1] - horaInicioMes[indice]];
+            ByteBuffer origen = bloque.duplicate().order(ByteOrder.nativeOrder());
+            origen.position(mPosicionHora(horaInicioMes[indice]));
+            origen.asDoubleBuffer().get(plano);
+            return plano;
+        }
+
+        /**
+         * Lee los consumos directamente de la memoria mapeada, sin copiarlos.
+         */
+        @Override
+        public boolean mRecorrer(int anio, int mes, VisitanteConsumo visitante) {
+            if (!mTienePeriodo(anio, mes)) return false;
+            int indice = mIndiceMes(anio, mes);
+            int dias = (horaInicioMes[indice + 1] - horaInicioMes[indice]) / 24;
+            int posicion = mPosicionHora(horaInicioMes[indice]);
+            for (int d = 1; d <= dias; d++) {
+                for (int h = 0; h < 24; h++) {
+                    visitante.mVisitar(d, h, bloque.getDouble(posicion));
+                    posicion += Double.BYTES;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Convierte una fecha y hora en la hora de época del almacén, verificando que el periodo esté cargado.
+         */
+        private int mHoraEpoca(int anio, int mes, int dia, int hora) {
+            if (!mTienePeriodo(anio, mes)) {
+                throw new IllegalStateException("Aún no se han cargado los datos de consumo de " + mes + "/" + anio + " para este medidor.");
+            }
+            int indice = mIndiceMes(anio, mes);
+            int dias = (horaInicioMes[indice + 1] - horaInicioMes[indice]) / 24;
+            if (dia < 1 || dia > dias || hora < 0 || hora > 23) {
+                throw new IllegalArgumentException("El día (" + dia + ") o la hora (" + hora + ") no son válidos para el mes "
+                        + mes + "/" + anio + " (que tiene " + dias + " días).");
+            }
+            return horaInicioMes[indice] + (dia - 1) * 24 + hora;
+        }
+
+        /**
+         * Devuelve la posición en bytes, dentro del bloque, del consumo de una hora de época.
+         */
+        private int mPosicionHora(int horaEpoca) {
+            return inicio + bytesBanderas + horaEpoca * Double.BYTES;
+        }
+    }
+}
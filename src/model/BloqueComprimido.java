@@ -0,0 +1,237 @@
+package model;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Guarda los consumos de un medidor durante un mes en forma comprimida, para meses archivados.
+ *
+ * Formato: cada consumo se pasa a milésimas de kWh (la resolución de los medidores) y se guarda
+ * la diferencia con la hora anterior, en zigzag (para que las diferencias negativas también sean
+ * números pequeños). Por cada día se escribe primero, en 7 bits, cuántos bits ocupa la diferencia
+ * más grande de ese día, y luego las 24 diferencias con exactamente ese número de bits.
+ * Como el consumo suele cambiar poco de una hora a otra, cada hora ocupa 1 o 2 bytes en lugar de 8.
+ *
+ * El bloque no se modifica una vez creado. Para recorrerlo se decodifica hora por hora,
+ * sin reconstruir la matriz completa.
+ */
+public final class BloqueComprimido {
+
+    /** Cantidad de unidades por kWh con que se guardan los consumos (milésimas de kWh). */
+    public static final double ESCALA = 1000.0;
+    /** Bits que ocupa, al inicio de cada día, el ancho de sus diferencias. */
+    private static final int BITS_ANCHO = 7;
+
+    /** Año del mes comprimido. */
+    private final int anio;
+    /** Mes (1 a 12) comprimido. */
+    private final int mes;
+    /** Cantidad de días del mes. */
+    private final int dias;
+    /** Bits con los datos comprimidos. */
+    private final byte[] datos;
+
+    private BloqueComprimido(int anio, int mes, int dias, byte[] datos) {
+        this.anio = anio;
+        this.mes = mes;
+        this.dias = dias;
+        this.datos = datos;
+    }
+
+    /**
+     * Comprime los consumos de un segmento mensual. Los valores quedan redondeados a milésimas de kWh.
+     *
+     * @param segmento El segmento a comprimir.
+     * @return El bloque comprimido.
+     */
+    public static BloqueComprimido mComprimir(SegmentoMensual segmento) {
+        double[] valores = segmento.mGetValoresPlanos();
+        byte[] salida = new byte[64];
+        int bytesEscritos = 0;
+        long acumulador = 0;
+        int bitsPendientes = 0;
+        long anterior = 0;
+        long[] diferencias = new long[24];
+
+        for (int inicioDia = 0; inicioDia < valores.length; inicioDia += 24) {
+            int ancho = 0;
+            for (int h = 0; h < 24; h++) {
+                long cuantizado = Math.round(valores[inicioDia + h] * ESCALA);
+                long delta = cuantizado - anterior;
+                anterior = cuantizado;
+                long zigzag = (delta << 1) ^ (delta >> 63);
+                diferencias[h] = zigzag;
+                ancho = Math.max(ancho, 64 - Long.numberOfLeadingZeros(zigzag));
+            }
+            // Un día ocupa como máximo 7 + 24 * 64 bits; se asegura espacio antes de escribirlo.
+            int necesarios = bytesEscritos + (BITS_ANCHO + 24 * ancho) / 8 + 2;
+            if (necesarios > salida.length) {
+                salida = Arrays.copyOf(salida, Math.max(salida.length * 2, necesarios));
+            }
+            // Escribe el ancho del día y luego sus 24 diferencias, en partes de máximo 32 bits.
+            for (int h = -1; h < 24; h++) {
+                long valor = (h < 0) ? ancho : diferencias[h];
+                int bits = (h < 0) ? BITS_ANCHO : ancho;
+                while (bits > 0) {
+                    int parte = Math.min(bits, 32);
+                    acumulador |= (valor & ((1L << parte) - 1)) << bitsPendientes;
+                    bitsPendientes += parte;
+                    valor >>>= parte;
+                    bits -= parte;
+                    while (bitsPendientes >= 8) {
+                        salida[bytesEscritos++] = (byte) acumulador;
+                        acumulador >>>= 8;
+                        bitsPendientes -= 8;
+                    }
+                }
+            }
+        }
+        if (bitsPendientes > 0) {
+            if (bytesEscritos == salida.length) salida = Arrays.copyOf(salida, bytesEscritos + 1);
+            salida[bytesEscritos++] = (byte) acumulador;
+        }
+        return new BloqueComprimido(segmento.mGetAnio(), segmento.mGetMes(), segmento.mGetDias(),
+                Arrays.copyOf(salida, bytesEscritos));
+    }
+
+    /**
+     * Devuelve el año del mes comprimido.
+     * @return El año.
+     */
+    public int mGetAnio() {
+        return anio;
+    }
+
+    /**
+     * Devuelve el mes comprimido.
+     * @return El mes (1 a 12).
+     */
+    public int mGetMes() {
+        return mes;
+    }
+
+    /**
+     * Devuelve cuántos días tiene el mes comprimido.
+     * @return El número de días.
+     */
+    public int mGetDias() {
+        return dias;
+    }
+
+    /**
+     * Devuelve cuántos bytes ocupan los datos comprimidos.
+     * @return El tamaño en bytes.
+     */
+    public int mTamanoBytes() {
+        return datos.length;
+    }
+
+    /**
+     * Devuelve los bits comprimidos, sin copiarlos, para guardarlos en un archivo. No deben modificarse.
+     * @return El arreglo interno de datos.
+     */
+    byte[] mGetDatos() {
+        return datos;
+    }
+
+    /**
+     * Reconstruye un bloque a partir de los bits guardados con {@link #mGetDatos()}.
+     *
+     * @param anio El año del mes comprimido.
+     * @param mes El mes (1 a 12).
+     * @param datos Los bits comprimidos.
+     * @return El bloque.
+     */
+    static BloqueComprimido mDesdeDatos(int anio, int mes, byte[] datos) {
+        return new BloqueComprimido(anio, mes, YearMonth.of(anio, mes).lengthOfMonth(), datos);
+    }
+
+    /**
+     * Recorre todos los consumos del mes en orden, decodificándolos sobre la marcha.
+     * @param visitante Quien recibe cada consumo.
+     */
+    public void mRecorrer(VisitanteConsumo visitante) {
+        mDecodificar(dias * 24, visitante);
+    }
+
+    /**
+     * Obtiene el consumo de un día y hora. Tiene que decodificar desde el inicio del mes,
+     * así que para leer muchas horas conviene usar {@link #mRecorrer(VisitanteConsumo)}.
+     *
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @return El consumo en kWh.
+     * @throws IllegalArgumentException Si el día o la hora no son válidos para este mes.
+     */
+    public double mGet(int dia, int hora) {
+        if (dia < 1 || dia > dias || hora < 0 || hora > 23) {
+            throw new IllegalArgumentException("El día (" + dia + ") o la hora (" + hora + ") no son válidos para el mes "
+                    + mes + "/" + anio + " (que tiene " + dias + " días).");
+        }
+        return mDecodificar((dia - 1) * 24 + hora + 1, null);
+    }
+
+    /**
+     * Reconstruye el segmento mensual completo (con los valores redondeados a milésimas), con precisión DOBLE.
+     * @return Un segmento nuevo con los consumos del mes.
+     */
+    public SegmentoMensual mDescomprimir() {
+        return mDescomprimir(PrecisionConsumos.DOBLE);
+    }
+
+    /**
+     * Reconstruye el segmento mensual completo (con los valores redondeados a milésimas).
+     * @param precision Con qué tipo de número guarda los consumos el segmento nuevo.
+     * @return Un segmento nuevo con los consumos del mes.
+     */
+    public SegmentoMensual mDescomprimir(PrecisionConsumos precision) {
+        SegmentoMensual segmento = new SegmentoMensual(anio, mes, precision);
+        mRecorrer((dia, hora, kWh) -> segmento.mEscribirPosicion((dia - 1) * 24 + hora, kWh));
+        return segmento;
+    }
+
+    /**
+     * Decodifica las primeras {@code cantidad} horas del mes, avisando al visitante (si hay uno)
+     * de cada una.
+     *
+     * @return El consumo de la última hora decodificada.
+     */
+    private double mDecodificar(int cantidad, VisitanteConsumo visitante) {
+        int posicion = 0;
+        long acumulador = 0;
+        int bitsDisponibles = 0;
+        long anterior = 0;
+        int ancho = 0;
+        for (int i = 0; i < cantidad; i++) {
+            int hora = i % 24;
+            if (hora == 0) {
+                // Lee el ancho de las diferencias de este día.
+                while (bitsDisponibles < BITS_ANCHO) {
+                    acumulador |= (datos[posicion++] & 0xFFL) << bitsDisponibles;
+                    bitsDisponibles += 8;
+                }
+                ancho = (int) (acumulador & ((1L << BITS_ANCHO) - 1));
+                acumulador >>>= BITS_ANCHO;
+                bitsDisponibles -= BITS_ANCHO;
+            }
+            long zigzag = 0;
+            int leidos = 0;
+            while (leidos < ancho) {
+                int parte = Math.min(ancho - leidos, 32);
+                while (bitsDisponibles < parte) {
+                    acumulador |= (datos[posicion++] & 0xFFL) << bitsDisponibles;
+                    bitsDisponibles += 8;
+                }
+                zigzag |= (acumulador & ((1L << parte) - 1)) << leidos;
+                acumulador >>>= parte;
+                bitsDisponibles -= parte;
+                leidos += parte;
+            }
+            anterior += (zigzag >>> 1) ^ -(zigzag & 1);
+            if (visitante != null) {
+                visitante.mVisitar(i / 24 + 1, hora, anterior / ESCALA);
+            }
+        }
+        return anterior / ESCALA;
+    }
+}
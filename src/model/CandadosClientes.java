@@ -0,0 +1,65 @@
+package model;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Candados de lectura y escritura de los clientes, repartidos por grupos ("lock striping"): cada cliente
+ * usa el candado del grupo que le toca según su número de identificación. Así no hace falta un candado
+ * por cliente (con millones de clientes ocuparían mucha memoria) y dos hilos que trabajan con clientes
+ * distintos casi nunca se bloquean entre sí.
+ *
+ * El candado de un cliente protege sus datos, su lista de medidores y los consumos de esos medidores:
+ * - para leer (facturar, consultar, guardar una instantánea) se toma el candado de lectura; varios hilos
+ *   pueden leer el mismo cliente a la vez;
+ * - para cambiar algo se toma el de escritura, que espera a que terminen las lecturas.
+ *
+ * Un hilo solo debe tener tomado el candado de un cliente a la vez (o todos, con {@link #mBloquearTodos()}),
+ * y no debe pedir el de escritura si ya tiene el de lectura del mismo cliente. Los candados son compartidos
+ * por todo el programa.
+ */
+public final class CandadosClientes {
+
+    /** Cantidad de grupos (potencia de 2). */
+    private static final int GRUPOS = 1024;
+    private static final ReentrantReadWriteLock[] CANDADOS = new ReentrantReadWriteLock[GRUPOS];
+
+    static {
+        for (int i = 0; i < GRUPOS; i++) {
+            CANDADOS[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    private CandadosClientes() {
+    }
+
+    /**
+     * Devuelve el candado de un cliente (compartido con los demás clientes de su grupo).
+     * @param idCliente El ID del cliente (puede no existir todavía).
+     * @return El candado de lectura y escritura del cliente.
+     */
+    public static ReadWriteLock mDe(String idCliente) {
+        int h = (idCliente == null) ? 0 : idCliente.hashCode();
+        return CANDADOS[(h ^ (h >>> 16)) & (GRUPOS - 1)];
+    }
+
+    /**
+     * Toma el candado de escritura de todos los clientes, en orden. Lo usan los cambios masivos
+     * (por ejemplo, simular toda la flota), que no deben mezclarse con ningún otro cambio ni lectura.
+     * Se debe llamar sin tener tomado ningún candado de cliente.
+     */
+    public static void mBloquearTodos() {
+        for (ReentrantReadWriteLock candado : CANDADOS) {
+            candado.writeLock().lock();
+        }
+    }
+
+    /**
+     * Suelta los candados tomados con {@link #mBloquearTodos()}.
+     */
+    public static void mDesbloquearTodos() {
+        for (int i = GRUPOS - 1; i >= 0; i--) {
+            CANDADOS[i].writeLock().unlock();
+        }
+    }
+}
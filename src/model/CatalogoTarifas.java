@@ -0,0 +1,207 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conjunto de planes tarifarios con sus fechas de vigencia, cargado desde un archivo de tarifas.
+ * Permite saber qué tarifas aplicaban a un consumo según su fecha y la ciudad del medidor.
+ *
+ * Para una fecha y ciudad, aplica el plan de esa ciudad con la fecha de vigencia más reciente
+ * (que no sea posterior a la fecha). Si la ciudad no tiene un plan propio vigente, aplica el plan
+ * general (sin ciudad) más reciente.
+ *
+ * Formato del archivo (texto UTF-8, campos separados por ';', líneas con '#' son comentarios):
+ * <pre>
+ * plan;&lt;versión&gt;;&lt;vigente desde AAAA-MM-DD&gt;;&lt;ciudad, o * para todas&gt;
+ * franja;&lt;nombre&gt;;&lt;horaInicio&gt;-&lt;horaFin&gt;;&lt;rango de kWh&gt;;&lt;precio por kWh&gt;
+ * </pre>
+ * El rango de kWh se escribe como intervalo: "[" o "]" incluyen el límite, "(" o ")" lo excluyen.
+ * Por ejemplo, {@code (300,600]} significa "más de 300 y hasta 600 kWh". Cada línea "franja"
+ * pertenece al último "plan" escrito antes de ella.
+ */
+public final class CatalogoTarifas {
+
+    /** Catálogo con un único plan general: las tres franjas del proyecto, vigentes siempre. */
+    private static final CatalogoTarifas PREDETERMINADO = new CatalogoTarifas(List.of(
+            new PlanTarifario("Proyecto", LocalDate.of(1900, 1, 1), null, TablaTarifas.mPredeterminada())));
+
+    /** Planes del catálogo, ordenados por fecha de vigencia. */
+    private final List<PlanTarifario> planes;
+    /** Tablas por día ya calculadas, por ciudad y mes (ver {@link #mTablasDelMes(String, int, int)}). */
+    private final Map<String, TablaTarifas[]> tablasPorMes;
+
+    /**
+     * Crea un catálogo a partir de una lista de planes.
+     * @param planes Los planes tarifarios.
+     */
+    public CatalogoTarifas(List<PlanTarifario> planes) {
+        List<PlanTarifario> ordenados = new ArrayList<>(planes);
+        ordenados.sort(Comparator.comparing(PlanTarifario::mGetVigenteDesde));
+        this.planes = Collections.unmodifiableList(ordenados);
+        this.tablasPorMes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Devuelve el catálogo con las tarifas del proyecto.
+     * @return El catálogo predeterminado.
+     */
+    public static CatalogoTarifas mPredeterminado() {
+        return PREDETERMINADO;
+    }
+
+    /**
+     * Lee un archivo de tarifas y arma el catálogo con sus planes.
+     *
+     * @param archivo La ruta del archivo de tarifas.
+     * @return El catálogo cargado.
+     * @throws IOException Si no se puede leer el archivo.
+     * @throws IllegalArgumentException Si alguna línea no tiene el formato esperado (el mensaje indica cuál).
+     */
+    public static CatalogoTarifas mCargar(Path archivo) throws IOException {
+        List<PlanTarifario> planes = new ArrayList<>();
+        String[] encabezadoPlan = null;
+        List<FranjaHoraria> franjasPlan = new ArrayList<>();
+        int numeroLinea = 0;
+
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                linea = linea.trim();
+                if (linea.isEmpty() || linea.startsWith("#")) continue;
+                String[] campos = linea.split(";");
+                try {
+                    switch (campos[0].trim().toLowerCase(Locale.ROOT)) {
+                        case "plan" -> {
+                            if (encabezadoPlan != null) planes.add(mCrearPlan(encabezadoPlan, franjasPlan));
+                            if (campos.length != 4) throw new IllegalArgumentException("un plan debe tener 4 campos.");
+                            encabezadoPlan = campos;
+                            franjasPlan = new ArrayList<>();
+                        }
+                        case "franja" -> {
+                            if (encabezadoPlan == null) throw new IllegalArgumentException("hay una franja antes del primer plan.");
+                            franjasPlan.add(mLeerFranja(campos));
+                        }
+                        default -> throw new IllegalArgumentException("tipo de línea desconocido '" + campos[0] + "'.");
+                    }
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("Error en la línea " + numeroLinea + " del archivo de tarifas: " + e.getMessage(), e);
+                }
+            }
+        }
+        if (encabezadoPlan != null) planes.add(mCrearPlan(encabezadoPlan, franjasPlan));
+        if (planes.isEmpty()) {
+            throw new IllegalArgumentException("El archivo de tarifas no tiene ningún plan.");
+        }
+        return new CatalogoTarifas(planes);
+    }
+
+    /**
+     * Arma un plan con los campos de su línea "plan" y las franjas que le siguieron.
+     */
+    private static PlanTarifario mCrearPlan(String[] campos, List<FranjaHoraria> franjas) {
+        String ciudad = campos[3].trim();
+        return new PlanTarifario(campos[1].trim(), LocalDate.parse(campos[2].trim()),
+                ciudad.equals("*") ? null : ciudad, new TablaTarifas(franjas));
+    }
+
+    /**
+     * Lee una línea "franja": nombre, rango de horas, intervalo de kWh y precio.
+     */
+    private static FranjaHoraria mLeerFranja(String[] campos) {
+        if (campos.length != 5) throw new IllegalArgumentException("una franja debe tener 5 campos.");
+        String[] horas = campos[2].trim().split("-");
+        if (horas.length != 2) throw new IllegalArgumentException("el rango de horas debe ser 'inicio-fin'.");
+        String intervalo = campos[3].trim();
+        if (intervalo.length() < 5 || "[(".indexOf(intervalo.charAt(0)) < 0 || "])".indexOf(intervalo.charAt(intervalo.length() - 1)) < 0) {
+            throw new IllegalArgumentException("el rango de kWh debe escribirse como intervalo, por ejemplo (300,600].");
+        }
+        String[] limites = intervalo.substring(1, intervalo.length() - 1).split(",");
+        if (limites.length != 2) throw new IllegalArgumentException("el rango de kWh debe tener dos límites.");
+        return new FranjaHoraria(campos[1].trim(),
+                Integer.parseInt(horas[0].trim()), Integer.parseInt(horas[1].trim()),
+                Double.parseDouble(limites[0].trim()), intervalo.charAt(0) == '[',
+                Double.parseDouble(limites[1].trim()), intervalo.charAt(intervalo.length() - 1) == ']',
+                Double.parseDouble(campos[4].trim()));
+    }
+
+    /**
+     * Devuelve los planes del catálogo.
+     * @return Una lista no modificable de planes, ordenada por fecha de vigencia.
+     */
+    public List<PlanTarifario> mGetPlanes() {
+        return planes;
+    }
+
+    /**
+     * Busca el plan vigente en una fecha para una ciudad.
+     *
+     * @param ciudad La ciudad del medidor (puede ser null).
+     * @param fecha La fecha del consumo.
+     * @return El plan propio de la ciudad si hay uno vigente; si no, el plan general vigente;
+     * o null si ningún plan estaba vigente en esa fecha.
+     */
+    public PlanTarifario mPlanVigente(String ciudad, LocalDate fecha) {
+        PlanTarifario general = null;
+        PlanTarifario deCiudad = null;
+        for (PlanTarifario plan : planes) {
+            if (plan.mGetVigenteDesde().isAfter(fecha)) break; // Los siguientes son aún más recientes.
+            if (plan.mGetCiudad() == null) {
+                general = plan;
+            } else if (ciudad != null && plan.mGetCiudad().equalsIgnoreCase(ciudad.trim())) {
+                deCiudad = plan;
+            }
+        }
+        return deCiudad != null ? deCiudad : general;
+    }
+
+    /**
+     * Devuelve la tabla de tarifas vigente para cada día de un mes, en una ciudad.
+     * El resultado se guarda, así que pedir el mismo mes y ciudad otra vez no vuelve a buscar.
+     * El arreglo devuelto se comparte: no debe modificarse.
+     *
+     * @param ciudad La ciudad del medidor (puede ser null).
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return Un arreglo con una tabla por día (posición 0 = día 1). Los días sin plan vigente
+     * tienen la tabla vacía (sin costo).
+     */
+    public TablaTarifas[] mTablasDelMes(String ciudad, int anio, int mes) {
+        String ciudadNormalizada = ciudad == null ? "" : ciudad.trim().toLowerCase(Locale.ROOT);
+        return tablasPorMes.computeIfAbsent(ciudadNormalizada + '|' + anio + '|' + mes, clave -> {
+            int dias = YearMonth.of(anio, mes).lengthOfMonth();
+            TablaTarifas[] tablas = new TablaTarifas[dias];
+            for (int d = 0; d < dias; d++) {
+                PlanTarifario plan = mPlanVigente(ciudad, LocalDate.of(anio, mes, d + 1));
+                tablas[d] = plan != null ? plan.mGetTabla() : TablaTarifas.mVacia();
+            }
+            return tablas;
+        });
+    }
+
+    /**
+     * Devuelve la tabla de tarifas general (sin ciudad) vigente el primer día de un mes.
+     * Se usa para agrupar consumos por franja y para simular consumos.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return La tabla vigente, o la tabla vacía si ningún plan general estaba vigente.
+     */
+    public TablaTarifas mTablaGeneral(int anio, int mes) {
+        return mTablasDelMes(null, anio, mes)[0];
+    }
+}
@@ -1,13 +1,19 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * Representa a un cliente de servicios de energía.
- * Guarda su información básica y una lista de los medidores (registradores) que tiene asociados.
+ * Guarda su información básica y los medidores (registradores) que tiene asociados,
+ * indexados por su número de identificación para encontrarlos sin recorrer la lista.
  * Según las reglas del proyecto, un cliente necesita tener al menos un medidor de energía.
+ *
+ * Un cliente no se protege solo: quien lo use desde varios hilos debe tomar su candado
+ * ({@link #mCandado()}), de lectura para consultarlo y de escritura para cambiarlo.
  */
 public class Cliente {
 
@@ -23,8 +29,16 @@ public class Cliente {
     /** Dirección donde reside o se encuentra el cliente. */
     private String direccionFisica;
 
-    /** Lista de medidores de energía que pertenecen a este cliente. */
-    private List<Registrador> registradores;
+    /** Medidores de energía que pertenecen a este cliente, por ID y en el orden en que se agregaron. */
+    private final Map<String, Registrador> registradores;
+
+    /**
+     * Los mismos medidores, como lista inmutable en el mismo orden, o null si cambiaron y aún no se volvió a
+     * armar. Se arma en la primera consulta después de un cambio (así, agregar muchos medidores seguidos no
+     * la copia cada vez), y las demás consultas (la facturación, la simulación y los resúmenes la piden en
+     * cada llamada) la reciben sin copiar nada.
+     */
+    private volatile List<Registrador> vistaRegistradores;
 
     /**
      * Crea una nueva instancia de Cliente.
@@ -43,7 +57,8 @@ public class Cliente {
         this.tipoIdentificacion = tipoIdentificacion;
         this.correoElectronico = correoElectronico;
         this.direccionFisica = direccionFisica;
-        this.registradores = new ArrayList<>(); // Cada cliente empieza con una lista de medidores vacía.
+        this.registradores = new LinkedHashMap<>(); // Cada cliente empieza sin medidores.
+        this.vistaRegistradores = List.of();
     }
 
     // --- Métodos para obtener y modificar la información del cliente ---
@@ -56,6 +71,14 @@ public class Cliente {
         return numeroIdentificacion;
     }
 
+    /**
+     * Devuelve el candado que protege los datos del cliente, sus medidores y los consumos de esos medidores.
+     * @return El candado de lectura y escritura (ver {@link CandadosClientes}).
+     */
+    public ReadWriteLock mCandado() {
+        return CandadosClientes.mDe(numeroIdentificacion);
+    }
+
     /**
      * Devuelve el tipo de documento del cliente.
      * @return El tipo de identificación.
@@ -105,12 +128,27 @@ public class Cliente {
     }
 
     /**
-     * Devuelve una lista con todos los medidores asociados a este cliente.
-     * Se entrega una copia de la lista para mantener segura la lista original del cliente.
-     * @return Una lista de objetos Registrador.
+     * Devuelve una lista con todos los medidores asociados a este cliente, en el orden en que se agregaron.
+     * La lista no se puede modificar y no cambia si después se agregan o quitan medidores (es una foto del
+     * momento), así que se entrega sin copiarla.
+     * @return Una lista inmutable de objetos Registrador.
      */
     public List<Registrador> mGetRegistradores() {
-        return new ArrayList<>(registradores); // Se devuelve una copia.
+        List<Registrador> vista = vistaRegistradores;
+        if (vista == null) {
+            // Si dos lectores la arman a la vez, arman la misma lista: no importa cuál quede.
+            vista = List.copyOf(registradores.values());
+            vistaRegistradores = vista;
+        }
+        return vista;
+    }
+
+    /**
+     * Devuelve cuántos medidores tiene el cliente.
+     * @return La cantidad de medidores.
+     */
+    public int mCantidadRegistradores() {
+        return registradores.size();
     }
 
     // --- Métodos para administrar los medidores del cliente ---
@@ -128,13 +166,12 @@ public class Cliente {
             return false;
         }
         // Verifica que no haya ya un medidor con el mismo ID para este cliente.
-        for (Registrador r : this.registradores) {
-            if (r.mGetNumeroIdentificacion().equals(registrador.mGetNumeroIdentificacion())) {
-                System.out.println("Atención: El medidor con ID " + registrador.mGetNumeroIdentificacion() + " ya está asociado a este cliente. No se agregó.");
-                return false;
-            }
+        if (this.registradores.containsKey(registrador.mGetNumeroIdentificacion())) {
+            System.out.println("Atención: El medidor con ID " + registrador.mGetNumeroIdentificacion() + " ya está asociado a este cliente. No se agregó.");
+            return false;
         }
-        this.registradores.add(registrador);
+        this.registradores.put(registrador.mGetNumeroIdentificacion(), registrador);
+        this.vistaRegistradores = null; // Se vuelve a armar en la próxima consulta.
         return true;
     }
 
@@ -145,23 +182,19 @@ public class Cliente {
      * @return true si se encontró y eliminó el medidor, false si no.
      */
     public boolean mEliminarRegistrador(String idRegistrador) {
-        if (idRegistrador == null) return false;
-        return this.registradores.removeIf(r -> r.mGetNumeroIdentificacion().equals(idRegistrador));
+        if (idRegistrador == null || this.registradores.remove(idRegistrador) == null) return false;
+        this.vistaRegistradores = null; // Se vuelve a armar en la próxima consulta.
+        return true;
     }
 
     /**
-     * Busca un medidor específico dentro de la lista de este cliente.
+     * Busca un medidor específico entre los de este cliente.
      * @param idRegistrador El número de identificación del medidor que se busca.
      * @return El objeto Registrador si se encuentra, o null si no existe.
      */
     public Registrador mBuscarRegistrador(String idRegistrador) {
         if (idRegistrador == null) return null;
-        for (Registrador r : this.registradores) {
-            if (r.mGetNumeroIdentificacion().equals(idRegistrador)) {
-                return r;
-            }
-        }
-        return null; // No se encontró el medidor.
+        return this.registradores.get(idRegistrador); // null si no se encontró el medidor.
     }
 
     // --- Métodos estándar de Java ---
@@ -201,7 +234,7 @@ public class Cliente {
                ", Tipo ID: '" + tipoIdentificacion + '\'' +
                ", Correo: '" + correoElectronico + '\'' +
                ", Dirección: '" + direccionFisica + '\'' +
-               ", Cantidad de Medidores: " + registradores.size() +
+               ", Cantidad de Medidores: " + mCantidadRegistradores() +
                '}';
     }
 }
\ No newline at end of file
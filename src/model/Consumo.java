@@ -6,8 +6,9 @@ import java.util.Objects;
 /**
  * Representa un registro individual de consumo de energía eléctrica en un momento dado.
  * Guarda la fecha y hora exactas del consumo y la cantidad de energía en kilovatios-hora (kWh).
- * También puede calcular el costo de este consumo específico basándose en las tarifas
- * por franja horaria definidas en el proyecto.
+ * Los consumos que entrega el Controlador traen su costo, calculado con las tarifas vigentes
+ * (de la ciudad del medidor y de ese día); los que se crean sin costo lo calculan con las tarifas
+ * por franja horaria predeterminadas del proyecto.
  */
 public class Consumo {
 
@@ -17,6 +18,9 @@ public class Consumo {
     /** La cantidad de energía consumida, medida en kilovatios-hora (kWh). */
     private double kWh;
 
+    /** El costo calculado con las tarifas vigentes al leer el consumo, o NaN si no se conoce. */
+    private double costo = Double.NaN;
+
     /**
      * Crea un nuevo registro de consumo.
      *
@@ -35,6 +39,20 @@ public class Consumo {
         this.kWh = kWh;
     }
 
+    /**
+     * Crea un registro de consumo con su costo ya calculado (por ejemplo, con las tarifas vigentes
+     * de la ciudad del medidor).
+     *
+     * @param fechaHora El momento exacto del consumo. No puede ser nulo.
+     * @param kWh La cantidad de energía consumida. No puede ser un valor negativo.
+     * @param costo El costo del consumo en COP.
+     * @throws IllegalArgumentException Si la fechaHora es nula o si los kWh son negativos.
+     */
+    public Consumo(LocalDateTime fechaHora, double kWh, double costo) {
+        this(fechaHora, kWh);
+        this.costo = costo;
+    }
+
     /**
      * Obtiene la fecha y hora de este consumo.
      * @return Un objeto LocalDateTime con la fecha y hora.
@@ -53,6 +71,7 @@ public class Consumo {
             throw new IllegalArgumentException("La fecha y hora del consumo son obligatorias.");
         }
         this.fechaHora = fechaHora;
+        this.costo = Double.NaN; // El costo que traía era el de la hora anterior.
     }
 
     /**
@@ -73,11 +92,14 @@ public class Consumo {
             throw new IllegalArgumentException("La cantidad de kWh consumidos no puede ser negativa. Valor recibido: " + kWh);
         }
         this.kWh = kWh;
+        this.costo = Double.NaN; // El costo que traía era el del valor anterior.
     }
 
     /**
-     * Calcula el costo de este consumo de energía, aplicando las tarifas según la hora y la cantidad de kWh.
-     * Las reglas de tarificación son:
+     * Devuelve el costo de este consumo de energía. Si el consumo se creó con su costo (como los que entrega
+     * el Controlador, con las tarifas vigentes) y no cambió después, devuelve ese costo. Si no, lo calcula
+     * con las tarifas predeterminadas del proyecto, según la hora y la cantidad de kWh.
+     * Las reglas de tarificación predeterminadas son:
      * - Franja 1: De 00:00 a 06:00, si el consumo está entre 100 kWh y 300 kWh (ambos inclusive),
      * el precio es de 200 pesos colombianos (COP) por cada kWh.
      * - Franja 2: De 07:00 a 17:00, si el consumo es mayor a 300 kWh y hasta 600 kWh (inclusive),
@@ -92,21 +114,15 @@ public class Consumo {
      * @return El costo total del consumo en pesos colombianos (COP).
      */
     public double mCalcularCosto() {
-        int horaDelConsumo = fechaHora.getHour();
-        FranjaHoraria franjaAplicable = FranjaHoraria.mObtenerFranja(horaDelConsumo, this.kWh);
-
-        if (franjaAplicable != null) {
-            // Si se encontró una franja, se calcula el costo.
-            return this.kWh * franjaAplicable.mGetPrecioPorKw();
-        }
-
-        // Si no aplica ninguna franja tarifaria (ej. kWh muy bajos o muy altos para la hora,
-        // o una hora sin franjas definidas), el costo es cero.
-        return 0;
+        if (!Double.isNaN(costo)) return costo;
+        // La tabla de tarifas ya tiene precalculadas las franjas de cada hora, así que
+        // no se crea ningún objeto. Si no aplica ninguna franja tarifaria (ej. kWh muy bajos
+        // o muy altos para la hora), el costo es cero.
+        return TablaTarifas.mPredeterminada().mCosto(fechaHora.getHour(), this.kWh);
     }
 
     /**
-     * Devuelve un texto que representa este objeto Consumo, incluyendo su costo calculado.
+     * Devuelve un texto que representa este objeto Consumo, incluyendo su costo (ver {@link #mCalcularCosto()}).
      * @return Una cadena de texto con los detalles del consumo.
      */
     @Override
@@ -0,0 +1,44 @@
+package model;
+
+/**
+ * Por qué cifra del mes se ordenan los clientes o medidores al buscar los que más consumen
+ * (ver {@link Registrador#mGetCifraMes(int, int, CatalogoTarifas, CriterioConsumo, int)}).
+ */
+public enum CriterioConsumo {
+
+    /** Total de kWh del mes. */
+    KWH,
+
+    /** Costo (COP) del mes, con las tarifas vigentes. */
+    COSTO,
+
+    /** Consumo de la hora más alta del mes (en un cliente, la más alta de cualquiera de sus medidores). */
+    PICO,
+
+    /** Total de kWh de una sola franja horaria (la franja se indica aparte, en el orden de sus nombres). */
+    FRANJA;
+
+    /**
+     * Junta la cifra de un medidor con la de los anteriores de un mismo cliente: los totales se suman
+     * (en el orden de los medidores, igual que al combinar sus resúmenes) y el pico es el mayor.
+     * @param acumulado La cifra de los medidores anteriores.
+     * @param valor La cifra del medidor.
+     * @return La cifra combinada.
+     */
+    public double mCombinar(double acumulado, double valor) {
+        return this == PICO ? Math.max(acumulado, valor) : acumulado + valor;
+    }
+
+    /**
+     * Busca un criterio por su nombre, sin importar mayúsculas ("kwh", "costo", "pico" o "franja").
+     * @param nombre El nombre.
+     * @return El criterio.
+     * @throws IllegalArgumentException Si el nombre no corresponde a ningún criterio.
+     */
+    public static CriterioConsumo mDesdeNombre(String nombre) {
+        for (CriterioConsumo criterio : values()) {
+            if (criterio.name().equalsIgnoreCase(nombre == null ? "" : nombre.trim())) return criterio;
+        }
+        throw new IllegalArgumentException("Criterio desconocido: " + nombre + " (se esperaba kwh, costo, pico o franja).");
+    }
+}
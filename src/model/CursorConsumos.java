@@ -0,0 +1,144 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cursor sobre los consumos de un mes de un medidor. Avanza hora por hora y en cada paso entrega la hora
+ * (en horas desde 1970), el consumo y su costo como números primitivos, sin crear objetos.
+ *
+ * Uso típico:
+ * <pre>
+ * CursorConsumos cursor = registrador.mCursorConsumos(anio, mes, catalogo);
+ * while (cursor.mAvanzar()) {
+ *     total += cursor.mGetCosto();
+ * }
+ * </pre>
+ * Para quien necesite objetos, {@link #mComoStream()} crea cada {@link Consumo} solo cuando se pide.
+ * Un cursor se usa una sola vez y desde un solo hilo.
+ */
+public final class CursorConsumos {
+
+    private final double[] consumos;
+    private final int dias;
+    private final TablaTarifas[] tablas;
+    private final long primeraHoraEpoca;
+    private int dia;
+    private int hora = -1;
+
+    /**
+     * @param anio El año del mes.
+     * @param mes El mes (1 a 12).
+     * @param consumos Los consumos del mes, día tras día (ver {@link AlmacenConsumos#mGetPlano(int, int)});
+     *                 se leen, no se copian.
+     * @param tablas La tabla de tarifas de cada día del mes.
+     */
+    CursorConsumos(int anio, int mes, double[] consumos, TablaTarifas[] tablas) {
+        this.consumos = consumos;
+        this.dias = consumos.length / 24;
+        this.tablas = tablas;
+        this.primeraHoraEpoca = mHoraEpoca(anio, mes, 1, 0);
+    }
+
+    /**
+     * Convierte una fecha y hora en horas desde el 1 de enero de 1970 a las 00:00.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param dia El día del mes.
+     * @param hora La hora (0 a 23).
+     * @return La hora de época.
+     */
+    public static long mHoraEpoca(int anio, int mes, int dia, int hora) {
+        return LocalDate.of(anio, mes, dia).toEpochDay() * 24 + hora;
+    }
+
+    /**
+     * Convierte una hora de época (horas desde el 1 de enero de 1970) en fecha y hora.
+     * @param horaEpoca La hora de época.
+     * @return La fecha y hora correspondiente (minutos en 0).
+     */
+    public static LocalDateTime mFechaHora(long horaEpoca) {
+        return LocalDateTime.ofEpochSecond(horaEpoca * 3600, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Pasa a la siguiente hora del mes.
+     * @return true si hay una hora más, false si ya se recorrió todo el mes.
+     */
+    public boolean mAvanzar() {
+        if (dia >= dias) return false;
+        if (++hora == 24) {
+            hora = 0;
+            dia++;
+        }
+        return dia < dias;
+    }
+
+    /**
+     * Devuelve la hora actual, en horas desde el 1 de enero de 1970.
+     * @return La hora de época.
+     */
+    public long mGetHoraEpoca() {
+        return primeraHoraEpoca + dia * 24L + hora;
+    }
+
+    /**
+     * Devuelve el día del mes de la hora actual.
+     * @return El día (desde 1).
+     */
+    public int mGetDia() {
+        return dia + 1;
+    }
+
+    /**
+     * Devuelve la hora del día actual.
+     * @return La hora (0 a 23).
+     */
+    public int mGetHora() {
+        return hora;
+    }
+
+    /**
+     * Devuelve el consumo de la hora actual.
+     * @return El consumo en kWh.
+     */
+    public double mGetKWh() {
+        return consumos[dia * 24 + hora];
+    }
+
+    /**
+     * Devuelve el costo de la hora actual, con la tarifa vigente ese día.
+     * @return El costo en COP (0 si no aplica ninguna franja).
+     */
+    public double mGetCosto() {
+        return tablas[dia].mCosto(hora, consumos[dia * 24 + hora]);
+    }
+
+    /**
+     * Devuelve las horas que faltan por recorrer como un Stream de {@link Consumo}, cada uno con su costo
+     * ({@link #mGetCosto()}, con la tarifa vigente ese día). Cada objeto se crea solo cuando el Stream lo pide (por ejemplo, con {@code limit} o {@code filter} no se crean los demás).
+     * Después de usar el Stream no se debe seguir usando el cursor.
+     *
+     * @return Un Stream secuencial y ordenado de consumos.
+     */
+    public Stream<Consumo> mComoStream() {
+        long restantes = (long) consumos.length - (dia * 24L + hora + 1);
+        Spliterator<Consumo> spliterator = new Spliterators.AbstractSpliterator<>(Math.max(0, restantes),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Consumo> accion) {
+                if (!mAvanzar()) return false;
+                accion.accept(new Consumo(mFechaHora(mGetHoraEpoca()), mGetKWh(), mGetCosto()));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+}
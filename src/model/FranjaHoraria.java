@@ -5,35 +5,60 @@ package model;
  * Cada franja tiene un rango de horas, un rango de consumo en kWh,
  * y un precio específico por kWh que se aplica si el consumo cae dentro de esos rangos.
  * Esta clase ayuda a determinar el costo de la energía según las reglas del proyecto.
+ *
+ * Las franjas no cambian una vez creadas, así que se comparten: las tablas de tarifas
+ * ({@link TablaTarifas}) las crean una sola vez y siempre devuelven las mismas instancias.
  */
 public class FranjaHoraria {
 
+    /** Nombre de la franja (por ejemplo, "Franja 1 (00:00-06:00)"). Se usa para agrupar consumos por franja. */
+    private final String nombre;
     /** Hora en que inicia la franja (inclusive, formato 0-23). */
     private final int horaInicio;
     /** Hora en que termina la franja (inclusive, formato 0-23). */
     private final int horaFin;
-    /** Consumo mínimo en kWh para que esta franja aplique (inclusive). */
+    /** Consumo mínimo en kWh para que esta franja aplique. */
     private final double kWhMin;
-    /** Consumo máximo en kWh para que esta franja aplique (puede ser inclusive o exclusivo según la definición de la franja). */
+    /** Indica si el consumo mínimo está incluido (mayor o igual) o no (mayor estricto). */
+    private final boolean incluyeMin;
+    /** Consumo máximo en kWh para que esta franja aplique. */
     private final double kWhMax;
+    /** Indica si el consumo máximo está incluido (menor o igual) o no (menor estricto). */
+    private final boolean incluyeMax;
     /** Precio en pesos colombianos (COP) por cada kWh consumido dentro de esta franja. */
     private final double precioPorKw;
 
     /**
-     * Constructor para crear una franja horaria. Es privado porque las franjas
-     * se obtienen a través del método estático {@link #mObtenerFranja(int, double)}.
+     * Constructor para crear una franja horaria. No es público porque las franjas
+     * se obtienen a través de una {@link TablaTarifas} o del método estático {@link #mObtenerFranja(int, double)}.
      *
+     * @param nombre Nombre de la franja.
      * @param horaInicio Hora de inicio (0-23).
      * @param horaFin Hora de fin (0-23).
      * @param kWhMin Consumo mínimo en kWh.
+     * @param incluyeMin true si el consumo mínimo está incluido en la franja.
      * @param kWhMax Consumo máximo en kWh.
+     * @param incluyeMax true si el consumo máximo está incluido en la franja.
      * @param precioPorKw Precio por kWh para esta franja.
      */
-    private FranjaHoraria(int horaInicio, int horaFin, double kWhMin, double kWhMax, double precioPorKw) {
+    FranjaHoraria(String nombre, int horaInicio, int horaFin, double kWhMin, boolean incluyeMin,
+                  double kWhMax, boolean incluyeMax, double precioPorKw) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre de la franja es obligatorio.");
+        }
+        if (horaInicio < 0 || horaFin > 23 || horaInicio > horaFin) {
+            throw new IllegalArgumentException("El rango de horas de la franja no es válido: " + horaInicio + " a " + horaFin);
+        }
+        if (kWhMin > kWhMax || precioPorKw < 0) {
+            throw new IllegalArgumentException("El rango de kWh o el precio de la franja no son válidos.");
+        }
+        this.nombre = nombre;
         this.horaInicio = horaInicio;
         this.horaFin = horaFin;
         this.kWhMin = kWhMin;
+        this.incluyeMin = incluyeMin;
         this.kWhMax = kWhMax;
+        this.incluyeMax = incluyeMax;
         this.precioPorKw = precioPorKw;
     }
 
@@ -45,6 +70,74 @@ public class FranjaHoraria {
         return precioPorKw;
     }
 
+    /**
+     * Devuelve el nombre de la franja.
+     * @return El nombre.
+     */
+    public String mGetNombre() {
+        return nombre;
+    }
+
+    /**
+     * Devuelve la hora en que inicia la franja.
+     * @return La hora de inicio (0-23).
+     */
+    public int mGetHoraInicio() {
+        return horaInicio;
+    }
+
+    /**
+     * Devuelve la hora en que termina la franja (inclusive).
+     * @return La hora de fin (0-23).
+     */
+    public int mGetHoraFin() {
+        return horaFin;
+    }
+
+    /**
+     * Devuelve el consumo mínimo de la franja.
+     * @return El consumo mínimo en kWh.
+     */
+    public double mGetKWhMin() {
+        return kWhMin;
+    }
+
+    /**
+     * Indica si el consumo mínimo está incluido en la franja.
+     * @return true si la franja aplica desde el mínimo (inclusive).
+     */
+    public boolean mIncluyeMin() {
+        return incluyeMin;
+    }
+
+    /**
+     * Devuelve el consumo máximo de la franja.
+     * @return El consumo máximo en kWh.
+     */
+    public double mGetKWhMax() {
+        return kWhMax;
+    }
+
+    /**
+     * Indica si el consumo máximo está incluido en la franja.
+     * @return true si la franja aplica hasta el máximo (inclusive).
+     */
+    public boolean mIncluyeMax() {
+        return incluyeMax;
+    }
+
+    /**
+     * Indica si esta franja aplica a un consumo de cierta hora y cantidad de kWh.
+     * @param hora La hora del consumo (0-23).
+     * @param kWh La cantidad consumida.
+     * @return true si la hora y los kWh están dentro de los rangos de la franja.
+     */
+    public boolean mAplica(int hora, double kWh) {
+        return hora >= horaInicio && hora <= horaFin
+                && (incluyeMin ? kWh >= kWhMin : kWh > kWhMin)
+                && (incluyeMax ? kWh <= kWhMax : kWh < kWhMax);
+    }
+
     /**
      * Determina qué franja horaria se debe aplicar a un consumo específico,
      * basándose en la hora del día y la cantidad de kWh consumidos.
@@ -65,35 +158,15 @@ public class FranjaHoraria {
      * - Consumo: Mayor a 600 kWh y menor estricto a 1000 kWh.
      * - Tarifa: 500 COP por kWh.
      *
+     * No crea objetos: devuelve siempre las mismas franjas de la tabla de tarifas predeterminada.
+     *
      * @param hora La hora del día en que ocurrió el consumo (formato 0-23).
      * @param kWh La cantidad de energía consumida en kilovatios-hora.
      * @return Un objeto {@code FranjaHoraria} si el consumo cae dentro de alguna de las franjas definidas.
      * Devuelve {@code null} si el consumo no cumple las condiciones de kWh para la hora dada.
      */
     public static FranjaHoraria mObtenerFranja(int hora, double kWh) {
-        // Evalúa Franja 1
-        if (hora >= 0 && hora <= 6) { // Horario de Franja 1
-            if (kWh >= 100 && kWh <= 300) { // Condición de kWh para Franja 1
-                return new FranjaHoraria(0, 6, 100, 300, 200);
-            }
-        }
-        // Evalúa Franja 2
-        else if (hora >= 7 && hora <= 17) { // Horario de Franja 2
-            if (kWh > 300 && kWh <= 600) { // Condición de kWh para Franja 2
-                // Usamos 300.01 como kWhMin para ser explícitos con "mayor a 300"
-                return new FranjaHoraria(7, 17, 300.01, 600, 300);
-            }
-        }
-        // Evalúa Franja 3
-        else if (hora >= 18 && hora <= 23) { // Horario de Franja 3
-            if (kWh > 600 && kWh < 1000) { // Condición de kWh para Franja 3
-                // Usamos 600.01 y 999.99 para ser explícitos con "mayor a 600" y "menor a 1000"
-                return new FranjaHoraria(18, 23, 600.01, 999.99, 500);
-            }
-        }
-
-        // Si ninguna franja aplicó (por ejemplo, kWh fuera de los rangos para la hora).
-        return null;
+        return TablaTarifas.mPredeterminada().mObtenerFranja(hora, kWh);
     }
 
     /**
@@ -103,9 +176,10 @@ public class FranjaHoraria {
     @Override
     public String toString() {
         return "FranjaHoraria {" +
-                "De " + horaInicio + ":00 a " + horaFin + ":59" +
-                ", Consumo kWh: entre " + kWhMin + " y " + kWhMax +
+                nombre + ": De " + horaInicio + ":00 a " + horaFin + ":59" +
+                ", Consumo kWh: " + (incluyeMin ? "desde " : "más de ") + kWhMin +
+                (incluyeMax ? " hasta " : " y menos de ") + kWhMax +
                 ", Precio por kWh: " + precioPorKw + " COP" +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,224 @@
+package model;
+
+/**
+ * Distribución de consumos horarios (cuántas horas consumieron cada cantidad de kWh), para calcular
+ * percentiles como p50, p95 o p99 sin guardar ni ordenar los consumos.
+ *
+ * Es un histograma de cubetas logarítmicas, como el de las latencias de las métricas: cada potencia de dos
+ * (de 2^-10, casi una milésima de kWh, a 2^20 kWh) se divide en {@value #SUBCUBETAS} cubetas del mismo ancho,
+ * y cada consumo se cuenta en la suya leyendo directamente el exponente y los primeros bits de la mantisa
+ * del double. Así:
+ * - Ocupa siempre lo mismo ({@value #CUBETAS} contadores), sin importar cuántas horas tenga.
+ * - Un percentil se responde con el punto medio de su cubeta, que está a menos de 1/64 (1,6 %) del
+ *   consumo real. Las horas sin consumo se cuentan aparte y dan exactamente 0.
+ * - Dos histogramas se combinan sumando sus cubetas ({@link #mSumar(HistogramaConsumos)}), sin importar
+ *   cuántos consumos abarquen: el de un cliente es la suma de los de sus medidores, y el de la flota la
+ *   suma de los de todos.
+ *
+ * Los consumos por debajo de 2^-10 kWh se cuentan en una sola cubeta, y los de 2^20 kWh o más en la última.
+ * Un NaN no se puede contar: se rechaza antes de cambiar nada.
+ *
+ * El histograma de un medidor en un mes (a lo sumo 744 horas) cuenta con int, para ocupar la mitad; los que
+ * se crean con el constructor público, donde se suman los de muchos medidores (un cliente, una ciudad o toda
+ * la flota), cuentan con long, así que no se desbordan aunque la flota tenga millones de medidores.
+ * No es seguro para usar desde varios hilos a la vez.
+ */
+public final class HistogramaConsumos {
+
+    /** Bits de la mantisa que eligen la cubeta dentro de cada potencia de dos. */
+    private static final int BITS_SUBCUBETA = 5;
+    /** Cubetas en que se divide cada potencia de dos. */
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    /** Exponente del consumo más bajo que se distingue (2^-10, algo menos de 0,001 kWh). */
+    private static final int EXPONENTE_MINIMO = -10;
+    /** Exponente a partir del cual todos los consumos van a la última cubeta (2^20, más de un millón de kWh). */
+    private static final int EXPONENTE_MAXIMO = 20;
+    private static final double CONSUMO_MINIMO = 0x1p-10;
+    private static final double CONSUMO_MAXIMO = 0x1p20;
+    /** Cubeta de las horas sin consumo. */
+    private static final int CUBETA_CERO = 0;
+    /** Cubeta de los consumos por debajo de {@link #CONSUMO_MINIMO}. */
+    private static final int CUBETA_BAJA = 1;
+    /** Cantidad total de cubetas: las dos especiales y las de cada potencia de dos. */
+    private static final int CUBETAS = 2 + (EXPONENTE_MAXIMO - EXPONENTE_MINIMO) * SUBCUBETAS;
+    /**
+     * Lo que se le resta a los bits de un consumo, desplazados, para que la primera cubeta logarítmica
+     * quede en la posición 2 (los bits de 2^-10, con la mantisa en 0).
+     */
+    private static final long DESPLAZAMIENTO =
+            (Double.doubleToRawLongBits(CONSUMO_MINIMO) >>> (52 - BITS_SUBCUBETA)) - 2;
+
+    /** Horas contadas en cada cubeta, en el histograma de un solo medidor (null en uno acumulado). */
+    private final int[] cubetas;
+    /** Horas contadas en cada cubeta, en un histograma acumulado (null en el de un solo medidor). */
+    private final long[] cubetasAnchas;
+    /** Horas contadas en total. */
+    private long horas;
+
+    /**
+     * Crea un histograma sin horas, donde se pueden sumar los de muchos medidores.
+     */
+    public HistogramaConsumos() {
+        this(true);
+    }
+
+    private HistogramaConsumos(boolean ancho) {
+        this.cubetas = ancho ? null : new int[CUBETAS];
+        this.cubetasAnchas = ancho ? new long[CUBETAS] : null;
+    }
+
+    /**
+     * Crea un histograma sin horas para los consumos de un solo medidor en un mes, que cuenta con int.
+     * @return El histograma.
+     */
+    static HistogramaConsumos mDeUnMedidor() {
+        return new HistogramaConsumos(false);
+    }
+
+    /**
+     * Devuelve la cubeta donde se cuenta un consumo.
+     * @throws IllegalArgumentException Si el consumo es NaN.
+     */
+    private static int mCubeta(double kWh) {
+        if (Double.isNaN(kWh)) {
+            throw new IllegalArgumentException("Un consumo NaN no se puede contar en la distribución.");
+        }
+        if (kWh <= 0) return CUBETA_CERO;
+        if (kWh < CONSUMO_MINIMO) return CUBETA_BAJA;
+        if (kWh >= CONSUMO_MAXIMO) return CUBETAS - 1;
+        // El exponente y los primeros bits de la mantisa, juntos, crecen de a uno de una cubeta a la siguiente.
+        return (int) ((Double.doubleToRawLongBits(kWh) >>> (52 - BITS_SUBCUBETA)) - DESPLAZAMIENTO);
+    }
+
+    /** Devuelve el menor consumo que cae en una cubeta logarítmica (desde la posición 2). */
+    private static double mInicioCubeta(int cubeta) {
+        return Double.longBitsToDouble((cubeta + DESPLAZAMIENTO) << (52 - BITS_SUBCUBETA));
+    }
+
+    /** Devuelve el consumo con que se responde por una cubeta: su punto medio (0 para las horas sin consumo). */
+    private static double mValorCubeta(int cubeta) {
+        if (cubeta == CUBETA_CERO) return 0;
+        if (cubeta == CUBETA_BAJA) return CONSUMO_MINIMO / 2;
+        return (mInicioCubeta(cubeta) + mInicioCubeta(cubeta + 1)) / 2;
+    }
+
+    /**
+     * Cuenta el consumo de una hora.
+     * @param kWh El consumo (ya validado como no negativo).
+     */
+    public void mAgregar(double kWh) {
+        mIncrementar(mCubeta(kWh), 1);
+        horas++;
+    }
+
+    /** Suma (o resta, si es negativo) horas a una cubeta. */
+    private void mIncrementar(int cubeta, int cantidad) {
+        if (cubetas != null) {
+            cubetas[cubeta] += cantidad;
+        } else {
+            cubetasAnchas[cubeta] += cantidad;
+        }
+    }
+
+    /** Devuelve las horas contadas en una cubeta. */
+    private long mCantidad(int cubeta) {
+        return cubetas != null ? cubetas[cubeta] : cubetasAnchas[cubeta];
+    }
+
+    /**
+     * Cuenta los consumos de un tramo de un arreglo (por ejemplo, las 24 horas de un día).
+     * @param valores El arreglo.
+     * @param desde La posición del primer consumo.
+     * @param cantidad Cuántos consumos.
+     */
+    public void mAgregar(double[] valores, int desde, int cantidad) {
+        for (int i = desde; i < desde + cantidad; i++) {
+            mIncrementar(mCubeta(valores[i]), 1);
+        }
+        horas += cantidad;
+    }
+
+    /**
+     * Descuenta el consumo de una hora que ya se había contado (por ejemplo, cuando ese consumo cambia).
+     * @param kWh El consumo que se había contado.
+     * @throws IllegalStateException Si no había ninguna hora contada en la cubeta de ese consumo.
+     */
+    public void mQuitar(double kWh) {
+        int cubeta = mCubeta(kWh);
+        if (mCantidad(cubeta) == 0) {
+            throw new IllegalStateException("No se puede quitar un consumo de " + kWh + " kWh: no se había contado.");
+        }
+        mIncrementar(cubeta, -1);
+        horas--;
+    }
+
+    /**
+     * Cambia el consumo de una hora ya contada (quita el anterior y cuenta el nuevo). Valida los dos
+     * antes de cambiar nada, así que si falla el histograma queda como estaba.
+     * @param anterior El consumo que se había contado.
+     * @param nuevo El consumo nuevo.
+     * @throws IllegalArgumentException Si alguno de los consumos es NaN.
+     * @throws IllegalStateException Si no había ninguna hora contada en la cubeta del consumo anterior.
+     */
+    public void mCambiar(double anterior, double nuevo) {
+        int cubetaAnterior = mCubeta(anterior);
+        int cubetaNueva = mCubeta(nuevo);
+        if (mCantidad(cubetaAnterior) == 0) {
+            throw new IllegalStateException("No se puede quitar un consumo de " + anterior + " kWh: no se había contado.");
+        }
+        mIncrementar(cubetaAnterior, -1);
+        mIncrementar(cubetaNueva, 1);
+    }
+
+    /**
+     * Suma a este histograma las horas de otro, cubeta por cubeta. El otro no cambia.
+     * @param otro El histograma a sumar (si es null, no se hace nada).
+     * @return Este mismo histograma, para encadenar sumas.
+     * @throws ArithmeticException Si este es el histograma de un solo medidor y alguna cubeta pasaría del máximo de un int.
+     */
+    public HistogramaConsumos mSumar(HistogramaConsumos otro) {
+        if (otro == null) return this;
+        if (cubetasAnchas != null) {
+            if (otro.cubetas != null) {
+                for (int i = 0; i < CUBETAS; i++) cubetasAnchas[i] += otro.cubetas[i];
+            } else {
+                for (int i = 0; i < CUBETAS; i++) cubetasAnchas[i] = Math.addExact(cubetasAnchas[i], otro.cubetasAnchas[i]);
+            }
+        } else {
+            for (int i = 0; i < CUBETAS; i++) cubetas[i] = Math.toIntExact(cubetas[i] + otro.mCantidad(i));
+        }
+        horas += otro.horas;
+        return this;
+    }
+
+    /**
+     * Devuelve cuántas horas se han contado.
+     * @return La cantidad de horas.
+     */
+    public long mGetHoras() {
+        return horas;
+    }
+
+    /**
+     * Estima un percentil: el consumo por debajo del cual (o igual) está esa fracción de las horas.
+     * Por ejemplo, {@code mPercentil(0.95)} es el consumo que solo superó el 5 % de las horas.
+     *
+     * @param fraccion El percentil como fracción, de 0 a 1 (0,99 para el p99; 0 da el consumo más bajo y 1 el más alto).
+     * @return El consumo en kWh (con un error relativo de a lo sumo 1,6 %), o Double.NaN si no hay horas.
+     * @throws IllegalArgumentException Si la fracción no está entre 0 y 1.
+     */
+    public double mPercentil(double fraccion) {
+        if (!(fraccion >= 0 && fraccion <= 1)) {
+            throw new IllegalArgumentException("El percentil debe ser una fracción entre 0 y 1. Ingresaste: " + fraccion);
+        }
+        if (horas == 0) return Double.NaN;
+        // El lugar que ocuparía esa hora si se ordenaran todas (desde 1).
+        long objetivo = Math.max(1, (long) Math.ceil(fraccion * horas));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += mCantidad(i);
+            if (acumulado >= objetivo) return mValorCubeta(i);
+        }
+        return mValorCubeta(CUBETAS - 1);
+    }
+}
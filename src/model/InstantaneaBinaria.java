@@ -0,0 +1,397 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * Guarda en un archivo binario todos los clientes, sus medidores y los consumos de cada medidor,
+ * y los vuelve a cargar, para no perder el estado del sistema al cerrar la aplicación.
+ *
+ * Formato (versión {@value #VERSION}, números en little-endian):
+ * <pre>
+ * Cabecera (32 bytes): mágico "JPOS" | versión | fecha de creación (ms) | clientes | secciones | secuencia de la bitácora
+ * Cada sección:        largo en bytes | clientes de la sección | datos de cada cliente
+ * Cada cliente:        id | tipo de documento | correo | dirección | medidores | datos de cada medidor
+ * Cada medidor:        id | dirección | ciudad | año y mes actuales | periodos | datos de cada periodo
+ * Cada periodo:        año | mes | formato (0 = días x 24 doubles; 1 = bloque comprimido: largo + bytes)
+ * </pre>
+ * Los textos se guardan como largo en bytes (-1 si es null) seguido del texto en UTF-8.
+ *
+ * Los clientes se agrupan en secciones independientes: al guardar, varias secciones se codifican en paralelo;
+ * al cargar, cada sección se mapea en memoria y se decodifica en su propio hilo. Cada cliente se codifica con su
+ * candado de lectura tomado, así que se puede guardar mientras otros hilos hacen cambios. Los meses archivados se
+ * guardan tal como están comprimidos. La secuencia de la bitácora es la de la última entrada de la bitácora de
+ * escrituras que ya está incluida en la instantánea (0 si no se usa bitácora); al recuperar, solo se aplican
+ * las entradas posteriores. Si el formato cambia, se aumenta {@link #VERSION} y la carga debe
+ * seguir aceptando las versiones anteriores.
+ */
+public final class InstantaneaBinaria {
+
+    /** Número mágico al inicio del archivo ("JPOS"). */
+    public static final int MAGICO = 0x4A504F53;
+    /** Versión actual del formato. */
+    public static final int VERSION = 1;
+
+    private static final int TAMANO_CABECERA = 32;
+    /** Cantidad de clientes por sección. */
+    private static final int CLIENTES_POR_SECCION = 256;
+    private static final byte FORMATO_CRUDO = 0;
+    private static final byte FORMATO_COMPRIMIDO = 1;
+
+    private InstantaneaBinaria() {
+    }
+
+    /**
+     * Guarda los clientes (con sus medidores y consumos) en un archivo. Se escribe primero en un archivo
+     * temporal que luego reemplaza al original, así que un corte a mitad de camino no daña la instantánea anterior.
+     * Mientras se guarda no se deben modificar los clientes.
+     *
+     * @param archivo La ruta del archivo.
+     * @param clientes Los clientes a guardar, en orden.
+     * @param grupoHilos Grupo de hilos donde se codifican las secciones.
+     * @return El tamaño del archivo en bytes.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public static long mGuardar(Path archivo, Collection<Cliente> clientes, ForkJoinPool grupoHilos) throws IOException {
+        return mGuardar(archivo, clientes, 0L, grupoHilos);
+    }
+
+    /**
+     * Guarda los clientes igual que {@link #mGuardar(Path, Collection, ForkJoinPool)}, anotando además hasta
+     * qué entrada de la bitácora de escrituras llegan los datos guardados.
+     *
+     * @param archivo La ruta del archivo.
+     * @param clientes Los clientes a guardar, en orden.
+     * @param secuenciaBitacora La secuencia de la última entrada de la bitácora incluida en estos datos.
+     * @param grupoHilos Grupo de hilos donde se codifican las secciones.
+     * @return El tamaño del archivo en bytes.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public static long mGuardar(Path archivo, Collection<Cliente> clientes, long secuenciaBitacora,
+                                ForkJoinPool grupoHilos) throws IOException {
+        Cliente[] arregloClientes = clientes.toArray(new Cliente[0]);
+        int secciones = (arregloClientes.length + CLIENTES_POR_SECCION - 1) / CLIENTES_POR_SECCION;
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            cabecera.putInt(MAGICO).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(arregloClientes.length).putInt(secciones).putLong(secuenciaBitacora).flip();
+            mEscribirTodo(canal, cabecera);
+
+            // Se codifican varias secciones a la vez y se escriben en orden; así la memoria usada
+            // queda limitada a unas pocas secciones aunque el archivo sea muy grande.
+            int porLote = Math.max(1, grupoHilos.getParallelism() * 2);
+            for (int primera = 0; primera < secciones; primera += porLote) {
+                List<ForkJoinTask<ByteBuffer>> tareas = new ArrayList<>();
+                for (int s = primera; s < Math.min(secciones, primera + porLote); s++) {
+                    int desde = s * CLIENTES_POR_SECCION;
+                    int hasta = Math.min(arregloClientes.length, desde + CLIENTES_POR_SECCION);
+                    tareas.add(grupoHilos.submit(() -> mCodificarSeccion(arregloClientes, desde, hasta)));
+                }
+                for (ForkJoinTask<ByteBuffer> tarea : tareas) {
+                    mEscribirTodo(canal, tarea.join());
+                }
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(archivo);
+    }
+
+    /**
+     * Lee solo la cabecera de una instantánea y devuelve hasta qué entrada de la bitácora llegan sus datos.
+     *
+     * @param archivo La ruta del archivo.
+     * @return La secuencia guardada (0 si la instantánea se guardó sin bitácora).
+     * @throws IOException Si el archivo no se puede leer o no es una instantánea.
+     */
+    public static long mLeerSecuenciaBitacora(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            mLeerTodo(canal, cabecera, 0);
+            if (cabecera.getInt(0) != MAGICO) {
+                throw new IOException("El archivo " + archivo + " no es una instantánea del sistema.");
+            }
+            return cabecera.getLong(24);
+        }
+    }
+
+    /**
+     * Carga los clientes de un archivo guardado con {@link #mGuardar(Path, Collection, ForkJoinPool)}.
+     *
+     * @param archivo La ruta del archivo.
+     * @param fabricaAlmacenes Crea el almacén de consumos de cada medidor a partir de su ID
+     *                         (null para guardarlos en memoria, en una {@link SerieConsumos}).
+     * @param grupoHilos Grupo de hilos donde se decodifican las secciones.
+     * @return Los clientes, en el mismo orden en que se guardaron.
+     * @throws IOException Si el archivo no se puede leer, no es una instantánea o su versión no se conoce.
+     */
+    public static List<Cliente> mCargar(Path archivo, Function<String, AlmacenConsumos> fabricaAlmacenes,
+                                        ForkJoinPool grupoHilos) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            mLeerTodo(canal, cabecera, 0);
+            if (cabecera.getInt(0) != MAGICO) {
+                throw new IOException("El archivo " + archivo + " no es una instantánea del sistema.");
+            }
+            int version = cabecera.getInt(4);
+            if (version < 1 || version > VERSION) {
+                throw new IOException("La instantánea tiene la versión " + version + " y solo se conocen hasta la " + VERSION + ".");
+            }
+            int cantidadClientes = cabecera.getInt(16);
+            int secciones = cabecera.getInt(20);
+
+            // Ubica cada sección leyendo solo su largo, y luego las decodifica en paralelo.
+            ByteBuffer largo = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long posicion = TAMANO_CABECERA;
+            List<ForkJoinTask<List<Cliente>>> tareas = new ArrayList<>(secciones);
+            for (int s = 0; s < secciones; s++) {
+                largo.clear();
+                mLeerTodo(canal, largo, posicion);
+                int bytesSeccion = largo.getInt(0);
+                MappedByteBuffer seccion = canal.map(FileChannel.MapMode.READ_ONLY, posicion + Integer.BYTES, bytesSeccion);
+                tareas.add(grupoHilos.submit(() -> mDecodificarSeccion(seccion, fabricaAlmacenes)));
+                posicion += Integer.BYTES + bytesSeccion;
+            }
+
+            List<Cliente> clientes = new ArrayList<>(cantidadClientes);
+            for (ForkJoinTask<List<Cliente>> tarea : tareas) {
+                try {
+                    clientes.addAll(tarea.join());
+                } catch (RuntimeException e) {
+                    throw new IOException("No se pudo cargar la instantánea: " + e.getMessage(), e);
+                }
+            }
+            return clientes;
+        }
+    }
+
+    // --- Codificación ---
+
+    /**
+     * Codifica una sección (un rango de clientes) con su largo al inicio, lista para escribir.
+     */
+    private static ByteBuffer mCodificarSeccion(Cliente[] clientes, int desde, int hasta) {
+        Escritor escritor = new Escritor();
+        escritor.mInt(0); // Lugar para el largo de la sección.
+        escritor.mInt(hasta - desde);
+        for (int i = desde; i < hasta; i++) {
+            Cliente cliente = clientes[i];
+            Lock lectura = cliente.mCandado().readLock(); // Cada cliente se guarda tal como está en un momento dado.
+            lectura.lock();
+            try {
+                escritor.mTexto(cliente.mGetNumeroIdentificacion());
+                escritor.mTexto(cliente.mGetTipoIdentificacion());
+                escritor.mTexto(cliente.mGetCorreoElectronico());
+                escritor.mTexto(cliente.mGetDireccionFisica());
+                List<Registrador> registradores = cliente.mGetRegistradores();
+                escritor.mInt(registradores.size());
+                for (Registrador registrador : registradores) {
+                    mCodificarRegistrador(escritor, registrador);
+                }
+            } finally {
+                lectura.unlock();
+            }
+        }
+        ByteBuffer buffer = escritor.buffer;
+        long bytesSeccion = buffer.position() - (long) Integer.BYTES;
+        buffer.putInt(0, (int) bytesSeccion);
+        return buffer.flip();
+    }
+
+    private static void mCodificarRegistrador(Escritor escritor, Registrador registrador) {
+        escritor.mTexto(registrador.mGetNumeroIdentificacion());
+        escritor.mTexto(registrador.mGetDireccion());
+        escritor.mTexto(registrador.mGetCiudad());
+        escritor.mInt(registrador.mGetAnioActualConsumos());
+        escritor.mInt(registrador.mGetMesActualConsumos());
+
+        AlmacenConsumos almacen = registrador.mGetAlmacenConsumos();
+        int[] claves = almacen.mGetClavesPeriodos();
+        escritor.mInt(claves.length);
+        for (int clave : claves) {
+            int anio = clave / 12;
+            int mes = clave % 12 + 1;
+            escritor.mInt(anio);
+            escritor.mByte((byte) mes);
+            BloqueComprimido bloque = (almacen instanceof SerieConsumos)
+                    ? ((SerieConsumos) almacen).mGetArchivado(anio, mes) : null;
+            if (bloque != null) {
+                byte[] datos = bloque.mGetDatos();
+                escritor.mByte(FORMATO_COMPRIMIDO);
+                escritor.mInt(datos.length);
+                escritor.mBytes(datos);
+            } else {
+                escritor.mByte(FORMATO_CRUDO);
+                escritor.mDoubles(almacen.mGetPlano(anio, mes));
+            }
+        }
+    }
+
+    // --- Decodificación ---
+
+    /**
+     * Decodifica los clientes de una sección mapeada en memoria.
+     */
+    private static List<Cliente> mDecodificarSeccion(ByteBuffer seccion, Function<String, AlmacenConsumos> fabricaAlmacenes) {
+        ByteBuffer buffer = seccion.order(ByteOrder.LITTLE_ENDIAN);
+        int cantidad = buffer.getInt();
+        List<Cliente> clientes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Cliente cliente = new Cliente(mLeerTexto(buffer), mLeerTexto(buffer), mLeerTexto(buffer), mLeerTexto(buffer));
+            int medidores = buffer.getInt();
+            for (int m = 0; m < medidores; m++) {
+                cliente.mAgregarRegistrador(mDecodificarRegistrador(buffer, fabricaAlmacenes));
+            }
+            clientes.add(cliente);
+        }
+        return clientes;
+    }
+
+    private static Registrador mDecodificarRegistrador(ByteBuffer buffer, Function<String, AlmacenConsumos> fabricaAlmacenes) {
+        String id = mLeerTexto(buffer);
+        String direccion = mLeerTexto(buffer);
+        String ciudad = mLeerTexto(buffer);
+        int anioActual = buffer.getInt();
+        int mesActual = buffer.getInt();
+        AlmacenConsumos almacen = (fabricaAlmacenes == null) ? new SerieConsumos() : fabricaAlmacenes.apply(id);
+        Registrador registrador = new Registrador(id, direccion, ciudad, almacen);
+        registrador.mRestaurarMesActual(anioActual, mesActual);
+
+        int periodos = buffer.getInt();
+        for (int p = 0; p < periodos; p++) {
+            int anio = buffer.getInt();
+            int mes = buffer.get();
+            byte formato = buffer.get();
+            if (formato == FORMATO_COMPRIMIDO) {
+                byte[] datos = new byte[buffer.getInt()];
+                buffer.get(datos);
+                BloqueComprimido bloque = BloqueComprimido.mDesdeDatos(anio, mes, datos);
+                if (almacen instanceof SerieConsumos) {
+                    ((SerieConsumos) almacen).mPonerArchivado(bloque);
+                } else {
+                    almacen.mInicializarPeriodo(anio, mes);
+                    bloque.mRecorrer((dia, hora, kWh) -> almacen.mEscribir(anio, mes, dia, hora, kWh));
+                }
+            } else if (formato == FORMATO_CRUDO) {
+                mDecodificarCrudo(buffer, almacen, anio, mes);
+            } else {
+                throw new IllegalStateException("formato de periodo desconocido (" + formato + ") en el medidor " + id + ".");
+            }
+        }
+        return registrador;
+    }
+
+    /**
+     * Copia los días x 24 doubles de un periodo al almacén. En memoria se copian directamente
+     * sobre el arreglo del segmento.
+     */
+    private static void mDecodificarCrudo(ByteBuffer buffer, AlmacenConsumos almacen, int anio, int mes) {
+        DoubleBuffer valores = buffer.asDoubleBuffer();
+        if (almacen instanceof SerieConsumos) {
+            ((SerieConsumos) almacen).mInicializar(anio, mes).mCargar(valores);
+        } else {
+            almacen.mInicializarPeriodo(anio, mes);
+            int dias = YearMonth.of(anio, mes).lengthOfMonth();
+            for (int d = 1; d <= dias; d++) {
+                for (int h = 0; h < 24; h++) {
+                    almacen.mEscribir(anio, mes, d, h, valores.get());
+                }
+            }
+        }
+        buffer.position(buffer.position() + valores.position() * Double.BYTES);
+    }
+
+    private static String mLeerTexto(ByteBuffer buffer) {
+        int largo = buffer.getInt();
+        if (largo < 0) return null;
+        byte[] bytes = new byte[largo];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- Utilidades de canal ---
+
+    private static void mEscribirTodo(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static void mLeerTodo(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            int leidos = canal.read(buffer, posicion + buffer.position());
+            if (leidos < 0) throw new IOException("La instantánea está incompleta.");
+        }
+    }
+
+    /**
+     * Buffer de escritura que crece a medida que se necesita.
+     */
+    private static final class Escritor {
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        private void mAsegurar(int bytes) {
+            if (buffer.remaining() < bytes) {
+                long necesario = (long) buffer.position() + bytes;
+                if (necesario > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Una sección de la instantánea supera los 2 GB.");
+                }
+                ByteBuffer mayor = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(necesario, buffer.capacity() * 2L)))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                mayor.put(buffer.flip());
+                buffer = mayor;
+            }
+        }
+
+        void mInt(int valor) {
+            mAsegurar(Integer.BYTES);
+            buffer.putInt(valor);
+        }
+
+        void mByte(byte valor) {
+            mAsegurar(1);
+            buffer.put(valor);
+        }
+
+        void mBytes(byte[] valores) {
+            mAsegurar(valores.length);
+            buffer.put(valores);
+        }
+
+        void mDoubles(double[] valores) {
+            mAsegurar(valores.length * Double.BYTES);
+            buffer.asDoubleBuffer().put(valores);
+            buffer.position(buffer.position() + valores.length * Double.BYTES);
+        }
+
+        void mTexto(String texto) {
+            if (texto == null) {
+                mInt(-1);
+                return;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            mInt(bytes.length);
+            mBytes(bytes);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+/**
+ * Cálculos básicos sobre consumos guardados seguidos en un arreglo (por ejemplo, las 24 horas de un día):
+ * suma, mínimo, máximo, horas con consumo, sumas por franja y costo con la tarifa de cada hora.
+ * Son los que usa {@link AgregadoMensual} al recorrer un mes, y se llaman con {@link #mActivos()}.
+ *
+ * Hay dos implementaciones, y se elige una sola vez al arrancar:
+ * - {@code NucleosConsumoVectoriales}: usa la API de vectores de Java (el módulo {@code jdk.incubator.vector}),
+ *   que procesa 4 u 8 horas por instrucción en procesadores con AVX2 o AVX-512. Se usa si la JVM arrancó con
+ *   {@code --add-modules jdk.incubator.vector} y la clase está compilada (la compila Maven, ver aplicacion/pom.xml;
+ *   no está en src/ para que el proyecto siga compilando en VS Code sin opciones extra).
+ * - {@link NucleosConsumoEscalares}: Java normal, en cualquier JVM. Es la que se usa si no está la otra.
+ *
+ * Los consumos ya están validados (no negativos, sin NaN), así que no se revisan aquí. Las sumas se agrupan
+ * distinto que en un recorrido hora por hora, así que los totales pueden diferir en los últimos decimales.
+ */
+abstract class NucleosConsumo {
+
+    /** Los totales de un día que calcula {@link #mResumirDia}. Se reutiliza de un día al siguiente. */
+    static final class TotalesDia {
+        double suma;
+        double minimo;
+        double maximo;
+        double costo;
+        int horasConConsumo;
+    }
+
+    /** Nombre del módulo de la API de vectores. */
+    private static final String MODULO_VECTORES = "jdk.incubator.vector";
+
+    private static final NucleosConsumo ACTIVOS = mElegir();
+
+    /**
+     * Devuelve la implementación que se eligió al arrancar.
+     * @return Los núcleos a usar.
+     */
+    static NucleosConsumo mActivos() {
+        return ACTIVOS;
+    }
+
+    /**
+     * Usa la implementación con vectores si la JVM tiene el módulo y la clase está compilada; si no, la escalar.
+     */
+    private static NucleosConsumo mElegir() {
+        if (ModuleLayer.boot().findModule(MODULO_VECTORES).isPresent()) {
+            try {
+                return (NucleosConsumo) Class.forName("model.NucleosConsumoVectoriales").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Atención: No se pudieron cargar los cálculos con vectores; se usan los escalares: " + e);
+            }
+        }
+        return new NucleosConsumoEscalares();
+    }
+
+    /**
+     * Describe la implementación (por ejemplo, para mostrar cuál se está usando).
+     * @return Un texto corto.
+     */
+    abstract String mDescripcion();
+
+    /**
+     * Suma un tramo de consumos.
+     * @param valores El arreglo.
+     * @param desde La posición del primer consumo.
+     * @param cantidad Cuántos consumos.
+     * @return La suma (0 si no hay consumos).
+     */
+    abstract double mSuma(double[] valores, int desde, int cantidad);
+
+    /**
+     * Busca el consumo más bajo de un tramo.
+     * @return El mínimo, o Double.POSITIVE_INFINITY si no hay consumos.
+     */
+    abstract double mMinimo(double[] valores, int desde, int cantidad);
+
+    /**
+     * Busca el consumo más alto de un tramo.
+     * @return El máximo, o Double.NEGATIVE_INFINITY si no hay consumos.
+     */
+    abstract double mMaximo(double[] valores, int desde, int cantidad);
+
+    /**
+     * Cuenta los consumos mayores que cero de un tramo.
+     * @return Cuántas horas tuvieron consumo.
+     */
+    abstract int mContarPositivos(double[] valores, int desde, int cantidad);
+
+    /**
+     * Suma los consumos de un tramo en el total de cada franja, usando una máscara por franja
+     * (1.0 en las posiciones que pertenecen a la franja y 0.0 en las demás, ver {@link TablaTarifas#mMascarasFranjas()}).
+     *
+     * @param valores El arreglo.
+     * @param desde La posición del primer consumo.
+     * @param mascaras La máscara de cada franja; todas del largo del tramo.
+     * @param porFranja Los totales de cada franja, a los que se suma.
+     */
+    abstract void mSumarPorFranja(double[] valores, int desde, double[][] mascaras, double[] porFranja);
+
+    /**
+     * Calcula el costo de un tramo cuando cada posición tiene una sola banda de precio: el consumo se cobra
+     * a su precio si está entre el mínimo y el máximo de la banda, y si no, no se cobra.
+     *
+     * @param valores El arreglo.
+     * @param desde La posición del primer consumo.
+     * @param minimos El consumo mínimo (inclusive) de la banda de cada posición del tramo.
+     * @param maximos El consumo máximo (inclusive) de la banda de cada posición del tramo.
+     * @param precios El precio por kWh de cada posición del tramo.
+     * @param cantidad Cuántos consumos.
+     * @return El costo total.
+     */
+    abstract double mCostoPonderado(double[] valores, int desde, double[] minimos, double[] maximos, double[] precios,
+                                    int cantidad);
+
+    /**
+     * Calcula todos los totales de las 24 horas de un día: suma, mínimo, máximo, horas con consumo, costo y
+     * sumas por franja. Por defecto usa los demás cálculos, uno tras otro; una implementación puede hacerlos
+     * todos en un solo recorrido.
+     *
+     * @param kWh El arreglo con los consumos del día.
+     * @param desde La posición de la hora 0 dentro del arreglo.
+     * @param tarifa La tabla de tarifas con que se cobra el día.
+     * @param tablaFranjas La tabla con que se agrupa por franja.
+     * @param porFranja Los totales de cada franja, a los que se suma.
+     * @param totales Donde se dejan los demás totales del día.
+     */
+    void mResumirDia(double[] kWh, int desde, TablaTarifas tarifa, TablaTarifas tablaFranjas, double[] porFranja,
+                     TotalesDia totales) {
+        totales.suma = mSuma(kWh, desde, 24);
+        totales.minimo = mMinimo(kWh, desde, 24);
+        totales.maximo = mMaximo(kWh, desde, 24);
+        totales.horasConConsumo = mContarPositivos(kWh, desde, 24);
+        totales.costo = tarifa.mCostoDia(kWh, desde);
+        mSumarPorFranja(kWh, desde, tablaFranjas.mMascarasFranjas(), porFranja);
+    }
+}
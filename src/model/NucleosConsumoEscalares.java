@@ -0,0 +1,178 @@
+package model;
+
+/**
+ * Los cálculos de {@link NucleosConsumo} en Java normal, para cualquier JVM.
+ *
+ * Cada ciclo lleva cuatro acumuladores independientes que se combinan al final: así el procesador no
+ * tiene que esperar el resultado de una suma para empezar la siguiente. No hay saltos que dependan de
+ * los datos (con consumos al azar, el procesador fallaría la mitad de las veces al adivinarlos): los
+ * mínimos y máximos usan Math.min y Math.max, y el costo se cobra con un factor de 0 o 1.
+ *
+ * Para resumir un día, en cambio, conviene un solo recorrido que calcule todo a la vez (ver
+ * {@link #mResumirDia}): en Java normal, cada consumo cuesta poco, y recorrer el día seis veces cuesta más
+ * que lo que se ahorra en cada recorrido.
+ */
+final class NucleosConsumoEscalares extends NucleosConsumo {
+
+    @Override
+    String mDescripcion() {
+        return "escalares";
+    }
+
+    @Override
+    double mSuma(double[] valores, int desde, int cantidad) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = desde;
+        int fin = desde + cantidad;
+        for (int finBloques = desde + (cantidad & ~3); i < finBloques; i += 4) {
+            s0 += valores[i];
+            s1 += valores[i + 1];
+            s2 += valores[i + 2];
+            s3 += valores[i + 3];
+        }
+        for (; i < fin; i++) {
+            s0 += valores[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    double mMinimo(double[] valores, int desde, int cantidad) {
+        double m0 = Double.POSITIVE_INFINITY, m1 = m0, m2 = m0, m3 = m0;
+        int i = desde;
+        int fin = desde + cantidad;
+        for (int finBloques = desde + (cantidad & ~3); i < finBloques; i += 4) {
+            m0 = Math.min(m0, valores[i]);
+            m1 = Math.min(m1, valores[i + 1]);
+            m2 = Math.min(m2, valores[i + 2]);
+            m3 = Math.min(m3, valores[i + 3]);
+        }
+        for (; i < fin; i++) {
+            m0 = Math.min(m0, valores[i]);
+        }
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    @Override
+    double mMaximo(double[] valores, int desde, int cantidad) {
+        double m0 = Double.NEGATIVE_INFINITY, m1 = m0, m2 = m0, m3 = m0;
+        int i = desde;
+        int fin = desde + cantidad;
+        for (int finBloques = desde + (cantidad & ~3); i < finBloques; i += 4) {
+            m0 = Math.max(m0, valores[i]);
+            m1 = Math.max(m1, valores[i + 1]);
+            m2 = Math.max(m2, valores[i + 2]);
+            m3 = Math.max(m3, valores[i + 3]);
+        }
+        for (; i < fin; i++) {
+            m0 = Math.max(m0, valores[i]);
+        }
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    @Override
+    int mContarPositivos(double[] valores, int desde, int cantidad) {
+        int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int i = desde;
+        int fin = desde + cantidad;
+        for (int finBloques = desde + (cantidad & ~3); i < finBloques; i += 4) {
+            c0 += valores[i] > 0 ? 1 : 0;
+            c1 += valores[i + 1] > 0 ? 1 : 0;
+            c2 += valores[i + 2] > 0 ? 1 : 0;
+            c3 += valores[i + 3] > 0 ? 1 : 0;
+        }
+        for (; i < fin; i++) {
+            c0 += valores[i] > 0 ? 1 : 0;
+        }
+        return (c0 + c1) + (c2 + c3);
+    }
+
+    /**
+     * Multiplica dos tramos posición por posición y suma los productos.
+     * @return La suma de {@code a[desdeA + i] * b[desdeB + i]}.
+     */
+    private static double mProductoPunto(double[] a, int desdeA, double[] b, int desdeB, int cantidad) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int finBloques = cantidad & ~3; i < finBloques; i += 4) {
+            s0 += a[desdeA + i] * b[desdeB + i];
+            s1 += a[desdeA + i + 1] * b[desdeB + i + 1];
+            s2 += a[desdeA + i + 2] * b[desdeB + i + 2];
+            s3 += a[desdeA + i + 3] * b[desdeB + i + 3];
+        }
+        for (; i < cantidad; i++) {
+            s0 += a[desdeA + i] * b[desdeB + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    void mSumarPorFranja(double[] valores, int desde, double[][] mascaras, double[] porFranja) {
+        for (int f = 0; f < mascaras.length; f++) {
+            porFranja[f] += mProductoPunto(valores, desde, mascaras[f], 0, mascaras[f].length);
+        }
+    }
+
+    @Override
+    double mCostoPonderado(double[] valores, int desde, double[] minimos, double[] maximos, double[] precios,
+                           int cantidad) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int finBloques = cantidad & ~3; i < finBloques; i += 4) {
+            s0 += mCostoBanda(valores[desde + i], minimos[i], maximos[i], precios[i]);
+            s1 += mCostoBanda(valores[desde + i + 1], minimos[i + 1], maximos[i + 1], precios[i + 1]);
+            s2 += mCostoBanda(valores[desde + i + 2], minimos[i + 2], maximos[i + 2], precios[i + 2]);
+            s3 += mCostoBanda(valores[desde + i + 3], minimos[i + 3], maximos[i + 3], precios[i + 3]);
+        }
+        for (; i < cantidad; i++) {
+            s0 += mCostoBanda(valores[desde + i], minimos[i], maximos[i], precios[i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Cobra un consumo si está dentro de la banda, sin saltos: la distancia al borde más cercano de la banda es
+     * positiva (o cero) si el consumo está dentro y negativa si está fuera, y su signo da un factor de 1 o 0.
+     */
+    private static double mCostoBanda(double kWh, double minimo, double maximo, double precio) {
+        double distanciaAlBorde = Math.min(kWh - minimo, maximo - kWh);
+        double dentro = 0.5 + 0.5 * Math.copySign(1.0, distanciaAlBorde);
+        return kWh * precio * dentro;
+    }
+
+    /**
+     * Todos los totales del día en un solo recorrido. Si alguna hora tiene varias bandas de precio, se calculan
+     * por separado.
+     */
+    @Override
+    void mResumirDia(double[] kWh, int desde, TablaTarifas tarifa, TablaTarifas tablaFranjas, double[] porFranja,
+                     TotalesDia totales) {
+        double[] minimos = tarifa.mMinimosHora();
+        double[] maximos = tarifa.mMaximosHora();
+        double[] precios = tarifa.mPreciosHora();
+        if (precios == null) {
+            super.mResumirDia(kWh, desde, tarifa, tablaFranjas, porFranja, totales);
+            return;
+        }
+        int[] franjaDeHora = tablaFranjas.mFranjasDeHora();
+        double suma = 0, costo = 0;
+        double minimo = Double.POSITIVE_INFINITY, maximo = Double.NEGATIVE_INFINITY;
+        int horasConConsumo = 0;
+        for (int h = 0; h < 24; h++) {
+            double valor = kWh[desde + h];
+            suma += valor;
+            horasConConsumo += valor > 0 ? 1 : 0;
+            // El mínimo y el máximo del día cambian pocas veces, así que aquí los saltos se adivinan bien.
+            if (valor < minimo) minimo = valor;
+            if (valor > maximo) maximo = valor;
+            if (valor >= minimos[h] && valor <= maximos[h]) costo += valor * precios[h];
+            int franja = franjaDeHora[h];
+            if (franja >= 0) porFranja[franja] += valor;
+        }
+        totales.suma = suma;
+        totales.minimo = minimo;
+        totales.maximo = maximo;
+        totales.costo = costo;
+        totales.horasConConsumo = horasConConsumo;
+    }
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describe cómo se simulan los consumos de un medidor: cada hora se toma un valor al azar dentro del
+ * rango de kWh de la franja de esa hora, y se multiplica por un factor según el día (hábil o fin de semana)
+ * y el mes (curva estacional). Opcionalmente se le suma ruido (una variación al azar proporcional al valor).
+ *
+ * El perfil de franjas ({@link #mFranjas()}) no aplica ningún factor ni ruido: es la simulación original del proyecto.
+ */
+public final class PerfilConsumo {
+
+    private static final double[] SIN_ESTACIONALIDAD = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+
+    private static final PerfilConsumo FRANJAS = new PerfilConsumo("franjas", 1.0, SIN_ESTACIONALIDAD, 0.0);
+    /** Hogares: más consumo el fin de semana y en diciembre-enero y mitad de año (vacaciones). */
+    private static final PerfilConsumo RESIDENCIAL = new PerfilConsumo("residencial", 1.20,
+            new double[]{1.10, 0.95, 0.95, 0.95, 1.00, 1.05, 1.10, 1.00, 0.95, 0.95, 1.00, 1.15}, 0.05);
+    /** Comercio e industria: poco consumo el fin de semana y menos en vacaciones colectivas. */
+    private static final PerfilConsumo COMERCIAL = new PerfilConsumo("comercial", 0.40,
+            new double[]{0.85, 1.00, 1.05, 1.05, 1.05, 1.00, 0.95, 1.05, 1.05, 1.05, 1.05, 0.90}, 0.08);
+
+    private final String nombre;
+    private final double factorFinDeSemana;
+    private final double[] factoresMensuales;
+    private final double ruido;
+
+    /**
+     * Crea un perfil de consumo.
+     *
+     * @param nombre El nombre del perfil.
+     * @param factorFinDeSemana Factor que multiplica los consumos de sábado y domingo (1 = igual que entre semana).
+     * @param factoresMensuales Los 12 factores de la curva estacional, de enero a diciembre.
+     * @param ruido Desviación del ruido, como fracción del valor (0 = sin ruido; 0.05 = ±5% típico).
+     * @throws IllegalArgumentException Si algún factor es negativo, no hay 12 factores mensuales o el ruido es negativo.
+     */
+    public PerfilConsumo(String nombre, double factorFinDeSemana, double[] factoresMensuales, double ruido) {
+        if (nombre == null || nombre.isBlank()) {
+            throw new IllegalArgumentException("El perfil debe tener un nombre.");
+        }
+        if (factoresMensuales == null || factoresMensuales.length != 12) {
+            throw new IllegalArgumentException("El perfil necesita exactamente 12 factores mensuales.");
+        }
+        if (!(factorFinDeSemana >= 0) || !(ruido >= 0) || Arrays.stream(factoresMensuales).anyMatch(f -> !(f >= 0))) {
+            throw new IllegalArgumentException("Los factores y el ruido del perfil no pueden ser negativos.");
+        }
+        this.nombre = nombre;
+        this.factorFinDeSemana = factorFinDeSemana;
+        this.factoresMensuales = factoresMensuales.clone();
+        this.ruido = ruido;
+    }
+
+    /**
+     * Devuelve el perfil original: un valor al azar dentro del rango de la franja, sin factores ni ruido.
+     * @return El perfil de franjas.
+     */
+    public static PerfilConsumo mFranjas() {
+        return FRANJAS;
+    }
+
+    /**
+     * Devuelve el perfil residencial predefinido.
+     * @return El perfil residencial.
+     */
+    public static PerfilConsumo mResidencial() {
+        return RESIDENCIAL;
+    }
+
+    /**
+     * Devuelve el perfil comercial predefinido.
+     * @return El perfil comercial.
+     */
+    public static PerfilConsumo mComercial() {
+        return COMERCIAL;
+    }
+
+    /**
+     * Devuelve los perfiles predefinidos.
+     * @return La lista de perfiles (franjas, residencial y comercial).
+     */
+    public static List<PerfilConsumo> mPredefinidos() {
+        return List.of(FRANJAS, RESIDENCIAL, COMERCIAL);
+    }
+
+    /**
+     * Busca un perfil predefinido por su nombre.
+     * @param nombre El nombre (sin distinguir mayúsculas).
+     * @return El perfil, o null si no hay uno con ese nombre.
+     */
+    public static PerfilConsumo mBuscar(String nombre) {
+        for (PerfilConsumo perfil : mPredefinidos()) {
+            if (perfil.nombre.equalsIgnoreCase(nombre)) return perfil;
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el nombre del perfil.
+     * @return El nombre.
+     */
+    public String mGetNombre() {
+        return nombre;
+    }
+
+    /**
+     * Devuelve el factor que se aplica a todas las horas de un día.
+     * @param mes El mes (1 a 12).
+     * @param finDeSemana Si el día es sábado o domingo.
+     * @return El factor del día.
+     */
+    public double mFactorDia(int mes, boolean finDeSemana) {
+        return factoresMensuales[mes - 1] * (finDeSemana ? factorFinDeSemana : 1.0);
+    }
+
+    /**
+     * Devuelve la desviación del ruido, como fracción del valor.
+     * @return El ruido (0 si el perfil no tiene ruido).
+     */
+    public double mGetRuido() {
+        return ruido;
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
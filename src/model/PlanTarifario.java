@@ -0,0 +1,83 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Una versión de las tarifas, vigente a partir de cierta fecha, para todas las ciudades
+ * o solo para una. Sus franjas ya vienen compiladas en una {@link TablaTarifas}.
+ */
+public final class PlanTarifario {
+
+    /** Nombre o número de la versión del plan (por ejemplo, "2025-01"). */
+    private final String version;
+    /** Fecha desde la que el plan está vigente (inclusive). */
+    private final LocalDate vigenteDesde;
+    /** Ciudad a la que aplica el plan, o null si aplica a todas. */
+    private final String ciudad;
+    /** Franjas del plan, compiladas. */
+    private final TablaTarifas tabla;
+
+    /**
+     * Crea un plan tarifario.
+     *
+     * @param version La versión del plan.
+     * @param vigenteDesde Desde cuándo está vigente. Es obligatoria.
+     * @param ciudad La ciudad a la que aplica, o null para todas.
+     * @param tabla Las franjas compiladas del plan. Es obligatoria.
+     */
+    public PlanTarifario(String version, LocalDate vigenteDesde, String ciudad, TablaTarifas tabla) {
+        if (vigenteDesde == null || tabla == null) {
+            throw new IllegalArgumentException("La fecha de vigencia y las franjas del plan tarifario son obligatorias.");
+        }
+        this.version = version;
+        this.vigenteDesde = vigenteDesde;
+        this.ciudad = ciudad;
+        this.tabla = tabla;
+    }
+
+    /**
+     * Devuelve la versión del plan.
+     * @return La versión.
+     */
+    public String mGetVersion() {
+        return version;
+    }
+
+    /**
+     * Devuelve la fecha desde la que el plan está vigente.
+     * @return La fecha de inicio de vigencia.
+     */
+    public LocalDate mGetVigenteDesde() {
+        return vigenteDesde;
+    }
+
+    /**
+     * Devuelve la ciudad a la que aplica el plan.
+     * @return La ciudad, o null si aplica a todas.
+     */
+    public String mGetCiudad() {
+        return ciudad;
+    }
+
+    /**
+     * Devuelve las franjas compiladas del plan.
+     * @return La tabla de tarifas.
+     */
+    public TablaTarifas mGetTabla() {
+        return tabla;
+    }
+
+    /**
+     * Devuelve un texto que describe el plan.
+     * @return Una cadena de texto con los datos del plan.
+     */
+    @Override
+    public String toString() {
+        return "PlanTarifario {" +
+                "Versión: '" + version + '\'' +
+                ", Vigente desde: " + vigenteDesde +
+                ", Ciudad: " + (ciudad == null ? "Todas" : ciudad) +
+                ", Franjas: " + tabla.mGetFranjas().size() +
+                '}';
+    }
+}
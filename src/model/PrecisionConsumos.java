@@ -0,0 +1,44 @@
+package model;
+
+/**
+ * Con qué tipo de número se guardan en memoria los consumos hora por hora (ver {@link SegmentoMensual}).
+ */
+public enum PrecisionConsumos {
+
+    /** double: 8 bytes por hora, sin perder nada de lo que se guarda. Es la precisión por defecto. */
+    DOBLE(Double.BYTES),
+
+    /**
+     * float: 4 bytes por hora, la mitad de memoria. Un float tiene unas 7 cifras significativas, así que
+     * conserva las tres cifras decimales que reportan los medidores en consumos de hasta unos miles de kWh
+     * por hora; más allá, se redondea en las milésimas.
+     */
+    SIMPLE(Float.BYTES);
+
+    private final int bytesPorHora;
+
+    PrecisionConsumos(int bytesPorHora) {
+        this.bytesPorHora = bytesPorHora;
+    }
+
+    /**
+     * Devuelve cuánta memoria ocupa el consumo de una hora.
+     * @return Los bytes por hora.
+     */
+    public int mBytesPorHora() {
+        return bytesPorHora;
+    }
+
+    /**
+     * Busca una precisión por su nombre, sin importar mayúsculas ("doble" o "simple").
+     * @param nombre El nombre.
+     * @return La precisión.
+     * @throws IllegalArgumentException Si el nombre no corresponde a ninguna precisión.
+     */
+    public static PrecisionConsumos mDesdeNombre(String nombre) {
+        for (PrecisionConsumos precision : values()) {
+            if (precision.name().equalsIgnoreCase(nombre == null ? "" : nombre.trim())) return precision;
+        }
+        throw new IllegalArgumentException("Precisión de consumos desconocida: " + nombre + " (se esperaba doble o simple).");
+    }
+}
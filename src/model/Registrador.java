@@ -1,12 +1,25 @@
 package model;
 
 import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Representa un medidor (registrador) de consumo eléctrico.
- * Almacena los consumos de energía hora por hora para un mes específico.
+ * Almacena los consumos de energía hora por hora de todos los meses que se le hayan cargado.
  * Cada medidor tiene un número de identificación, una dirección y una ciudad.
- * Los consumos se guardan en una estructura de días por 24 horas.
+ * Los consumos se guardan en un {@link AlmacenConsumos}: por defecto una serie de tiempo en memoria
+ * con un segmento (días por 24 horas, en un solo arreglo) por mes, o un archivo mapeado en memoria si así se configura.
+ * El último mes inicializado se considera el "mes actual" del medidor.
+ *
+ * Para los meses que ya se consultaron, el medidor mantiene sus totales (por día, por franja, costo,
+ * mínimo y máximo) al día con cada escritura, así que consultarlos de nuevo no recorre el mes.
+ * Por eso los consumos deben cambiarse con {@link #mSetConsumoEn(int, int, int, int, double)}; fuera del
+ * paquete, los consumos de un mes se leen con {@link #mRecorrerDias} o {@link #mRecorrerConsumos}, o como copia.
+ *
+ * Desde varios hilos, el medidor se protege con el candado de su cliente ({@link Cliente#mCandado()}):
+ * los cambios se hacen con el de escritura y las consultas con el de lectura. Varias consultas a la vez
+ * pueden calcular los totales de un mes; por eso se guardan en un mapa concurrente.
  */
 public class Registrador {
 
@@ -18,18 +31,22 @@ public class Registrador {
     private String ciudad;
 
     /**
-     * Matriz para guardar los consumos del mes.
-     * Las filas representan los días (del 1 al último día del mes).
-     * Las columnas representan las 24 horas del día (de 0 a 23).
-     * Ejemplo: consumosMensuales[día-1][hora] contendrá los kWh de esa hora y día.
+     * Almacén con los consumos de todos los meses cargados.
+     * Por defecto es una {@link SerieConsumos} en memoria.
      */
-    private double[][] consumosMensuales;
+    private final AlmacenConsumos almacenConsumos;
 
-    /** Año para el cual son válidos los datos de consumo actuales en la matriz. */
+    /** Año del último mes inicializado (el "mes actual"). */
     private int anioActualConsumos;
-    /** Mes (1 a 12) para el cual son válidos los datos de consumo actuales. */
+    /** Mes (1 a 12) del último mes inicializado (el "mes actual"). */
     private int mesActualConsumos;
 
+    /**
+     * Totales mantenidos al día de los meses ya consultados, indexados por
+     * {@link SerieConsumos#mClavePeriodo(int, int)}.
+     */
+    private final Map<Integer, AgregadoMensual> agregados = new ConcurrentHashMap<>();
+
 
     /**
      * Crea un nuevo medidor.
@@ -39,13 +56,28 @@ public class Registrador {
      * @param ciudad La ciudad donde se localiza.
      */
     public Registrador(String numeroIdentificacion, String direccion, String ciudad) {
+        this(numeroIdentificacion, direccion, ciudad, new SerieConsumos());
+    }
+
+    /**
+     * Crea un nuevo medidor que guarda sus consumos en el almacén indicado.
+     *
+     * @param numeroIdentificacion El identificador único para este medidor. Es obligatorio.
+     * @param direccion La dirección donde está el medidor.
+     * @param ciudad La ciudad donde se localiza.
+     * @param almacenConsumos Dónde se guardarán los consumos del medidor. Es obligatorio.
+     */
+    public Registrador(String numeroIdentificacion, String direccion, String ciudad, AlmacenConsumos almacenConsumos) {
+        if (almacenConsumos == null) {
+            throw new IllegalArgumentException("El almacén de consumos del medidor es obligatorio.");
+        }
         if (numeroIdentificacion == null || numeroIdentificacion.trim().isEmpty()) {
             throw new IllegalArgumentException("El número de identificación del medidor es obligatorio.");
         }
         this.numeroIdentificacion = numeroIdentificacion;
         this.direccion = direccion;
         this.ciudad = ciudad;
-        this.consumosMensuales = null; // La matriz de consumos se crea después, al indicar el mes/año.
+        this.almacenConsumos = almacenConsumos; // Los meses se agregan después, al indicar el mes/año.
         this.anioActualConsumos = 0; // Se inicializan a 0, indicando que no hay datos cargados.
         this.mesActualConsumos = 0;
     }
@@ -93,13 +125,58 @@ public class Registrador {
     }
 
     /**
-     * Devuelve la matriz completa con los consumos del mes.
+     * Devuelve una matriz con los consumos del mes actual.
      * Puede estar vacía (null) si aún no se han cargado datos para un mes específico.
      *
-     * @return Una matriz de doubles (kWh), o null si no hay datos.
+     * @return Una matriz nueva de doubles (kWh), o null si no hay datos.
      */
     public double[][] mGetConsumosMensuales() {
-        return consumosMensuales;
+        return mGetConsumosMensuales(anioActualConsumos, mesActualConsumos);
+    }
+
+    /**
+     * Devuelve una matriz con los consumos de un mes y año cualquiera de los que estén cargados.
+     * Los consumos se guardan en un solo arreglo por mes; la matriz es una copia armada a partir de él,
+     * para quien la necesite. Para recorrer el mes sin copiarlo se usa {@link #mRecorrerDias}.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return Una matriz nueva [día-1][hora] de kWh, o null si ese periodo no está cargado.
+     */
+    public double[][] mGetConsumosMensuales(int anio, int mes) {
+        return almacenConsumos.mGetMatriz(anio, mes);
+    }
+
+    /**
+     * Devuelve los consumos de un mes y año en un solo arreglo, día tras día: la hora {@code h} del día
+     * {@code d} está en la posición {@code (d - 1) * 24 + h}. Si el mes está en memoria con precisión
+     * DOBLE es el propio arreglo del medidor, así que no se debe modificar (ver {@link #mSetConsumoEn});
+     * por eso solo se usa dentro del paquete.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return Los días x 24 consumos en kWh, o null si ese periodo no está cargado.
+     */
+    double[] mGetConsumosPlanos(int anio, int mes) {
+        return almacenConsumos.mGetPlano(anio, mes);
+    }
+
+    /**
+     * Devuelve el almacén donde este medidor guarda sus consumos.
+     * @return El almacén de consumos.
+     */
+    public AlmacenConsumos mGetAlmacenConsumos() {
+        return almacenConsumos;
+    }
+
+    /**
+     * Indica si el medidor tiene datos cargados para un mes y año.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return true si el periodo está cargado.
+     */
+    public boolean mTieneConsumos(int anio, int mes) {
+        return almacenConsumos.mTienePeriodo(anio, mes);
     }
 
     /**
@@ -123,28 +200,64 @@ public class Registrador {
     /**
      * Prepara (o reinicia) la estructura para guardar los consumos de un mes y año específicos.
      * Se crea una matriz con el número de días correcto para ese mes, y 24 columnas para las horas.
-     * Todos los consumos se ponen en 0.0 inicialmente.
-     * También guarda el mes y año para saber a qué periodo corresponden estos datos.
+     * Todos los consumos de ese mes se ponen en 0.0; los demás meses cargados se conservan.
+     * El mes queda como "mes actual" del medidor.
      *
      * @param mes El mes para los consumos (de 1 a 12).
      * @param anio El año para los consumos (ej. 2025).
      * @throws IllegalArgumentException si el mes o el año no son válidos.
      */
     public void mInicializarConsumos(int mes, int anio) {
-        if (mes < 1 || mes > 12) {
-            throw new IllegalArgumentException("El mes debe ser un número entre 1 y 12. Ingresaste: " + mes);
+        mValidarPeriodo(anio, mes);
+        almacenConsumos.mInicializarPeriodo(anio, mes); // Crea la matriz (en Java se llena con 0.0).
+        agregados.remove(SerieConsumos.mClavePeriodo(anio, mes)); // Los totales anteriores ya no valen.
+        this.anioActualConsumos = anio;
+        this.mesActualConsumos = mes;
+    }
+
+    /**
+     * Carga (o reemplaza) todos los consumos de un mes de una sola vez, copiándolos directamente al almacén.
+     * Es mucho más rápido que guardar hora por hora; lo usan la simulación y las cargas masivas.
+     * El mes queda como "mes actual" del medidor.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @param valores Los consumos del mes en orden (día 1 hora 0, día 1 hora 1, ...); se usan los primeros
+     *                días x 24 valores.
+     * @throws IllegalArgumentException si el periodo no es válido, faltan valores o alguno es negativo, NaN o infinito.
+     */
+    public void mCargarConsumosMes(int anio, int mes, double[] valores) {
+        mValidarPeriodo(anio, mes);
+        int horas = YearMonth.of(anio, mes).lengthOfMonth() * 24;
+        if (valores.length < horas) {
+            throw new IllegalArgumentException("Faltan consumos: el mes tiene " + horas + " horas y se recibieron " + valores.length + ".");
         }
-        // Se define un rango razonable para el año.
-        if (anio < 1900 || anio > YearMonth.now().getYear() + 5) {
-            throw new IllegalArgumentException("El año ingresado no parece válido. Ingresaste: " + anio);
+        for (int i = 0; i < horas; i++) {
+            if (!(valores[i] >= 0) || Double.isInfinite(valores[i])) {
+                throw new IllegalArgumentException("El valor de consumo debe ser un número finito y no negativo. Se recibió: " + valores[i]);
+            }
         }
-
-        YearMonth informacionMesAnio = YearMonth.of(anio, mes);
-        int numeroDeDias = informacionMesAnio.lengthOfMonth(); // Da 28, 29, 30 o 31 días.
-        this.consumosMensuales = new double[numeroDeDias][24]; // Crea la matriz.
+        almacenConsumos.mEscribirMes(anio, mes, valores);
+        agregados.remove(SerieConsumos.mClavePeriodo(anio, mes)); // Los totales anteriores ya no valen.
         this.anioActualConsumos = anio;
         this.mesActualConsumos = mes;
-        // En Java, una matriz de 'double' se llena automáticamente con 0.0.
+    }
+
+    /**
+     * Se asegura de que exista el segmento de un mes y año, creándolo con ceros si no estaba.
+     * A diferencia de {@link #mInicializarConsumos(int, int)}, nunca borra datos ya cargados
+     * ni cambia el "mes actual".
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @throws IllegalArgumentException si el mes o el año no son válidos.
+     */
+    public void mAsegurarPeriodo(int anio, int mes) {
+        if (!almacenConsumos.mTienePeriodo(anio, mes)) {
+            mValidarPeriodo(anio, mes);
+            almacenConsumos.mInicializarPeriodo(anio, mes);
+            agregados.remove(SerieConsumos.mClavePeriodo(anio, mes));
+        }
     }
 
     /**
@@ -157,17 +270,33 @@ public class Registrador {
      * @throws IllegalArgumentException Si el día o la hora están fuera de los límites válidos.
      */
     public double mGetConsumoEn(int dia, int hora) {
-        if (consumosMensuales == null) {
-            throw new IllegalStateException("Aún no se han cargado los datos de consumo para este medidor.");
-        }
-        if (dia < 1 || dia > consumosMensuales.length || hora < 0 || hora > 23) {
-            throw new IllegalArgumentException("El día (" + dia + ") o la hora (" + hora + ") no son válidos para el mes cargado (que tiene " + consumosMensuales.length + " días).");
-        }
-        return consumosMensuales[dia - 1][hora]; // Los arrays empiezan en 0, por eso día-1.
+        return mGetConsumoEn(anioActualConsumos, mesActualConsumos, dia, hora);
     }
 
     /**
-     * Registra un valor de consumo (en kWh) para un día y hora específicos.
+     * Obtiene el valor de consumo (en kWh) para una hora de cualquier mes cargado.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param dia El día del mes (del 1 al número de días que tenga el mes).
+     * @param hora La hora del día (de 0 a 23).
+     * @return El consumo en kWh.
+     * @throws IllegalStateException Si ese mes no está cargado en el medidor.
+     * @throws IllegalArgumentException Si el día o la hora están fuera de los límites válidos.
+     */
+    public double mGetConsumoEn(int anio, int mes, int dia, int hora) {
+        return almacenConsumos.mLeer(anio, mes, dia, hora);
+    }
+
+    /**
+     * Copia las 24 horas de un día de un mes cargado (la hora {@code h} queda en la posición {@code h}).
+     */
+    void mLeerDia(int anio, int mes, int dia, double[] destino) {
+        almacenConsumos.mLeerDia(anio, mes, dia, destino);
+    }
+
+    /**
+     * Registra un valor de consumo (en kWh) para un día y hora específicos del mes actual.
      * Es necesario que los consumos para el mes y año correspondientes ya hayan sido inicializados.
      *
      * @param dia El día del mes (del 1 al número de días que tenga el mes).
@@ -177,16 +306,212 @@ public class Registrador {
      * @throws IllegalArgumentException Si el día, hora o valor son inválidos.
      */
     public void mSetConsumoEn(int dia, int hora, double valor) {
-        if (consumosMensuales == null) {
-            throw new IllegalStateException("Aún no se han cargado los datos de consumo para este medidor.");
+        mSetConsumoEn(anioActualConsumos, mesActualConsumos, dia, hora, valor);
+    }
+
+    /**
+     * Registra un valor de consumo (en kWh) para una hora de cualquier mes cargado.
+     * Si ya se habían calculado los totales del mes, se ajustan con la diferencia entre el valor
+     * anterior y el nuevo, sin recorrer el mes.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param dia El día del mes (del 1 al número de días que tenga el mes).
+     * @param hora La hora del día (de 0 a 23).
+     * @param valor El nuevo valor de consumo en kWh. No puede ser negativo, NaN ni infinito (un NaN
+     *              dañaría para siempre los totales que se ajustan con cada cambio).
+     * @throws IllegalStateException Si ese mes no está cargado en el medidor.
+     * @throws IllegalArgumentException Si el día, hora o valor son inválidos.
+     */
+    public void mSetConsumoEn(int anio, int mes, int dia, int hora, double valor) {
+        if (!(valor >= 0) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("El valor de consumo debe ser un número finito y no negativo. Ingresaste: " + valor);
         }
-        if (dia < 1 || dia > consumosMensuales.length || hora < 0 || hora > 23) {
-            throw new IllegalArgumentException("El día (" + dia + ") o la hora (" + hora + ") no son válidos para el mes cargado (que tiene " + consumosMensuales.length + " días).");
+        AgregadoMensual agregado = agregados.get(SerieConsumos.mClavePeriodo(anio, mes));
+        if (agregado == null) {
+            almacenConsumos.mEscribir(anio, mes, dia, hora, valor);
+            return;
+        }
+        double anterior = almacenConsumos.mLeer(anio, mes, dia, hora);
+        almacenConsumos.mEscribir(anio, mes, dia, hora, valor);
+        // Se ajusta con lo que quedó guardado, que con precisión SIMPLE puede diferir un poco del valor pedido.
+        agregado.mAplicarCambio(this, dia, hora, anterior, almacenConsumos.mLeer(anio, mes, dia, hora));
+    }
+
+    /**
+     * Devuelve el resumen de un mes cargado: mínimo, máximo, totales por día y por franja, costo, etc.
+     * La primera vez recorre el mes y guarda los totales; después los mantiene al día con cada
+     * escritura, así que las siguientes consultas no recorren los consumos. Si cambian las tarifas
+     * o la ciudad del medidor, los totales se vuelven a calcular.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra y se agrupa por franjas.
+     * @return El resumen del mes, o null si el mes no está cargado.
+     */
+    public ResumenMensual mGetResumen(int anio, int mes, CatalogoTarifas catalogo) {
+        AgregadoMensual agregado = mAgregadoVigente(anio, mes, catalogo);
+        return agregado != null ? agregado.mGetResumen() : null;
+    }
+
+    /**
+     * Devuelve una sola cifra del mes (total de kWh, costo, consumo de la hora pico o total de una franja),
+     * tomada de los mismos totales que {@link #mGetResumen(int, int, CatalogoTarifas)} pero sin copiarlos en
+     * un resumen. Sirve para comparar muchos medidores, por ejemplo al buscar los que más consumieron.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra y se agrupa por franjas.
+     * @param criterio Qué cifra.
+     * @param franja La posición de la franja (desde 0) en las franjas de la tabla general del mes; solo
+     *               se usa con {@link CriterioConsumo#FRANJA} y ya debe estar validada.
+     * @return La cifra, o {@link Double#NaN} si el mes no está cargado (ninguna cifra real es NaN; comprobar
+     *         con {@link Double#isNaN(double)}).
+     */
+    public double mGetCifraMes(int anio, int mes, CatalogoTarifas catalogo, CriterioConsumo criterio, int franja) {
+        AgregadoMensual agregado = mAgregadoVigente(anio, mes, catalogo);
+        return agregado != null ? agregado.mGetCifra(criterio, franja) : Double.NaN;
+    }
+
+    /**
+     * Suma la distribución de los consumos horarios de un mes cargado a un histograma (por ejemplo, el
+     * de un cliente o el de toda la flota), para calcular percentiles. La primera vez recorre el mes y
+     * guarda la distribución junto a los totales; después la mantiene al día con cada escritura, así
+     * que sumarla de nuevo no recorre los consumos.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se calculan los totales que se guardan junto a la distribución.
+     * @param destino El histograma al que se suma.
+     * @return true si el mes estaba cargado y se sumó, false si no está cargado.
+     */
+    public boolean mSumarDistribucion(int anio, int mes, CatalogoTarifas catalogo, HistogramaConsumos destino) {
+        AgregadoMensual agregado = mAgregadoVigente(anio, mes, catalogo);
+        if (agregado == null) return false;
+        destino.mSumar(agregado.mGetDistribucion(this));
+        return true;
+    }
+
+    /**
+     * Devuelve los totales guardados de un mes, armándolos si no existen o si se armaron con otras
+     * tarifas u otra ciudad.
+     * @return El agregado, o null si el mes no está cargado.
+     */
+    private AgregadoMensual mAgregadoVigente(int anio, int mes, CatalogoTarifas catalogo) {
+        int clave = SerieConsumos.mClavePeriodo(anio, mes);
+        AgregadoMensual agregado = agregados.get(clave);
+        if (agregado == null || !agregado.mEsVigente(catalogo, ciudad)) {
+            agregado = AgregadoMensual.mConstruir(this, anio, mes, catalogo);
+            if (agregado == null) {
+                agregados.remove(clave);
+                return null; // El mes no está cargado.
+            }
+            agregados.put(clave, agregado);
         }
-        if (valor < 0) {
-            throw new IllegalArgumentException("El valor de consumo no puede ser negativo. Ingresaste: " + valor);
+        return agregado;
+    }
+
+    /**
+     * Recorre en orden los consumos de un mes cargado, hora por hora, sin armar la matriz.
+     * Si el mes está archivado (comprimido), se decodifica sobre la marcha.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param visitante Quien recibe cada consumo (día, hora, kWh).
+     * @return true si el mes estaba cargado, false si no.
+     */
+    public boolean mRecorrerConsumos(int anio, int mes, VisitanteConsumo visitante) {
+        return almacenConsumos.mRecorrer(anio, mes, visitante);
+    }
+
+    /**
+     * Recorre en orden los días de un mes cargado, entregando las 24 horas de cada día juntas
+     * (ver {@link VisitanteDiaConsumo}). Si el mes está en memoria sin comprimir, se entregan las filas
+     * de su matriz sin copiarlas.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param visitante Quien recibe cada día (día, consumos, posición de la hora 0).
+     * @return true si el mes estaba cargado, false si no.
+     */
+    public boolean mRecorrerDias(int anio, int mes, VisitanteDiaConsumo visitante) {
+        return almacenConsumos.mRecorrerDias(anio, mes, visitante);
+    }
+
+    /**
+     * Recorre en orden los consumos de un mes cargado junto con su hora de época y su costo, sin crear
+     * ningún objeto por hora. Cada hora se cobra con la tarifa vigente ese día en la ciudad del medidor.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se calcula el costo.
+     * @param visitante Quien recibe cada consumo (hora de época, kWh, costo).
+     * @return true si el mes estaba cargado, false si no.
+     */
+    public boolean mRecorrerConsumosConCosto(int anio, int mes, CatalogoTarifas catalogo, VisitanteConsumoCosto visitante) {
+        if (!almacenConsumos.mTienePeriodo(anio, mes)) return false;
+        TablaTarifas[] tablas = catalogo.mTablasDelMes(ciudad, anio, mes);
+        long primeraHora = CursorConsumos.mHoraEpoca(anio, mes, 1, 0);
+        return almacenConsumos.mRecorrer(anio, mes, (dia, hora, kWh) ->
+                visitante.mVisitar(primeraHora + (dia - 1) * 24L + hora, kWh, tablas[dia - 1].mCosto(hora, kWh)));
+    }
+
+    /**
+     * Crea un cursor sobre los consumos de un mes cargado (ver {@link CursorConsumos}).
+     * Si el mes está en memoria sin comprimir y con precisión DOBLE, el cursor lee directamente sus datos;
+     * si no (archivado, con precisión SIMPLE o en un archivo mapeado), primero se copia el mes una vez.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se calcula el costo de cada hora.
+     * @return El cursor, o null si el mes no está cargado.
+     */
+    public CursorConsumos mCursorConsumos(int anio, int mes, CatalogoTarifas catalogo) {
+        double[] consumos = almacenConsumos.mGetPlano(anio, mes);
+        if (consumos == null) return null;
+        return new CursorConsumos(anio, mes, consumos, catalogo.mTablasDelMes(ciudad, anio, mes));
+    }
+
+    /**
+     * Comprime un mes cargado para que ocupe menos memoria. Solo aplica a medidores que
+     * guardan sus consumos en memoria; los consumos quedan redondeados a milésimas de kWh.
+     *
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @return true si el mes se archivó, false si no estaba cargado, ya estaba archivado
+     * o el medidor usa otro tipo de almacén.
+     */
+    public boolean mArchivarConsumos(int anio, int mes) {
+        if (almacenConsumos instanceof SerieConsumos) {
+            boolean archivado = ((SerieConsumos) almacenConsumos).mArchivar(anio, mes);
+            if (archivado) {
+                agregados.remove(SerieConsumos.mClavePeriodo(anio, mes)); // Los consumos se redondearon.
+            }
+            return archivado;
+        }
+        return false;
+    }
+
+    /**
+     * Vuelve a poner el "mes actual" que tenía el medidor, sin tocar sus consumos
+     * (se usa al restaurar una instantánea).
+     */
+    void mRestaurarMesActual(int anio, int mes) {
+        this.anioActualConsumos = anio;
+        this.mesActualConsumos = mes;
+    }
+
+    /**
+     * Verifica que el mes y el año estén dentro de rangos razonables.
+     */
+    private void mValidarPeriodo(int anio, int mes) {
+        if (mes < 1 || mes > 12) {
+            throw new IllegalArgumentException("El mes debe ser un número entre 1 y 12. Ingresaste: " + mes);
+        }
+        // Se define un rango razonable para el año.
+        if (anio < 1900 || anio > YearMonth.now().getYear() + 5) {
+            throw new IllegalArgumentException("El año ingresado no parece válido. Ingresaste: " + anio);
         }
-        consumosMensuales[dia - 1][hora] = valor;
     }
 
     // --- Métodos estándar de Java ---
@@ -206,6 +531,7 @@ public class Registrador {
                 ", Ciudad: '" + ciudad + '\'' +
                 ", Mes de Consumos Cargados: " + mesConsumoStr +
                 ", Año de Consumos Cargados: " + anioConsumoStr +
+                ", Meses Guardados: " + almacenConsumos.mCantidadPeriodos() +
                 '}';
     }
 }
\ No newline at end of file
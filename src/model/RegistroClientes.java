@@ -0,0 +1,226 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Guarda a todos los clientes del sistema y a todos sus medidores en tablas hash,
+ * para que buscar un cliente o un medidor no dependa de cuántos haya registrados.
+ *
+ * - Los clientes se indexan por su número de identificación (se conserva el orden de creación).
+ * - Los medidores se indexan de forma global por su número de identificación, junto
+ *   con el cliente al que pertenecen. Un mismo ID de medidor no puede estar en dos clientes.
+ *
+ * Todas las búsquedas, altas, bajas y verificaciones de duplicados son O(1).
+ *
+ * Se puede usar desde varios hilos: las búsquedas y los recorridos no toman ningún candado (usan mapas
+ * concurrentes, y un recorrido ve los clientes que había al empezar, más o menos los que cambien mientras
+ * tanto); las altas y bajas se hacen de a una. Los datos de cada cliente y la lista de sus medidores se
+ * protegen con el candado del cliente ({@link Cliente#mCandado()}): quien agrega o quita un medidor debe
+ * tener tomado el candado de escritura del cliente.
+ */
+public class RegistroClientes {
+
+    /** Clientes indexados por su número de identificación. */
+    private final Map<String, Cliente> clientesPorId;
+    /** Los mismos clientes, en el orden en que se agregaron (la llave es el número de alta). */
+    private final ConcurrentSkipListMap<Long, Cliente> clientesEnOrden;
+    /** Número de alta de cada cliente, indexado por su número de identificación. */
+    private final Map<String, Long> altaPorId;
+    /** Número que recibe el próximo cliente que se agregue. */
+    private long siguienteAlta;
+    /** Medidores de todos los clientes, indexados por el ID del medidor. */
+    private final Map<String, Registrador> registradoresPorId;
+    /** Cliente dueño de cada medidor, indexado por el ID del medidor. */
+    private final Map<String, Cliente> propietarioPorRegistrador;
+
+    /**
+     * Crea un registro vacío.
+     */
+    public RegistroClientes() {
+        this.clientesPorId = new ConcurrentHashMap<>();
+        this.clientesEnOrden = new ConcurrentSkipListMap<>();
+        this.altaPorId = new ConcurrentHashMap<>();
+        this.registradoresPorId = new ConcurrentHashMap<>();
+        this.propietarioPorRegistrador = new ConcurrentHashMap<>();
+    }
+
+    // --- Clientes ---
+
+    /**
+     * Busca un cliente por su número de identificación.
+     * @param numeroIdentificacion El ID del cliente.
+     * @return El cliente, o null si no existe (o si el ID es nulo).
+     */
+    public Cliente mBuscarCliente(String numeroIdentificacion) {
+        if (numeroIdentificacion == null) return null;
+        return clientesPorId.get(numeroIdentificacion);
+    }
+
+    /**
+     * Indica si ya hay un cliente con ese número de identificación.
+     * @param numeroIdentificacion El ID del cliente.
+     * @return true si el cliente existe.
+     */
+    public boolean mExisteCliente(String numeroIdentificacion) {
+        return numeroIdentificacion != null && clientesPorId.containsKey(numeroIdentificacion);
+    }
+
+    /**
+     * Agrega un cliente al registro, junto con los medidores que ya tenga asociados.
+     * No se agrega si ya existe un cliente con el mismo ID, o si alguno de sus medidores
+     * ya pertenece a otro cliente.
+     *
+     * @param cliente El cliente a agregar.
+     * @return true si se agregó, false si era nulo o estaba duplicado.
+     */
+    public synchronized boolean mAgregarCliente(Cliente cliente) {
+        if (cliente == null || clientesPorId.containsKey(cliente.mGetNumeroIdentificacion())) {
+            return false;
+        }
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            if (registradoresPorId.containsKey(registrador.mGetNumeroIdentificacion())) {
+                return false; // Uno de sus medidores ya está registrado en otro cliente.
+            }
+        }
+        long alta = siguienteAlta++;
+        clientesEnOrden.put(alta, cliente);
+        altaPorId.put(cliente.mGetNumeroIdentificacion(), alta);
+        clientesPorId.put(cliente.mGetNumeroIdentificacion(), cliente);
+        for (Registrador registrador : cliente.mGetRegistradores()) {
+            registradoresPorId.put(registrador.mGetNumeroIdentificacion(), registrador);
+            propietarioPorRegistrador.put(registrador.mGetNumeroIdentificacion(), cliente);
+        }
+        return true;
+    }
+
+    /**
+     * Quita un cliente del registro, junto con el índice de todos sus medidores.
+     * @param numeroIdentificacion El ID del cliente a quitar.
+     * @return El cliente eliminado, o null si no existía.
+     */
+    public synchronized Cliente mEliminarCliente(String numeroIdentificacion) {
+        if (numeroIdentificacion == null) return null;
+        Cliente eliminado = clientesPorId.remove(numeroIdentificacion);
+        if (eliminado != null) {
+            clientesEnOrden.remove(altaPorId.remove(numeroIdentificacion));
+            for (Registrador registrador : eliminado.mGetRegistradores()) {
+                registradoresPorId.remove(registrador.mGetNumeroIdentificacion());
+                propietarioPorRegistrador.remove(registrador.mGetNumeroIdentificacion());
+            }
+        }
+        return eliminado;
+    }
+
+    /**
+     * Devuelve una copia de la lista de clientes, en el orden en que fueron creados.
+     * @return Una lista nueva con los clientes.
+     */
+    public List<Cliente> mGetClientes() {
+        return new ArrayList<>(clientesEnOrden.values());
+    }
+
+    /**
+     * Devuelve una vista de solo lectura de los clientes, sin copiarlos.
+     * Sirve para recorrerlos todos, en el orden en que se crearon; refleja los cambios que se hagan
+     * después en el registro (también mientras se recorre, sin fallar).
+     * @return Una colección no modificable con los clientes.
+     */
+    public Collection<Cliente> mVistaClientes() {
+        return Collections.unmodifiableCollection(clientesEnOrden.values());
+    }
+
+    /**
+     * Devuelve la cantidad de clientes registrados.
+     * @return El número de clientes.
+     */
+    public int mCantidadClientes() {
+        return clientesPorId.size();
+    }
+
+    // --- Medidores ---
+
+    /**
+     * Busca un medidor en todo el sistema, sin importar a qué cliente pertenece.
+     * @param idRegistrador El ID del medidor.
+     * @return El medidor, o null si no existe.
+     */
+    public Registrador mBuscarRegistrador(String idRegistrador) {
+        if (idRegistrador == null) return null;
+        return registradoresPorId.get(idRegistrador);
+    }
+
+    /**
+     * Indica si ya existe un medidor con ese ID en cualquier cliente.
+     * @param idRegistrador El ID del medidor.
+     * @return true si el medidor ya está registrado.
+     */
+    public boolean mExisteRegistrador(String idRegistrador) {
+        return idRegistrador != null && registradoresPorId.containsKey(idRegistrador);
+    }
+
+    /**
+     * Devuelve el cliente dueño de un medidor.
+     * @param idRegistrador El ID del medidor.
+     * @return El cliente propietario, o null si el medidor no existe.
+     */
+    public Cliente mBuscarPropietario(String idRegistrador) {
+        if (idRegistrador == null) return null;
+        return propietarioPorRegistrador.get(idRegistrador);
+    }
+
+    /**
+     * Asocia un medidor a un cliente ya registrado y lo agrega al índice global.
+     * No se asocia si el cliente no está en el registro o si el ID del medidor ya existe.
+     *
+     * @param idCliente El ID del cliente dueño.
+     * @param registrador El medidor a asociar.
+     * @return true si se asoció, false en caso contrario.
+     */
+    public synchronized boolean mAgregarRegistrador(String idCliente, Registrador registrador) {
+        Cliente cliente = mBuscarCliente(idCliente);
+        if (cliente == null || registrador == null || mExisteRegistrador(registrador.mGetNumeroIdentificacion())) {
+            return false;
+        }
+        if (!cliente.mAgregarRegistrador(registrador)) {
+            return false;
+        }
+        registradoresPorId.put(registrador.mGetNumeroIdentificacion(), registrador);
+        propietarioPorRegistrador.put(registrador.mGetNumeroIdentificacion(), cliente);
+        return true;
+    }
+
+    /**
+     * Quita un medidor de un cliente y del índice global.
+     * Solo se quita si el medidor realmente pertenece a ese cliente.
+     *
+     * @param idCliente El ID del cliente dueño.
+     * @param idRegistrador El ID del medidor.
+     * @return true si se quitó, false si no se encontró.
+     */
+    public synchronized boolean mEliminarRegistrador(String idCliente, String idRegistrador) {
+        Cliente cliente = mBuscarCliente(idCliente);
+        if (cliente == null || cliente != mBuscarPropietario(idRegistrador)) {
+            return false;
+        }
+        if (!cliente.mEliminarRegistrador(idRegistrador)) {
+            return false;
+        }
+        registradoresPorId.remove(idRegistrador);
+        propietarioPorRegistrador.remove(idRegistrador);
+        return true;
+    }
+
+    /**
+     * Devuelve la cantidad total de medidores registrados en todos los clientes.
+     * @return El número de medidores.
+     */
+    public int mCantidadRegistradores() {
+        return registradoresPorId.size();
+    }
+}
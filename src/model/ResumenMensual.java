@@ -0,0 +1,214 @@
+package model;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Resumen de los consumos de un mes: mínimo, máximo, total, total por franja, total por día,
+ * costo y cantidad de horas con consumo.
+ *
+ * El resumen de un medidor se calcula recorriendo sus consumos una sola vez
+ * (ver {@link #mCalcular(Registrador, int, int, CatalogoTarifas)}), o se toma de los totales
+ * que el medidor mantiene al día con cada escritura
+ * (ver {@link Registrador#mGetResumen(int, int, CatalogoTarifas)}). El resumen de un cliente
+ * se obtiene combinando los de sus medidores con {@link #mCombinar(ResumenMensual)}, sin volver
+ * a recorrer los consumos.
+ */
+public final class ResumenMensual {
+
+    private final int anio;
+    private final int mes;
+    /** Cantidad de medidores que abarca el resumen. */
+    private int medidores;
+    private double minimo;
+    private double maximo;
+    private double totalKWh;
+    private double costo;
+    /** Cantidad de horas recorridas (con o sin consumo). */
+    private int horasRegistradas;
+    private int horasConConsumo;
+    /** Total de kWh por franja, en el orden de los nombres de la tabla general del mes. */
+    private final double[] consumoPorFranja;
+    /** Total de kWh por día; la posición 0 es el día 1. */
+    private final double[] consumoPorDia;
+
+    /**
+     * Crea un resumen sin datos para un mes.
+     */
+    private ResumenMensual(int anio, int mes, int franjas) {
+        this.anio = anio;
+        this.mes = mes;
+        this.minimo = Double.POSITIVE_INFINITY;
+        this.maximo = Double.NEGATIVE_INFINITY;
+        this.consumoPorFranja = new double[franjas];
+        this.consumoPorDia = new double[YearMonth.of(anio, mes).lengthOfMonth()];
+    }
+
+    /**
+     * Crea un resumen con valores ya calculados. Los arreglos se copian.
+     */
+    ResumenMensual(int anio, int mes, int medidores, double minimo, double maximo, double totalKWh, double costo,
+                   int horasRegistradas, int horasConConsumo, double[] consumoPorFranja, double[] consumoPorDia) {
+        this.anio = anio;
+        this.mes = mes;
+        this.medidores = medidores;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.totalKWh = totalKWh;
+        this.costo = costo;
+        this.horasRegistradas = horasRegistradas;
+        this.horasConConsumo = horasConConsumo;
+        this.consumoPorFranja = consumoPorFranja.clone();
+        this.consumoPorDia = consumoPorDia.clone();
+    }
+
+    /**
+     * Calcula el resumen de un medidor para un mes, en un solo recorrido de sus consumos.
+     * El costo se calcula con las tarifas vigentes cada día en la ciudad del medidor; las franjas
+     * se agrupan según las tarifas generales del mes.
+     *
+     * @param registrador El medidor.
+     * @param anio El año.
+     * @param mes El mes (1-12).
+     * @param catalogo Las tarifas con que se cobra y se agrupa por franjas.
+     * @return El resumen del medidor, o null si el mes no está cargado.
+     */
+    public static ResumenMensual mCalcular(Registrador registrador, int anio, int mes, CatalogoTarifas catalogo) {
+        AgregadoMensual agregado = AgregadoMensual.mConstruir(registrador, anio, mes, catalogo);
+        return agregado != null ? agregado.mGetResumen() : null;
+    }
+
+    /**
+     * Combina este resumen con el de otro medidor del mismo mes. No modifica ninguno de los dos.
+     *
+     * @param otro El otro resumen (puede ser null, en cuyo caso se devuelve este mismo).
+     * @return Un resumen nuevo que abarca los medidores de ambos.
+     */
+    public ResumenMensual mCombinar(ResumenMensual otro) {
+        if (otro == null) return this;
+        if (otro.anio != anio || otro.mes != mes || otro.consumoPorFranja.length != consumoPorFranja.length) {
+            throw new IllegalArgumentException("Solo se pueden combinar resúmenes del mismo mes y con las mismas franjas.");
+        }
+        ResumenMensual combinado = new ResumenMensual(anio, mes, consumoPorFranja.length);
+        combinado.medidores = medidores + otro.medidores;
+        combinado.minimo = Math.min(minimo, otro.minimo);
+        combinado.maximo = Math.max(maximo, otro.maximo);
+        combinado.totalKWh = totalKWh + otro.totalKWh;
+        combinado.costo = costo + otro.costo;
+        combinado.horasRegistradas = horasRegistradas + otro.horasRegistradas;
+        combinado.horasConConsumo = horasConConsumo + otro.horasConConsumo;
+        for (int i = 0; i < consumoPorFranja.length; i++) {
+            combinado.consumoPorFranja[i] = consumoPorFranja[i] + otro.consumoPorFranja[i];
+        }
+        for (int i = 0; i < consumoPorDia.length; i++) {
+            combinado.consumoPorDia[i] = consumoPorDia[i] + otro.consumoPorDia[i];
+        }
+        return combinado;
+    }
+
+    /**
+     * Devuelve el año del resumen.
+     * @return El año.
+     */
+    public int mGetAnio() {
+        return anio;
+    }
+
+    /**
+     * Devuelve el mes del resumen.
+     * @return El mes (1-12).
+     */
+    public int mGetMes() {
+        return mes;
+    }
+
+    /**
+     * Devuelve cuántos medidores abarca el resumen.
+     * @return La cantidad de medidores.
+     */
+    public int mGetMedidores() {
+        return medidores;
+    }
+
+    /**
+     * Devuelve el consumo horario más bajo del mes (incluye las horas sin consumo).
+     * @return El mínimo en kWh.
+     */
+    public double mGetMinimo() {
+        return minimo;
+    }
+
+    /**
+     * Devuelve el consumo horario más alto del mes.
+     * @return El máximo en kWh.
+     */
+    public double mGetMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Devuelve el consumo total del mes.
+     * @return El total en kWh.
+     */
+    public double mGetTotalKWh() {
+        return totalKWh;
+    }
+
+    /**
+     * Devuelve el valor a pagar por los consumos del mes.
+     * @return El costo en COP.
+     */
+    public double mGetCosto() {
+        return costo;
+    }
+
+    /**
+     * Devuelve cuántas horas se recorrieron (todas las horas del mes, por cada medidor).
+     * @return La cantidad de horas.
+     */
+    public int mGetHorasRegistradas() {
+        return horasRegistradas;
+    }
+
+    /**
+     * Devuelve cuántas horas tuvieron un consumo mayor que cero.
+     * @return La cantidad de horas con consumo.
+     */
+    public int mGetHorasConConsumo() {
+        return horasConConsumo;
+    }
+
+    /**
+     * Devuelve el consumo total de cada franja.
+     * @return Una copia del arreglo, en el orden de los nombres de franja de las tarifas generales del mes.
+     */
+    public double[] mGetConsumoPorFranja() {
+        return consumoPorFranja.clone();
+    }
+
+    /**
+     * Devuelve el consumo total de cada día del mes.
+     * @return Una copia del arreglo; la posición {@code i} es el día {@code i+1}.
+     */
+    public double[] mGetConsumoPorDia() {
+        return consumoPorDia.clone();
+    }
+
+    /**
+     * Devuelve un texto con los datos principales del resumen.
+     * @return Una cadena de texto con el resumen.
+     */
+    @Override
+    public String toString() {
+        return "ResumenMensual {" +
+                "Periodo: " + String.format("%02d/%d", mes, anio) +
+                ", Medidores: " + medidores +
+                ", Total kWh: " + totalKWh +
+                ", Costo: " + costo +
+                ", Mínimo: " + minimo +
+                ", Máximo: " + maximo +
+                ", Horas con consumo: " + horasConConsumo +
+                ", Por franja: " + Arrays.toString(consumoPorFranja) +
+                '}';
+    }
+}
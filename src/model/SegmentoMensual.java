@@ -0,0 +1,255 @@
+package model;
+
+import java.nio.DoubleBuffer;
+import java.time.YearMonth;
+
+/**
+ * Guarda los consumos hora por hora de un medidor durante un mes y año concretos.
+ * Es un "segmento" de la serie de tiempo de un medidor: la serie completa se forma
+ * con varios de estos segmentos, uno por cada mes que se haya cargado.
+ *
+ * Los consumos del mes se guardan seguidos en un solo arreglo, día tras día: la hora {@code h} del día
+ * {@code d} está en la posición {@code (d - 1) * 24 + h}. Así el mes es un solo objeto, y recorrerlo lee
+ * la memoria en orden. Según la {@link PrecisionConsumos}, el arreglo es de double o de float.
+ */
+public class SegmentoMensual {
+
+    /** Horas de cada día: la distancia, en el arreglo, entre un día y el siguiente. */
+    public static final int HORAS_DIA = 24;
+
+    /** Año al que corresponden los consumos de este segmento. */
+    private final int anio;
+    /** Mes (1 a 12) al que corresponden los consumos de este segmento. */
+    private final int mes;
+    /** Cantidad de días del mes. */
+    private final int dias;
+    /** Consumos del mes con precisión DOBLE (null si la precisión es SIMPLE). */
+    private final double[] valores;
+    /** Consumos del mes con precisión SIMPLE (null si la precisión es DOBLE). */
+    private final float[] valoresSimples;
+
+    /**
+     * Crea un segmento vacío (todos los consumos en 0.0) para el mes y año indicados, con precisión DOBLE.
+     * El número de días se calcula según el mes (28, 29, 30 o 31).
+     *
+     * @param anio El año del segmento.
+     * @param mes El mes del segmento (1 a 12).
+     */
+    public SegmentoMensual(int anio, int mes) {
+        this(anio, mes, PrecisionConsumos.DOBLE);
+    }
+
+    /**
+     * Crea un segmento vacío (todos los consumos en 0.0) para el mes y año indicados.
+     *
+     * @param anio El año del segmento.
+     * @param mes El mes del segmento (1 a 12).
+     * @param precision Con qué tipo de número se guardan los consumos.
+     */
+    public SegmentoMensual(int anio, int mes, PrecisionConsumos precision) {
+        this.anio = anio;
+        this.mes = mes;
+        this.dias = YearMonth.of(anio, mes).lengthOfMonth();
+        this.valores = (precision == PrecisionConsumos.DOBLE) ? new double[dias * HORAS_DIA] : null;
+        this.valoresSimples = (precision == PrecisionConsumos.SIMPLE) ? new float[dias * HORAS_DIA] : null;
+    }
+
+    /**
+     * Devuelve el año del segmento.
+     * @return El año.
+     */
+    public int mGetAnio() {
+        return anio;
+    }
+
+    /**
+     * Devuelve el mes del segmento.
+     * @return El mes (1 a 12).
+     */
+    public int mGetMes() {
+        return mes;
+    }
+
+    /**
+     * Devuelve cuántos días tiene el mes de este segmento.
+     * @return El número de días.
+     */
+    public int mGetDias() {
+        return dias;
+    }
+
+    /**
+     * Devuelve con qué tipo de número se guardan los consumos.
+     * @return La precisión.
+     */
+    public PrecisionConsumos mGetPrecision() {
+        return valores != null ? PrecisionConsumos.DOBLE : PrecisionConsumos.SIMPLE;
+    }
+
+    /**
+     * Devuelve los consumos del mes en un solo arreglo (la hora {@code h} del día {@code d} en la posición
+     * {@code (d - 1) * 24 + h}). Con precisión DOBLE es el propio arreglo del segmento, no una copia: no se
+     * debe modificar. Con precisión SIMPLE es una copia nueva, convertida a double.
+     *
+     * @return Los días x 24 consumos del mes.
+     */
+    public double[] mGetValoresPlanos() {
+        if (valores != null) return valores;
+        double[] copia = new double[valoresSimples.length];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = valoresSimples[i];
+        }
+        return copia;
+    }
+
+    /**
+     * Arma una matriz [día-1][hora] con los consumos, para quien todavía trabaje con matrices.
+     * Es siempre una copia: cambiarla no cambia el segmento.
+     *
+     * @return Una matriz nueva de días x 24 con los kWh.
+     */
+    public double[][] mComoMatriz() {
+        double[][] matriz = new double[dias][HORAS_DIA];
+        for (int d = 0; d < dias; d++) {
+            for (int h = 0; h < HORAS_DIA; h++) {
+                matriz[d][h] = mLeerPosicion(d * HORAS_DIA + h);
+            }
+        }
+        return matriz;
+    }
+
+    /**
+     * Obtiene el consumo de un día y hora del segmento.
+     *
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @return El consumo en kWh.
+     * @throws IllegalArgumentException Si el día o la hora no son válidos para este mes.
+     */
+    public double mGet(int dia, int hora) {
+        mValidarPosicion(dia, hora);
+        return mLeerPosicion((dia - 1) * HORAS_DIA + hora);
+    }
+
+    /**
+     * Copia las 24 horas de un día.
+     *
+     * @param dia El día del mes (desde 1).
+     * @param destino Donde se copian (la hora {@code h} queda en la posición {@code h}).
+     * @throws IllegalArgumentException Si el día no es válido.
+     */
+    public void mLeerDia(int dia, double[] destino) {
+        mValidarPosicion(dia, 0);
+        int desde = (dia - 1) * HORAS_DIA;
+        if (valores != null) {
+            System.arraycopy(valores, desde, destino, 0, HORAS_DIA);
+        } else {
+            for (int h = 0; h < HORAS_DIA; h++) destino[h] = valoresSimples[desde + h];
+        }
+    }
+
+    /**
+     * Guarda el consumo de un día y hora del segmento.
+     *
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @param valor El consumo en kWh. No puede ser negativo, NaN ni infinito.
+     * @throws IllegalArgumentException Si el día, la hora o el valor no son válidos.
+     */
+    public void mSet(int dia, int hora, double valor) {
+        mValidarPosicion(dia, hora);
+        if (!(valor >= 0) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("El valor de consumo debe ser un número finito y no negativo. Ingresaste: " + valor);
+        }
+        mEscribirPosicion((dia - 1) * HORAS_DIA + hora, valor);
+    }
+
+    /**
+     * Reemplaza todos los consumos del mes de una vez.
+     * @param origen Los consumos en orden (día 1 hora 0, día 1 hora 1, ...); se usan los primeros días x 24,
+     *               que ya deben estar validados como no negativos.
+     */
+    public void mCargar(double[] origen) {
+        if (valores != null) {
+            System.arraycopy(origen, 0, valores, 0, valores.length);
+        } else {
+            for (int i = 0; i < valoresSimples.length; i++) {
+                valoresSimples[i] = (float) origen[i];
+            }
+        }
+    }
+
+    /**
+     * Reemplaza todos los consumos del mes con los días x 24 siguientes de un buffer (por ejemplo, una
+     * instantánea mapeada), sin pasar por un arreglo intermedio.
+     * @param origen El buffer, que avanza lo que se leyó.
+     */
+    void mCargar(DoubleBuffer origen) {
+        if (valores != null) {
+            origen.get(valores);
+        } else {
+            for (int i = 0; i < valoresSimples.length; i++) {
+                valoresSimples[i] = (float) origen.get();
+            }
+        }
+    }
+
+    /**
+     * Guarda un consumo ya validado en una posición del arreglo (ver {@link #mGetValoresPlanos()}).
+     */
+    void mEscribirPosicion(int posicion, double valor) {
+        if (valores != null) {
+            valores[posicion] = valor;
+        } else {
+            valoresSimples[posicion] = (float) valor;
+        }
+    }
+
+    private double mLeerPosicion(int posicion) {
+        return valores != null ? valores[posicion] : valoresSimples[posicion];
+    }
+
+    /**
+     * Recorre todos los consumos del segmento en orden.
+     * @param visitante Quien recibe cada consumo.
+     */
+    public void mRecorrer(VisitanteConsumo visitante) {
+        int posicion = 0;
+        for (int d = 1; d <= dias; d++) {
+            for (int h = 0; h < HORAS_DIA; h++, posicion++) {
+                visitante.mVisitar(d, h, mLeerPosicion(posicion));
+            }
+        }
+    }
+
+    /**
+     * Recorre los días del segmento en orden. Con precisión DOBLE se entrega el propio arreglo del mes (cada día
+     * desde su posición, sin copiarlo); con SIMPLE, cada día se convierte a double en un arreglo de 24 que se reutiliza.
+     * @param visitante Quien recibe cada día.
+     */
+    public void mRecorrerDias(VisitanteDiaConsumo visitante) {
+        if (valores != null) {
+            for (int d = 0; d < dias; d++) {
+                visitante.mVisitarDia(d + 1, valores, d * HORAS_DIA);
+            }
+            return;
+        }
+        double[] horasDia = new double[HORAS_DIA];
+        for (int d = 0; d < dias; d++) {
+            for (int h = 0; h < HORAS_DIA; h++) {
+                horasDia[h] = valoresSimples[d * HORAS_DIA + h];
+            }
+            visitante.mVisitarDia(d + 1, horasDia, 0);
+        }
+    }
+
+    /**
+     * Verifica que el día y la hora existan dentro de este mes.
+     */
+    private void mValidarPosicion(int dia, int hora) {
+        if (dia < 1 || dia > dias || hora < 0 || hora > 23) {
+            throw new IllegalArgumentException("El día (" + dia + ") o la hora (" + hora + ") no son válidos para el mes "
+                    + mes + "/" + anio + " (que tiene " + dias + " días).");
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serie de tiempo de consumos de un medidor, dividida en segmentos mensuales.
+ * Permite tener muchos meses (o años) cargados al mismo tiempo, uno al lado del otro,
+ * y llegar a cualquiera de ellos directamente por (año, mes), sin recorrer los demás.
+ * Es el almacén de consumos por defecto de un medidor: guarda todo en la memoria de Java.
+ *
+ * Los meses que ya no se editan pueden archivarse con {@link #mArchivar(int, int)}: quedan guardados
+ * como {@link BloqueComprimido}, ocupando varias veces menos memoria. Se siguen leyendo igual que
+ * los demás, y si se modifica alguno de sus consumos se descomprime automáticamente.
+ */
+public class SerieConsumos implements AlmacenConsumos {
+
+    /** Segmentos sin comprimir, indexados por la clave del periodo (ver {@link #mClavePeriodo(int, int)}). */
+    private final Map<Integer, SegmentoMensual> segmentos;
+    /** Meses archivados (comprimidos), indexados por la clave del periodo. */
+    private final Map<Integer, BloqueComprimido> archivados;
+    /** Con qué tipo de número se guardan los consumos de los segmentos sin comprimir. */
+    private final PrecisionConsumos precision;
+
+    /**
+     * Crea una serie sin ningún mes cargado, que guarda los consumos con precisión DOBLE.
+     */
+    public SerieConsumos() {
+        this(PrecisionConsumos.DOBLE);
+    }
+
+    /**
+     * Crea una serie sin ningún mes cargado.
+     * @param precision Con qué tipo de número se guardan los consumos de cada mes.
+     */
+    public SerieConsumos(PrecisionConsumos precision) {
+        this.segmentos = new HashMap<>();
+        this.archivados = new HashMap<>();
+        this.precision = precision;
+    }
+
+    /**
+     * Devuelve con qué tipo de número se guardan los consumos de cada mes.
+     * @return La precisión.
+     */
+    public PrecisionConsumos mGetPrecision() {
+        return precision;
+    }
+
+    /**
+     * Convierte un año y un mes en un número único, contando meses desde el año 0.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return La clave del periodo.
+     */
+    public static int mClavePeriodo(int anio, int mes) {
+        return anio * 12 + (mes - 1);
+    }
+
+    /**
+     * Devuelve el segmento sin comprimir de un periodo, si está cargado.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return El segmento, o null si ese periodo no tiene datos o está archivado.
+     */
+    public SegmentoMensual mObtener(int anio, int mes) {
+        return segmentos.get(mClavePeriodo(anio, mes));
+    }
+
+    @Override
+    public boolean mTienePeriodo(int anio, int mes) {
+        int clave = mClavePeriodo(anio, mes);
+        return segmentos.containsKey(clave) || archivados.containsKey(clave);
+    }
+
+    /**
+     * Crea (o reemplaza) el segmento de un periodo con todos los consumos en 0.0.
+     * Los demás periodos de la serie no se tocan.
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return El segmento nuevo.
+     */
+    public SegmentoMensual mInicializar(int anio, int mes) {
+        SegmentoMensual nuevo = new SegmentoMensual(anio, mes, precision);
+        int clave = mClavePeriodo(anio, mes);
+        archivados.remove(clave);
+        segmentos.put(clave, nuevo);
+        return nuevo;
+    }
+
+    /**
+     * Devuelve el segmento sin comprimir de un periodo, descomprimiéndolo si estaba archivado
+     * o creándolo vacío si todavía no existía.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return El segmento del periodo.
+     */
+    public SegmentoMensual mObtenerOCrear(int anio, int mes) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento != null) return segmento;
+        BloqueComprimido bloque = archivados.remove(mClavePeriodo(anio, mes));
+        if (bloque == null) return mInicializar(anio, mes);
+        segmento = bloque.mDescomprimir(precision);
+        segmentos.put(mClavePeriodo(anio, mes), segmento);
+        return segmento;
+    }
+
+    /**
+     * Comprime un mes cargado para que ocupe menos memoria. Los consumos quedan redondeados
+     * a milésimas de kWh (la resolución de los medidores).
+     *
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return true si el mes estaba sin comprimir y se archivó.
+     */
+    public boolean mArchivar(int anio, int mes) {
+        int clave = mClavePeriodo(anio, mes);
+        SegmentoMensual segmento = segmentos.get(clave);
+        if (segmento == null) return false;
+        archivados.put(clave, BloqueComprimido.mComprimir(segmento));
+        segmentos.remove(clave);
+        return true;
+    }
+
+    /**
+     * Indica si un periodo está archivado (comprimido).
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return true si el periodo está archivado.
+     */
+    public boolean mEstaArchivado(int anio, int mes) {
+        return archivados.containsKey(mClavePeriodo(anio, mes));
+    }
+
+    /**
+     * Devuelve cuántos bytes ocupan, en total, los datos de los meses archivados.
+     * @return El tamaño de los datos comprimidos.
+     */
+    public long mBytesArchivados() {
+        long total = 0;
+        for (BloqueComprimido bloque : archivados.values()) {
+            total += bloque.mTamanoBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public void mInicializarPeriodo(int anio, int mes) {
+        mInicializar(anio, mes);
+    }
+
+    @Override
+    public boolean mEliminarPeriodo(int anio, int mes) {
+        int clave = mClavePeriodo(anio, mes);
+        boolean habia = segmentos.remove(clave) != null;
+        return archivados.remove(clave) != null || habia;
+    }
+
+    @Override
+    public int mCantidadPeriodos() {
+        return segmentos.size() + archivados.size();
+    }
+
+    @Override
+    public int[] mGetClavesPeriodos() {
+        int[] claves = new int[segmentos.size() + archivados.size()];
+        int i = 0;
+        for (int clave : segmentos.keySet()) claves[i++] = clave;
+        for (int clave : archivados.keySet()) claves[i++] = clave;
+        Arrays.sort(claves);
+        return claves;
+    }
+
+    /**
+     * Devuelve el bloque comprimido de un periodo archivado.
+     * @param anio El año.
+     * @param mes El mes (1 a 12).
+     * @return El bloque, o null si el periodo no está archivado.
+     */
+    BloqueComprimido mGetArchivado(int anio, int mes) {
+        return archivados.get(mClavePeriodo(anio, mes));
+    }
+
+    /**
+     * Guarda un periodo ya comprimido (por ejemplo, leído de una instantánea), reemplazando lo que hubiera.
+     * @param bloque El bloque comprimido.
+     */
+    void mPonerArchivado(BloqueComprimido bloque) {
+        int clave = mClavePeriodo(bloque.mGetAnio(), bloque.mGetMes());
+        segmentos.remove(clave);
+        archivados.put(clave, bloque);
+    }
+
+    @Override
+    public double mLeer(int anio, int mes, int dia, int hora) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento != null) return segmento.mGet(dia, hora);
+        return mBloqueCargado(anio, mes).mGet(dia, hora);
+    }
+
+    @Override
+    public void mLeerDia(int anio, int mes, int dia, double[] destino) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento != null) {
+            segmento.mLeerDia(dia, destino);
+        } else {
+            AlmacenConsumos.super.mLeerDia(anio, mes, dia, destino);
+        }
+    }
+
+    /**
+     * Si el mes estaba archivado, primero se descomprime para poder modificarlo.
+     */
+    @Override
+    public void mEscribir(int anio, int mes, int dia, int hora, double valor) {
+        if (!mTienePeriodo(anio, mes)) {
+            throw mErrorNoCargado(anio, mes);
+        }
+        mObtenerOCrear(anio, mes).mSet(dia, hora, valor);
+    }
+
+    /**
+     * Copia los valores de una vez en el arreglo de un segmento nuevo.
+     */
+    @Override
+    public void mEscribirMes(int anio, int mes, double[] valores) {
+        mInicializar(anio, mes).mCargar(valores);
+    }
+
+    /**
+     * Devuelve el arreglo del propio segmento (no es una copia) si es de precisión DOBLE; si no, o si
+     * el mes está archivado, una copia.
+     */
+    @Override
+    public double[] mGetPlano(int anio, int mes) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento != null) return segmento.mGetValoresPlanos();
+        BloqueComprimido bloque = archivados.get(mClavePeriodo(anio, mes));
+        return bloque != null ? bloque.mDescomprimir().mGetValoresPlanos() : null;
+    }
+
+    /**
+     * Los meses archivados se decodifican hora por hora, sin descomprimirlos completos.
+     */
+    @Override
+    public boolean mRecorrer(int anio, int mes, VisitanteConsumo visitante) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento != null) {
+            segmento.mRecorrer(visitante);
+            return true;
+        }
+        BloqueComprimido bloque = archivados.get(mClavePeriodo(anio, mes));
+        if (bloque == null) return false;
+        bloque.mRecorrer(visitante);
+        return true;
+    }
+
+    /**
+     * Los meses sin comprimir entregan su propio arreglo; los archivados se decodifican día por día.
+     */
+    @Override
+    public boolean mRecorrerDias(int anio, int mes, VisitanteDiaConsumo visitante) {
+        SegmentoMensual segmento = mObtener(anio, mes);
+        if (segmento == null) return AlmacenConsumos.super.mRecorrerDias(anio, mes, visitante);
+        segmento.mRecorrerDias(visitante);
+        return true;
+    }
+
+    /**
+     * Devuelve los segmentos sin comprimir, ordenados del periodo más antiguo al más reciente.
+     * @return Una lista nueva con los segmentos.
+     */
+    public List<SegmentoMensual> mGetSegmentos() {
+        List<SegmentoMensual> lista = new ArrayList<>(segmentos.values());
+        lista.sort(Comparator.comparingInt(s -> mClavePeriodo(s.mGetAnio(), s.mGetMes())));
+        return lista;
+    }
+
+    /**
+     * Devuelve el bloque archivado de un periodo, o lanza un error si el periodo no está cargado.
+     */
+    private BloqueComprimido mBloqueCargado(int anio, int mes) {
+        BloqueComprimido bloque = archivados.get(mClavePeriodo(anio, mes));
+        if (bloque == null) {
+            throw mErrorNoCargado(anio, mes);
+        }
+        return bloque;
+    }
+
+    /**
+     * Crea el error que se lanza al usar un periodo que no está cargado.
+     */
+    private static IllegalStateException mErrorNoCargado(int anio, int mes) {
+        return new IllegalStateException("Aún no se han cargado los datos de consumo de " + mes + "/" + anio + " para este medidor.");
+    }
+}
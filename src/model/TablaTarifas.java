@@ -0,0 +1,298 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tabla de tarifas "precompilada": a partir de una lista de franjas horarias, arma por cada hora
+ * del día (0 a 23) las bandas de kWh que aplican, con sus límites y precios en arreglos de números.
+ *
+ * Así, calcular el precio de un consumo es solo revisar unas pocas comparaciones en arreglos,
+ * sin crear objetos. Las franjas son las mismas instancias siempre, y la tabla no cambia una vez creada,
+ * por lo que puede usarse desde varios hilos a la vez.
+ */
+public final class TablaTarifas {
+
+    /** Tabla con las tres franjas del proyecto (ver {@link FranjaHoraria#mObtenerFranja(int, double)}). */
+    private static final TablaTarifas PREDETERMINADA = new TablaTarifas(List.of(
+            new FranjaHoraria("Franja 1 (00:00-06:00)", 0, 6, 100, true, 300, true, 200),    // 100 a 300 kWh.
+            new FranjaHoraria("Franja 2 (07:00-17:00)", 7, 17, 300, false, 600, true, 300),  // Más de 300 hasta 600 kWh.
+            new FranjaHoraria("Franja 3 (18:00-23:00)", 18, 23, 600, false, 1000, false, 500) // Más de 600 y menos de 1000 kWh.
+    ));
+
+    /** Tabla sin franjas: ningún consumo tiene costo. */
+    private static final TablaTarifas VACIA = new TablaTarifas(List.of());
+
+    /** Franjas con las que se armó la tabla, en orden de prioridad. */
+    private final List<FranjaHoraria> franjas;
+    /** Posición de la primera banda de cada hora; las bandas de la hora h van de inicioHora[h] a inicioHora[h+1]. */
+    private final int[] inicioHora;
+    /** Consumo mínimo (inclusive) de cada banda. */
+    private final double[] minimos;
+    /** Consumo máximo (inclusive) de cada banda. */
+    private final double[] maximos;
+    /** Precio por kWh de cada banda. */
+    private final double[] precios;
+    /** Franja de la que viene cada banda. */
+    private final FranjaHoraria[] franjaDeBanda;
+    /** Nombres distintos de las franjas, en el orden en que aparecen. */
+    private final List<String> nombresFranjas;
+    /** Posición (en nombresFranjas) de la primera franja que cubre cada hora, o -1 si ninguna. */
+    private final int[] franjaDeHora;
+    /** Por cada franja (en el orden de nombresFranjas), 1.0 en las horas que cubre y 0.0 en las demás. */
+    private final double[][] mascarasFranjas;
+    /**
+     * Mínimo, máximo y precio de la banda de cada hora, si ninguna hora tiene más de una banda (como en las
+     * tarifas del proyecto); las horas sin banda tienen un rango vacío. Son null si alguna hora tiene varias.
+     */
+    private final double[] minimoHora;
+    private final double[] maximoHora;
+    private final double[] precioHora;
+
+    /**
+     * Arma la tabla a partir de una lista de franjas. Si varias franjas aplican a la misma
+     * hora y consumo, gana la que aparece primero en la lista.
+     *
+     * @param franjas Las franjas horarias, en orden de prioridad.
+     */
+    public TablaTarifas(List<FranjaHoraria> franjas) {
+        this.franjas = Collections.unmodifiableList(List.copyOf(franjas));
+        this.inicioHora = new int[25];
+        int totalBandas = 0;
+        for (int h = 0; h < 24; h++) {
+            inicioHora[h] = totalBandas;
+            for (FranjaHoraria franja : franjas) {
+                if (h >= franja.mGetHoraInicio() && h <= franja.mGetHoraFin()) totalBandas++;
+            }
+        }
+        inicioHora[24] = totalBandas;
+
+        this.minimos = new double[totalBandas];
+        this.maximos = new double[totalBandas];
+        this.precios = new double[totalBandas];
+        this.franjaDeBanda = new FranjaHoraria[totalBandas];
+        int banda = 0;
+        for (int h = 0; h < 24; h++) {
+            for (FranjaHoraria franja : franjas) {
+                if (h >= franja.mGetHoraInicio() && h <= franja.mGetHoraFin()) {
+                    // Los límites estrictos se pasan al double siguiente (o anterior), para que
+                    // todas las comparaciones sean "mayor o igual" y "menor o igual".
+                    minimos[banda] = franja.mIncluyeMin() ? franja.mGetKWhMin() : Math.nextUp(franja.mGetKWhMin());
+                    maximos[banda] = franja.mIncluyeMax() ? franja.mGetKWhMax() : Math.nextDown(franja.mGetKWhMax());
+                    precios[banda] = franja.mGetPrecioPorKw();
+                    franjaDeBanda[banda] = franja;
+                    banda++;
+                }
+            }
+        }
+
+        List<String> nombres = new ArrayList<>();
+        for (FranjaHoraria franja : franjas) {
+            if (!nombres.contains(franja.mGetNombre())) nombres.add(franja.mGetNombre());
+        }
+        this.nombresFranjas = Collections.unmodifiableList(nombres);
+        this.franjaDeHora = new int[24];
+        for (int h = 0; h < 24; h++) {
+            franjaDeHora[h] = inicioHora[h] < inicioHora[h + 1] ? nombres.indexOf(franjaDeBanda[inicioHora[h]].mGetNombre()) : -1;
+        }
+        this.mascarasFranjas = new double[nombres.size()][24];
+        for (int h = 0; h < 24; h++) {
+            if (franjaDeHora[h] >= 0) mascarasFranjas[franjaDeHora[h]][h] = 1.0;
+        }
+
+        boolean unaBandaPorHora = true;
+        for (int h = 0; h < 24; h++) {
+            if (inicioHora[h + 1] - inicioHora[h] > 1) unaBandaPorHora = false;
+        }
+        if (unaBandaPorHora) {
+            this.minimoHora = new double[24];
+            this.maximoHora = new double[24];
+            this.precioHora = new double[24];
+            for (int h = 0; h < 24; h++) {
+                boolean tieneBanda = inicioHora[h] < inicioHora[h + 1];
+                minimoHora[h] = tieneBanda ? minimos[inicioHora[h]] : Double.POSITIVE_INFINITY;
+                maximoHora[h] = tieneBanda ? maximos[inicioHora[h]] : Double.NEGATIVE_INFINITY;
+                precioHora[h] = tieneBanda ? precios[inicioHora[h]] : 0;
+            }
+        } else {
+            this.minimoHora = null;
+            this.maximoHora = null;
+            this.precioHora = null;
+        }
+    }
+
+    /**
+     * Devuelve la tabla con las tres franjas del proyecto.
+     * @return La tabla de tarifas predeterminada.
+     */
+    public static TablaTarifas mPredeterminada() {
+        return PREDETERMINADA;
+    }
+
+    /**
+     * Devuelve una tabla sin franjas, en la que ningún consumo tiene costo.
+     * @return La tabla vacía.
+     */
+    public static TablaTarifas mVacia() {
+        return VACIA;
+    }
+
+    /**
+     * Devuelve los nombres distintos de las franjas de la tabla, en orden.
+     * Sirven para agrupar los consumos por franja (ver {@link #mIndiceFranjaHora(int)}).
+     * @return Una lista no modificable de nombres.
+     */
+    public List<String> mGetNombresFranjas() {
+        return nombresFranjas;
+    }
+
+    /**
+     * Devuelve a qué franja (posición en {@link #mGetNombresFranjas()}) pertenece una hora del día,
+     * según la primera franja que la cubre.
+     * @param hora La hora (0-23).
+     * @return La posición de la franja, o -1 si ninguna franja cubre esa hora.
+     */
+    public int mIndiceFranjaHora(int hora) {
+        return (hora < 0 || hora > 23) ? -1 : franjaDeHora[hora];
+    }
+
+    /**
+     * Devuelve la máscara de cada franja: por cada nombre de {@link #mGetNombresFranjas()}, un arreglo de
+     * 24 posiciones con 1.0 en las horas que pertenecen a esa franja y 0.0 en las demás.
+     * Son los arreglos de la propia tabla: no se deben modificar.
+     * @return Las máscaras, en el orden de los nombres.
+     */
+    double[][] mMascarasFranjas() {
+        return mascarasFranjas;
+    }
+
+    /**
+     * Devuelve la posición de la franja de cada hora (ver {@link #mIndiceFranjaHora(int)}), -1 si ninguna la cubre.
+     * Es el arreglo de la propia tabla: no se debe modificar.
+     * @return Un arreglo de 24 posiciones.
+     */
+    int[] mFranjasDeHora() {
+        return franjaDeHora;
+    }
+
+    /**
+     * Devuelve el consumo mínimo (inclusive) de la banda de cada hora, si ninguna hora tiene más de una banda.
+     * Las horas sin banda tienen un rango vacío (mínimo infinito). Es el arreglo de la propia tabla: no se debe modificar.
+     * @return Un arreglo de 24 posiciones, o null si alguna hora tiene varias bandas.
+     */
+    double[] mMinimosHora() {
+        return minimoHora;
+    }
+
+    /**
+     * Devuelve el consumo máximo (inclusive) de la banda de cada hora, como {@link #mMinimosHora()}.
+     * @return Un arreglo de 24 posiciones, o null si alguna hora tiene varias bandas.
+     */
+    double[] mMaximosHora() {
+        return maximoHora;
+    }
+
+    /**
+     * Devuelve el precio por kWh de la banda de cada hora (0 en las horas sin banda), como {@link #mMinimosHora()}.
+     * @return Un arreglo de 24 posiciones, o null si alguna hora tiene varias bandas.
+     */
+    double[] mPreciosHora() {
+        return precioHora;
+    }
+
+    /**
+     * Devuelve el consumo mínimo (inclusive) de la primera banda que aplica a una hora.
+     * @param hora La hora (0-23).
+     * @return El mínimo en kWh, o 0 si ninguna franja cubre esa hora.
+     */
+    public double mKWhMinimoHora(int hora) {
+        return (hora < 0 || hora > 23 || inicioHora[hora] == inicioHora[hora + 1]) ? 0 : minimos[inicioHora[hora]];
+    }
+
+    /**
+     * Devuelve el consumo máximo (inclusive) de la primera banda que aplica a una hora.
+     * @param hora La hora (0-23).
+     * @return El máximo en kWh, o 0 si ninguna franja cubre esa hora.
+     */
+    public double mKWhMaximoHora(int hora) {
+        return (hora < 0 || hora > 23 || inicioHora[hora] == inicioHora[hora + 1]) ? 0 : maximos[inicioHora[hora]];
+    }
+
+    /**
+     * Devuelve las franjas con las que se armó la tabla.
+     * @return Una lista no modificable de franjas.
+     */
+    public List<FranjaHoraria> mGetFranjas() {
+        return franjas;
+    }
+
+    /**
+     * Devuelve el precio por kWh que aplica a un consumo, sin crear objetos.
+     *
+     * @param hora La hora del consumo (0-23).
+     * @param kWh La cantidad consumida.
+     * @return El precio en COP por kWh, o 0 si ninguna franja aplica.
+     */
+    public double mPrecio(int hora, double kWh) {
+        int banda = mBuscarBanda(hora, kWh);
+        return banda >= 0 ? precios[banda] : 0;
+    }
+
+    /**
+     * Calcula el costo de un consumo (kWh por el precio de su franja), sin crear objetos.
+     *
+     * @param hora La hora del consumo (0-23).
+     * @param kWh La cantidad consumida.
+     * @return El costo en COP, o 0 si ninguna franja aplica.
+     */
+    public double mCosto(int hora, double kWh) {
+        int banda = mBuscarBanda(hora, kWh);
+        return banda >= 0 ? kWh * precios[banda] : 0;
+    }
+
+    /**
+     * Calcula el costo de los 24 consumos de un día: lo mismo que sumar {@link #mCosto(int, double)} de cada
+     * hora, pero de una sola vez y sin saltos cuando cada hora tiene una sola banda.
+     *
+     * @param kWh El arreglo con los consumos del día.
+     * @param desde La posición de la hora 0 dentro del arreglo.
+     * @return El costo del día en COP.
+     */
+    public double mCostoDia(double[] kWh, int desde) {
+        if (precioHora != null) {
+            return NucleosConsumo.mActivos().mCostoPonderado(kWh, desde, minimoHora, maximoHora, precioHora, 24);
+        }
+        double costo = 0; // Alguna hora tiene varias bandas: se busca la banda hora por hora.
+        for (int h = 0; h < 24; h++) {
+            costo += mCosto(h, kWh[desde + h]);
+        }
+        return costo;
+    }
+
+    /**
+     * Devuelve la franja que aplica a un consumo (siempre la misma instancia).
+     *
+     * @param hora La hora del consumo (0-23).
+     * @param kWh La cantidad consumida.
+     * @return La franja, o null si ninguna aplica.
+     */
+    public FranjaHoraria mObtenerFranja(int hora, double kWh) {
+        int banda = mBuscarBanda(hora, kWh);
+        return banda >= 0 ? franjaDeBanda[banda] : null;
+    }
+
+    /**
+     * Busca la primera banda de la hora cuyo rango de kWh contiene al consumo.
+     * @return La posición de la banda, o -1 si ninguna aplica.
+     */
+    private int mBuscarBanda(int hora, double kWh) {
+        if (hora < 0 || hora > 23) return -1;
+        for (int banda = inicioHora[hora], fin = inicioHora[hora + 1]; banda < fin; banda++) {
+            if (kWh >= minimos[banda] && kWh <= maximos[banda]) {
+                return banda;
+            }
+        }
+        return -1;
+    }
+}
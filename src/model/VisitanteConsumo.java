@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Recibe, uno por uno, los consumos horarios de un mes mientras se recorren.
+ * Permite leer los datos de un medidor sin armar una matriz ni crear objetos por cada hora.
+ */
+@FunctionalInterface
+public interface VisitanteConsumo {
+
+    /**
+     * Se llama una vez por cada hora del mes, en orden (día 1 hora 0, día 1 hora 1, ...).
+     *
+     * @param dia El día del mes (desde 1).
+     * @param hora La hora (0 a 23).
+     * @param kWh El consumo de esa hora.
+     */
+    void mVisitar(int dia, int hora, double kWh);
+}
@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * Recibe, uno por uno, los consumos horarios de un mes junto con su costo, mientras se recorren.
+ * Todo llega como números primitivos: recorrer un mes no crea ningún objeto por hora.
+ */
+@FunctionalInterface
+public interface VisitanteConsumoCosto {
+
+    /**
+     * Se llama una vez por cada hora del mes, en orden.
+     *
+     * @param horaEpoca La hora del consumo, contada en horas desde el 1 de enero de 1970 a las 00:00
+     *                  (ver {@link CursorConsumos#mFechaHora(long)} para convertirla en fecha).
+     * @param kWh El consumo de esa hora.
+     * @param costo El costo de esa hora en COP, con la tarifa vigente ese día en la ciudad del medidor.
+     */
+    void mVisitar(long horaEpoca, double kWh, double costo);
+}
@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Recibe, día por día, los 24 consumos horarios de cada día de un mes mientras se recorren.
+ * Los consumos de un día llegan juntos y seguidos en un arreglo, para poder procesarlos en bloque
+ * (ver {@link NucleosConsumo}) en vez de uno por uno.
+ */
+@FunctionalInterface
+public interface VisitanteDiaConsumo {
+
+    /**
+     * Se llama una vez por cada día del mes, en orden.
+     *
+     * @param dia El día del mes (desde 1).
+     * @param kWh El arreglo con los consumos del día: la hora {@code h} está en {@code kWh[desde + h]}.
+     *            Solo se puede leer durante la llamada: el arreglo puede ser del almacén o reutilizarse
+     *            para el día siguiente.
+     * @param desde La posición de la hora 0 dentro del arreglo.
+     */
+    void mVisitarDia(int dia, double[] kWh, int desde);
+}
@@ -0,0 +1,152 @@
+package view;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escribe JSON directamente en un Writer, a medida que se genera, sin armar el documento completo en memoria.
+ * Lleva la cuenta de los objetos y arreglos abiertos para poner las comas; quien lo usa solo indica
+ * qué abre, qué escribe y qué cierra:
+ * <pre>
+ * json.mInicioObjeto().mNombre("id").mTexto("C1").mNombre("kWh").mNumero(12.5).mFin();
+ * </pre>
+ * Los decimales que no son números (NaN o infinito) se escriben como {@code null}, porque JSON no los admite.
+ */
+final class EscritorJson {
+
+    /** Profundidad máxima de objetos y arreglos anidados. */
+    private static final int PROFUNDIDAD_MAXIMA = 32;
+
+    private final Writer destino;
+    /** Para cada nivel abierto: si ya tiene algún elemento (y el siguiente lleva coma antes). */
+    private final boolean[] conElementos = new boolean[PROFUNDIDAD_MAXIMA];
+    /** Para cada nivel abierto: si es un objeto (se cierra con llave) o un arreglo. */
+    private final boolean[] esObjeto = new boolean[PROFUNDIDAD_MAXIMA];
+    private int nivel;
+    /** Si se acaba de escribir un nombre (el valor que sigue no lleva coma). */
+    private boolean despuesDeNombre;
+
+    EscritorJson(Writer destino) {
+        this.destino = destino;
+    }
+
+    EscritorJson mInicioObjeto() throws IOException {
+        return mAbrir('{', true);
+    }
+
+    EscritorJson mInicioArreglo() throws IOException {
+        return mAbrir('[', false);
+    }
+
+    /** Cierra el último objeto o arreglo abierto. */
+    EscritorJson mFin() throws IOException {
+        if (nivel == 0) {
+            throw new IllegalStateException("No hay ningún objeto ni arreglo abierto.");
+        }
+        nivel--;
+        destino.write(esObjeto[nivel] ? '}' : ']');
+        return this;
+    }
+
+    /** Escribe el nombre del siguiente campo de un objeto. */
+    EscritorJson mNombre(String nombre) throws IOException {
+        mAntesDeValor();
+        mEscribirTexto(nombre);
+        destino.write(':');
+        despuesDeNombre = true;
+        return this;
+    }
+
+    EscritorJson mTexto(String valor) throws IOException {
+        mAntesDeValor();
+        if (valor == null) {
+            destino.write("null");
+        } else {
+            mEscribirTexto(valor);
+        }
+        return this;
+    }
+
+    EscritorJson mNumero(double valor) throws IOException {
+        mAntesDeValor();
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            destino.write("null");
+        } else if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+            destino.write(Long.toString((long) valor)); // Sin ".0" para los enteros.
+        } else {
+            destino.write(Double.toString(valor));
+        }
+        return this;
+    }
+
+    EscritorJson mEntero(long valor) throws IOException {
+        mAntesDeValor();
+        destino.write(Long.toString(valor));
+        return this;
+    }
+
+    EscritorJson mBooleano(boolean valor) throws IOException {
+        mAntesDeValor();
+        destino.write(valor ? "true" : "false");
+        return this;
+    }
+
+    /** Escribe un arreglo de decimales. */
+    EscritorJson mNumeros(double[] valores) throws IOException {
+        mInicioArreglo();
+        for (double valor : valores) mNumero(valor);
+        return mFin();
+    }
+
+    /** Escribe un arreglo de textos. */
+    EscritorJson mTextos(Iterable<String> valores) throws IOException {
+        mInicioArreglo();
+        for (String valor : valores) mTexto(valor);
+        return mFin();
+    }
+
+    private EscritorJson mAbrir(char caracter, boolean objeto) throws IOException {
+        if (nivel == PROFUNDIDAD_MAXIMA) {
+            throw new IllegalStateException("Demasiados objetos y arreglos anidados.");
+        }
+        mAntesDeValor();
+        destino.write(caracter);
+        esObjeto[nivel] = objeto;
+        conElementos[nivel] = false;
+        nivel++;
+        return this;
+    }
+
+    /** Pone la coma antes de un elemento, si no es el primero de su objeto o arreglo. */
+    private void mAntesDeValor() throws IOException {
+        if (despuesDeNombre) {
+            despuesDeNombre = false;
+            return;
+        }
+        if (nivel > 0) {
+            if (conElementos[nivel - 1]) destino.write(',');
+            conElementos[nivel - 1] = true;
+        }
+    }
+
+    private void mEscribirTexto(String texto) throws IOException {
+        destino.write('"');
+        int desde = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) continue;
+            destino.write(texto, desde, i - desde);
+            switch (c) {
+                case '"' -> destino.write("\\\"");
+                case '\\' -> destino.write("\\\\");
+                case '\n' -> destino.write("\\n");
+                case '\r' -> destino.write("\\r");
+                case '\t' -> destino.write("\\t");
+                default -> destino.write(String.format("\\u%04x", (int) c));
+            }
+            desde = i + 1;
+        }
+        destino.write(texto, desde, texto.length() - desde);
+        destino.write('"');
+    }
+}
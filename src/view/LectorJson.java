@@ -0,0 +1,204 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lee un documento JSON (el cuerpo de una petición HTTP) y lo convierte en objetos de Java:
+ * los objetos quedan como {@code Map<String, Object>} (en el orden en que vienen), los arreglos como
+ * {@code List<Object>}, los textos como String, los números como Double, y true, false y null como
+ * Boolean y null.
+ */
+final class LectorJson {
+
+    /** Profundidad máxima de objetos y arreglos anidados (para no agotar la pila con un documento malicioso). */
+    private static final int PROFUNDIDAD_MAXIMA = 32;
+
+    private final String texto;
+    private int posicion;
+
+    private LectorJson(String texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * Lee un documento JSON completo.
+     *
+     * @param texto El documento.
+     * @return El valor que contiene.
+     * @throws IllegalArgumentException Si el documento no es JSON válido.
+     */
+    static Object mLeer(String texto) {
+        LectorJson lector = new LectorJson(texto);
+        Object valor = lector.mValor(0);
+        lector.mSaltarEspacios();
+        if (lector.posicion != texto.length()) {
+            throw lector.mError("Sobra texto después del valor");
+        }
+        return valor;
+    }
+
+    private Object mValor(int profundidad) {
+        if (profundidad > PROFUNDIDAD_MAXIMA) {
+            throw mError("Demasiados objetos y arreglos anidados");
+        }
+        mSaltarEspacios();
+        if (posicion >= texto.length()) {
+            throw mError("Se esperaba un valor");
+        }
+        char c = texto.charAt(posicion);
+        switch (c) {
+            case '{':
+                return mObjeto(profundidad);
+            case '[':
+                return mArreglo(profundidad);
+            case '"':
+                return mTexto();
+            case 't':
+                mPalabra("true");
+                return Boolean.TRUE;
+            case 'f':
+                mPalabra("false");
+                return Boolean.FALSE;
+            case 'n':
+                mPalabra("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return mNumero();
+                throw mError("Carácter inesperado '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> mObjeto(int profundidad) {
+        Map<String, Object> objeto = new LinkedHashMap<>();
+        posicion++; // '{'
+        mSaltarEspacios();
+        if (mSiguienteEs('}')) return objeto;
+        do {
+            mSaltarEspacios();
+            if (posicion >= texto.length() || texto.charAt(posicion) != '"') {
+                throw mError("Se esperaba el nombre de un campo");
+            }
+            String nombre = mTexto();
+            mSaltarEspacios();
+            if (!mSiguienteEs(':')) {
+                throw mError("Se esperaba ':'");
+            }
+            objeto.put(nombre, mValor(profundidad + 1));
+            mSaltarEspacios();
+        } while (mSiguienteEs(','));
+        if (!mSiguienteEs('}')) {
+            throw mError("Se esperaba ',' o '}'");
+        }
+        return objeto;
+    }
+
+    private List<Object> mArreglo(int profundidad) {
+        List<Object> arreglo = new ArrayList<>();
+        posicion++; // '['
+        mSaltarEspacios();
+        if (mSiguienteEs(']')) return arreglo;
+        do {
+            arreglo.add(mValor(profundidad + 1));
+            mSaltarEspacios();
+        } while (mSiguienteEs(','));
+        if (!mSiguienteEs(']')) {
+            throw mError("Se esperaba ',' o ']'");
+        }
+        return arreglo;
+    }
+
+    private String mTexto() {
+        posicion++; // '"'
+        StringBuilder resultado = null;
+        int desde = posicion;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion);
+            if (c == '"') {
+                String valor = (resultado == null) ? texto.substring(desde, posicion)
+                                                   : resultado.append(texto, desde, posicion).toString();
+                posicion++;
+                return valor;
+            }
+            if (c < 0x20) {
+                throw mError("Carácter de control dentro de un texto");
+            }
+            if (c != '\\') {
+                posicion++;
+                continue;
+            }
+            if (resultado == null) resultado = new StringBuilder();
+            resultado.append(texto, desde, posicion);
+            if (posicion + 1 >= texto.length()) break;
+            char escape = texto.charAt(posicion + 1);
+            posicion += 2;
+            switch (escape) {
+                case '"', '\\', '/' -> resultado.append(escape);
+                case 'b' -> resultado.append('\b');
+                case 'f' -> resultado.append('\f');
+                case 'n' -> resultado.append('\n');
+                case 'r' -> resultado.append('\r');
+                case 't' -> resultado.append('\t');
+                case 'u' -> {
+                    if (posicion + 4 > texto.length()) throw mError("Escape \\u incompleto");
+                    try {
+                        resultado.append((char) Integer.parseInt(texto.substring(posicion, posicion + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw mError("Escape \\u inválido");
+                    }
+                    posicion += 4;
+                }
+                default -> throw mError("Escape inválido '\\" + escape + "'");
+            }
+            desde = posicion;
+        }
+        throw mError("Texto sin cerrar");
+    }
+
+    private Double mNumero() {
+        int desde = posicion;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                posicion++;
+            } else {
+                break;
+            }
+        }
+        try {
+            return Double.valueOf(texto.substring(desde, posicion));
+        } catch (NumberFormatException e) {
+            posicion = desde;
+            throw mError("Número inválido");
+        }
+    }
+
+    private void mPalabra(String palabra) {
+        if (!texto.startsWith(palabra, posicion)) {
+            throw mError("Se esperaba '" + palabra + "'");
+        }
+        posicion += palabra.length();
+    }
+
+    private boolean mSiguienteEs(char caracter) {
+        if (posicion < texto.length() && texto.charAt(posicion) == caracter) {
+            posicion++;
+            return true;
+        }
+        return false;
+    }
+
+    private void mSaltarEspacios() {
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+            posicion++;
+        }
+    }
+
+    private IllegalArgumentException mError(String mensaje) {
+        return new IllegalArgumentException(mensaje + " en la posición " + posicion + " del JSON.");
+    }
+}
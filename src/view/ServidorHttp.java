@@ -0,0 +1,1024 @@
+package view;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controller.CargadorConsumosCSV;
+import controller.Controlador;
+import controller.ConsumidorDestacado;
+import controller.LecturaConsumo;
+import controller.ResultadoCargaConsumos;
+import controller.ResultadoFacturacionFlota;
+import model.Cliente;
+import model.Consumo;
+import model.CriterioConsumo;
+import model.HistogramaConsumos;
+import model.Registrador;
+import model.ResumenMensual;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * API HTTP/JSON sobre las operaciones del Controlador, con el servidor HTTP que trae el JDK
+ * ({@code com.sun.net.httpserver}). Es otra "cara" de la aplicación, como la Vista de consola, pero
+ * atiende a muchos usuarios (u otros sistemas) a la vez.
+ *
+ * Rutas (los ID van en la ruta; el periodo en la consulta, por ejemplo {@code ?anio=2025&mes=3}):
+ * <pre>
+ * GET    /api/clientes                                   Lista de clientes
+ * POST   /api/clientes                                   Crear cliente {id, tipoIdentificacion, correo, direccion}
+ * GET    /api/clientes/{id}                              Cliente con sus medidores
+ * PUT    /api/clientes/{id}                              Editar cliente {tipoIdentificacion, correo, direccion}
+ * DELETE /api/clientes/{id}                              Eliminar cliente
+ * GET    /api/clientes/{id}/medidores                    Medidores del cliente
+ * POST   /api/clientes/{id}/medidores                    Crear medidor {id, direccion, ciudad}
+ * GET    /api/clientes/{id}/medidores/{m}                Medidor
+ * PUT    /api/clientes/{id}/medidores/{m}                Editar medidor {direccion, ciudad}
+ * DELETE /api/clientes/{id}/medidores/{m}                Eliminar medidor
+ * GET    /api/clientes/{id}/medidores/{m}/consumos       Consumos hora por hora del periodo
+ * PUT    /api/clientes/{id}/medidores/{m}/consumos       Cambiar un consumo {fechaHora, kWh}
+ * GET    /api/clientes/{id}/medidores/{m}/percentiles    Percentiles (p50, p95, p99) del consumo horario del medidor
+ * POST   /api/lecturas                                   Lote de lecturas: [{medidor, fechaHora, kWh}, ...] o CSV
+ * GET    /api/clientes/{id}/resumen                      Resumen del periodo (mínimo, máximo, totales, costo)
+ * GET    /api/clientes/{id}/consumo-minimo               Consumo horario mínimo del periodo
+ * GET    /api/clientes/{id}/consumo-maximo               Consumo horario máximo del periodo
+ * GET    /api/clientes/{id}/consumo-franjas              Consumo por franjas del periodo
+ * GET    /api/clientes/{id}/consumo-dias                 Consumo por días del periodo
+ * GET    /api/clientes/{id}/percentiles                  Percentiles (p50, p95, p99) del consumo horario del periodo
+ * GET    /api/clientes/{id}/factura                      Factura en texto del periodo
+ * GET    /api/clientes/{id}/valor-factura                Valor de la factura del periodo
+ * GET    /api/facturas                                   Facturas en texto de todos los clientes del periodo
+ * GET    /api/flota/facturacion                          Totales del periodo de toda la flota, por cliente
+ * GET    /api/flota/percentiles                          Percentiles del consumo horario de la flota (o de {@code &ciudad=...})
+ * GET    /api/flota/top                                  Los que más consumieron: {@code &k=10&criterio=kwh|costo|pico|franja&franja=1&por=clientes|medidores}
+ * </pre>
+ * Las fechas y horas van como {@code 2025-03-01T14:00}. Los errores responden con
+ * {@code {"error": "..."}} y el código HTTP que corresponde (400, 404, 405, 409, 413 o 500).
+ *
+ * Hilos: cada petición se atiende en un hilo virtual si la JVM los tiene (Java 21 o posterior), así que miles
+ * de peticiones pueden esperar a la vez (a la bitácora, a un candado o a un cliente lento) sin ocupar cada una
+ * un hilo del sistema. En versiones anteriores se usa un grupo fijo de {@value #HILOS_SIN_VIRTUALES} hilos.
+ *
+ * Respuestas: las listas que pueden ser grandes (clientes, consumos, facturas de todos, facturación de la flota)
+ * se escriben a medida que se generan, por partes (chunked), sin armarlas completas en memoria.
+ */
+public class ServidorHttp {
+
+    /** Prefijo de todas las rutas de la API. */
+    private static final String PREFIJO = "/api";
+    /** Hilos que atienden peticiones cuando la JVM no tiene hilos virtuales. */
+    private static final int HILOS_SIN_VIRTUALES = 200;
+    /** Conexiones que pueden esperar a ser aceptadas. */
+    private static final int COLA_CONEXIONES = 1024;
+    /** Tamaño máximo del cuerpo de una petición (un lote de lecturas), en bytes. */
+    private static final int MAXIMO_CUERPO = 32 * 1024 * 1024;
+    /** Tamaño del buffer con que se escriben las respuestas (cada vez que se llena se envía una parte). */
+    private static final int TAMANO_BUFFER_RESPUESTA = 32 * 1024;
+    /**
+     * Conexiones inactivas (keep-alive) que el servidor del JDK conserva abiertas. Por defecto son 200: con más
+     * usuarios conectados a la vez, cierra las que sobran justo cuando el usuario puede estar reutilizándolas,
+     * y esa petición falla sin respuesta.
+     */
+    private static final String CONEXIONES_INACTIVAS = "10000";
+    /** Formato de las fechas y horas de los consumos, igual que en la Vista. */
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private final Controlador controlador;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final boolean hilosVirtuales;
+
+    /**
+     * Contenido de una respuesta JSON, que se escribe a medida que se genera.
+     */
+    @FunctionalInterface
+    private interface ContenidoJson {
+        void mEscribir(EscritorJson json) throws IOException;
+    }
+
+    /**
+     * Crea el servidor (todavía no atiende peticiones; ver {@link #mIniciar()}).
+     *
+     * @param controlador El controlador sobre el que se hacen las operaciones.
+     * @param puerto El puerto TCP (0 para que el sistema elija uno libre).
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorHttp(Controlador controlador, int puerto) throws IOException {
+        if (controlador == null) {
+            throw new IllegalArgumentException("El controlador es obligatorio.");
+        }
+        this.controlador = controlador;
+        // Se lee una sola vez, al crear el primer servidor; se respeta si ya viene en la línea de comandos.
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", CONEXIONES_INACTIVAS);
+        }
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        ExecutorService virtuales = mCrearEjecutorVirtual();
+        this.hilosVirtuales = virtuales != null;
+        this.hilos = hilosVirtuales ? virtuales : Executors.newFixedThreadPool(HILOS_SIN_VIRTUALES, mFabricaHilos());
+        servidor.setExecutor(hilos);
+        servidor.createContext(PREFIJO, this::mAtender);
+    }
+
+    /**
+     * Empieza a atender peticiones (en otros hilos; este método vuelve enseguida).
+     */
+    public void mIniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Deja de aceptar peticiones, espera a que terminen las que están en curso y libera el puerto.
+     * @param segundos Cuánto esperar, como máximo, a las peticiones en curso.
+     */
+    public void mDetener(int segundos) {
+        servidor.stop(segundos);
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(segundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Devuelve el puerto donde escucha el servidor (útil si se creó con el puerto 0).
+     * @return El puerto TCP.
+     */
+    public int mGetPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Indica si las peticiones se atienden en hilos virtuales.
+     * @return true con Java 21 o posterior; false si se usa el grupo fijo de hilos.
+     */
+    public boolean mUsaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea, si la JVM los tiene. Se busca por reflexión porque
+     * la aplicación se compila para Java 17, donde no existen.
+     * @return El ejecutor, o null si la JVM no tiene hilos virtuales.
+     */
+    private static ExecutorService mCrearEjecutorVirtual() {
+        try {
+            Method crear = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) crear.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // Java 17 a 20 (en 19 y 20 solo existen como vista previa).
+        }
+    }
+
+    private static ThreadFactory mFabricaHilos() {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, "http-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    // --- ATENCIÓN DE PETICIONES ---
+
+    /**
+     * Atiende una petición: la envía a la operación de su ruta y, si algo falla antes de empezar a
+     * responder, responde con el error.
+     */
+    private void mAtender(HttpExchange intercambio) {
+        try {
+            String[] partes = mPartesRuta(intercambio);
+            mEnrutar(intercambio, intercambio.getRequestMethod(), partes);
+        } catch (IllegalArgumentException e) {
+            mResponderErrorSiSePuede(intercambio, 400, e.getMessage());
+        } catch (IOException e) {
+            // El cliente cerró la conexión (o no se pudo leer su petición): no hay a quién responder.
+        } catch (RuntimeException e) {
+            System.err.println("Error al atender " + intercambio.getRequestMethod() + " " + intercambio.getRequestURI() + ": " + e);
+            mResponderErrorSiSePuede(intercambio, 500, "Error interno: " + e.getMessage());
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    private void mEnrutar(HttpExchange intercambio, String metodo, String[] partes) throws IOException {
+        if (partes.length == 0) {
+            mResponderError(intercambio, 404, "Ruta desconocida.");
+            return;
+        }
+        switch (partes[0]) {
+            case "clientes" -> mEnrutarClientes(intercambio, metodo, partes);
+            case "lecturas" -> {
+                if (partes.length != 1) mResponderError(intercambio, 404, "Ruta desconocida.");
+                else if (metodo.equals("POST")) mRegistrarLecturas(intercambio);
+                else mMetodoNoPermitido(intercambio, "POST");
+            }
+            case "facturas" -> {
+                if (partes.length != 1) mResponderError(intercambio, 404, "Ruta desconocida.");
+                else if (metodo.equals("GET")) mGenerarFacturas(intercambio);
+                else mMetodoNoPermitido(intercambio, "GET");
+            }
+            case "flota" -> {
+                if (partes.length != 2 || !(partes[1].equals("facturacion") || partes[1].equals("percentiles")
+                        || partes[1].equals("top"))) {
+                    mResponderError(intercambio, 404, "Ruta desconocida.");
+                } else if (!metodo.equals("GET")) {
+                    mMetodoNoPermitido(intercambio, "GET");
+                } else if (partes[1].equals("facturacion")) {
+                    mFacturarFlota(intercambio);
+                } else if (partes[1].equals("percentiles")) {
+                    mPercentilesFlota(intercambio);
+                } else {
+                    mTopConsumidoresFlota(intercambio);
+                }
+            }
+            default -> mResponderError(intercambio, 404, "Ruta desconocida.");
+        }
+    }
+
+    private void mEnrutarClientes(HttpExchange intercambio, String metodo, String[] partes) throws IOException {
+        if (partes.length == 1) {
+            switch (metodo) {
+                case "GET" -> mListarClientes(intercambio);
+                case "POST" -> mCrearCliente(intercambio);
+                default -> mMetodoNoPermitido(intercambio, "GET, POST");
+            }
+            return;
+        }
+        String idCliente = partes[1];
+        if (partes.length == 2) {
+            switch (metodo) {
+                case "GET" -> mVerCliente(intercambio, idCliente);
+                case "PUT" -> mEditarCliente(intercambio, idCliente);
+                case "DELETE" -> mEliminarCliente(intercambio, idCliente);
+                default -> mMetodoNoPermitido(intercambio, "GET, PUT, DELETE");
+            }
+            return;
+        }
+        if (!partes[2].equals("medidores")) {
+            if (partes.length != 3) {
+                mResponderError(intercambio, 404, "Ruta desconocida.");
+            } else if (!metodo.equals("GET")) {
+                mMetodoNoPermitido(intercambio, "GET");
+            } else {
+                mConsultarCliente(intercambio, idCliente, partes[2]);
+            }
+            return;
+        }
+        if (partes.length == 3) {
+            switch (metodo) {
+                case "GET" -> mListarMedidores(intercambio, idCliente);
+                case "POST" -> mCrearMedidor(intercambio, idCliente);
+                default -> mMetodoNoPermitido(intercambio, "GET, POST");
+            }
+            return;
+        }
+        String idMedidor = partes[3];
+        if (partes.length == 4) {
+            switch (metodo) {
+                case "GET" -> mVerMedidor(intercambio, idCliente, idMedidor);
+                case "PUT" -> mEditarMedidor(intercambio, idCliente, idMedidor);
+                case "DELETE" -> mEliminarMedidor(intercambio, idCliente, idMedidor);
+                default -> mMetodoNoPermitido(intercambio, "GET, PUT, DELETE");
+            }
+            return;
+        }
+        if (partes.length == 5 && partes[4].equals("consumos")) {
+            switch (metodo) {
+                case "GET" -> mListarConsumos(intercambio, idCliente, idMedidor);
+                case "PUT" -> mCambiarConsumo(intercambio, idCliente, idMedidor);
+                default -> mMetodoNoPermitido(intercambio, "GET, PUT");
+            }
+            return;
+        }
+        if (partes.length == 5 && partes[4].equals("percentiles")) {
+            if (metodo.equals("GET")) mPercentilesMedidor(intercambio, idCliente, idMedidor);
+            else mMetodoNoPermitido(intercambio, "GET");
+            return;
+        }
+        mResponderError(intercambio, 404, "Ruta desconocida.");
+    }
+
+    // --- CLIENTES ---
+
+    private void mListarClientes(HttpExchange intercambio) throws IOException {
+        List<Cliente> clientes = controlador.mGetClientes();
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioArreglo();
+            for (Cliente cliente : clientes) {
+                mEscribirCliente(json, cliente, false);
+            }
+            json.mFin();
+        });
+    }
+
+    private void mCrearCliente(HttpExchange intercambio) throws IOException {
+        Map<String, Object> datos = mLeerObjeto(intercambio);
+        String id = mTextoObligatorio(datos, "id");
+        if (!controlador.mCrearCliente(id, mTextoObligatorio(datos, "tipoIdentificacion"),
+                mTextoObligatorio(datos, "correo"), mTextoObligatorio(datos, "direccion"))) {
+            mResponderError(intercambio, 409, "Ya existe un cliente con el ID " + id + ".");
+            return;
+        }
+        mResponderCliente(intercambio, 201, id);
+    }
+
+    private void mVerCliente(HttpExchange intercambio, String idCliente) throws IOException {
+        mResponderCliente(intercambio, 200, idCliente);
+    }
+
+    private void mEditarCliente(HttpExchange intercambio, String idCliente) throws IOException {
+        Map<String, Object> datos = mLeerObjeto(intercambio);
+        if (controlador.mEditarCliente(idCliente, mTextoObligatorio(datos, "tipoIdentificacion"),
+                mTextoObligatorio(datos, "correo"), mTextoObligatorio(datos, "direccion")) == null) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        mResponderCliente(intercambio, 200, idCliente);
+    }
+
+    private void mEliminarCliente(HttpExchange intercambio, String idCliente) throws IOException {
+        if (!controlador.mEliminarCliente(idCliente)) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        mResponderVacio(intercambio);
+    }
+
+    private void mResponderCliente(HttpExchange intercambio, int estado, String idCliente) throws IOException {
+        Cliente cliente = controlador.mGetCliente(idCliente);
+        if (cliente == null) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        mResponderJson(intercambio, estado, json -> mEscribirCliente(json, cliente, true));
+    }
+
+    /**
+     * Escribe un cliente (y, si se pide, sus medidores). Los datos se copian con el candado de lectura
+     * del cliente tomado, para no verlos a medias, y se escriben después de soltarlo.
+     */
+    private static void mEscribirCliente(EscritorJson json, Cliente cliente, boolean conMedidores) throws IOException {
+        String tipo;
+        String correo;
+        String direccion;
+        List<String[]> medidores;
+        Lock lectura = cliente.mCandado().readLock();
+        lectura.lock();
+        try {
+            tipo = cliente.mGetTipoIdentificacion();
+            correo = cliente.mGetCorreoElectronico();
+            direccion = cliente.mGetDireccionFisica();
+            medidores = mCopiarMedidores(cliente.mGetRegistradores());
+        } finally {
+            lectura.unlock();
+        }
+        json.mInicioObjeto()
+            .mNombre("id").mTexto(cliente.mGetNumeroIdentificacion())
+            .mNombre("tipoIdentificacion").mTexto(tipo)
+            .mNombre("correo").mTexto(correo)
+            .mNombre("direccion").mTexto(direccion);
+        if (conMedidores) {
+            json.mNombre("medidores").mInicioArreglo();
+            for (String[] medidor : medidores) {
+                mEscribirMedidor(json, medidor);
+            }
+            json.mFin();
+        } else {
+            json.mNombre("cantidadMedidores").mEntero(medidores.size());
+        }
+        json.mFin();
+    }
+
+    // --- MEDIDORES ---
+
+    private void mListarMedidores(HttpExchange intercambio, String idCliente) throws IOException {
+        Cliente cliente = controlador.mGetCliente(idCliente);
+        if (cliente == null) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        List<String[]> medidores;
+        Lock lectura = cliente.mCandado().readLock();
+        lectura.lock();
+        try {
+            medidores = mCopiarMedidores(cliente.mGetRegistradores());
+        } finally {
+            lectura.unlock();
+        }
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioArreglo();
+            for (String[] medidor : medidores) {
+                mEscribirMedidor(json, medidor);
+            }
+            json.mFin();
+        });
+    }
+
+    private void mCrearMedidor(HttpExchange intercambio, String idCliente) throws IOException {
+        Map<String, Object> datos = mLeerObjeto(intercambio);
+        String id = mTextoObligatorio(datos, "id");
+        if (controlador.mGetCliente(idCliente) == null) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        if (controlador.mCrearRegistrador(id, mTextoObligatorio(datos, "direccion"), mTextoObligatorio(datos, "ciudad"), idCliente) == null) {
+            mResponderError(intercambio, 409, "Ya existe un medidor con el ID " + id + " (o se eliminó el cliente).");
+            return;
+        }
+        mResponderMedidor(intercambio, 201, idCliente, id);
+    }
+
+    private void mVerMedidor(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        mResponderMedidor(intercambio, 200, idCliente, idMedidor);
+    }
+
+    private void mEditarMedidor(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        Map<String, Object> datos = mLeerObjeto(intercambio);
+        if (controlador.mEditarRegistrador(idMedidor, mTextoObligatorio(datos, "direccion"),
+                mTextoObligatorio(datos, "ciudad"), idCliente) == null) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        mResponderMedidor(intercambio, 200, idCliente, idMedidor);
+    }
+
+    private void mEliminarMedidor(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        if (!controlador.mEliminarRegistrador(idMedidor, idCliente)) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        mResponderVacio(intercambio);
+    }
+
+    private void mResponderMedidor(HttpExchange intercambio, int estado, String idCliente, String idMedidor) throws IOException {
+        Cliente cliente = controlador.mGetCliente(idCliente);
+        String[] medidor = null;
+        if (cliente != null) {
+            Lock lectura = cliente.mCandado().readLock();
+            lectura.lock();
+            try {
+                Registrador registrador = cliente.mBuscarRegistrador(idMedidor);
+                if (registrador != null) medidor = mCopiarMedidores(List.of(registrador)).get(0);
+            } finally {
+                lectura.unlock();
+            }
+        }
+        if (medidor == null) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        String[] copia = medidor;
+        mResponderJson(intercambio, estado, json -> mEscribirMedidor(json, copia));
+    }
+
+    /** Copia el ID, la dirección y la ciudad de cada medidor (se llama con el candado del cliente tomado). */
+    private static List<String[]> mCopiarMedidores(List<Registrador> registradores) {
+        List<String[]> medidores = new ArrayList<>(registradores.size());
+        for (Registrador registrador : registradores) {
+            medidores.add(new String[]{registrador.mGetNumeroIdentificacion(), registrador.mGetDireccion(), registrador.mGetCiudad()});
+        }
+        return medidores;
+    }
+
+    private static void mEscribirMedidor(EscritorJson json, String[] medidor) throws IOException {
+        json.mInicioObjeto()
+            .mNombre("id").mTexto(medidor[0])
+            .mNombre("direccion").mTexto(medidor[1])
+            .mNombre("ciudad").mTexto(medidor[2])
+            .mFin();
+    }
+
+    // --- CONSUMOS ---
+
+    private void mListarConsumos(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        if (controlador.mGetRegistradorDeCliente(idCliente, idMedidor) == null) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioArreglo();
+            // Se recorre sin candado (ver mStreamConsumosRegistrador): escribir en la red puede tardar.
+            try (Stream<Consumo> consumos = controlador.mStreamConsumosRegistrador(idCliente, idMedidor, periodo[0], periodo[1])) {
+                Iterator<Consumo> iterador = consumos.iterator();
+                while (iterador.hasNext()) {
+                    Consumo consumo = iterador.next();
+                    json.mInicioObjeto()
+                        .mNombre("fechaHora").mTexto(consumo.mGetFechaHora().format(FORMATO_FECHA_HORA))
+                        .mNombre("kWh").mNumero(consumo.mGetKWh())
+                        .mFin();
+                }
+            }
+            json.mFin();
+        });
+    }
+
+    private void mCambiarConsumo(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        Map<String, Object> datos = mLeerObjeto(intercambio);
+        LocalDateTime fechaHora = mFechaHora(mTextoObligatorio(datos, "fechaHora"));
+        double kWh = mNumeroObligatorio(datos, "kWh");
+        if (controlador.mGetRegistradorDeCliente(idCliente, idMedidor) == null) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        if (!controlador.mCambiarConsumoHoraEspecifica(idCliente, idMedidor, fechaHora.getYear(), fechaHora.getMonthValue(),
+                fechaHora.getDayOfMonth(), fechaHora.getHour(), kWh)) {
+            mResponderError(intercambio, 400, "No se pudo cambiar el consumo (revise la fecha y que los kWh no sean negativos).");
+            return;
+        }
+        mResponderJson(intercambio, 200, json -> json.mInicioObjeto()
+                .mNombre("medidor").mTexto(idMedidor)
+                .mNombre("fechaHora").mTexto(fechaHora.withMinute(0).format(FORMATO_FECHA_HORA))
+                .mNombre("kWh").mNumero(kWh)
+                .mFin());
+    }
+
+    /**
+     * Registra un lote de lecturas. El cuerpo puede ser un arreglo JSON de {@code {medidor, fechaHora, kWh}}
+     * (o un objeto con ese arreglo en el campo "lecturas"), o, con {@code Content-Type: text/csv}, filas
+     * {@code idMedidor,fechaHora,kWh} con las mismas reglas que los archivos CSV (ver {@link CargadorConsumosCSV}):
+     * las filas mal escritas se cuentan como rechazadas y no detienen el lote.
+     */
+    private void mRegistrarLecturas(HttpExchange intercambio) throws IOException {
+        String cuerpo = mLeerCuerpo(intercambio);
+        if (cuerpo == null) return; // Ya se respondió que es demasiado grande.
+        String tipo = intercambio.getRequestHeaders().getFirst("Content-Type");
+        List<String> filasMalEscritas = new ArrayList<>();
+        List<LecturaConsumo> lecturas = (tipo != null && tipo.toLowerCase().startsWith("text/csv"))
+                ? mLecturasCsv(cuerpo, filasMalEscritas) : mLecturasJson(cuerpo);
+        ResultadoCargaConsumos resultado = controlador.mRegistrarLecturas(lecturas).mSumarRechazadas(filasMalEscritas);
+        mResponderJson(intercambio, 200, json -> json.mInicioObjeto()
+                .mNombre("recibidas").mEntero(resultado.mGetFilasLeidas())
+                .mNombre("aceptadas").mEntero(resultado.mGetFilasAceptadas())
+                .mNombre("rechazadas").mEntero(resultado.mGetFilasRechazadas())
+                .mNombre("milisegundos").mEntero(resultado.mGetMilisegundos())
+                .mNombre("ejemplosRechazo").mTextos(resultado.mGetEjemplosRechazo())
+                .mFin());
+    }
+
+    private static List<LecturaConsumo> mLecturasJson(String cuerpo) {
+        Object documento = LectorJson.mLeer(cuerpo);
+        if (documento instanceof Map) {
+            documento = ((Map<?, ?>) documento).get("lecturas");
+        }
+        if (!(documento instanceof List)) {
+            throw new IllegalArgumentException("Se esperaba un arreglo de lecturas.");
+        }
+        List<?> elementos = (List<?>) documento;
+        List<LecturaConsumo> lecturas = new ArrayList<>(elementos.size());
+        for (Object elemento : elementos) {
+            if (!(elemento instanceof Map)) {
+                throw new IllegalArgumentException("Cada lectura debe ser un objeto {medidor, fechaHora, kWh}.");
+            }
+            Map<?, ?> datos = (Map<?, ?>) elemento;
+            lecturas.add(new LecturaConsumo(mTextoObligatorio(datos, "medidor"),
+                    mFechaHora(mTextoObligatorio(datos, "fechaHora")), mNumeroObligatorio(datos, "kWh")));
+        }
+        return lecturas;
+    }
+
+    /**
+     * Lee las filas de un lote CSV como las de los archivos: si la primera línea no tiene una fecha es un
+     * encabezado, y las filas mal escritas se anotan en {@code filasMalEscritas} (con la línea y el motivo).
+     */
+    private static List<LecturaConsumo> mLecturasCsv(String cuerpo, List<String> filasMalEscritas) {
+        List<LecturaConsumo> lecturas = new ArrayList<>();
+        int numeroLinea = 0;
+        for (String linea : cuerpo.split("\r?\n")) {
+            numeroLinea++;
+            linea = linea.trim();
+            if (linea.isEmpty()) continue;
+            String[] campos = linea.split(",", -1);
+            if (campos.length != 3) {
+                filasMalEscritas.add("línea " + numeroLinea + ": se esperaban 3 columnas (idMedidor,fechaHora,kWh).");
+                continue;
+            }
+            String textoFecha = campos[1].trim();
+            if (numeroLinea == 1 && CargadorConsumosCSV.mEsEncabezado(textoFecha)) continue; // Encabezado.
+            LocalDateTime fechaHora = CargadorConsumosCSV.mLeerFechaHora(textoFecha);
+            if (fechaHora == null) {
+                filasMalEscritas.add("línea " + numeroLinea + ": la fecha y hora no es válida (se espera AAAA-MM-DDTHH).");
+                continue;
+            }
+            double kWh;
+            try {
+                kWh = Double.parseDouble(campos[2].trim());
+            } catch (NumberFormatException e) {
+                filasMalEscritas.add("línea " + numeroLinea + ": el consumo no es un número.");
+                continue;
+            }
+            lecturas.add(new LecturaConsumo(campos[0].trim(), fechaHora, kWh));
+        }
+        return lecturas;
+    }
+
+    // --- CONSULTAS Y FACTURAS ---
+
+    /**
+     * Atiende las consultas de un cliente en un periodo: resumen, mínimo, máximo, por franjas,
+     * por días, factura en texto y valor de la factura.
+     */
+    private void mConsultarCliente(HttpExchange intercambio, String idCliente, String consulta) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        int anio = periodo[0];
+        int mes = periodo[1];
+        if (controlador.mGetCliente(idCliente) == null) {
+            mResponderError(intercambio, 404, "No existe el cliente " + idCliente + ".");
+            return;
+        }
+        String sinDatos = "El cliente " + idCliente + " no tiene consumos en " + anio + "-" + mes + ".";
+        switch (consulta) {
+            case "resumen" -> {
+                ResumenMensual resumen = controlador.mResumenClienteMes(idCliente, anio, mes);
+                if (resumen == null) {
+                    mResponderError(intercambio, 404, sinDatos);
+                    return;
+                }
+                List<String> franjas = controlador.mGetNombresFranjas(anio, mes);
+                mResponderJson(intercambio, 200, json -> json.mInicioObjeto()
+                        .mNombre("cliente").mTexto(idCliente)
+                        .mNombre("anio").mEntero(anio)
+                        .mNombre("mes").mEntero(mes)
+                        .mNombre("medidores").mEntero(resumen.mGetMedidores())
+                        .mNombre("horasRegistradas").mEntero(resumen.mGetHorasRegistradas())
+                        .mNombre("totalKWh").mNumero(resumen.mGetTotalKWh())
+                        .mNombre("minimoKWh").mNumero(resumen.mGetMinimo())
+                        .mNombre("maximoKWh").mNumero(resumen.mGetMaximo())
+                        .mNombre("costo").mNumero(resumen.mGetCosto())
+                        .mNombre("franjas").mTextos(franjas)
+                        .mNombre("consumoPorFranja").mNumeros(resumen.mGetConsumoPorFranja())
+                        .mNombre("consumoPorDia").mNumeros(resumen.mGetConsumoPorDia())
+                        .mFin());
+            }
+            case "consumo-minimo" -> {
+                double minimo = controlador.mHallarConsumoMinimoClienteMes(idCliente, anio, mes);
+                if (minimo == Double.MAX_VALUE) mResponderError(intercambio, 404, sinDatos);
+                else mResponderValor(intercambio, idCliente, anio, mes, "minimoKWh", minimo);
+            }
+            case "consumo-maximo" -> {
+                double maximo = controlador.mHallarConsumoMaximoClienteMes(idCliente, anio, mes);
+                if (maximo == Double.MIN_VALUE) mResponderError(intercambio, 404, sinDatos);
+                else mResponderValor(intercambio, idCliente, anio, mes, "maximoKWh", maximo);
+            }
+            case "consumo-franjas" -> {
+                double[] porFranjas = controlador.mHallarConsumoPorFranjasClienteMes(idCliente, anio, mes);
+                if (porFranjas == null) {
+                    mResponderError(intercambio, 404, sinDatos);
+                    return;
+                }
+                List<String> franjas = controlador.mGetNombresFranjas(anio, mes);
+                mResponderJson(intercambio, 200, json -> {
+                    json.mInicioObjeto().mNombre("cliente").mTexto(idCliente).mNombre("anio").mEntero(anio).mNombre("mes").mEntero(mes)
+                        .mNombre("franjas").mInicioArreglo();
+                    for (int i = 0; i < porFranjas.length; i++) {
+                        json.mInicioObjeto()
+                            .mNombre("franja").mTexto(i < franjas.size() ? franjas.get(i) : "Franja " + (i + 1))
+                            .mNombre("kWh").mNumero(porFranjas[i])
+                            .mFin();
+                    }
+                    json.mFin().mFin();
+                });
+            }
+            case "consumo-dias" -> {
+                double[] porDias = controlador.mHallarConsumoPorDiasClienteMes(idCliente, anio, mes);
+                if (porDias == null) mResponderError(intercambio, 404, sinDatos);
+                else mResponderJson(intercambio, 200, json -> json.mInicioObjeto()
+                        .mNombre("cliente").mTexto(idCliente).mNombre("anio").mEntero(anio).mNombre("mes").mEntero(mes)
+                        .mNombre("kWhPorDia").mNumeros(porDias)
+                        .mFin());
+            }
+            case "factura" -> {
+                String factura = controlador.mGenerarFacturaTextoCliente(idCliente, anio, mes);
+                mResponderTexto(intercambio, 200, destino -> destino.write(factura));
+            }
+            case "valor-factura" -> {
+                double valor = controlador.mCalcularValorFacturaClienteMes(idCliente, anio, mes);
+                if (valor < 0) mResponderError(intercambio, 404, sinDatos);
+                else mResponderValor(intercambio, idCliente, anio, mes, "valor", valor);
+            }
+            case "percentiles" -> {
+                HistogramaConsumos distribucion = controlador.mDistribucionConsumoClienteMes(idCliente, null, anio, mes);
+                if (distribucion == null) mResponderError(intercambio, 404, sinDatos);
+                else mResponderJson(intercambio, 200, json -> mEscribirPercentiles(json.mInicioObjeto()
+                        .mNombre("cliente").mTexto(idCliente).mNombre("anio").mEntero(anio).mNombre("mes").mEntero(mes),
+                        distribucion).mFin());
+            }
+            default -> mResponderError(intercambio, 404, "Ruta desconocida.");
+        }
+    }
+
+    private void mResponderValor(HttpExchange intercambio, String idCliente, int anio, int mes, String nombre, double valor) throws IOException {
+        mResponderJson(intercambio, 200, json -> json.mInicioObjeto()
+                .mNombre("cliente").mTexto(idCliente).mNombre("anio").mEntero(anio).mNombre("mes").mEntero(mes)
+                .mNombre(nombre).mNumero(valor)
+                .mFin());
+    }
+
+    private void mPercentilesMedidor(HttpExchange intercambio, String idCliente, String idMedidor) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        if (controlador.mGetRegistradorDeCliente(idCliente, idMedidor) == null) {
+            mResponderError(intercambio, 404, "El cliente " + idCliente + " no tiene el medidor " + idMedidor + ".");
+            return;
+        }
+        HistogramaConsumos distribucion = controlador.mDistribucionConsumoClienteMes(idCliente, idMedidor, periodo[0], periodo[1]);
+        if (distribucion == null) {
+            mResponderError(intercambio, 404, "El medidor " + idMedidor + " no tiene consumos en " + periodo[0] + "-" + periodo[1] + ".");
+            return;
+        }
+        mResponderJson(intercambio, 200, json -> mEscribirPercentiles(json.mInicioObjeto()
+                .mNombre("cliente").mTexto(idCliente).mNombre("medidor").mTexto(idMedidor)
+                .mNombre("anio").mEntero(periodo[0]).mNombre("mes").mEntero(periodo[1]),
+                distribucion).mFin());
+    }
+
+    private void mPercentilesFlota(HttpExchange intercambio) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        String ciudad = mParametro(intercambio, "ciudad");
+        HistogramaConsumos distribucion = controlador.mDistribucionConsumoFlotaMes(ciudad, periodo[0], periodo[1]);
+        if (distribucion == null) {
+            mResponderError(intercambio, 404, "No hay consumos " + (ciudad != null ? "en " + ciudad + " " : "")
+                    + "en " + periodo[0] + "-" + periodo[1] + ".");
+            return;
+        }
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioObjeto();
+            if (ciudad != null) json.mNombre("ciudad").mTexto(ciudad);
+            mEscribirPercentiles(json.mNombre("anio").mEntero(periodo[0]).mNombre("mes").mEntero(periodo[1]), distribucion).mFin();
+        });
+    }
+
+    /**
+     * Responde los K clientes (o medidores) que más consumieron en el periodo. Por defecto, los 10 clientes
+     * con más kWh; la franja se indica desde 1, en el orden de los nombres de franjas del mes.
+     */
+    private void mTopConsumidoresFlota(HttpExchange intercambio) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        String textoK = mParametro(intercambio, "k");
+        String textoCriterio = mParametro(intercambio, "criterio");
+        String textoFranja = mParametro(intercambio, "franja");
+        String por = mParametro(intercambio, "por");
+        if (por != null && !por.equals("clientes") && !por.equals("medidores")) {
+            throw new IllegalArgumentException("El parámetro por debe ser clientes o medidores.");
+        }
+        int k;
+        int franja;
+        try {
+            k = textoK != null ? Integer.parseInt(textoK) : 10;
+            franja = textoFranja != null ? Integer.parseInt(textoFranja) - 1 : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("k y franja deben ser números enteros.");
+        }
+        CriterioConsumo criterio = textoCriterio != null ? CriterioConsumo.mDesdeNombre(textoCriterio) : CriterioConsumo.KWH;
+        if (criterio == CriterioConsumo.FRANJA && textoFranja == null) {
+            throw new IllegalArgumentException("Con el criterio franja falta el parámetro franja (desde 1).");
+        }
+        boolean porMedidor = "medidores".equals(por);
+        List<ConsumidorDestacado> top = controlador.mTopConsumidoresFlotaMes(k, criterio, franja, porMedidor, periodo[0], periodo[1]);
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioObjeto()
+                .mNombre("anio").mEntero(periodo[0])
+                .mNombre("mes").mEntero(periodo[1])
+                .mNombre("criterio").mTexto(criterio.name().toLowerCase());
+            if (criterio == CriterioConsumo.FRANJA) json.mNombre("franja").mEntero(franja + 1);
+            json.mNombre(porMedidor ? "medidores" : "clientes").mInicioArreglo();
+            for (ConsumidorDestacado destacado : top) {
+                json.mInicioObjeto().mNombre("cliente").mTexto(destacado.mGetIdCliente());
+                if (porMedidor) json.mNombre("medidor").mTexto(destacado.mGetIdRegistrador());
+                json.mNombre("valor").mNumero(destacado.mGetValor()).mFin();
+            }
+            json.mFin().mFin();
+        });
+    }
+
+    /** Escribe las horas contadas y los percentiles 50, 95 y 99 de una distribución, en el objeto abierto. */
+    private static EscritorJson mEscribirPercentiles(EscritorJson json, HistogramaConsumos distribucion) throws IOException {
+        return json.mNombre("horas").mEntero(distribucion.mGetHoras())
+                .mNombre("p50KWh").mNumero(distribucion.mPercentil(0.50))
+                .mNombre("p95KWh").mNumero(distribucion.mPercentil(0.95))
+                .mNombre("p99KWh").mNumero(distribucion.mPercentil(0.99));
+    }
+
+    /** Escribe las facturas en texto de todos los clientes, a medida que se generan. */
+    private void mGenerarFacturas(HttpExchange intercambio) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        mResponderTexto(intercambio, 200, destino -> controlador.mGenerarFacturas(periodo[0], periodo[1], null, destino));
+    }
+
+    private void mFacturarFlota(HttpExchange intercambio) throws IOException {
+        int[] periodo = mPeriodo(intercambio);
+        ResultadoFacturacionFlota resultado = controlador.mFacturarFlota(periodo[0], periodo[1]);
+        mResponderJson(intercambio, 200, json -> {
+            json.mInicioObjeto()
+                .mNombre("anio").mEntero(resultado.mGetAnio())
+                .mNombre("mes").mEntero(resultado.mGetMes())
+                .mNombre("clientesConDatos").mEntero(resultado.mGetClientesConDatos())
+                .mNombre("totalKWh").mNumero(resultado.mGetTotalKWh())
+                .mNombre("totalValor").mNumero(resultado.mGetTotalValor())
+                .mNombre("clientes").mInicioArreglo();
+            for (ResultadoFacturacionFlota.FacturaCliente factura : resultado.mGetFacturasClientes()) {
+                if (!factura.mTieneDatos()) continue;
+                json.mInicioObjeto()
+                    .mNombre("cliente").mTexto(factura.mGetIdCliente())
+                    .mNombre("totalKWh").mNumero(factura.mGetTotalKWh())
+                    .mNombre("totalValor").mNumero(factura.mGetTotalValor())
+                    .mFin();
+            }
+            json.mFin().mFin();
+        });
+    }
+
+    // --- LECTURA DE LA PETICIÓN ---
+
+    /** Devuelve las partes de la ruta después de /api, ya decodificadas (por ejemplo, ["clientes", "C 1"]). */
+    private static String[] mPartesRuta(HttpExchange intercambio) {
+        String ruta = intercambio.getRequestURI().getRawPath();
+        String resto = ruta.length() > PREFIJO.length() ? ruta.substring(PREFIJO.length()) : "";
+        List<String> partes = new ArrayList<>();
+        for (String parte : resto.split("/")) {
+            if (!parte.isEmpty()) partes.add(URLDecoder.decode(parte.replace("+", "%2B"), StandardCharsets.UTF_8));
+        }
+        return partes.toArray(new String[0]);
+    }
+
+    /** Lee el año y el mes de la consulta ({@code ?anio=2025&mes=3}). */
+    private static int[] mPeriodo(HttpExchange intercambio) {
+        String anio = mParametro(intercambio, "anio");
+        String mes = mParametro(intercambio, "mes");
+        if (anio == null || mes == null) {
+            throw new IllegalArgumentException("Faltan los parámetros anio y mes (por ejemplo, ?anio=2025&mes=3).");
+        }
+        try {
+            int numeroMes = Integer.parseInt(mes);
+            if (numeroMes < 1 || numeroMes > 12) {
+                throw new IllegalArgumentException("El mes debe estar entre 1 y 12.");
+            }
+            return new int[]{Integer.parseInt(anio), numeroMes};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El año y el mes deben ser números enteros.");
+        }
+    }
+
+    /** Lee un parámetro de la consulta, ya decodificado (null si no viene). */
+    private static String mParametro(HttpExchange intercambio, String nombre) {
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        if (consulta == null) return null;
+        for (String parametro : consulta.split("&")) {
+            int igual = parametro.indexOf('=');
+            if (igual >= 0 && parametro.substring(0, igual).equals(nombre)) {
+                return URLDecoder.decode(parametro.substring(igual + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lee el cuerpo de la petición como texto UTF-8.
+     * @return El cuerpo, o null si era demasiado grande (en ese caso ya se respondió con el error 413).
+     */
+    private static String mLeerCuerpo(HttpExchange intercambio) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            int leidos;
+            while ((leidos = entrada.read(buffer)) > 0) {
+                if (bytes.size() + leidos > MAXIMO_CUERPO) {
+                    mResponderError(intercambio, 413, "El cuerpo de la petición supera los " + MAXIMO_CUERPO + " bytes.");
+                    return null;
+                }
+                bytes.write(buffer, 0, leidos);
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Lee el cuerpo de la petición como un objeto JSON. */
+    private static Map<String, Object> mLeerObjeto(HttpExchange intercambio) throws IOException {
+        String cuerpo = mLeerCuerpo(intercambio);
+        if (cuerpo == null) { // Ya se respondió con el error 413; esta excepción solo corta la operación.
+            throw new IllegalArgumentException("El cuerpo de la petición es demasiado grande.");
+        }
+        Object documento = LectorJson.mLeer(cuerpo);
+        if (!(documento instanceof Map)) {
+            throw new IllegalArgumentException("Se esperaba un objeto JSON.");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> objeto = (Map<String, Object>) documento;
+        return objeto;
+    }
+
+    private static String mTextoObligatorio(Map<?, ?> datos, String nombre) {
+        Object valor = datos.get(nombre);
+        if (!(valor instanceof String) || ((String) valor).isBlank()) {
+            throw new IllegalArgumentException("Falta el campo de texto \"" + nombre + "\".");
+        }
+        return (String) valor;
+    }
+
+    private static double mNumeroObligatorio(Map<?, ?> datos, String nombre) {
+        Object valor = datos.get(nombre);
+        if (!(valor instanceof Double)) {
+            throw new IllegalArgumentException("Falta el campo numérico \"" + nombre + "\".");
+        }
+        return (Double) valor;
+    }
+
+    private static LocalDateTime mFechaHora(String texto) {
+        try {
+            return LocalDateTime.parse(texto, FORMATO_FECHA_HORA);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha y hora inválida: " + texto + " (use AAAA-MM-DDTHH:MM).");
+        }
+    }
+
+    // --- RESPUESTAS ---
+
+    /**
+     * Contenido de una respuesta de texto, que se escribe a medida que se genera.
+     */
+    @FunctionalInterface
+    private interface ContenidoTexto {
+        void mEscribir(Writer destino) throws IOException;
+    }
+
+    private static void mResponderJson(HttpExchange intercambio, int estado, ContenidoJson contenido) throws IOException {
+        mResponder(intercambio, estado, "application/json; charset=utf-8", destino -> contenido.mEscribir(new EscritorJson(destino)));
+    }
+
+    private static void mResponderTexto(HttpExchange intercambio, int estado, ContenidoTexto contenido) throws IOException {
+        mResponder(intercambio, estado, "text/plain; charset=utf-8", contenido);
+    }
+
+    /**
+     * Envía los encabezados y escribe el cuerpo por partes (sin largo conocido), a través de un buffer:
+     * cada vez que se llena, esa parte sale por la red.
+     */
+    private static void mResponder(HttpExchange intercambio, int estado, String tipo, ContenidoTexto contenido) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", tipo);
+        intercambio.sendResponseHeaders(estado, 0);
+        try (Writer destino = new BufferedWriter(new OutputStreamWriter(intercambio.getResponseBody(), StandardCharsets.UTF_8),
+                TAMANO_BUFFER_RESPUESTA)) {
+            contenido.mEscribir(destino);
+        }
+    }
+
+    private static void mResponderVacio(HttpExchange intercambio) throws IOException {
+        intercambio.sendResponseHeaders(204, -1);
+    }
+
+    private static void mResponderError(HttpExchange intercambio, int estado, String mensaje) throws IOException {
+        byte[] cuerpo = mCuerpoError(mensaje);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(estado, cuerpo.length);
+        intercambio.getResponseBody().write(cuerpo);
+    }
+
+    private static void mMetodoNoPermitido(HttpExchange intercambio, String permitidos) throws IOException {
+        intercambio.getResponseHeaders().set("Allow", permitidos);
+        mResponderError(intercambio, 405, "Método no permitido; use " + permitidos + ".");
+    }
+
+    /** Responde con un error, salvo que ya se hayan enviado los encabezados (entonces solo se corta la respuesta). */
+    private static void mResponderErrorSiSePuede(HttpExchange intercambio, int estado, String mensaje) {
+        if (intercambio.getResponseCode() != -1) return;
+        try {
+            mResponderError(intercambio, estado, mensaje);
+        } catch (IOException e) {
+            // El cliente ya no está.
+        }
+    }
+
+    private static byte[] mCuerpoError(String mensaje) {
+        StringWriter texto = new StringWriter();
+        try {
+            new EscritorJson(texto).mInicioObjeto().mNombre("error").mTexto(mensaje).mFin();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Un StringWriter no falla.
+        }
+        return texto.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
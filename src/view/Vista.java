@@ -1,13 +1,28 @@
 package view;
 
 import controller.Controlador;
+import controller.ConsumidorDestacado;
+import controller.ResultadoCargaConsumos;
+import controller.ResultadoFacturacionFlota;
+import controller.ResultadoRenderizadoFacturas;
+import model.CatalogoTarifas;
 import model.Cliente;
 import model.Consumo;
+import model.CriterioConsumo;
+import model.CursorConsumos;
+import model.HistogramaConsumos;
+import model.PerfilConsumo;
+import model.PlanTarifario;
 import model.Registrador;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -28,7 +43,16 @@ public class Vista {
      * Constructor de la Vista. Prepara el controlador y el scanner para usarlos.
      */
     public Vista() {
-        this.controlador = new Controlador(); // Crea el "cerebro" de la aplicación.
+        this(new Controlador()); // Crea el "cerebro" de la aplicación.
+    }
+
+    /**
+     * Constructor de la Vista que usa un controlador ya creado (por ejemplo, uno configurado
+     * para guardar los consumos en un archivo mapeado).
+     * @param controlador El controlador a usar.
+     */
+    public Vista(Controlador controlador) {
+        this.controlador = controlador;
         this.scanner = new Scanner(System.in); // Prepara para leer desde la consola.
     }
 
@@ -56,6 +80,18 @@ public class Vista {
             System.out.println("14. Calcular VALOR TOTAL de la Factura de un Cliente (para un mes/año)");
             System.out.println("15. Mostrar lista de todos los Clientes");
             System.out.println("16. Mostrar lista de Medidores de un Cliente");
+            System.out.println("17. Archivar (comprimir) los consumos anteriores a un mes/año");
+            System.out.println("18. Facturar a TODOS los Clientes (en paralelo, para un mes/año)");
+            System.out.println("19. Cargar TARIFAS desde un archivo");
+            System.out.println("20. Ver estadísticas de la caché de facturas");
+            System.out.println("21. Cargar CONSUMOS desde archivos CSV (idMedidor,fechaHora,kWh)");
+            System.out.println("22. Guardar el estado del sistema en una instantánea");
+            System.out.println("23. Cargar el estado del sistema desde una instantánea");
+            System.out.println("24. Simular consumos de TODA la flota (varios meses, perfil y semilla)");
+            System.out.println("25. Generar facturas de TODOS los clientes en archivos");
+            System.out.println("26. Ver métricas de las operaciones (llamadas, errores y latencias)");
+            System.out.println("27. Ver PERCENTILES del consumo horario (de un Cliente, una ciudad o TODA la flota, un mes/año)");
+            System.out.println("28. Ver los clientes o medidores que MÁS CONSUMIERON (TODA la flota, un mes/año)");
 
             System.out.println("0. Salir de la aplicación");
             System.out.print("Por favor, elija una opción: ");
@@ -81,6 +117,18 @@ public class Vista {
                     case 14 -> mMenuCalcularValorFactura();
                     case 15 -> mMenuListarClientes();
                     case 16 -> mMenuListarRegistradoresDeCliente();
+                    case 17 -> mMenuArchivarConsumos();
+                    case 18 -> mMenuFacturarFlota();
+                    case 19 -> mMenuCargarTarifas();
+                    case 20 -> mMenuVerEstadisticasCache();
+                    case 21 -> mMenuCargarConsumosDesdeArchivos();
+                    case 22 -> mMenuGuardarInstantanea();
+                    case 23 -> mMenuCargarInstantanea();
+                    case 24 -> mMenuSimularFlota();
+                    case 25 -> mMenuGenerarFacturasEnArchivos();
+                    case 26 -> mMenuVerMetricas();
+                    case 27 -> mMenuVerPercentilesConsumo();
+                    case 28 -> mMenuVerTopConsumidores();
                     case 0 -> System.out.println("Cerrando la aplicación...");
                     default -> System.out.println("Opción no reconocida. Por favor, intente de nuevo.");
                 }
@@ -88,6 +136,10 @@ public class Vista {
                 System.out.println("Entrada incorrecta. Debe ingresar un número para la opción.");
                 scanner.nextLine(); // Limpia el scanner si hubo un error.
                 opcionElegida = -1; // Para que el bucle continúe.
+            } catch (UncheckedIOException e) {
+                // El cambio se hizo, pero no quedó en la bitácora: se avisa y se sigue con el menú.
+                System.out.println("Error: " + e.getMessage());
+                opcionElegida = -1;
             }
         } while (opcionElegida != 0);
         scanner.close(); // Cierra el scanner cuando ya no se necesita.
@@ -269,16 +321,17 @@ public class Vista {
             return;
         }
         
-        List<Consumo> listaDeConsumos = controlador.mObtenerConsumosRegistrador(idCliente, idRegistrador, anio, mes);
-        
-        if (listaDeConsumos != null && !listaDeConsumos.isEmpty()) {
+        // Se recorren los consumos sin armar una lista: cada hora llega con sus kWh y su costo ya calculado.
+        StringBuilder lineas = new StringBuilder();
+        boolean encontrado = controlador.mRecorrerConsumosRegistrador(idCliente, idRegistrador, anio, mes,
+                (horaEpoca, kWh, costo) -> lineas.append("  ")
+                        .append(CursorConsumos.mFechaHora(horaEpoca).format(formateadorFechaHora))
+                        .append(" - kWh: ").append(String.format("%.2f", kWh))
+                        .append(" - Costo: ").append(String.format("%.2f", costo)).append(" COP\n"));
+
+        if (encontrado) {
             System.out.println("Consumos del medidor " + idRegistrador + " (Cliente: " + idCliente + ") para " + mes + "/" + anio + ":");
-            for (Consumo c : listaDeConsumos) {
-                // Muestra cada consumo con su fecha, kWh y costo calculado.
-                System.out.println("  " + c.mGetFechaHora().format(formateadorFechaHora) + 
-                                   " - kWh: " + String.format("%.2f", c.mGetKWh()) + 
-                                   " - Costo: " + String.format("%.2f", c.mCalcularCosto()) + " COP");
-            }
+            System.out.print(lineas);
         } else {
             System.out.println("No se encontraron consumos para el medidor y periodo que especificó, o los datos no están cargados para ese periodo.");
         }
@@ -371,9 +424,10 @@ public class Vista {
             System.out.println("No se encontraron datos de consumo para el cliente y periodo que especificó.");
         } else {
             System.out.println("Consumo total para el cliente " + idCliente + " en " + mes + "/" + anio + ", por franja horaria:");
-            System.out.println(String.format("  Franja 1 (00:00-06:00): %.2f kWh", consumosPorFranja[0]));
-            System.out.println(String.format("  Franja 2 (07:00-17:00): %.2f kWh", consumosPorFranja[1]));
-            System.out.println(String.format("  Franja 3 (18:00-23:00): %.2f kWh", consumosPorFranja[2]));
+            List<String> nombresFranjas = controlador.mGetNombresFranjas(anio, mes);
+            for (int i = 0; i < consumosPorFranja.length; i++) {
+                System.out.println(String.format("  %s: %.2f kWh", nombresFranjas.get(i), consumosPorFranja[i]));
+            }
         }
     }
 
@@ -444,14 +498,7 @@ public class Vista {
         String idCliente = scanner.nextLine();
 
         // Buscamos al cliente para poder listar sus medidores.
-        Cliente clienteEncontrado = null;
-        List<Cliente> todosLosClientes = controlador.mGetClientes();
-        for(Cliente c : todosLosClientes) {
-            if(c.mGetNumeroIdentificacion().equals(idCliente)){
-                clienteEncontrado = c;
-                break;
-            }
-        }
+        Cliente clienteEncontrado = controlador.mGetCliente(idCliente);
 
         if (clienteEncontrado == null) {
             System.out.println("No se encontró un cliente con el ID: " + idCliente);
@@ -468,4 +515,288 @@ public class Vista {
             }
         }
     }
-}
\ No newline at end of file
+
+    private void mMenuArchivarConsumos() {
+        System.out.println("\n--- Archivar (Comprimir) Consumos Antiguos ---");
+        System.out.print("Se archivarán los meses ANTERIORES a este. Ingrese el año (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Ingrese el mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900) {
+            System.out.println("Año o mes no válidos.");
+            return;
+        }
+
+        int archivados = controlador.mArchivarConsumosAnterioresA(anio, mes);
+        System.out.println("Se archivaron " + archivados + " meses de consumo (medidor-mes) anteriores a " + mes + "/" + anio + ".");
+    }
+
+    private void mMenuFacturarFlota() {
+        System.out.println("\n--- Facturar a Todos los Clientes ---");
+        System.out.print("Ingrese el año (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Ingrese el mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900) {
+            System.out.println("Año o mes no válidos.");
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        ResultadoFacturacionFlota resultado = controlador.mFacturarFlota(anio, mes);
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.println(String.format("Clientes facturados con datos: %d de %d (en %d ms)",
+                resultado.mGetClientesConDatos(), resultado.mGetFacturasClientes().size(), milisegundos));
+        System.out.println(String.format("CONSUMO TOTAL DE LA FLOTA en %02d/%d: %.2f kWh", mes, anio, resultado.mGetTotalKWh()));
+        System.out.println(String.format("VALOR TOTAL DE LA FLOTA en %02d/%d: %.2f COP", mes, anio, resultado.mGetTotalValor()));
+    }
+
+    private void mMenuCargarTarifas() {
+        System.out.println("\n--- Cargar Tarifas desde un Archivo ---");
+        System.out.print("Ruta del archivo de tarifas: ");
+        String ruta = scanner.nextLine().trim();
+
+        try {
+            CatalogoTarifas catalogo = controlador.mCargarTarifas(Path.of(ruta));
+            System.out.println("¡Tarifas cargadas con éxito! Planes disponibles:");
+            for (PlanTarifario plan : catalogo.mGetPlanes()) {
+                System.out.println("  " + plan);
+            }
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Error: No se pudo leer el archivo de tarifas (" + e.getMessage() + ").");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage() + " Se conservan las tarifas anteriores.");
+        }
+    }
+
+    private void mMenuVerEstadisticasCache() {
+        System.out.println("\n--- Estadísticas de la Caché de Facturas ---");
+        System.out.println(controlador.mGetEstadisticasCacheFacturas());
+    }
+
+    private void mMenuVerMetricas() {
+        System.out.println("\n--- Métricas de las Operaciones ---");
+        System.out.println(controlador.mGetMetricas());
+    }
+
+    private void mMenuVerPercentilesConsumo() {
+        System.out.println("\n--- Ver Percentiles del Consumo Horario (Mes) ---");
+        System.out.print("Número de identificación del Cliente (vacío para la flota): ");
+        String idCliente = scanner.nextLine().trim();
+        String ciudad = null;
+        if (idCliente.isEmpty()) {
+            System.out.print("Ciudad (vacío para toda la flota): ");
+            ciudad = scanner.nextLine().trim();
+            if (ciudad.isEmpty()) ciudad = null;
+        }
+        System.out.print("Ingrese el año (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Ingrese el mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900) {
+            System.out.println("Año o mes no válidos.");
+            return;
+        }
+
+        HistogramaConsumos distribucion = idCliente.isEmpty()
+                ? controlador.mDistribucionConsumoFlotaMes(ciudad, anio, mes)
+                : controlador.mDistribucionConsumoClienteMes(idCliente, null, anio, mes);
+        if (distribucion == null) {
+            System.out.println("No se encontraron datos de consumo para el periodo que especificó.");
+            return;
+        }
+        String quien = !idCliente.isEmpty() ? "el cliente " + idCliente : (ciudad != null ? "la ciudad " + ciudad : "toda la flota");
+        System.out.println(String.format("Consumo horario de %s en %02d/%d (%d horas):", quien, mes, anio, distribucion.mGetHoras()));
+        System.out.println(String.format("  p50: %.2f kWh", distribucion.mPercentil(0.50)));
+        System.out.println(String.format("  p95: %.2f kWh", distribucion.mPercentil(0.95)));
+        System.out.println(String.format("  p99: %.2f kWh", distribucion.mPercentil(0.99)));
+    }
+
+    private void mMenuVerTopConsumidores() {
+        System.out.println("\n--- Ver los que Más Consumieron (Toda la Flota, Mes) ---");
+        System.out.print("¿Cuántos mostrar? (ej. 10): ");
+        int k = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+        System.out.print("Ordenar por (kwh, costo, pico o franja): ");
+        String textoCriterio = scanner.nextLine().trim();
+        System.out.print("¿Ordenar medidores en vez de clientes? (s/n): ");
+        boolean porMedidor = scanner.nextLine().trim().equalsIgnoreCase("s");
+        System.out.print("Ingrese el año (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Ingrese el mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900) {
+            System.out.println("Año o mes no válidos.");
+            return;
+        }
+
+        try {
+            CriterioConsumo criterio = CriterioConsumo.mDesdeNombre(textoCriterio);
+            int franja = 0;
+            if (criterio == CriterioConsumo.FRANJA) {
+                List<String> franjas = controlador.mGetNombresFranjas(anio, mes);
+                System.out.println("Franjas: " + franjas);
+                System.out.print("Número de la franja (desde 1): ");
+                franja = scanner.nextInt() - 1;
+                scanner.nextLine(); // Limpiar
+            }
+            List<ConsumidorDestacado> top = controlador.mTopConsumidoresFlotaMes(k, criterio, franja, porMedidor, anio, mes);
+            if (top.isEmpty()) {
+                System.out.println("No se encontraron datos de consumo para el periodo que especificó.");
+                return;
+            }
+            String unidad = criterio == CriterioConsumo.COSTO ? "COP" : "kWh";
+            System.out.println(String.format("Los %d %s con más %s en %02d/%d:", top.size(), porMedidor ? "medidores" : "clientes",
+                    criterio.name().toLowerCase(), mes, anio));
+            int posicion = 1;
+            for (ConsumidorDestacado destacado : top) {
+                String quien = "Cliente " + destacado.mGetIdCliente()
+                        + (destacado.mGetIdRegistrador() != null ? ", medidor " + destacado.mGetIdRegistrador() : "");
+                System.out.println(String.format("  %d. %s: %.2f %s", posicion++, quien, destacado.mGetValor(), unidad));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void mMenuCargarConsumosDesdeArchivos() {
+        System.out.println("\n--- Cargar Consumos desde Archivos CSV ---");
+        System.out.print("Rutas de los archivos (separadas por ';'): ");
+        String[] rutas = scanner.nextLine().split(";");
+
+        List<Path> archivos = new ArrayList<>();
+        try {
+            for (String ruta : rutas) {
+                if (!ruta.isBlank()) archivos.add(Path.of(ruta.trim()));
+            }
+        } catch (InvalidPathException e) {
+            System.out.println("Error: Ruta no válida (" + e.getMessage() + ").");
+            return;
+        }
+        if (archivos.isEmpty()) {
+            System.out.println("No se indicó ningún archivo.");
+            return;
+        }
+
+        try {
+            ResultadoCargaConsumos resultado = controlador.mCargarConsumosDesdeArchivos(archivos);
+            System.out.println("Carga terminada. " + resultado);
+            for (String rechazo : resultado.mGetEjemplosRechazo()) {
+                System.out.println("  Rechazada: " + rechazo);
+            }
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage() + (e.getCause() != null ? " Causa: " + e.getCause().getMessage() : ""));
+        }
+    }
+
+    private void mMenuGuardarInstantanea() {
+        System.out.println("\n--- Guardar Instantánea del Sistema ---");
+        System.out.print("Ruta del archivo: ");
+        String ruta = scanner.nextLine().trim();
+
+        try {
+            long inicio = System.nanoTime();
+            long bytes = controlador.mGuardarInstantanea(Path.of(ruta));
+            System.out.println("¡Instantánea guardada! " + bytes + " bytes en " + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Error: No se pudo guardar la instantánea (" + e.getMessage() + ").");
+        }
+    }
+
+    private void mMenuCargarInstantanea() {
+        System.out.println("\n--- Cargar Instantánea del Sistema ---");
+        System.out.print("Ruta del archivo: ");
+        String ruta = scanner.nextLine().trim();
+
+        try {
+            long inicio = System.nanoTime();
+            int clientes = controlador.mCargarInstantanea(Path.of(ruta));
+            System.out.println("Se cargaron " + clientes + " clientes en " + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Error: No se pudo cargar la instantánea (" + e.getMessage() + ").");
+        }
+    }
+
+    private void mMenuSimularFlota() {
+        System.out.println("\n--- Simular Consumos de Toda la Flota ---");
+        System.out.print("Año del primer mes (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Primer mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        System.out.print("Cantidad de meses a simular: ");
+        int meses = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900 || meses < 1) {
+            System.out.println("Año, mes o cantidad de meses no válidos.");
+            return;
+        }
+
+        List<PerfilConsumo> perfiles = PerfilConsumo.mPredefinidos();
+        for (int i = 0; i < perfiles.size(); i++) {
+            System.out.println((i + 1) + ". Perfil " + perfiles.get(i).mGetNombre());
+        }
+        System.out.print("Elija el perfil: ");
+        int opcionPerfil = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+        if (opcionPerfil < 1 || opcionPerfil > perfiles.size()) {
+            System.out.println("Perfil no válido.");
+            return;
+        }
+
+        System.out.print("Semilla (deje vacío para una al azar): ");
+        String textoSemilla = scanner.nextLine().trim();
+        long semilla;
+        try {
+            semilla = textoSemilla.isEmpty() ? System.nanoTime() : Long.parseLong(textoSemilla);
+        } catch (NumberFormatException e) {
+            System.out.println("La semilla debe ser un número entero.");
+            return;
+        }
+
+        try {
+            long inicio = System.nanoTime();
+            long generados = controlador.mSimularConsumosFlota(anio, mes, meses, perfiles.get(opcionPerfil - 1), semilla);
+            long nanos = System.nanoTime() - inicio;
+            System.out.println(String.format("Se simularon %d meses de medidor (semilla %d) en %d ms (%.0f meses de medidor/s).",
+                    generados, semilla, nanos / 1_000_000, nanos == 0 ? 0.0 : generados * 1e9 / nanos));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void mMenuGenerarFacturasEnArchivos() {
+        System.out.println("\n--- Generar Facturas de Todos los Clientes en Archivos ---");
+        System.out.print("Año (ej. 2025): ");
+        int anio = scanner.nextInt();
+        System.out.print("Mes (número del 1 al 12): ");
+        int mes = scanner.nextInt();
+        System.out.print("Cantidad de archivos en que se reparten las facturas: ");
+        int fragmentos = scanner.nextInt();
+        scanner.nextLine(); // Limpiar
+
+        if (mes < 1 || mes > 12 || anio < 1900 || fragmentos < 1) {
+            System.out.println("Año, mes o cantidad de archivos no válidos.");
+            return;
+        }
+
+        System.out.print("Carpeta donde se guardan: ");
+        String ruta = scanner.nextLine().trim();
+
+        try {
+            ResultadoRenderizadoFacturas resultado = controlador.mGenerarFacturasEnArchivos(anio, mes, Path.of(ruta), fragmentos);
+            System.out.println("¡Facturas generadas! " + resultado);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Error: No se pudieron escribir las facturas (" + e.getMessage() + ").");
+        }
+    }
+}